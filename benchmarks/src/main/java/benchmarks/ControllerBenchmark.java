@@ -0,0 +1,46 @@
+package benchmarks;
+
+import database.Controller;
+import database.IController;
+import database.InMemoryDB;
+import database.dto.PlaygroundDTO;
+import database.exceptions.NoModificationException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controller.getPlaygrounds - the playground list route - against the in-memory data source, so the
+ * numbers show query fan-out and mapping cost rather than the network.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ControllerBenchmark {
+
+  @Param({"10", "50"})
+  public int playgrounds;
+
+  private IController controller;
+
+  @Setup(Level.Trial)
+  public void setUp() throws NoModificationException {
+    controller = Controller.getInstance();
+    controller.setDataSource(InMemoryDB.getInstance());
+    Fixtures.seed(controller, playgrounds, 5, 10, 2);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    InMemoryDB.getInstance().shutdown();
+  }
+
+  @Benchmark
+  public List<PlaygroundDTO> getPlaygrounds() {
+    return controller.getPlaygrounds();
+  }
+}
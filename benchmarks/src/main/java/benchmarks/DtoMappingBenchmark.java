@@ -0,0 +1,63 @@
+package benchmarks;
+
+import database.dto.EventDTO;
+import database.dto.MessageDTO;
+import database.dto.PlaygroundDTO;
+import database.dto.UserDTO;
+import org.jongo.bson.BsonDocument;
+import org.jongo.marshall.Marshaller;
+import org.jongo.marshall.Unmarshaller;
+import org.jongo.marshall.jackson.JacksonMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jongo unmarshalling of stored documents into the DTOs - the work done for every document a DAO reads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DtoMappingBenchmark {
+  private Unmarshaller unmarshaller;
+  private BsonDocument playground;
+  private BsonDocument user;
+  private BsonDocument event;
+  private BsonDocument message;
+
+  @Setup
+  public void setUp() {
+    // the same mapping as the default Jongo instances in the DAOs
+    JacksonMapper mapper = new JacksonMapper.Builder().build();
+    Marshaller marshaller = mapper.getMarshaller();
+    unmarshaller = mapper.getUnmarshaller();
+
+    playground = marshaller.marshall(Fixtures.storedPlayground(0, 10, 20, 3));
+    user = marshaller.marshall(Fixtures.user(0));
+    event = marshaller.marshall(Fixtures.event(0, "Legeplads 0"));
+    message = marshaller.marshall(Fixtures.message(0, "Legeplads 0"));
+  }
+
+  @Benchmark
+  public PlaygroundDTO unmarshallPlayground() {
+    return unmarshaller.unmarshall(playground, PlaygroundDTO.class);
+  }
+
+  @Benchmark
+  public UserDTO unmarshallUser() {
+    return unmarshaller.unmarshall(user, UserDTO.class);
+  }
+
+  @Benchmark
+  public EventDTO unmarshallEvent() {
+    return unmarshaller.unmarshall(event, EventDTO.class);
+  }
+
+  @Benchmark
+  public MessageDTO unmarshallMessage() {
+    return unmarshaller.unmarshall(message, MessageDTO.class);
+  }
+}
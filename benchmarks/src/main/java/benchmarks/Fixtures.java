@@ -0,0 +1,145 @@
+package benchmarks;
+
+import database.IController;
+import database.dto.DetailsDTO;
+import database.dto.EventDTO;
+import database.dto.MessageDTO;
+import database.dto.PlaygroundDTO;
+import database.dto.UserDTO;
+import database.exceptions.NoModificationException;
+import org.bson.types.ObjectId;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Deterministic test data for the benchmarks, shaped like the data in production.
+ */
+final class Fixtures {
+  private static final long DAY = 86_400_000L;
+
+  private Fixtures() {
+  }
+
+  static UserDTO user(int i) {
+    UserDTO user = new UserDTO.Builder("s" + (170000 + i))
+      .setFirstname("Nicolai")
+      .setLastname("Nisbeth")
+      .status("pædagog")
+      .setEmail(String.format("s%d@student.dtu.dk", 170000 + i))
+      .setPassword("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z6XH4j0Ap1oFGnKgvzJ8bjx2")
+      .phoneNumbers("+45 23 45 23 12", "+45 27 38 94 21")
+      .imagePath(String.format("http://localhost:8080/rest/users/s%d/profile-picture", 170000 + i))
+      .build();
+    user.setId(new ObjectId().toString());
+    return user;
+  }
+
+  static EventDTO event(int i, String playgroundName) {
+    Date date = new Date(1_600_000_000_000L + i * DAY);
+    EventDTO event = new EventDTO.Builder()
+      .id(new ObjectId().toString())
+      .name("Fodbold og snobrød " + i)
+      .description("Fodbold i Søndermarken, bagefter snobrød over bål. Husk tøj efter vejret.")
+      .imagePath("as9d89a8sd98sa98dsa.jpg")
+      .details(new DetailsDTO(date, date, new Date(date.getTime() + 7_200_000L)))
+      .playground(playgroundName)
+      .build();
+    Set<UserDTO> participants = new HashSet<>();
+    for (int j = 0; j < 5; j++)
+      participants.add(user(j));
+    event.setAssignedUsers(participants);
+    return event;
+  }
+
+  static MessageDTO message(int i, String playgroundName) {
+    MessageDTO message = new MessageDTO.Builder()
+      .set_id(new ObjectId().toString())
+      .setCategory("Networking")
+      .setMessageString("Husk at hente jeres børn inden kl. 16, vi lukker tidligt i dag. Besked nr. " + i)
+      .setPlaygroundID(playgroundName)
+      .setWrittenByID("s175565")
+      .setDate(new Date(1_600_000_000_000L + i * DAY))
+      .build();
+    return message;
+  }
+
+  static PlaygroundDTO playground(int i) {
+    PlaygroundDTO playground = new PlaygroundDTO.Builder("Legeplads " + i)
+      .setStreetName("Agervænget")
+      .setStreetNumber(i + 1)
+      .setZipCode(2000 + i % 500)
+      .setCommune("København")
+      .setImagePath(String.format("http://localhost:8080/rest/playgrounds/%d/picture", i))
+      .setToiletPossibilities(i % 2 == 0)
+      .setHasSoccerField(i % 3 == 0)
+      .setImageText("Legepladsen set fra indgangen")
+      .setDescriptionText("Stor legeplads med sandkasse, gynger, klatrestativ og bålplads.")
+      .build();
+    playground.setId(new ObjectId().toString());
+    return playground;
+  }
+
+  /**
+   * A playground as it is stored: events, messages and pedagogues are references only.
+   */
+  static PlaygroundDTO storedPlayground(int i, int events, int messages, int pedagogues) {
+    PlaygroundDTO playground = playground(i);
+    for (int j = 0; j < events; j++)
+      playground.getEvents().add(new EventDTO.Builder().id(new ObjectId().toString()).build());
+    for (int j = 0; j < messages; j++)
+      playground.getMessages().add(new MessageDTO.Builder().set_id(new ObjectId().toString()).build());
+    for (int j = 0; j < pedagogues; j++)
+      playground.getAssignedPedagogue().add(new UserDTO.Builder(user(j).getUsername()).build());
+    return playground;
+  }
+
+  /**
+   * A playground as it is returned by Controller.getPlayground: all references are resolved.
+   */
+  static PlaygroundDTO playgroundAggregate(int i, int events, int messages, int pedagogues) {
+    PlaygroundDTO playground = playground(i);
+    for (int j = 0; j < events; j++)
+      playground.getEvents().add(event(j, playground.getName()));
+    for (int j = 0; j < messages; j++)
+      playground.getMessages().add(message(j, playground.getName()));
+    for (int j = 0; j < pedagogues; j++)
+      playground.getAssignedPedagogue().add(user(j));
+    return playground;
+  }
+
+  /**
+   * Fills the data source of the controller through the same write paths the server uses.
+   */
+  static void seed(IController controller, int playgrounds, int eventsPer, int messagesPer, int pedagoguesPer)
+    throws NoModificationException {
+    controller.killAll();
+
+    for (int j = 0; j < pedagoguesPer; j++) {
+      UserDTO user = user(j);
+      user.setId(null);
+      controller.createUser(user);
+    }
+
+    for (int i = 0; i < playgrounds; i++) {
+      PlaygroundDTO playground = playground(i);
+      playground.setId(null);
+      controller.createPlayground(playground);
+
+      for (int j = 0; j < eventsPer; j++) {
+        EventDTO event = event(j, playground.getName());
+        event.setId(null);
+        event.setAssignedUsers(new HashSet<>());
+        controller.createPlaygroundEvent(playground.getName(), event);
+      }
+      for (int j = 0; j < messagesPer; j++) {
+        MessageDTO message = message(j, playground.getName());
+        message.setId(null);
+        controller.createPlaygroundMessage(playground.getName(), message);
+      }
+      for (int j = 0; j < pedagoguesPer; j++)
+        controller.addPedagogueToPlayground(playground.getName(), user(j).getUsername());
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import database.dto.PlaygroundDTO;
+import io.javalin.plugin.json.JavalinJackson;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the nested playground aggregate, as done by ctx.json in the playground routes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+
+  @Param({"5", "50"})
+  public int eventsPerPlayground;
+
+  private ObjectMapper objectMapper;
+  private PlaygroundDTO playground;
+  private List<PlaygroundDTO> playgrounds;
+
+  @Setup
+  public void setUp() {
+    objectMapper = JavalinJackson.getObjectMapper();
+    playground = Fixtures.playgroundAggregate(0, eventsPerPlayground, 2 * eventsPerPlayground, 3);
+
+    playgrounds = new ArrayList<>();
+    for (int i = 0; i < 20; i++)
+      playgrounds.add(Fixtures.playgroundAggregate(i, eventsPerPlayground, 2 * eventsPerPlayground, 3));
+  }
+
+  @Benchmark
+  public byte[] serializePlayground() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(playground);
+  }
+
+  @Benchmark
+  public byte[] serializeAllPlaygrounds() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(playgrounds);
+  }
+}
@@ -0,0 +1,51 @@
+package benchmarks;
+
+import database.dto.EventDTO;
+import database.dto.UserDTO;
+import org.openjdk.jmh.annotations.*;
+import resources.Json;
+import resources.RequestModels.EventModel;
+import resources.RequestModels.UserModel;
+
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request body parsing of the resources handlers, from the raw body through RequestModels to the dto.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestParsingBenchmark {
+  private static final String EVENT_BODY = "{\"playgroundNames\":\"Legeplads 0\",\"name\":\"Fodbold og snobrød\"," +
+    "\"description\":\"Fodbold i Søndermarken\",\"imagepath\":\"as9d89a8sd98sa98dsa.jpg\",\"capacity\":30," +
+    "\"year\":2020,\"month\":5,\"day\":14,\"hourstart\":10,\"minutestart\":0,\"hourend\":12,\"minuteend\":30," +
+    "\"users\":[]}";
+  private static final String USER_MODEL = "{\"usernameAdmin\":\"root\",\"passwordAdmin\":\"root\"," +
+    "\"username\":\"s175565\",\"password\":\"nicolai123456789\",\"firstname\":\"Nicolai\",\"lastname\":\"Nisbeth\"," +
+    "\"email\":\"s175565@student.dtu.dk\",\"status\":\"pædagog\",\"website\":\"www.nisbeth.dk\"," +
+    "\"phoneNumbers\":[\"+45 23 45 23 12\",\"+45 27 38 94 21\"],\"playgroundsNames\":[\"Legeplads 0\"]}";
+
+  /**
+   * Event.createPlaygroundEvent without the user lookups
+   */
+  @Benchmark
+  public EventDTO parseEvent() {
+    EventModel model = Json.parse(EVENT_BODY, EventModel.class);
+    return model.toEvent(new HashSet<>());
+  }
+
+  /**
+   * User.createUser without the admin check and the database lookups
+   */
+  @Benchmark
+  public UserDTO parseUserModel() {
+    UserModel model = Json.parse(USER_MODEL, UserModel.class);
+    model.hasAdminCredentials();
+    model.playgroundsNamesList();
+    return model.toUser(model.status);
+  }
+}
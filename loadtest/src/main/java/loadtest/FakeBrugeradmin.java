@@ -0,0 +1,49 @@
+package loadtest;
+
+import brugerautorisation.data.Bruger;
+import brugerautorisation.transport.rmi.Brugeradmin;
+
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+
+/**
+ * Stands in for the Brugeradmin service at javabog.dk, so logins work offline. Every username is
+ * known, and the password is always PASSWORD.
+ */
+class FakeBrugeradmin extends UnicastRemoteObject implements Brugeradmin {
+  static final String PASSWORD = "loadtest";
+  private static FakeBrugeradmin instance; // keeps the exported object reachable
+
+  private FakeBrugeradmin() throws RemoteException {
+    super();
+  }
+
+  /**
+   * Starts an RMI registry on the port with the fake bound under the usual name
+   *
+   * @return the url to look the fake up with
+   */
+  static String start(int port) throws RemoteException {
+    instance = new FakeBrugeradmin();
+    Registry registry = LocateRegistry.createRegistry(port);
+    registry.rebind(Brugeradmin.PATH, instance);
+    return String.format("rmi://localhost:%d/%s", port, Brugeradmin.PATH);
+  }
+
+  @Override
+  public Bruger hentBruger(String brugernavn, String adgangskode) throws RemoteException {
+    if (!PASSWORD.equals(adgangskode))
+      throw new IllegalArgumentException("Forkert brugernavn eller adgangskode for " + brugernavn);
+
+    Bruger bruger = new Bruger();
+    bruger.brugernavn = brugernavn;
+    bruger.adgangskode = adgangskode;
+    bruger.fornavn = "Load";
+    bruger.efternavn = "Test";
+    bruger.email = brugernavn + "@loadtest.local";
+    bruger.ekstraFelter.put("webside", "https://loadtest.local/" + brugernavn);
+    return bruger;
+  }
+}
@@ -0,0 +1,365 @@
+package loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import database.Controller;
+import database.InMemoryDB;
+import main.Main;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Closed-loop HTTP load test. Each worker logs in as its own user and then sends requests back to
+ * back, picking the operation from the weighted mix in Operation with a Random seeded from --seed,
+ * so two runs with the same options send the same sequence of requests per worker.
+ * <p>
+ * Options, all optional:
+ * <pre>
+ *   --target=http://host:8080   server to test, default is an in-process server on an in-memory database
+ *   --metrics=http://host:7080  Prometheus endpoint to print after the run, default http://localhost:7080
+ *   --duration=60               seconds measured
+ *   --warmup=10                 seconds run before measuring
+ *   --concurrency=16            workers
+ *   --seed=42                   seed for the request mix and the in-process data
+ *   --playgrounds=50            playgrounds seeded in-process, with 10 events and 20 messages each
+ * </pre>
+ * Against a remote target the workers log in through the real Brugeradmin, so --password must be
+ * given, and --users a comma separated list of usernames it is valid for.
+ */
+public class LoadTest {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = parse(args);
+    long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+    int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+    int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+    int duration = Integer.parseInt(options.getOrDefault("duration", "60"));
+    String metrics = options.getOrDefault("metrics", "http://localhost:7080");
+
+    String target = options.get("target");
+    String password = options.getOrDefault("password", FakeBrugeradmin.PASSWORD);
+    boolean inProcess = target == null;
+    if (inProcess) {
+      startServer(seed, Integer.parseInt(options.getOrDefault("playgrounds", "50")));
+      target = "http://localhost:8080";
+    }
+
+    List<String> users = new ArrayList<>();
+    for (int i = 0; i < concurrency; i++)
+      users.add("lt" + i);
+    if (options.containsKey("users"))
+      users = List.of(options.get("users").split(","));
+
+    HttpClient client = HttpClient.newBuilder()
+      .connectTimeout(Duration.ofSeconds(5))
+      .build();
+    Workload workload = Workload.discover(client, target);
+    System.out.printf("Load test of %s: %d playgrounds, %d events, %d workers, seed %d%n",
+      target, workload.playgrounds.size(), workload.eventCount(), concurrency, seed);
+
+    System.out.printf("Warming up for %d s%n", warmup);
+    run(client, target, workload, users, password, concurrency, seed, warmup);
+    System.out.printf("Measuring for %d s%n", duration);
+    long start = System.nanoTime();
+    Stats stats = run(client, target, workload, users, password, concurrency, seed + concurrency, duration);
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    System.out.println();
+    System.out.print(stats.report(seconds));
+    printMetrics(client, metrics);
+
+    if (inProcess)
+      Main.stop();
+    System.exit(0);
+  }
+
+  private static Stats run(HttpClient client, String target, Workload workload, List<String> users, String password,
+                           int concurrency, long seed, int seconds) throws InterruptedException {
+    long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+    List<Worker> workers = new ArrayList<>();
+    CountDownLatch done = new CountDownLatch(concurrency);
+
+    for (int i = 0; i < concurrency; i++) {
+      Worker worker = new Worker(client, target, workload, users.get(i % users.size()), password,
+        new Random(seed + i), deadline, done);
+      workers.add(worker);
+      new Thread(worker, "loadtest-worker-" + i).start();
+    }
+    done.await();
+
+    Stats stats = new Stats();
+    for (Worker worker : workers)
+      stats.merge(worker.stats);
+    return stats;
+  }
+
+  /**
+   * Same directories as Main.buildDirectories, in a temporary home so the run leaves nothing behind.
+   */
+  private static void startServer(long seed, int playgrounds) throws Exception {
+    File home = Files.createTempDirectory("loadtest").toFile();
+    home.deleteOnExit();
+    System.setProperty("user.home", home.getAbsolutePath());
+    for (String dir : new String[]{"message_images", "playgrounds", "profile_images", "users"})
+      new File(home, "server_resource/" + dir).mkdirs();
+
+    System.setProperty("brugeradmin.url", FakeBrugeradmin.start(1099));
+    Controller.getInstance().setDataSource(InMemoryDB.getInstance());
+    Seed.seed(Controller.getInstance(), seed, playgrounds, 10, 20);
+    Main.start();
+  }
+
+  private static void printMetrics(HttpClient client, String metrics) {
+    try {
+      HttpResponse<String> response = client.send(
+        HttpRequest.newBuilder(URI.create(metrics + "/metrics")).build(), HttpResponse.BodyHandlers.ofString());
+      System.out.println();
+      System.out.println("Server metrics after the run:");
+      response.body().lines()
+        .filter(line -> !line.startsWith("#"))
+        .filter(line -> line.startsWith("jetty_") || line.startsWith("jvm_memory_bytes_used")
+          || line.startsWith("jvm_gc_collection") || line.startsWith("process_cpu"))
+        .forEach(System.out::println);
+    } catch (IOException | InterruptedException e) {
+      System.out.println("No server metrics at " + metrics + ": " + e.getMessage());
+    }
+  }
+
+  private static Map<String, String> parse(String[] args) {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      if (!arg.startsWith("--") || !arg.contains("="))
+        throw new IllegalArgumentException("Options are given as --name=value, not " + arg);
+      options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+    }
+    return options;
+  }
+
+  /**
+   * The playgrounds and events the workers pick from, read once from the server.
+   */
+  static class Workload {
+    final List<String> playgrounds = new ArrayList<>();
+    final Map<String, List<String>> events = new HashMap<>();
+
+    static Workload discover(HttpClient client, String target) throws IOException, InterruptedException {
+      HttpResponse<String> response = client.send(
+        HttpRequest.newBuilder(URI.create(target + "/rest/playgrounds")).build(), HttpResponse.BodyHandlers.ofString());
+      if (response.statusCode() != 200)
+        throw new IllegalStateException("Can't read playgrounds from " + target + ": " + response.statusCode());
+
+      Workload workload = new Workload();
+      for (JsonNode playground : MAPPER.readTree(response.body())) {
+        String name = playground.path("name").asText();
+        List<String> ids = new ArrayList<>();
+        for (JsonNode event : playground.path("events"))
+          if (event.hasNonNull("id"))
+            ids.add(event.get("id").asText());
+        workload.playgrounds.add(name);
+        workload.events.put(name, ids);
+      }
+      if (workload.playgrounds.isEmpty())
+        throw new IllegalStateException("No playgrounds at " + target);
+      return workload;
+    }
+
+    int eventCount() {
+      return events.values().stream().mapToInt(List::size).sum();
+    }
+  }
+
+  private static class Worker implements Runnable {
+    private static final int[] CUMULATIVE_WEIGHTS = new int[Operation.values().length];
+    private static final int TOTAL_WEIGHT;
+
+    static {
+      int sum = 0;
+      for (Operation operation : Operation.values())
+        CUMULATIVE_WEIGHTS[operation.ordinal()] = sum += operation.weight;
+      TOTAL_WEIGHT = sum;
+    }
+
+    final Stats stats = new Stats();
+    private final HttpClient client;
+    private final String target;
+    private final Workload workload;
+    private final String username;
+    private final String password;
+    private final Random random;
+    private final long deadline;
+    private final CountDownLatch done;
+    private final Set<String> joined = new HashSet<>();
+    private final byte[] image;
+    private String token;
+
+    Worker(HttpClient client, String target, Workload workload, String username, String password, Random random,
+           long deadline, CountDownLatch done) {
+      this.client = client;
+      this.target = target;
+      this.workload = workload;
+      this.username = username;
+      this.password = password;
+      this.random = random;
+      this.deadline = deadline;
+      this.done = done;
+      this.image = png(random);
+    }
+
+    @Override
+    public void run() {
+      try {
+        login();
+        while (System.nanoTime() < deadline)
+          execute(next());
+      } finally {
+        done.countDown();
+      }
+    }
+
+    private Operation next() {
+      int pick = random.nextInt(TOTAL_WEIGHT);
+      for (Operation operation : Operation.values())
+        if (pick < CUMULATIVE_WEIGHTS[operation.ordinal()])
+          return operation;
+      throw new IllegalStateException("Weights don't add up");
+    }
+
+    private void execute(Operation operation) {
+      String playground = workload.playgrounds.get(random.nextInt(workload.playgrounds.size()));
+      HttpRequest request;
+
+      switch (operation) {
+        case PLAYGROUND_LIST:
+          request = get("/rest/playgrounds");
+          break;
+        case PLAYGROUND_DETAIL:
+          request = get("/rest/playgrounds/" + encode(playground));
+          break;
+        case MESSAGE_POST:
+          request = messagePost(playground);
+          break;
+        case EVENT_SIGN_UP:
+          List<String> events = workload.events.get(playground);
+          if (events.isEmpty()) return;
+          String event = events.get(random.nextInt(events.size()));
+          String path = String.format("/rest/playgrounds/%s/events/%s/participants/%s", encode(playground), event, username);
+          // alternate, so a user is never signed up twice and events don't fill up
+          if (joined.remove(event)) {
+            operation = Operation.EVENT_LEAVE;
+            request = authorized(path).DELETE().build();
+          } else {
+            joined.add(event);
+            request = authorized(path).POST(HttpRequest.BodyPublishers.noBody()).build();
+          }
+          break;
+        case LOGIN:
+          login();
+          return;
+        default:
+          throw new IllegalStateException("Operation is not part of the mix: " + operation);
+      }
+      send(operation, request);
+    }
+
+    private void login() {
+      String body = String.format("{\"username\":\"%s\",\"password\":\"%s\"}", username, password);
+      HttpResponse<String> response = send(Operation.LOGIN, HttpRequest.newBuilder(URI.create(target + "/rest/users/login"))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(body))
+        .build());
+      if (response != null)
+        response.headers().firstValue("Authorization").ifPresent(t -> token = t);
+    }
+
+    private HttpRequest messagePost(String playground) {
+      String boundary = "loadtest" + Long.toHexString(random.nextLong());
+      String message = String.format(
+        "{\"messageString\":\"Load test besked %d\",\"category\":\"Networking\",\"playgroundID\":\"%s\",\"hasImage\":true}",
+        random.nextInt(), playground);
+
+      ByteArrayOutputStream body = new ByteArrayOutputStream();
+      write(body, "--" + boundary + "\r\nContent-Disposition: form-data; name=\"message\"\r\n\r\n" + message + "\r\n");
+      write(body, "--" + boundary + "\r\nContent-Disposition: form-data; name=\"image\"; filename=\"image.png\"\r\n"
+        + "Content-Type: image/png\r\n\r\n");
+      body.writeBytes(image);
+      write(body, "\r\n--" + boundary + "--\r\n");
+
+      return authorized(String.format("/rest/playgrounds/%s/messages", encode(playground)))
+        .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+        .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+        .build();
+    }
+
+    private HttpRequest get(String path) {
+      return HttpRequest.newBuilder(URI.create(target + path)).GET().build();
+    }
+
+    private HttpRequest.Builder authorized(String path) {
+      HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(target + path));
+      if (token != null)
+        builder.header("Authorization", "Bearer " + token);
+      return builder;
+    }
+
+    private HttpResponse<String> send(Operation operation, HttpRequest request) {
+      long start = System.nanoTime();
+      try {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        stats.record(operation, System.nanoTime() - start, response.statusCode() >= 400);
+        return response;
+      } catch (IOException e) {
+        stats.record(operation, System.nanoTime() - start, true);
+        return null;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+    }
+
+    private static String encode(String s) {
+      return URLEncoder.encode(s, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    private static void write(ByteArrayOutputStream out, String s) {
+      out.writeBytes(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A small noisy image, so the upload can't be compressed away.
+     */
+    private static byte[] png(Random random) {
+      BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+      for (int x = 0; x < 64; x++)
+        for (int y = 0; y < 64; y++)
+          image.setRGB(x, y, random.nextInt(0xFFFFFF));
+      try {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+}
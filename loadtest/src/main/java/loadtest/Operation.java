@@ -0,0 +1,20 @@
+package loadtest;
+
+/**
+ * The operations of the request mix, with the share of requests each gets. Signing up and leaving
+ * an event alternate per user and event, so together they get the sign-up share.
+ */
+enum Operation {
+  PLAYGROUND_LIST(30),
+  PLAYGROUND_DETAIL(40),
+  MESSAGE_POST(10),
+  EVENT_SIGN_UP(15),
+  EVENT_LEAVE(0),
+  LOGIN(5);
+
+  final int weight;
+
+  Operation(int weight) {
+    this.weight = weight;
+  }
+}
@@ -0,0 +1,62 @@
+package loadtest;
+
+import database.IController;
+import database.dto.DetailsDTO;
+import database.dto.EventDTO;
+import database.dto.MessageDTO;
+import database.dto.PlaygroundDTO;
+import database.exceptions.NoModificationException;
+
+import java.util.Date;
+import java.util.Random;
+
+/**
+ * Data for the in-process server, written through the controller like the server writes it.
+ */
+final class Seed {
+  private static final long DAY = 86_400_000L;
+
+  private Seed() {
+  }
+
+  static void seed(IController controller, long seed, int playgrounds, int eventsPer, int messagesPer)
+    throws NoModificationException {
+    Random random = new Random(seed);
+    controller.killAll();
+
+    for (int i = 0; i < playgrounds; i++) {
+      String name = "Legeplads " + i;
+      controller.createPlayground(new PlaygroundDTO.Builder(name)
+        .setStreetName("Agervænget")
+        .setStreetNumber(i + 1)
+        .setZipCode(2000 + random.nextInt(500))
+        .setCommune("København")
+        .setToiletPossibilities(random.nextBoolean())
+        .setHasSoccerField(random.nextBoolean())
+        .setDescriptionText("Stor legeplads med sandkasse, gynger, klatrestativ og bålplads.")
+        .build());
+
+      for (int j = 0; j < eventsPer; j++) {
+        Date date = new Date(System.currentTimeMillis() + (1 + random.nextInt(60)) * DAY);
+        EventDTO event = new EventDTO.Builder()
+          .name("Fodbold og snobrød " + j)
+          .description("Fodbold i Søndermarken, bagefter snobrød over bål.")
+          .details(new DetailsDTO(date, date, new Date(date.getTime() + 7_200_000L)))
+          .playground(name)
+          .build();
+        controller.createPlaygroundEvent(name, event);
+      }
+
+      for (int j = 0; j < messagesPer; j++) {
+        MessageDTO message = new MessageDTO.Builder()
+          .setCategory("Networking")
+          .setMessageString("Husk at hente jeres børn inden kl. 16. Besked nr. " + j)
+          .setPlaygroundID(name)
+          .setWrittenByID("s175565")
+          .setDate(new Date(System.currentTimeMillis() - random.nextInt(30) * DAY))
+          .build();
+        controller.createPlaygroundMessage(name, message);
+      }
+    }
+  }
+}
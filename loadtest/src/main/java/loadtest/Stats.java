@@ -0,0 +1,78 @@
+package loadtest;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Latencies and errors per operation. Each worker has its own instance, they are merged for the report.
+ */
+class Stats {
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+  private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+
+  void record(Operation operation, long latencyNanos, boolean error) {
+    recorders.computeIfAbsent(operation, o -> new Recorder()).add(latencyNanos, error);
+  }
+
+  void merge(Stats other) {
+    other.recorders.forEach((operation, recorder) ->
+      recorders.computeIfAbsent(operation, o -> new Recorder()).addAll(recorder));
+  }
+
+  String report(double seconds) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("%-18s %9s %8s %7s %9s %9s %9s %9s %9s %9s%n",
+      "operation", "count", "errors", "err%", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+
+    Recorder total = new Recorder();
+    for (Map.Entry<Operation, Recorder> entry : recorders.entrySet()) {
+      sb.append(line(entry.getKey().name(), entry.getValue(), seconds));
+      total.addAll(entry.getValue());
+    }
+    sb.append(line("TOTAL", total, seconds));
+    return sb.toString();
+  }
+
+  private static String line(String name, Recorder recorder, double seconds) {
+    long[] sorted = Arrays.copyOf(recorder.latencies, recorder.count);
+    Arrays.sort(sorted);
+
+    StringBuilder sb = new StringBuilder(String.format("%-18s %9d %8d %6.2f%% %9.1f",
+      name, recorder.count, recorder.errors, recorder.count == 0 ? 0.0 : 100.0 * recorder.errors / recorder.count,
+      recorder.count / seconds));
+    for (double percentile : PERCENTILES)
+      sb.append(String.format(" %9.2f", millis(percentile(sorted, percentile))));
+    sb.append(String.format(" %9.2f%n", millis(sorted.length == 0 ? 0 : sorted[sorted.length - 1])));
+    return sb.toString();
+  }
+
+  private static long percentile(long[] sorted, double percentile) {
+    if (sorted.length == 0) return 0;
+    int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1_000_000.0;
+  }
+
+  private static class Recorder {
+    private long[] latencies = new long[1024];
+    private int count;
+    private int errors;
+
+    void add(long latencyNanos, boolean error) {
+      if (count == latencies.length)
+        latencies = Arrays.copyOf(latencies, count * 2);
+      latencies[count++] = latencyNanos;
+      if (error) errors++;
+    }
+
+    void addAll(Recorder other) {
+      for (int i = 0; i < other.count; i++)
+        add(other.latencies[i], false);
+      errors += other.errors;
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package database;
+
+import database.dto.EventDTO;
+import database.dto.MessageDTO;
+import database.dto.NearbyPlaygroundsDTO;
+import database.dto.PlaygroundDTO;
+import database.dto.PlaygroundViewDTO;
+import database.dto.StatisticsDTO;
+import database.dto.UserDTO;
+import database.exceptions.UnavailableException;
+import database.utils.IOExecutor;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Runs the reads of {@link Controller} on the bounded {@link IOExecutor}, so a request
+ * thread is handed back to Jetty while the query is in flight.
+ */
+public class AsyncController implements IAsyncController {
+  private static IAsyncController asyncController;
+  private final IController controller;
+  private final Executor executor;
+
+  private AsyncController(IController controller, Executor executor) {
+    this.controller = controller;
+    this.executor = executor;
+  }
+
+  public static IAsyncController getInstance() {
+    if (asyncController == null) {
+      asyncController = new AsyncController(Controller.getInstance(), IOExecutor.getInstance());
+    }
+    return asyncController;
+  }
+
+  @Override
+  public CompletableFuture<PlaygroundDTO> getPlayground(String playgroundName) {
+    return supply(() -> controller.getPlayground(playgroundName));
+  }
+
+  @Override
+  public CompletableFuture<PlaygroundViewDTO> getPlaygroundView(String playgroundName) {
+    return supply(() -> controller.getPlaygroundView(playgroundName));
+  }
+
+  @Override
+  public CompletableFuture<UserDTO> getUser(String username) {
+    return supply(() -> controller.getUser(username));
+  }
+
+  @Override
+  public CompletableFuture<EventDTO> getEvent(String eventID) {
+    return supply(() -> controller.getEvent(eventID));
+  }
+
+  @Override
+  public CompletableFuture<Integer> getEventParticipantCount(String eventID) {
+    return supply(() -> controller.getEventParticipantCount(eventID));
+  }
+
+  @Override
+  public CompletableFuture<PlaygroundDTO> getPlaygroundCounters(String playgroundName) {
+    return supply(() -> controller.getPlaygroundCounters(playgroundName));
+  }
+
+  @Override
+  public CompletableFuture<NearbyPlaygroundsDTO> getNearbyPlaygrounds(double latitude, double longitude, double radius, int page, int size) {
+    return supply(() -> controller.getNearbyPlaygrounds(latitude, longitude, radius, page, size));
+  }
+
+  @Override
+  public CompletableFuture<StatisticsDTO> getStatistics() {
+    CompletableFuture<StatisticsDTO.UserStatistics> users = supply(controller::getUserStatistics);
+    CompletableFuture<StatisticsDTO.EventStatistics> events = supply(controller::getEventStatistics);
+    CompletableFuture<StatisticsDTO.PlaygroundStatistics> playgrounds = supply(controller::getPlaygroundStatistics);
+    CompletableFuture<StatisticsDTO.MessageStatistics> messages = supply(controller::getMessageStatistics);
+    return CompletableFuture.allOf(users, events, playgrounds, messages)
+      .thenApply(done -> new StatisticsDTO(users.join(), events.join(), playgrounds.join(), messages.join()));
+  }
+
+  @Override
+  public CompletableFuture<MessageDTO> getMessage(String messageID) {
+    return supply(() -> controller.getMessage(messageID));
+  }
+
+  @Override
+  public CompletableFuture<List<PlaygroundDTO>> getPlaygrounds() {
+    return supply(controller::getPlaygrounds);
+  }
+
+  @Override
+  public CompletableFuture<List<UserDTO>> getUsers() {
+    return supply(controller::getUsers);
+  }
+
+  @Override
+  public CompletableFuture<List<EventDTO>> getEventsInPlayground(String playgroundName) {
+    return supply(() -> controller.getEventsInPlayground(playgroundName));
+  }
+
+  @Override
+  public CompletableFuture<List<EventDTO>> getEventsInPlayground(String playgroundName, Date from, Date to) {
+    return supply(() -> controller.getEventsInPlayground(playgroundName, from, to));
+  }
+
+  @Override
+  public CompletableFuture<List<EventDTO>> getUpcomingEvents(Date from, Date to, int page, int size) {
+    return supply(() -> controller.getUpcomingEvents(from, to, page, size));
+  }
+
+  @Override
+  public CompletableFuture<List<MessageDTO>> getMessagesInPlayground(String playgroundName) {
+    return supply(() -> controller.getMessagesInPlayground(playgroundName));
+  }
+
+  @Override
+  public CompletableFuture<List<UserDTO>> getUsersInPlayground(String playgroundName) {
+    return supply(() -> controller.getUsersInPlayground(playgroundName));
+  }
+
+  /**
+   * A full pool fails the returned future with UnavailableException instead of throwing on the
+   * request thread.
+   */
+  private <T> CompletableFuture<T> supply(Supplier<T> query) {
+    try {
+      return CompletableFuture.supplyAsync(query, executor);
+    } catch (RejectedExecutionException e) {
+      return CompletableFuture.failedFuture(new UnavailableException("Read pool is full", e));
+    }
+  }
+}
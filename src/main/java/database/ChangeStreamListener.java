@@ -0,0 +1,240 @@
+package database;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.MongoQueryException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import database.dao.IEventDAO;
+import database.dao.IMessageDAO;
+import database.dao.IPlaygroundDAO;
+import database.dao.IUserDAO;
+import database.dto.EventDTO;
+import database.dto.MessageDTO;
+import database.utils.QueryUtils;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows the change stream of the playground, user, event and message collections, so an instance
+ * behind the load balancer learns about writes of the other instances. Each change is handed to
+ * IController.onRemoteChange, which drops the local caches of the playground, and created messages,
+ * events and sign-ups are published to the PlaygroundBus for the local streams.
+ * <p>
+ * The resume token is saved per instance in the resumeTokens collection, so a restarted instance
+ * continues where it stopped. If the oplog no longer holds that point, all playgrounds are reported
+ * as changed and the stream starts over. Change streams need a replica set - see ReplicaSetDB.
+ */
+public class ChangeStreamListener {
+  public static final String TOKEN_COLLECTION = "resumeTokens";
+  private static final List<String> WATCHED_COLLECTIONS = Arrays.asList(
+    IPlaygroundDAO.COLLECTION, IUserDAO.COLLECTION, IEventDAO.COLLECTION, IMessageDAO.COLLECTION);
+  private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+  private static final int CHANGE_STREAM_FATAL_ERROR = 280;
+  private static final int SAVE_EVERY_CHANGES = 100;
+  private static final long MAX_AWAIT_MS = 1_000;
+  private static final long MIN_RETRY_MS = 500;
+  private static final long MAX_RETRY_MS = 30_000;
+  private final IDataSource dataSource;
+  private final IController controller;
+  private final String instanceID;
+  private volatile boolean running;
+  private Thread thread;
+  private BsonDocument resumeToken;
+  private BsonDocument savedToken;
+  private int unsavedChanges;
+
+  /**
+   * @param instanceID unique per instance and stable across restarts, like the host name
+   */
+  public ChangeStreamListener(IDataSource dataSource, IController controller, String instanceID) {
+    this.dataSource = dataSource;
+    this.controller = controller;
+    this.instanceID = instanceID;
+  }
+
+  public synchronized void start() {
+    if (running) return;
+    running = true;
+    resumeToken = loadToken();
+    savedToken = resumeToken;
+    thread = new Thread(this::run, "change-stream");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Stops following the stream and saves the resume token.
+   */
+  public synchronized void stop() throws InterruptedException {
+    if (!running) return;
+    running = false;
+    thread.join(2 * MAX_AWAIT_MS);
+    saveToken();
+  }
+
+  private void run() {
+    long retryMs = MIN_RETRY_MS;
+    while (running) {
+      try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = open()) {
+        retryMs = MIN_RETRY_MS;
+        while (running) {
+          ChangeStreamDocument<Document> change = cursor.tryNext();
+          if (change != null) {
+            apply(change);
+            unsavedChanges++;
+          }
+          // also moves on while idle, so the token doesn't fall out of the oplog
+          if (cursor.getResumeToken() != null)
+            resumeToken = cursor.getResumeToken();
+          if (change == null || unsavedChanges >= SAVE_EVERY_CHANGES)
+            saveToken();
+        }
+      } catch (MongoCommandException | MongoQueryException e) {
+        if (e.getErrorCode() == CHANGE_STREAM_HISTORY_LOST || e.getErrorCode() == CHANGE_STREAM_FATAL_ERROR) {
+          System.out.println(String.format("Server: Change stream can't resume, dropping all caches - %s", e.getMessage()));
+          resumeToken = null;
+          controller.onRemoteChange(null);
+        } else {
+          retryMs = retry(e, retryMs);
+        }
+      } catch (MongoException e) {
+        retryMs = retry(e, retryMs);
+      } catch (RuntimeException e) {
+        // a change that can't be applied must not stop the listener
+        retryMs = retry(e, retryMs);
+      }
+    }
+  }
+
+  private MongoChangeStreamCursor<ChangeStreamDocument<Document>> open() {
+    ChangeStreamIterable<Document> stream = database()
+      .watch(Collections.singletonList(Aggregates.match(Filters.in("ns.coll", WATCHED_COLLECTIONS))))
+      .fullDocument(FullDocument.UPDATE_LOOKUP)
+      .maxAwaitTime(MAX_AWAIT_MS, TimeUnit.MILLISECONDS);
+    if (resumeToken != null)
+      stream = stream.resumeAfter(resumeToken);
+    return stream.cursor();
+  }
+
+  private long retry(RuntimeException e, long retryMs) {
+    if (!running) return retryMs;
+    System.out.println(String.format("Server: Change stream failed, retrying in %d ms - %s", retryMs, e));
+    try {
+      Thread.sleep(retryMs);
+    } catch (InterruptedException interrupted) {
+      Thread.currentThread().interrupt();
+      running = false;
+    }
+    return Math.min(2 * retryMs, MAX_RETRY_MS);
+  }
+
+  void apply(ChangeStreamDocument<Document> change) {
+    OperationType operation = change.getOperationType();
+    Document document = change.getFullDocument();
+    // deletes carry only the id, and drop, rename and invalidate concern whole collections
+    if (document == null || change.getNamespace() == null) {
+      controller.onRemoteChange(null);
+      return;
+    }
+
+    String id = id(change.getDocumentKey());
+    switch (change.getNamespace().getCollectionName()) {
+      case IPlaygroundDAO.COLLECTION:
+        controller.onRemoteChange(document.getString("name"));
+        break;
+      case IUserDAO.COLLECTION:
+        // the user may be shown as pedagogue on these playgrounds
+        List<String> playgroundsNames = document.getList("playgroundsNames", String.class);
+        if (playgroundsNames != null)
+          for (String playgroundName : playgroundsNames)
+            controller.onRemoteChange(playgroundName);
+        break;
+      case IEventDAO.COLLECTION:
+        String eventPlayground = document.getString("playground");
+        controller.onRemoteChange(eventPlayground);
+        if (operation == OperationType.INSERT)
+          PlaygroundBus.getInstance().publish(eventPlayground, PlaygroundBus.EVENT_CREATED, id,
+            QueryUtils.unmarshall(document, EventDTO.class));
+        else if (operation == OperationType.UPDATE)
+          publishAddedParticipants(change, eventPlayground, id);
+        break;
+      case IMessageDAO.COLLECTION:
+        String messagePlayground = document.getString("playgroundID");
+        controller.onRemoteChange(messagePlayground);
+        if (operation == OperationType.INSERT)
+          PlaygroundBus.getInstance().publish(messagePlayground, PlaygroundBus.MESSAGE_CREATED, id,
+            QueryUtils.unmarshall(document, MessageDTO.class));
+        break;
+    }
+  }
+
+  /**
+   * A sign-up $push'es the user to assignedUsers, which the update description shows as assignedUsers.[index]
+   */
+  private static void publishAddedParticipants(ChangeStreamDocument<Document> change, String playgroundName, String eventID) {
+    if (change.getUpdateDescription() == null || change.getUpdateDescription().getUpdatedFields() == null)
+      return;
+
+    for (Map.Entry<String, BsonValue> field : change.getUpdateDescription().getUpdatedFields().entrySet()) {
+      if (!field.getKey().startsWith("assignedUsers.") || !field.getValue().isDocument())
+        continue;
+
+      BsonValue username = field.getValue().asDocument().get("username");
+      if (username != null && username.isString())
+        PlaygroundBus.getInstance().publish(playgroundName, PlaygroundBus.PARTICIPANT_ADDED,
+          eventID + "/" + username.asString().getValue(),
+          Map.of("eventID", eventID, "username", username.asString().getValue()));
+    }
+  }
+
+  private static String id(BsonDocument documentKey) {
+    BsonValue id = documentKey == null ? null : documentKey.get("_id");
+    if (id == null)
+      return null;
+    return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.toString();
+  }
+
+  private BsonDocument loadToken() {
+    BsonDocument saved = tokens().find(Filters.eq("_id", instanceID)).first();
+    return saved == null || !saved.isDocument("token") ? null : saved.getDocument("token");
+  }
+
+  private void saveToken() {
+    if (resumeToken == null || resumeToken.equals(savedToken))
+      return;
+
+    try {
+      BsonDocument saved = new BsonDocument("_id", new BsonString(instanceID)).append("token", resumeToken);
+      tokens().replaceOne(Filters.eq("_id", instanceID), saved, new ReplaceOptions().upsert(true));
+      savedToken = resumeToken;
+      unsavedChanges = 0;
+    } catch (MongoException e) {
+      System.out.println(String.format("Server: Could not save resume token of %s - %s", instanceID, e));
+    }
+  }
+
+  private MongoCollection<BsonDocument> tokens() {
+    return database().getCollection(TOKEN_COLLECTION, BsonDocument.class);
+  }
+
+  private MongoDatabase database() {
+    return dataSource.getClient().getDatabase(dataSource.getDatabase().getName());
+  }
+}
@@ -1,30 +1,62 @@
 package database;
 
+import com.mongodb.BulkWriteError;
+import com.mongodb.BulkWriteException;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBObject;
 import com.mongodb.MongoException;
 import com.mongodb.WriteResult;
 import com.mongodb.client.ClientSession;
 import database.dao.*;
+import database.dto.BulkResultDTO;
 import database.dto.EventDTO;
+import database.dto.LocationDTO;
 import database.dto.MessageDTO;
+import database.dto.NearbyPlaygroundsDTO;
 import database.dto.PlaygroundDTO;
+import database.dto.PlaygroundViewDTO;
+import database.dto.StatisticsDTO;
 import database.dto.UserDTO;
+import database.exceptions.EventFullException;
 import database.exceptions.NoModificationException;
+import database.exceptions.UnavailableException;
+import database.utils.IOExecutor;
 import database.utils.QueryUtils;
+import geocoding.IGeocoder;
+import geocoding.ZipCentroidGeocoder;
 import org.bson.types.ObjectId;
 import org.jongo.Jongo;
 import org.jongo.MongoCollection;
 import org.jongo.MongoCursor;
 import org.mindrot.jbcrypt.BCrypt;
+import search.SearchIndex;
+import stats.LiveStatistics;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class Controller implements IController {
+  private static final long SUB_QUERY_TIMEOUT_MS = 2_000;
+  private static final int EXPIRE_BATCH_SIZE = 500;
+  private static final int ENROLL_ATTEMPTS = 3;
   private static IController controller;
   private final IPlaygroundDAO playgroundDAO;
   private final IUserDAO userDAO;
   private final IMessageDAO messageDAO;
   private final IEventDAO eventDAO;
+  private final IPlaygroundViewDAO playgroundViewDAO;
+  private final IStatisticsDAO statisticsDAO;
+  private final LiveStatistics liveStatistics;
+  private final SearchIndex searchIndex;
+  private final List<Consumer<String>> playgroundListeners = new CopyOnWriteArrayList<>();
   private IDataSource datasource;
+  private IGeocoder geocoder = ZipCentroidGeocoder.getInstance();
 
   private Controller() {
     /*this.datasource = ProductionDB.getInstance(); // production database by default*/
@@ -33,6 +65,10 @@ public class Controller implements IController {
     this.userDAO = new UserDAO(datasource);
     this.messageDAO = new MessageDAO(datasource);
     this.eventDAO = new EventDAO(datasource);
+    this.playgroundViewDAO = new PlaygroundViewDAO(datasource);
+    this.statisticsDAO = new StatisticsDAO(datasource);
+    this.liveStatistics = LiveStatistics.getInstance(datasource);
+    this.searchIndex = SearchIndex.getInstance(datasource);
   }
 
   public static IController getInstance() {
@@ -44,34 +80,67 @@ public class Controller implements IController {
 
   @Override
   public WriteResult createPlayground(PlaygroundDTO playground) throws IllegalArgumentException, NoModificationException {
-    return playgroundDAO.createPlayground(playground);
+    if (playground != null && playground.getLocation() == null)
+      playground.setLocation(geocode(playground));
+    WriteResult wr = playgroundDAO.createPlayground(playground);
+    liveStatistics.add(IStatisticsDAO.PLAYGROUNDS, playground.getName(), 1);
+    searchIndex.indexPlayground(playground);
+    onPlaygroundChanged(playground.getName());
+    return wr;
   }
 
   @Override
   public WriteResult createUser(UserDTO user) throws IllegalArgumentException, NoModificationException {
     String hashedPassword = BCrypt.hashpw(user.getPassword(), BCrypt.gensalt());
     user.setPassword(hashedPassword);
-    return userDAO.createUser(user);
+    WriteResult wr = userDAO.createUser(user);
+    liveStatistics.add(IStatisticsDAO.USERS, user.getStatus(), 1);
+    return wr;
   }
 
+  /**
+   * @throws UnavailableException when a sub-query failed, timed out or could not be started - the
+   *                              playground is never returned with parts missing, as updates write it back
+   */
   @Override
   public PlaygroundDTO getPlayground(String playgroundName) throws IllegalArgumentException, NoSuchElementException {
+    // the sub-queries only depend on the name, so they run while the playground itself is fetched
+    CompletableFuture<List<UserDTO>> pedagogues = subQuery("pedagogues", playgroundName,
+      () -> getUsersInPlayground(playgroundName));
+    CompletableFuture<List<EventDTO>> events = subQuery("events", playgroundName,
+      () -> getEventsInPlayground(playgroundName));
+    CompletableFuture<List<MessageDTO>> messages = subQuery("messages", playgroundName,
+      () -> getMessagesInPlayground(playgroundName));
+
     PlaygroundDTO playground = playgroundDAO.getPlayground(playgroundName);
 
     // fetch assigned pedagogues based on username
-    Set<UserDTO> pedagogues = new HashSet<>(getUsersInPlayground(playgroundName));
-    playground.setAssignedPedagogue(pedagogues);
+    playground.setAssignedPedagogue(new HashSet<>(join("pedagogues", playgroundName, pedagogues)));
 
     // fetch events based on id
-    Set<EventDTO> events = new HashSet<>(getEventsInPlayground(playgroundName));
-    playground.setEvents(events);
+    playground.setEvents(new HashSet<>(join("events", playgroundName, events)));
 
     // fetch messages based on id
-    Set<MessageDTO> messages = new HashSet<>(getMessagesInPlayground(playgroundName));
-    playground.setMessages(messages);
+    playground.setMessages(new HashSet<>(join("messages", playgroundName, messages)));
     return playground;
   }
 
+  @Override
+  public PlaygroundViewDTO getPlaygroundView(String playgroundName) throws IllegalArgumentException, NoSuchElementException {
+    try {
+      return playgroundViewDAO.getView(playgroundName);
+    } catch (NoSuchElementException e) {
+      // not materialized yet - build it now so the next read is a single lookup
+      PlaygroundViewDTO view = buildPlaygroundView(playgroundName);
+      try {
+        playgroundViewDAO.saveView(view);
+      } catch (NoModificationException | MongoException ex) {
+        ex.printStackTrace();
+      }
+      return view;
+    }
+  }
+
   @Override
   public UserDTO getUser(String username) throws NoSuchElementException, IllegalArgumentException {
     UserDTO user = userDAO.getUser(username);
@@ -111,6 +180,42 @@ public class Controller implements IController {
     return event;
   }
 
+  @Override
+  public int getEventParticipantCount(String eventID) throws IllegalArgumentException, NoSuchElementException {
+    return eventDAO.getParticipantCount(eventID);
+  }
+
+  @Override
+  public StatisticsDTO.UserStatistics getUserStatistics() {
+    return statisticsDAO.getUserStatistics();
+  }
+
+  @Override
+  public StatisticsDTO.EventStatistics getEventStatistics() {
+    return statisticsDAO.getEventStatistics();
+  }
+
+  @Override
+  public StatisticsDTO.PlaygroundStatistics getPlaygroundStatistics() {
+    return statisticsDAO.getPlaygroundStatistics();
+  }
+
+  @Override
+  public StatisticsDTO.MessageStatistics getMessageStatistics() {
+    return statisticsDAO.getMessageStatistics();
+  }
+
+  @Override
+  public PlaygroundDTO getPlaygroundCounters(String playgroundName) throws IllegalArgumentException, NoSuchElementException {
+    return playgroundDAO.getPlaygroundCounters(playgroundName);
+  }
+
+  @Override
+  public NearbyPlaygroundsDTO getNearbyPlaygrounds(double latitude, double longitude, double radius, int page, int size)
+    throws IllegalArgumentException {
+    return playgroundDAO.getNearbyPlaygrounds(latitude, longitude, radius, page, size);
+  }
+
   @Override
   public MessageDTO getMessage(String messageID) throws IllegalArgumentException, NoSuchElementException {
     return messageDAO.getMessage(messageID);
@@ -144,14 +249,23 @@ public class Controller implements IController {
 
   @Override
   public List<EventDTO> getEventsInPlayground(String playgroundName) {
-    Jongo jongo = new Jongo(datasource.getDatabase());
-    MongoCollection events = jongo.getCollection(IEventDAO.COLLECTION);
-    MongoCursor<EventDTO> cursor = events.find("{playground : #}", playgroundName).as(EventDTO.class);
-    List<EventDTO> eventList = new ArrayList<>();
-    for (EventDTO event : cursor)
-      eventList.add(event);
+    return getEventsInPlayground(playgroundName, null, null);
+  }
 
-    return eventList;
+  @Override
+  public List<EventDTO> getEventsInPlayground(String playgroundName, Date from, Date to) throws IllegalArgumentException {
+    return eventDAO.getEventsInPlayground(playgroundName, from, to);
+  }
+
+  @Override
+  public List<EventDTO> getUpcomingEvents(Date from, Date to, int page, int size) throws IllegalArgumentException {
+    if (page < 1 || size < 1)
+      throw new IllegalArgumentException(String.format("page %d and size %d must be positive", page, size));
+
+    List<EventDTO> events = eventDAO.getUpcomingEvents(from == null ? startOfToday() : from, to, (page - 1) * size, size);
+    for (EventDTO event : events)
+      event.setAssignedUsers(null);
+    return events;
   }
 
   @Override
@@ -181,25 +295,140 @@ public class Controller implements IController {
   @Override
   public WriteResult updatePlayground(PlaygroundDTO playground)
     throws IllegalArgumentException, NoModificationException {
-    return playgroundDAO.updatePlayground(playground);
+    if (playground != null && playground.getLocation() == null)
+      playground.setLocation(geocode(playground));
+    WriteResult wr = playgroundDAO.updatePlayground(playground);
+    searchIndex.indexPlayground(playground);
+    updateView(playground.getName(), views -> views.updatePlayground(playground));
+    onPlaygroundChanged(playground.getName());
+    return wr;
+  }
+
+  @Override
+  public WriteResult updatePlayground(PlaygroundDTO playground, DBObject readState)
+    throws IllegalArgumentException, NoModificationException {
+    if (playground != null && (playground.getLocation() == null || locationOutdated(playground, readState)))
+      playground.setLocation(geocode(playground));
+    WriteResult wr = playgroundDAO.updatePlayground(playground, readState);
+    searchIndex.indexPlayground(playground);
+    updateView(playground.getName(), views -> views.updatePlayground(playground));
+    onPlaygroundChanged(playground.getName());
+    return wr;
   }
 
   @Override
   public WriteResult updateUser(UserDTO user)
     throws IllegalArgumentException, NoModificationException {
-    return userDAO.updateUser(user);
+    if (user == null)
+      throw new IllegalArgumentException("Can't update user when param is null");
+    // the statistics follow the change from the stored user
+    DBObject readState = QueryUtils.snapshot(readUser(user.getUsername()));
+    WriteResult wr = userDAO.updateUser(user);
+    onUserUpdated(user, readState);
+    return wr;
+  }
+
+  @Override
+  public WriteResult updateUser(UserDTO user, DBObject readState)
+    throws IllegalArgumentException, NoModificationException {
+    WriteResult wr = userDAO.updateUser(user, readState);
+    onUserUpdated(user, readState);
+    return wr;
   }
 
   @Override
   public WriteResult updatePlaygroundEvent(EventDTO event)
     throws IllegalArgumentException, NoModificationException {
-    return eventDAO.updateEvent(event);
+    if (event == null || event.getID() == null)
+      throw new IllegalArgumentException("Can't update event when param is null");
+    // the statistics follow the change from the stored event
+    DBObject readState = QueryUtils.snapshot(readEvent(event.getID()));
+    countParticipants(event);
+    WriteResult wr = eventDAO.updateEvent(event);
+    onEventUpdated(event, readState);
+    return wr;
+  }
+
+  @Override
+  public WriteResult updatePlaygroundEvent(EventDTO event, DBObject readState)
+    throws IllegalArgumentException, NoModificationException {
+    countParticipants(event);
+    WriteResult wr = eventDAO.updateEvent(event, readState);
+    onEventUpdated(event, readState);
+    return wr;
+  }
+
+  /**
+   * Applies an updated user to the statistics and the playground views
+   *
+   * @param readState snapshot of the user before the update
+   */
+  private void onUserUpdated(UserDTO user, DBObject readState) {
+    Object readStatus = readState.get("status");
+    if (readStatus != null && !readStatus.equals(user.getStatus())) {
+      liveStatistics.add(IStatisticsDAO.USERS, readStatus.toString(), -1);
+      liveStatistics.add(IStatisticsDAO.USERS, user.getStatus(), 1);
+    }
+
+    Object readPlaygrounds = readState.get("playgroundsNames");
+    Collection<?> readNames = readPlaygrounds instanceof Collection ? (Collection<?>) readPlaygrounds : Collections.emptyList();
+    Set<String> playgroundNames = user.getPlaygroundsNames() == null ? new HashSet<>() : user.getPlaygroundsNames();
+    for (Object readName : readNames)
+      if (!playgroundNames.contains(readName.toString()))
+        liveStatistics.add(IStatisticsDAO.PEDAGOGUES, readName.toString(), -1);
+    for (String playgroundName : playgroundNames)
+      if (!readNames.contains(playgroundName))
+        liveStatistics.add(IStatisticsDAO.PEDAGOGUES, playgroundName, 1);
+
+    onUserChanged(user, readNames);
+  }
+
+  /**
+   * Applies an updated event to the statistics, the change counters and the playground views
+   *
+   * @param readState snapshot of the event before the update
+   */
+  private void onEventUpdated(EventDTO event, DBObject readState) throws NoModificationException {
+    Object readUsers = readState.get("assignedUsers");
+    int readParticipants = readUsers instanceof Collection ? ((Collection<?>) readUsers).size() : 0;
+    if (event.getParticipants() != readParticipants)
+      liveStatistics.add(IStatisticsDAO.PARTICIPANTS, event.getID(), event.getParticipants() - readParticipants);
+
+    Object readPlayground = readState.get("playground");
+    boolean moved = readPlayground != null && !readPlayground.equals(event.getPlaygroundName());
+    incrementCounter(event.getPlaygroundName(), IPlaygroundDAO.EVENTS_VERSION);
+    if (moved) {
+      // event was moved away from this playground
+      incrementCounter(readPlayground.toString(), IPlaygroundDAO.EVENTS_VERSION);
+      liveStatistics.add(IStatisticsDAO.EVENTS, readPlayground.toString(), -1);
+      liveStatistics.add(IStatisticsDAO.EVENTS, event.getPlaygroundName(), 1);
+      updateView(readPlayground.toString(), views -> views.removeEvents(readPlayground.toString(), List.of(event.getID())));
+      onPlaygroundChanged(readPlayground.toString());
+    }
+    updateView(event.getPlaygroundName(), views -> views.putEvents(event.getPlaygroundName(), List.of(event), startOfToday()));
+    onPlaygroundChanged(event.getPlaygroundName());
   }
 
   @Override
   public WriteResult updatePlaygroundMessage(MessageDTO message)
     throws IllegalArgumentException, NoModificationException {
-    return messageDAO.updateMessage(message);
+    WriteResult wr = messageDAO.updateMessage(message);
+    incrementCounter(message.getPlaygroundName(), IPlaygroundDAO.MESSAGES_VERSION);
+    searchIndex.indexMessage(message);
+    updateView(message.getPlaygroundName(), views -> views.putMessage(message.getPlaygroundName(), message));
+    onPlaygroundChanged(message.getPlaygroundName());
+    return wr;
+  }
+
+  @Override
+  public WriteResult updatePlaygroundMessage(MessageDTO message, DBObject readState)
+    throws IllegalArgumentException, NoModificationException {
+    WriteResult wr = messageDAO.updateMessage(message, readState);
+    incrementCounter(message.getPlaygroundName(), IPlaygroundDAO.MESSAGES_VERSION);
+    searchIndex.indexMessage(message);
+    updateView(message.getPlaygroundName(), views -> views.putMessage(message.getPlaygroundName(), message));
+    onPlaygroundChanged(message.getPlaygroundName());
+    return wr;
   }
 
   @Override
@@ -218,6 +447,13 @@ public class Controller implements IController {
         removePlaygroundRefInUser(username, playgroundName);
       }
 
+      // the embedded references are capped, so the events and messages are found by querying -
+      // archived events included, their users still refer to them
+      Set<EventDTO> events = new HashSet<>(getEventsInPlayground(playgroundName));
+      events.addAll(eventDAO.getArchivedEventsInPlayground(playgroundName));
+      playground.setEvents(events);
+      playground.setMessages(new HashSet<>(getMessagesInPlayground(playgroundName)));
+
       for (EventDTO event : playground.getEvents()) {
         String eventID = event.getID();
         for (UserDTO user : event.getAssignedUsers())
@@ -236,6 +472,15 @@ public class Controller implements IController {
       // delete playground
       wr = playgroundDAO.deletePlayground(playgroundName);
       session.commitTransaction();
+      for (EventDTO event : playground.getEvents())
+        liveStatistics.remove(IStatisticsDAO.PARTICIPANTS, event.getID());
+      liveStatistics.remove(IStatisticsDAO.EVENTS, playgroundName);
+      liveStatistics.remove(IStatisticsDAO.MESSAGES, playgroundName);
+      liveStatistics.remove(IStatisticsDAO.PEDAGOGUES, playgroundName);
+      liveStatistics.remove(IStatisticsDAO.PLAYGROUNDS, playgroundName);
+      searchIndex.removePlayground(playgroundName);
+      playgroundViewDAO.deleteView(playgroundName);
+      onPlaygroundChanged(playgroundName);
 
     } catch (NoSuchElementException e) {
       e.printStackTrace();
@@ -261,19 +506,39 @@ public class Controller implements IController {
       session.startTransaction();
 
       UserDTO user = userDAO.getUser(username);
+      Set<String> changedPlaygrounds = new HashSet<>(user.getPlaygroundsNames());
+      Set<String> changedEventPlaygrounds = new HashSet<>();
+      Map<String, String> leftEvents = new HashMap<>(); // event id to playground name
       for (String playgroundName : user.getPlaygroundsNames()) {
         removeUserRefInPlayground(username, playgroundName);
       }
 
       for (EventDTO event : user.getEvents()) {
         String eventID = event.getID();
-        removeUserRefInEvent(eventID, username);
+        String playgroundName = getPlaygroundNameOfEvent(eventID);
+        changedEventPlaygrounds.add(playgroundName);
+        if (removeUserRefInEvent(eventID, username).getN() != 0)
+          leftEvents.put(eventID, playgroundName);
         removeEventRefInUser(eventID, username);
       }
 
       // delete user
       wr = userDAO.deleteUser(username);
+      for (String playgroundName : changedEventPlaygrounds)
+        incrementCounter(playgroundName, IPlaygroundDAO.EVENTS_VERSION);
       session.commitTransaction();
+      liveStatistics.add(IStatisticsDAO.USERS, user.getStatus(), -1);
+      for (String playgroundName : user.getPlaygroundsNames()) {
+        liveStatistics.add(IStatisticsDAO.PEDAGOGUES, playgroundName, -1);
+        updateView(playgroundName, views -> views.removePedagogue(playgroundName, username));
+      }
+      for (Map.Entry<String, String> leftEvent : leftEvents.entrySet()) {
+        liveStatistics.add(IStatisticsDAO.PARTICIPANTS, leftEvent.getKey(), -1);
+        updateView(leftEvent.getValue(), views -> views.incrementParticipants(leftEvent.getValue(), leftEvent.getKey(), -1));
+      }
+      changedPlaygrounds.addAll(changedEventPlaygrounds);
+      for (String playgroundName : changedPlaygrounds)
+        onPlaygroundChanged(playgroundName);
 
     } catch (NoSuchElementException e) {
       e.printStackTrace();
@@ -310,6 +575,9 @@ public class Controller implements IController {
         plagroundName, "assignedPedagogue", usernameObj);
 
       session.commitTransaction();
+      liveStatistics.add(IStatisticsDAO.PEDAGOGUES, plagroundName, 1);
+      updateView(plagroundName, views -> views.putPedagogue(plagroundName, pedagogueSummary(pedagogue)));
+      onPlaygroundChanged(plagroundName);
     } catch (NoSuchElementException e) {
       e.printStackTrace();
       throw new NoSuchElementException(e.getMessage());
@@ -333,25 +601,30 @@ public class Controller implements IController {
 
     try {
       session.startTransaction();
-      UserDTO user = userDAO.getUser(username);
+      userDAO.getUser(username); // fail fast on unknown users
 
-      // update user with event reference
-      user.getEvents().add(new EventDTO.Builder().id(new ObjectId(eventID).toString()).build());
-      userDAO.updateUser(user);
+      // insert user reference in event and count it in the same write - only if there is room left
+      insertUserRefInEvent(eventID, username);
 
-      // insert user reference in event
-      Jongo jongo = new Jongo(datasource.getDatabase());
-      MongoCollection events = jongo.getCollection(IEventDAO.COLLECTION);
-      UserDTO usernameObj = new UserDTO.Builder(username).build();
-      wr = QueryUtils.updateWithPush(events, "_id", new ObjectId(eventID), "assignedUsers", usernameObj);
+      // update user with event reference
+      MongoCollection users = new Jongo(datasource.getDatabase()).getCollection(IUserDAO.COLLECTION);
+      EventDTO idObj = new EventDTO.Builder().id(new ObjectId(eventID).toString()).build();
+      wr = QueryUtils.updateWithPush(users, "username", username, "events", idObj);
+      String playgroundName = getPlaygroundNameOfEvent(eventID);
+      incrementCounter(playgroundName, IPlaygroundDAO.EVENTS_VERSION);
 
       session.commitTransaction();
+      liveStatistics.add(IStatisticsDAO.PARTICIPANTS, eventID, 1);
+      updateView(playgroundName, views -> views.incrementParticipants(playgroundName, eventID, 1));
+      onPlaygroundChanged(playgroundName);
+      PlaygroundBus.getInstance().publish(playgroundName, PlaygroundBus.PARTICIPANT_ADDED,
+        eventID + "/" + username, Map.of("eventID", eventID, "username", username));
     } catch (NoSuchElementException e) {
       e.printStackTrace();
       throw new NoSuchElementException(e.getMessage());
     } catch (NoModificationException e) {
       e.printStackTrace();
-      throw new NoModificationException(e.getMessage());
+      throw e; // keep EventFullException distinguishable
     } catch (MongoException e) {
       e.printStackTrace();
       throw new MongoException("Internal error");
@@ -372,14 +645,21 @@ public class Controller implements IController {
 
       // create event in event collection
       event.setPlayground(playgroundName);
+      event.setParticipants(event.getAssignedUsers() == null ? 0 : event.getAssignedUsers().size());
       wr = eventDAO.createEvent(event);
 
       // insert event id in playground
       MongoCollection playgrounds = new Jongo(datasource.getDatabase()).getCollection(IPlaygroundDAO.COLLECTION);
       EventDTO idObj = new EventDTO.Builder().id(new ObjectId(event.getID()).toString()).build();
-      QueryUtils.updateWithPush(playgrounds, "name", playgroundName, "events", idObj);
+      QueryUtils.updateWithPush(playgrounds, "name", playgroundName, "events", idObj, IPlaygroundDAO.MAX_EMBEDDED_REFS);
+      incrementCounter(playgroundName, IPlaygroundDAO.EVENTS_VERSION);
 
       session.commitTransaction();
+      liveStatistics.add(IStatisticsDAO.EVENTS, playgroundName, 1);
+      liveStatistics.add(IStatisticsDAO.PARTICIPANTS, event.getID(), event.getParticipants());
+      updateView(playgroundName, views -> views.putEvents(playgroundName, List.of(event), startOfToday()));
+      onPlaygroundChanged(playgroundName);
+      PlaygroundBus.getInstance().publish(playgroundName, PlaygroundBus.EVENT_CREATED, event.getID(), event);
     } catch (NoSuchElementException e) {
       e.printStackTrace();
       throw new NoSuchElementException(e.getMessage());
@@ -394,6 +674,179 @@ public class Controller implements IController {
     return wr;
   }
 
+  @Override
+  public BulkResultDTO createPlaygroundEvents(String playgroundName, List<EventDTO> events)
+    throws NoSuchElementException, NoModificationException, MongoException {
+
+    playgroundDAO.getPlaygroundCounters(playgroundName); // fail fast on unknown playgrounds
+    BulkResultDTO result = new BulkResultDTO();
+
+    // the assigned users of all events are looked up in one query
+    Set<String> usernames = new HashSet<>();
+    for (EventDTO event : events)
+      if (event.getAssignedUsers() != null)
+        event.getAssignedUsers().forEach(user -> usernames.add(user.getUsername()));
+    Set<String> knownUsers = findUsernames(usernames);
+
+    BulkWriteOperation bulk = datasource.getDatabase().getCollection(IEventDAO.COLLECTION).initializeUnorderedBulkOperation();
+    List<EventDTO> inserted = new ArrayList<>();
+    List<Integer> indices = new ArrayList<>();
+    for (int i = 0; i < events.size(); i++) {
+      EventDTO event = events.get(i);
+      Set<UserDTO> users = event.getAssignedUsers() == null ? new HashSet<>() : event.getAssignedUsers();
+      Optional<String> unknown = users.stream().map(UserDTO::getUsername).filter(u -> !knownUsers.contains(u)).findFirst();
+      if (unknown.isPresent()) {
+        result.add(i, null, BulkResultDTO.NOT_FOUND, String.format("User %s is not in database", unknown.get()));
+        continue;
+      }
+      if (event.getCapacity() > 0 && users.size() > event.getCapacity()) {
+        result.add(i, null, BulkResultDTO.FULL,
+          String.format("%d users are assigned to an event for %d", users.size(), event.getCapacity()));
+        continue;
+      }
+
+      event.setId(new ObjectId().toString());
+      event.setPlayground(playgroundName);
+      event.setParticipants(users.size());
+      bulk.insert(QueryUtils.snapshot(event));
+      inserted.add(event);
+      indices.add(i);
+    }
+    if (inserted.isEmpty())
+      return result;
+
+    Set<Integer> failed = new HashSet<>();
+    try {
+      bulk.execute();
+    } catch (BulkWriteException e) {
+      for (BulkWriteError error : e.getWriteErrors()) {
+        failed.add(error.getIndex());
+        result.add(indices.get(error.getIndex()), null, BulkResultDTO.FAILED, error.getMessage());
+      }
+    }
+
+    List<EventDTO> created = new ArrayList<>();
+    List<Integer> createdIndices = new ArrayList<>();
+    List<EventDTO> refs = new ArrayList<>();
+    for (int i = 0; i < inserted.size(); i++) {
+      if (failed.contains(i)) continue;
+      EventDTO event = inserted.get(i);
+      created.add(event);
+      createdIndices.add(indices.get(i));
+      refs.add(new EventDTO.Builder().id(event.getID()).build());
+    }
+    if (created.isEmpty())
+      return result;
+
+    // the references of all created events in one push. The events are in the events collection
+    // already, which the playground's lists are queried from, so a failure is reported with each
+    // event instead of failing the request
+    String unreferenced = null;
+    try {
+      MongoCollection playgrounds = new Jongo(datasource.getDatabase()).getCollection(IPlaygroundDAO.COLLECTION);
+      QueryUtils.updateWithPushAll(playgrounds, "name", playgroundName, "events", refs, IPlaygroundDAO.MAX_EMBEDDED_REFS);
+      incrementCounter(playgroundName, IPlaygroundDAO.EVENTS_VERSION);
+    } catch (NoModificationException | MongoException e) {
+      System.out.println(String.format("Server: Could not reference created events in playground %s - %s", playgroundName, e));
+      unreferenced = "Created, but the playground was not updated - its cached lists may be stale";
+    }
+    for (int i = 0; i < created.size(); i++)
+      result.add(createdIndices.get(i), created.get(i).getID(), BulkResultDTO.CREATED, unreferenced);
+
+    for (EventDTO event : created) {
+      liveStatistics.add(IStatisticsDAO.EVENTS, playgroundName, 1);
+      liveStatistics.add(IStatisticsDAO.PARTICIPANTS, event.getID(), event.getParticipants());
+    }
+    updateView(playgroundName, views -> views.putEvents(playgroundName, created, startOfToday()));
+    onPlaygroundChanged(playgroundName);
+    for (EventDTO event : created)
+      PlaygroundBus.getInstance().publish(playgroundName, PlaygroundBus.EVENT_CREATED, event.getID(), event);
+    return result;
+  }
+
+  @Override
+  public BulkResultDTO addUsersToEvent(String eventID, List<String> usernames)
+    throws NoSuchElementException, MongoException {
+
+    EventDTO event = getEnrollableEvent(eventID);
+    Set<String> knownUsers = findUsernames(new HashSet<>(usernames));
+    BulkResultDTO result = new BulkResultDTO();
+
+    // the users that can still be enrolled, in the order of the request
+    Map<String, Integer> candidates = new LinkedHashMap<>();
+    Set<String> assigned = usernamesOf(event);
+    for (int i = 0; i < usernames.size(); i++) {
+      String username = usernames.get(i);
+      if (!knownUsers.contains(username))
+        result.add(i, username, BulkResultDTO.NOT_FOUND, "User is not in database");
+      else if (assigned.contains(username) || candidates.containsKey(username))
+        result.add(i, username, BulkResultDTO.ALREADY_ENROLLED, null);
+      else
+        candidates.put(username, i);
+    }
+
+    // one conditional update enrolls as many as there is room for - it only applies to the participant
+    // count it was computed from, so a concurrent sign-up makes it read the event again. A missing
+    // counter, of an event that wasn't backfilled yet, is read as 0 like EventDTO does
+    MongoCollection events = new Jongo(datasource.getDatabase()).getCollection(IEventDAO.COLLECTION);
+    List<String> enrolled = new ArrayList<>();
+    for (int attempt = 0; attempt < ENROLL_ATTEMPTS && !candidates.isEmpty(); attempt++) {
+      int room = event.getCapacity() <= 0 ? candidates.size() : Math.max(0, event.getCapacity() - event.getParticipants());
+      List<String> accepted = new ArrayList<>(candidates.keySet()).subList(0, Math.min(room, candidates.size()));
+      if (accepted.isEmpty())
+        break;
+
+      List<UserDTO> refs = new ArrayList<>();
+      accepted.forEach(username -> refs.add(new UserDTO.Builder(username).build()));
+      WriteResult wr = events
+        .update("{_id : #, 'assignedUsers.username' : {$nin : #}, $expr : {$eq : [{$ifNull : ['$participants', 0]}, #]}}",
+          new ObjectId(eventID), accepted, event.getParticipants())
+        .with("{$push : {assignedUsers : {$each : #}}, $inc : {participants : #, version : 1}}", refs, accepted.size());
+      if (wr.getN() != 0) {
+        enrolled.addAll(accepted);
+        break;
+      }
+
+      event = getEnrollableEvent(eventID);
+      assigned = usernamesOf(event);
+      for (Iterator<Map.Entry<String, Integer>> it = candidates.entrySet().iterator(); it.hasNext(); ) {
+        Map.Entry<String, Integer> candidate = it.next();
+        if (assigned.contains(candidate.getKey())) {
+          result.add(candidate.getValue(), candidate.getKey(), BulkResultDTO.ALREADY_ENROLLED, null);
+          it.remove();
+        }
+      }
+    }
+
+    // the event reference of all enrolled users in one update - users it missed are unenrolled again
+    Set<String> unreferenced = enrolled.isEmpty() ? new HashSet<>() : referenceEvent(eventID, enrolled);
+    enrolled.removeAll(unreferenced);
+
+    for (Map.Entry<String, Integer> candidate : candidates.entrySet()) {
+      if (enrolled.contains(candidate.getKey()))
+        result.add(candidate.getValue(), candidate.getKey(), BulkResultDTO.ENROLLED, null);
+      else if (unreferenced.contains(candidate.getKey()))
+        result.add(candidate.getValue(), candidate.getKey(), BulkResultDTO.FAILED, "User could not be updated, try again");
+      else if (event.getCapacity() > 0 && event.getParticipants() + enrolled.size() >= event.getCapacity())
+        result.add(candidate.getValue(), candidate.getKey(), BulkResultDTO.FULL, null);
+      else
+        result.add(candidate.getValue(), candidate.getKey(), BulkResultDTO.FAILED, "Event changed while enrolling, try again");
+    }
+    if (enrolled.isEmpty())
+      return result;
+
+    // the enrollments are stored, so a failed bump is only logged
+    String playgroundName = event.getPlaygroundName();
+    incrementStoredCounter(playgroundName, IPlaygroundDAO.EVENTS_VERSION);
+    liveStatistics.add(IStatisticsDAO.PARTICIPANTS, eventID, enrolled.size());
+    updateView(playgroundName, views -> views.incrementParticipants(playgroundName, eventID, enrolled.size()));
+    onPlaygroundChanged(playgroundName);
+    for (String username : enrolled)
+      PlaygroundBus.getInstance().publish(playgroundName, PlaygroundBus.PARTICIPANT_ADDED,
+        eventID + "/" + username, Map.of("eventID", eventID, "username", username));
+    return result;
+  }
+
   @Override
   public WriteResult createPlaygroundMessage(String playgroundName, MessageDTO message)
     throws NoModificationException, NoSuchElementException, MongoException {
@@ -411,9 +864,16 @@ public class Controller implements IController {
       // update playground array with reference to message
       MongoCollection playgrounds = new Jongo(datasource.getDatabase()).getCollection(IPlaygroundDAO.COLLECTION);
       MessageDTO idObj = new MessageDTO.Builder().set_id(new ObjectId(result.getUpsertedId().toString()).toString()).build();
-      QueryUtils.updateWithPush(playgrounds, "name", playgroundName, "messages", idObj);
+      QueryUtils.updateWithPush(playgrounds, "name", playgroundName, "messages", idObj, IPlaygroundDAO.MAX_EMBEDDED_REFS);
+      incrementCounter(playgroundName, IPlaygroundDAO.MESSAGES_VERSION);
 
       session.commitTransaction();
+      liveStatistics.add(IStatisticsDAO.MESSAGES, playgroundName, 1);
+      searchIndex.indexMessage(message);
+      updateView(playgroundName, views -> views.putMessage(playgroundName, message));
+      onPlaygroundChanged(playgroundName);
+      PlaygroundBus.getInstance().publish(playgroundName, PlaygroundBus.MESSAGE_CREATED,
+        result.getUpsertedId().toString(), message);
     } catch (NoSuchElementException e) {
       e.printStackTrace();
       throw new NoSuchElementException(e.getMessage());
@@ -440,6 +900,9 @@ public class Controller implements IController {
       removePlaygroundRefInUser(username, playgroundName);
 
       session.commitTransaction();
+      liveStatistics.add(IStatisticsDAO.PEDAGOGUES, playgroundName, -1);
+      updateView(playgroundName, views -> views.removePedagogue(playgroundName, username));
+      onPlaygroundChanged(playgroundName);
     } catch (NoSuchElementException e) {
       e.printStackTrace();
       throw new NoSuchElementException(e.getMessage());
@@ -472,8 +935,12 @@ public class Controller implements IController {
       //delete message image
       //      Message.deleteMessageImage(messageID);
 
-
+      incrementCounter(playgroundName, IPlaygroundDAO.MESSAGES_VERSION);
       session.commitTransaction();
+      liveStatistics.add(IStatisticsDAO.MESSAGES, playgroundName, -1);
+      searchIndex.removeMessage(messageID);
+      removeViewMessages(playgroundName, List.of(messageID));
+      onPlaygroundChanged(playgroundName);
     } catch (NoSuchElementException e) {
       e.printStackTrace();
       throw new NoSuchElementException(e.getMessage());
@@ -497,12 +964,19 @@ public class Controller implements IController {
       session.startTransaction();
 
       // delete user reference in event
-      removeUserRefInEvent(eventID, username);
+      WriteResult removed = removeUserRefInEvent(eventID, username);
 
       // delete event reference in user
       removeEventRefInUser(eventID, username);
+      String playgroundName = getPlaygroundNameOfEvent(eventID);
+      incrementCounter(playgroundName, IPlaygroundDAO.EVENTS_VERSION);
 
       session.commitTransaction();
+      if (removed.getN() != 0) {
+        liveStatistics.add(IStatisticsDAO.PARTICIPANTS, eventID, -1);
+        updateView(playgroundName, views -> views.incrementParticipants(playgroundName, eventID, -1));
+      }
+      onPlaygroundChanged(playgroundName);
 
     } catch (NoSuchElementException e) {
       e.printStackTrace();
@@ -537,9 +1011,18 @@ public class Controller implements IController {
       String playgroundName = event.getPlaygroundName();
       removeEventRefInPlayground(eventID, playgroundName);
 
-      // delete event
-      wr = eventDAO.deleteEvent(eventID);
+      // delete event - archived events are no longer counted
+      wr = eventDAO.deleteEvent(eventID, false);
+      boolean counted = wr.getN() != 0;
+      if (!counted)
+        wr = eventDAO.deleteEvent(eventID, true);
+      incrementCounter(playgroundName, IPlaygroundDAO.EVENTS_VERSION);
       session.commitTransaction();
+      if (counted)
+        liveStatistics.add(IStatisticsDAO.EVENTS, playgroundName, -1);
+      liveStatistics.remove(IStatisticsDAO.PARTICIPANTS, eventID);
+      updateView(playgroundName, views -> views.removeEvents(playgroundName, List.of(eventID)));
+      onPlaygroundChanged(playgroundName);
 
     } catch (NoSuchElementException e) {
       e.printStackTrace();
@@ -581,6 +1064,28 @@ public class Controller implements IController {
     userDAO.deleteAllUsers();
     messageDAO.deleteAllMessages();
     eventDAO.deleteAllEvents();
+    playgroundViewDAO.deleteAllViews();
+    liveStatistics.reset();
+    searchIndex.clear();
+    notifyPlaygroundListeners(null);
+  }
+
+  @Override
+  public void rebuildPlaygroundViews() {
+    playgroundViewDAO.deleteAllViews();
+    List<PlaygroundDTO> playgrounds;
+    try {
+      playgrounds = playgroundDAO.getPlaygroundList();
+    } catch (NoSuchElementException e) {
+      return;
+    }
+    for (PlaygroundDTO playground : playgrounds)
+      refreshPlaygroundView(playground.getName());
+  }
+
+  @Override
+  public IDataSource getDataSource() {
+    return datasource;
   }
 
   @Override
@@ -590,6 +1095,442 @@ public class Controller implements IController {
     userDAO.setDataSource(dataSource);
     messageDAO.setDataSource(dataSource);
     eventDAO.setDataSource(dataSource);
+    playgroundViewDAO.setDataSource(dataSource);
+    statisticsDAO.setDataSource(dataSource);
+    liveStatistics.setDataSource(dataSource);
+    searchIndex.setDataSource(dataSource);
+    notifyPlaygroundListeners(null);
+  }
+
+  @Override
+  public void setGeocoder(IGeocoder geocoder) {
+    this.geocoder = geocoder;
+  }
+
+  @Override
+  public int geocodePlaygrounds() {
+    List<PlaygroundDTO> playgrounds;
+    try {
+      playgrounds = playgroundDAO.getPlaygroundList();
+    } catch (NoSuchElementException e) {
+      return 0;
+    }
+
+    int geocoded = 0;
+    for (PlaygroundDTO playground : playgrounds) {
+      if (playground.getLocation() != null) continue;
+      LocationDTO location = geocode(playground);
+      if (location == null) continue;
+      try {
+        playgroundDAO.updateLocation(playground.getName(), location);
+        refreshPlaygroundView(playground.getName()); // a one-off admin job, so the view is rebuilt
+        onPlaygroundChanged(playground.getName());
+        geocoded++;
+      } catch (IllegalArgumentException | NoModificationException | MongoException e) {
+        System.out.println(String.format("Server: Could not save location of playground %s - %s", playground.getName(), e));
+      }
+    }
+    return geocoded;
+  }
+
+  @Override
+  public int backfillParticipants() {
+    int updated = eventDAO.backfillParticipants();
+    if (updated != 0) {
+      // the counters and views were derived from the wrong participant counts
+      liveStatistics.reconcile();
+      rebuildPlaygroundViews();
+    }
+    return updated;
+  }
+
+  @Override
+  public int archivePastEvents() {
+    List<EventDTO> archived = eventDAO.archiveEventsBefore(startOfToday());
+
+    Map<String, List<String>> archivedIDs = new HashMap<>();
+    for (EventDTO event : archived) {
+      liveStatistics.add(IStatisticsDAO.EVENTS, event.getPlaygroundName(), -1);
+      liveStatistics.remove(IStatisticsDAO.PARTICIPANTS, event.getID());
+      archivedIDs.computeIfAbsent(event.getPlaygroundName(), name -> new ArrayList<>()).add(event.getID());
+    }
+    for (Map.Entry<String, List<String>> playground : archivedIDs.entrySet()) {
+      incrementStoredCounter(playground.getKey(), IPlaygroundDAO.EVENTS_VERSION);
+      updateView(playground.getKey(), views -> views.removeEvents(playground.getKey(), playground.getValue()));
+      onPlaygroundChanged(playground.getKey());
+    }
+    return archived.size();
+  }
+
+  @Override
+  public void onCollectionImported() {
+    liveStatistics.reconcile();
+    searchIndex.refreshLater(null);
+    rebuildPlaygroundViews();
+
+    List<PlaygroundDTO> playgrounds;
+    try {
+      playgrounds = playgroundDAO.getPlaygroundList();
+    } catch (NoSuchElementException e) {
+      playgrounds = new ArrayList<>();
+    }
+    // the imported documents may belong to any playground, so every list is treated as changed
+    for (PlaygroundDTO playground : playgrounds) {
+      incrementStoredCounter(playground.getName(), IPlaygroundDAO.EVENTS_VERSION);
+      incrementStoredCounter(playground.getName(), IPlaygroundDAO.MESSAGES_VERSION);
+    }
+    notifyPlaygroundListeners(null);
+  }
+
+  @Override
+  public List<String> expireMessagesBefore(Date before, boolean archive) {
+    MongoCollection playgrounds = new Jongo(datasource.getDatabase()).getCollection(IPlaygroundDAO.COLLECTION);
+    List<String> expiredIDs = new ArrayList<>();
+    Map<String, List<String>> expiredByPlayground = new HashMap<>();
+
+    List<MessageDTO> batch;
+    do {
+      batch = messageDAO.getMessagesBefore(before, EXPIRE_BATCH_SIZE);
+      List<ObjectId> ids = new ArrayList<>();
+      for (MessageDTO message : batch)
+        ids.add(new ObjectId(message.getID()));
+
+      // one update pulls the references of the batch from all playgrounds, before the messages are
+      // removed - a failure in between leaves messages without references, never dangling references
+      if (!ids.isEmpty())
+        playgrounds.update("{'messages._id' : {$in : #}}", ids).multi()
+          .with("{$pull : {messages : {_id : {$in : #}}}, $inc : {version : 1}}", ids);
+      messageDAO.expireMessages(batch, archive);
+
+      for (MessageDTO message : batch) {
+        expiredIDs.add(message.getID());
+        liveStatistics.add(IStatisticsDAO.MESSAGES, message.getPlaygroundName(), -1);
+        searchIndex.removeMessage(message.getID());
+        expiredByPlayground.computeIfAbsent(message.getPlaygroundName(), name -> new ArrayList<>()).add(message.getID());
+      }
+    } while (batch.size() == EXPIRE_BATCH_SIZE);
+
+    for (Map.Entry<String, List<String>> playground : expiredByPlayground.entrySet()) {
+      incrementStoredCounter(playground.getKey(), IPlaygroundDAO.MESSAGES_VERSION);
+      removeViewMessages(playground.getKey(), playground.getValue());
+      onPlaygroundChanged(playground.getKey());
+    }
+    return expiredIDs;
+  }
+
+  @Override
+  public void addPlaygroundListener(Consumer<String> listener) {
+    playgroundListeners.add(listener);
+  }
+
+  @Override
+  public void onRemoteChange(String playgroundName) {
+    searchIndex.refreshLater(playgroundName);
+    notifyPlaygroundListeners(playgroundName);
+  }
+
+  /**
+   * Called after every committed write that changes what is shown for a playground, once its read
+   * model has been updated.
+   */
+  private void onPlaygroundChanged(String playgroundName) {
+    if (playgroundName == null) return;
+    notifyPlaygroundListeners(playgroundName);
+  }
+
+  /**
+   * Bumps a change counter read by conditional GETs. It is part of the write that changes what the
+   * counter covers, before the commit, so a failure fails the write instead of leaving clients with
+   * a 304 for a list that changed.
+   */
+  private void incrementCounter(String playgroundName, String counter) throws NoModificationException {
+    if (playgroundName == null) return;
+    playgroundDAO.incrementCounter(playgroundName, counter);
+  }
+
+  /**
+   * incrementCounter for the background jobs and the writes without a session, whose changes are
+   * already stored when the counter is bumped - there is nothing left to fail. A playground that was
+   * deleted meanwhile took its counter with it.
+   */
+  private void incrementStoredCounter(String playgroundName, String counter) {
+    try {
+      incrementCounter(playgroundName, counter);
+    } catch (IllegalArgumentException | NoModificationException | MongoException e) {
+      System.out.println(String.format("Server: Could not increment %s of %s - %s", counter, playgroundName, e));
+    }
+  }
+
+  /**
+   * The location of the address of a playground, or null when it can't be found - the playground is
+   * then left out of nearby searches until it is given a location.
+   */
+  private LocationDTO geocode(PlaygroundDTO playground) {
+    try {
+      return geocoder.geocode(playground.getStreetName(), playground.getStreetNumber(),
+        playground.getZipCode(), playground.getCommune());
+    } catch (NoSuchElementException e) {
+      System.out.println(String.format("Server: Could not geocode playground %s - %s", playground.getName(), e.getMessage()));
+      return null;
+    }
+  }
+
+  /**
+   * A new address moves the playground, unless it was given new coordinates as well
+   */
+  private static boolean locationOutdated(PlaygroundDTO playground, DBObject readState) {
+    boolean locationKept = Objects.equals(readState.get(IPlaygroundDAO.LOCATION),
+      QueryUtils.snapshot(playground).get(IPlaygroundDAO.LOCATION));
+    return locationKept && (!Objects.equals(readState.get("streetName"), playground.getStreetName())
+      || !Objects.equals(readState.get("streetNumber"), playground.getStreetNumber())
+      || !Objects.equals(readState.get("zipCode"), playground.getZipCode())
+      || !Objects.equals(readState.get("commune"), playground.getCommune()));
+  }
+
+  private void notifyPlaygroundListeners(String playgroundName) {
+    for (Consumer<String> listener : playgroundListeners) {
+      try {
+        listener.accept(playgroundName);
+      } catch (RuntimeException e) {
+        System.out.println(String.format("Server: Playground listener failed for %s - %s", playgroundName, e));
+      }
+    }
+  }
+
+  /**
+   * @param readPlaygrounds the playgrounds of the user before the write, where it may no longer be pedagogue
+   */
+  private void onUserChanged(UserDTO user, Collection<?> readPlaygrounds) {
+    Set<String> playgroundNames = user.getPlaygroundsNames() == null ? new HashSet<>() : user.getPlaygroundsNames();
+    for (Object readPlayground : readPlaygrounds) {
+      String playgroundName = readPlayground.toString();
+      if (playgroundNames.contains(playgroundName)) continue;
+      updateView(playgroundName, views -> views.removePedagogue(playgroundName, user.getUsername()));
+      onPlaygroundChanged(playgroundName);
+    }
+
+    // the user is shown as pedagogue on these playgrounds
+    UserDTO summary = pedagogueSummary(user);
+    for (String playgroundName : playgroundNames) {
+      updateView(playgroundName, views -> views.putPedagogue(playgroundName, summary));
+      onPlaygroundChanged(playgroundName);
+    }
+  }
+
+  /**
+   * Applies a partial update to the read model of a playground, so a write changes only the part
+   * of the view it affects. Failures are only logged, as the write itself succeeded -
+   * rebuildPlaygroundViews repairs the view.
+   */
+  private void updateView(String playgroundName, Consumer<IPlaygroundViewDAO> update) {
+    if (playgroundName == null) return;
+    try {
+      update.accept(playgroundViewDAO);
+    } catch (IllegalArgumentException | MongoException e) {
+      System.out.println(String.format("Server: Could not update view of playground %s - %s", playgroundName, e));
+    }
+  }
+
+  /**
+   * Removes messages from the latest messages of a view, and fills it up again with one query when
+   * any of them were shown.
+   */
+  private void removeViewMessages(String playgroundName, List<String> messageIDs) {
+    updateView(playgroundName, views -> {
+      if (views.removeMessages(playgroundName, messageIDs).getN() == 0)
+        return;
+      MongoCollection messages = new Jongo(datasource.getDatabase()).getCollection(IMessageDAO.COLLECTION);
+      List<MessageDTO> latest = new ArrayList<>();
+      for (MessageDTO message : messages.find("{playgroundID : #}", playgroundName)
+        .sort("{date : -1}").limit(PlaygroundViewDTO.LATEST_MESSAGES).as(MessageDTO.class))
+        latest.add(message);
+      views.setLatestMessages(playgroundName, latest);
+    });
+  }
+
+  /**
+   * Rebuilds the read model of one playground, for admin jobs that change many playgrounds at once.
+   * Failures are only logged, as the write itself succeeded - rebuildPlaygroundViews repairs the view.
+   */
+  private void refreshPlaygroundView(String playgroundName) {
+    try {
+      playgroundViewDAO.saveView(buildPlaygroundView(playgroundName));
+    } catch (NoSuchElementException e) {
+      playgroundViewDAO.deleteView(playgroundName); // playground was deleted
+    } catch (IllegalArgumentException | NoModificationException | MongoException e) {
+      System.out.println(String.format("Server: Could not refresh view of playground %s - %s", playgroundName, e));
+    }
+  }
+
+  private PlaygroundViewDTO buildPlaygroundView(String playgroundName) throws NoSuchElementException {
+    PlaygroundDTO playground = getPlayground(playgroundName);
+    PlaygroundViewDTO view = new PlaygroundViewDTO(playgroundName);
+
+    // pedagogue summaries
+    Set<UserDTO> pedagogues = new HashSet<>();
+    for (UserDTO user : playground.getAssignedPedagogue())
+      pedagogues.add(pedagogueSummary(user));
+    view.setPedagogues(pedagogues);
+
+    // upcoming events with their participant count, but not the participants
+    Date today = startOfToday();
+    List<EventDTO> upcomingEvents = new ArrayList<>();
+    for (EventDTO event : playground.getEvents()) {
+      if (event.getDetails() == null || event.getDetails().getDate() == null) continue;
+      if (event.getDetails().getDate().before(today)) continue;
+      event.setAssignedUsers(null);
+      upcomingEvents.add(event);
+    }
+    Collections.sort(upcomingEvents);
+    view.setUpcomingEvents(upcomingEvents);
+
+    // latest messages first
+    List<MessageDTO> messages = new ArrayList<>(playground.getMessages());
+    messages.sort(Comparator.comparing(MessageDTO::getDate, Comparator.nullsFirst(Comparator.<Date>naturalOrder())).reversed());
+    view.setLatestMessages(new ArrayList<>(messages.subList(0, Math.min(messages.size(), PlaygroundViewDTO.LATEST_MESSAGES))));
+
+    playground.setAssignedPedagogue(new HashSet<>());
+    playground.setEvents(new HashSet<>());
+    playground.setMessages(new HashSet<>());
+    view.setPlayground(playground);
+    view.setUpdated(new Date());
+    return view;
+  }
+
+  /**
+   * An update may replace the assigned users, so the counter is set from them and written in the
+   * same update, instead of being carried over from when the event was read
+   */
+  private static void countParticipants(EventDTO event) {
+    if (event != null)
+      event.setParticipants(event.getAssignedUsers() == null ? 0 : event.getAssignedUsers().size());
+  }
+
+  /**
+   * A pedagogue as shown in a playground view, without password or events
+   */
+  private static UserDTO pedagogueSummary(UserDTO user) {
+    return new UserDTO.Builder(user.getUsername())
+      .setFirstname(user.getFirstname())
+      .setLastname(user.getLastname())
+      .setStatus(user.getStatus())
+      .setEmail(user.getEmail())
+      .setPhoneNumbers(user.getPhoneNumbers())
+      .setImagePath(user.getImagepath())
+      .setEvents(null)
+      .build();
+  }
+
+  /**
+   * Push the reference of an event into the events of users that were just added to it. Users the
+   * update missed are pulled from the event again, with its participant count, so no one is enrolled
+   * without the reference.
+   *
+   * @return the users that were not referenced, and are no longer enrolled
+   */
+  private Set<String> referenceEvent(String eventID, List<String> usernames) {
+    MongoCollection users = new Jongo(datasource.getDatabase()).getCollection(IUserDAO.COLLECTION);
+    EventDTO idObj = new EventDTO.Builder().id(eventID).build();
+    try {
+      WriteResult wr = users.update("{username : {$in : #}}", usernames).multi()
+        .with("{$push : {events : #}, $inc : {version : 1}}", idObj);
+      if (wr.getN() == usernames.size())
+        return new HashSet<>();
+    } catch (MongoException e) {
+      System.out.println(String.format("Server: Could not reference event %s in its new participants - %s", eventID, e));
+    }
+
+    Set<String> missing = new HashSet<>(usernames);
+    for (UserDTO user : users.find("{username : {$in : #}, 'events._id' : #}", usernames, new ObjectId(eventID))
+      .projection("{username : 1}").as(UserDTO.class))
+      missing.remove(user.getUsername());
+    if (missing.isEmpty())
+      return missing;
+
+    try {
+      new Jongo(datasource.getDatabase()).getCollection(IEventDAO.COLLECTION)
+        .update("{_id : #}", new ObjectId(eventID))
+        .with("{$pull : {assignedUsers : {username : {$in : #}}}, $inc : {participants : #, version : 1}}",
+          missing, -missing.size());
+    } catch (MongoException e) {
+      System.out.println(String.format("Server: Could not unenroll %s from event %s - %s", missing, eventID, e));
+    }
+    return missing;
+  }
+
+  /**
+   * An event users can join. Archived events are past, and only read through getEvent.
+   *
+   * @throws NoSuchElementException when the event is archived or not in db
+   */
+  private EventDTO getEnrollableEvent(String eventID) throws IllegalArgumentException, NoSuchElementException {
+    if (eventID == null || !ObjectId.isValid(eventID))
+      throw new IllegalArgumentException(String.format("%s as ID is not valid in identifying an event", eventID));
+    MongoCollection events = new Jongo(datasource.getDatabase()).getCollection(IEventDAO.COLLECTION);
+    EventDTO event = events.findOne(new ObjectId(eventID)).as(EventDTO.class);
+    if (event == null)
+      throw new NoSuchElementException(String.format("Event %s is archived or not in database", eventID));
+    return event;
+  }
+
+  // an update of a document that isn't there fails like the update itself would
+  private UserDTO readUser(String username) throws NoModificationException {
+    try {
+      return userDAO.getUser(username);
+    } catch (NoSuchElementException e) {
+      throw new NoModificationException(e.getMessage());
+    }
+  }
+
+  private EventDTO readEvent(String eventID) throws NoModificationException {
+    try {
+      return eventDAO.getEvent(eventID);
+    } catch (NoSuchElementException e) {
+      throw new NoModificationException(e.getMessage());
+    }
+  }
+
+  private String getPlaygroundNameOfEvent(String eventID) {
+    try {
+      return eventDAO.getEvent(eventID).getPlaygroundName();
+    } catch (NoSuchElementException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private static Date startOfToday() {
+    Calendar cal = Calendar.getInstance();
+    cal.set(Calendar.HOUR_OF_DAY, 0);
+    cal.set(Calendar.MINUTE, 0);
+    cal.set(Calendar.SECOND, 0);
+    cal.set(Calendar.MILLISECOND, 0);
+    return cal.getTime();
+  }
+
+  /**
+   * Runs a sub-query of getPlayground on the fan-out pool, failing after SUB_QUERY_TIMEOUT_MS. A
+   * full pool fails the sub-query rather than the caller, so join reports it like any other failure.
+   */
+  private <T> CompletableFuture<List<T>> subQuery(String part, String playgroundName, Supplier<List<T>> query) {
+    try {
+      return CompletableFuture.supplyAsync(query, IOExecutor.getFanOutInstance())
+        .orTimeout(SUB_QUERY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /**
+   * @throws UnavailableException when the sub-query failed, so the playground is not used without it
+   */
+  private static <T> List<T> join(String part, String playgroundName, CompletableFuture<List<T>> subQuery)
+    throws UnavailableException {
+    try {
+      return subQuery.join();
+    } catch (CompletionException e) {
+      System.out.println(String.format("Server: Could not fetch %s of playground %s - %s", part, playgroundName, e.getCause()));
+      throw new UnavailableException(String.format("Could not fetch %s of playground %s", part, playgroundName), e.getCause());
+    }
   }
 
   private void removeUserRefInPlayground(String username, String playgroundName) throws NoModificationException {
@@ -599,10 +1540,70 @@ public class Controller implements IController {
       "username", username);
   }
 
-  private void removeUserRefInEvent(String eventID, String username) throws NoModificationException {
+  /**
+   * @return the usernames of the users that exist, in one query
+   */
+  private Set<String> findUsernames(Set<String> usernames) {
+    Set<String> found = new HashSet<>();
+    if (usernames.isEmpty())
+      return found;
+    MongoCollection users = new Jongo(datasource.getDatabase()).getCollection(IUserDAO.COLLECTION);
+    for (UserDTO user : users.find("{username : {$in : #}}", new ArrayList<>(usernames)).projection("{username : 1}").as(UserDTO.class))
+      found.add(user.getUsername());
+    return found;
+  }
+
+  private static Set<String> usernamesOf(EventDTO event) {
+    Set<String> usernames = new HashSet<>();
+    if (event.getAssignedUsers() != null)
+      event.getAssignedUsers().forEach(user -> usernames.add(user.getUsername()));
+    return usernames;
+  }
+
+  private void insertUserRefInEvent(String eventID, String username) throws NoModificationException {
+    MongoCollection events = new Jongo(datasource.getDatabase()).getCollection(IEventDAO.COLLECTION);
+    UserDTO usernameObj = new UserDTO.Builder(username).build();
+
+    // the capacity check and the counter are part of the same conditional update, so concurrent sign-ups can't overbook
+    WriteResult wr = events
+      .update("{_id : #, 'assignedUsers.username' : {$ne : #}, $or : [{capacity : {$exists : false}}, " +
+        "{capacity : {$lte : 0}}, {$expr : {$lt : ['$participants', '$capacity']}}]}", new ObjectId(eventID), username)
+      .with("{$push : {assignedUsers : #}, $inc : {participants : 1, version : 1}}", usernameObj);
+
+    if (wr.getN() != 0)
+      return;
+
+    // nothing matched - find out why
+    EventDTO event = eventDAO.getEvent(eventID);
+    if (event.getAssignedUsers().stream().anyMatch(u -> username.equals(u.getUsername())))
+      throw new NoModificationException(
+        String.format("User %s is already signed up for event %s", username, eventID));
+    throw new EventFullException(
+      String.format("Event %s is full (%d of %d)", eventID, event.getParticipants(), event.getCapacity()));
+  }
+
+  private WriteResult removeUserRefInEvent(String eventID, String username) throws NoModificationException {
     MongoCollection events = new Jongo(datasource.getDatabase()).getCollection(IEventDAO.COLLECTION);
-    QueryUtils.updateWithPullObject(events, "_id", new ObjectId(eventID),
-      "assignedUsers", "username", username);
+
+    // only decrement the counter when the user was actually removed
+    WriteResult wr = events
+      .update("{_id : #, 'assignedUsers.username' : #}", new ObjectId(eventID), username)
+      .with("{$pull : {assignedUsers : {username : #}}, $inc : {participants : -1, version : 1}}", username);
+
+    if (wr.getN() != 0 || events.count("{_id : #}", new ObjectId(eventID)) != 0)
+      return wr;
+
+    // a past event keeps its participants in the archive
+    MongoCollection archive = new Jongo(datasource.getDatabase()).getCollection(IEventDAO.ARCHIVE_COLLECTION);
+    WriteResult archived = archive
+      .update("{_id : #, 'assignedUsers.username' : #}", new ObjectId(eventID), username)
+      .with("{$pull : {assignedUsers : {username : #}}, $inc : {participants : -1, version : 1}}", username);
+
+    if (archived.getN() == 0 && archive.count("{_id : #}", new ObjectId(eventID)) == 0)
+      throw new NoModificationException(
+        String.format("assignedUsers in %s was not updated with pull: %s", IEventDAO.COLLECTION, username));
+    // archived events are not counted by the live statistics, so report nothing removed from the hot collection
+    return wr;
   }
 
   private void removePlaygroundRefInUser(String username, String playgroundName) throws NoModificationException {
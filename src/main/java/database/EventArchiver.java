@@ -0,0 +1,45 @@
+package database;
+
+import com.mongodb.MongoException;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves past events to the archive collection once a day, so the events collection only holds the
+ * events of today and later. Archiving is idempotent, so several instances may run it.
+ */
+public class EventArchiver {
+  private static final long ARCHIVE_INTERVAL_HOURS = 24;
+  private final IController controller;
+  private ScheduledExecutorService scheduler;
+
+  public EventArchiver(IController controller) {
+    this.controller = controller;
+  }
+
+  /**
+   * Archives now and then every day until the JVM exits
+   */
+  public synchronized void start() {
+    if (scheduler != null) return;
+    scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "event-archiver");
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler.scheduleWithFixedDelay(this::archive, 0, ARCHIVE_INTERVAL_HOURS, TimeUnit.HOURS);
+  }
+
+  private void archive() {
+    try {
+      int archived = controller.archivePastEvents();
+      if (archived != 0)
+        System.out.println(String.format("Server: Archived %d past events", archived));
+    } catch (MongoException e) {
+      // a failed run is retried the next day, the events stay in the events collection until then
+      System.out.println("Server: Could not archive past events - " + e);
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package database;
+
+import database.dto.EventDTO;
+import database.dto.MessageDTO;
+import database.dto.NearbyPlaygroundsDTO;
+import database.dto.PlaygroundDTO;
+import database.dto.PlaygroundViewDTO;
+import database.dto.StatisticsDTO;
+import database.dto.UserDTO;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart to the read side of {@link IController}.
+ * Failures complete the future exceptionally with the same exceptions IController throws.
+ */
+public interface IAsyncController {
+
+  // READ
+  CompletableFuture<PlaygroundDTO> getPlayground(String playgroundName);
+
+  CompletableFuture<PlaygroundViewDTO> getPlaygroundView(String playgroundName);
+
+  CompletableFuture<UserDTO> getUser(String username);
+
+  CompletableFuture<EventDTO> getEvent(String eventID);
+
+  CompletableFuture<Integer> getEventParticipantCount(String eventID);
+
+  CompletableFuture<PlaygroundDTO> getPlaygroundCounters(String playgroundName);
+
+  CompletableFuture<NearbyPlaygroundsDTO> getNearbyPlaygrounds(double latitude, double longitude, double radius, int page, int size);
+
+  /**
+   * The four statistics run as concurrent aggregations
+   */
+  CompletableFuture<StatisticsDTO> getStatistics();
+
+  CompletableFuture<MessageDTO> getMessage(String messageID);
+
+  CompletableFuture<List<PlaygroundDTO>> getPlaygrounds();
+
+  CompletableFuture<List<UserDTO>> getUsers();
+
+  CompletableFuture<List<EventDTO>> getEventsInPlayground(String playgroundName);
+
+  CompletableFuture<List<EventDTO>> getEventsInPlayground(String playgroundName, Date from, Date to);
+
+  CompletableFuture<List<EventDTO>> getUpcomingEvents(Date from, Date to, int page, int size);
+
+  CompletableFuture<List<MessageDTO>> getMessagesInPlayground(String playgroundName);
+
+  CompletableFuture<List<UserDTO>> getUsersInPlayground(String playgroundName);
+}
@@ -1,15 +1,23 @@
 package database;
 
+import com.mongodb.DBObject;
 import com.mongodb.MongoException;
 import com.mongodb.WriteResult;
+import database.dto.BulkResultDTO;
 import database.dto.EventDTO;
 import database.dto.MessageDTO;
+import database.dto.NearbyPlaygroundsDTO;
 import database.dto.PlaygroundDTO;
+import database.dto.PlaygroundViewDTO;
+import database.dto.StatisticsDTO;
 import database.dto.UserDTO;
 import database.exceptions.NoModificationException;
+import geocoding.IGeocoder;
 
+import java.util.Date;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 
 public interface IController {
 
@@ -21,10 +29,27 @@ public interface IController {
   // READ
   PlaygroundDTO getPlayground(String playgroundName) throws IllegalArgumentException, NoSuchElementException;
 
+  PlaygroundViewDTO getPlaygroundView(String playgroundName) throws IllegalArgumentException, NoSuchElementException;
+
   UserDTO getUser(String username) throws IllegalArgumentException, NoSuchElementException;
 
   EventDTO getEvent(String eventID) throws IllegalArgumentException, NoSuchElementException;
 
+  int getEventParticipantCount(String eventID) throws IllegalArgumentException, NoSuchElementException;
+
+  PlaygroundDTO getPlaygroundCounters(String playgroundName) throws IllegalArgumentException, NoSuchElementException;
+
+  NearbyPlaygroundsDTO getNearbyPlaygrounds(double latitude, double longitude, double radius, int page, int size)
+    throws IllegalArgumentException;
+
+  StatisticsDTO.UserStatistics getUserStatistics();
+
+  StatisticsDTO.EventStatistics getEventStatistics();
+
+  StatisticsDTO.PlaygroundStatistics getPlaygroundStatistics();
+
+  StatisticsDTO.MessageStatistics getMessageStatistics();
+
   MessageDTO getMessage(String messageID) throws IllegalArgumentException, NoSuchElementException;
 
   List<PlaygroundDTO> getPlaygrounds() throws NoSuchElementException;
@@ -33,6 +58,20 @@ public interface IController {
 
   List<EventDTO> getEventsInPlayground(String playgroundName);
 
+  /**
+   * @param from earliest date, or null
+   * @param to   date the events must be before, or null
+   */
+  List<EventDTO> getEventsInPlayground(String playgroundName, Date from, Date to) throws IllegalArgumentException;
+
+  /**
+   * Events of all playgrounds by date, without their participants
+   *
+   * @param from earliest date, or null for today
+   * @param to   date the events must be before, or null
+   */
+  List<EventDTO> getUpcomingEvents(Date from, Date to, int page, int size) throws IllegalArgumentException;
+
   List<MessageDTO> getMessagesInPlayground(String playgroundName);
 
   List<UserDTO> getUsersInPlayground(String playgroundName);
@@ -40,12 +79,20 @@ public interface IController {
   // UPDATE
   WriteResult updatePlayground(PlaygroundDTO playground) throws IllegalArgumentException, NoModificationException;
 
+  WriteResult updatePlayground(PlaygroundDTO playground, DBObject readState) throws IllegalArgumentException, NoModificationException;
+
   WriteResult updateUser(UserDTO user) throws IllegalArgumentException, NoModificationException;
 
+  WriteResult updateUser(UserDTO user, DBObject readState) throws IllegalArgumentException, NoModificationException;
+
   WriteResult updatePlaygroundEvent(EventDTO event) throws IllegalArgumentException, NoModificationException;
 
+  WriteResult updatePlaygroundEvent(EventDTO event, DBObject readState) throws IllegalArgumentException, NoModificationException;
+
   WriteResult updatePlaygroundMessage(MessageDTO message) throws IllegalArgumentException, NoModificationException;
 
+  WriteResult updatePlaygroundMessage(MessageDTO message, DBObject readState) throws IllegalArgumentException, NoModificationException;
+
   // DELETE
   WriteResult deletePlayground(String playgroundName) throws NoSuchElementException, NoModificationException, MongoException;
 
@@ -54,12 +101,30 @@ public interface IController {
   // ASSOCIATIONS
   WriteResult createPlaygroundEvent(String playgroundName, EventDTO event) throws NoSuchElementException, NoModificationException, MongoException;
 
+  /**
+   * Create the events with one bulk insert and one push of their references into the playground
+   *
+   * @return per event its id and status, CREATED or why it was not created - FULL when it is assigned
+   * more users than its capacity. Created events are reported even when the push fails, with a message.
+   * @throws NoSuchElementException when the playground does not exist
+   */
+  BulkResultDTO createPlaygroundEvents(String playgroundName, List<EventDTO> events) throws NoSuchElementException, NoModificationException, MongoException;
+
   WriteResult createPlaygroundMessage(String playgroundName, MessageDTO message) throws NoSuchElementException, NoModificationException, MongoException;
 
   WriteResult addPedagogueToPlayground(String plagroundName, String username) throws NoSuchElementException, NoModificationException, MongoException;
 
   WriteResult addUserToEvent(String eventID, String username) throws NoSuchElementException, NoModificationException, MongoException;
 
+  /**
+   * Enroll the users in an event with one conditional update of the event and one of the users. When
+   * the event has too little room left, the users first in the list are enrolled.
+   *
+   * @return per username its status, ENROLLED or why it was not enrolled
+   * @throws NoSuchElementException when the event does not exist or is archived
+   */
+  BulkResultDTO addUsersToEvent(String eventID, List<String> usernames) throws NoSuchElementException, MongoException;
+
   void removePedagogueFromPlayground(String playgroundName, String username) throws NoModificationException, NoSuchElementException, MongoException;
 
   void removeUserFromEvent(String eventID, String username) throws NoModificationException, NoSuchElementException, MongoException;
@@ -68,11 +133,66 @@ public interface IController {
 
   WriteResult deletePlaygroundMessage(String messageID) throws NoModificationException, NoSuchElementException, MongoException;
 
+  IDataSource getDataSource();
+
   void setDataSource(IDataSource dataSource);
 
+  void setGeocoder(IGeocoder geocoder);
+
   List<EventDTO> getEvents();
 
   List<MessageDTO> getmessages();
 
   void killAll();
+
+  void rebuildPlaygroundViews();
+
+  /**
+   * Geocode the playgrounds that have no location yet
+   *
+   * @return number of playgrounds that were given a location
+   */
+  int geocodePlaygrounds();
+
+  /**
+   * Set the participant counter of every event to its number of assigned users, for events written
+   * before the counter existed or replaced without it
+   *
+   * @return number of events whose counter was set
+   */
+  int backfillParticipants();
+
+  /**
+   * Move the events dated before today to the archive collection
+   *
+   * @return number of archived events
+   */
+  int archivePastEvents();
+
+  /**
+   * Repair what an import into a collection bypassed: the statistics, the search index, the views
+   * and the change counters of every playground, and tell the playground listeners that all
+   * playgrounds may have changed
+   */
+  void onCollectionImported();
+
+  /**
+   * Remove the messages dated before a day, and their references in the playgrounds
+   *
+   * @param archive keep the messages in the archive collection instead of deleting them
+   * @return ids of the expired messages
+   */
+  List<String> expireMessagesBefore(Date before, boolean archive);
+
+  /**
+   * Listen for committed writes that change what is shown for a playground. The listener gets the
+   * name of the playground, or null when all playgrounds may have changed.
+   */
+  void addPlaygroundListener(Consumer<String> listener);
+
+  /**
+   * Tell the playground listeners about a write committed by another instance. The view and change
+   * counters were updated by that instance, so only local state is dropped.
+   */
+  void onRemoteChange(String playgroundName);
 }
@@ -0,0 +1,68 @@
+package database;
+
+import com.mongodb.MongoException;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Expires the messages that are older than the retention period once a day, so the messages of a
+ * playground and the references in its document stay bounded. The period is set in days with
+ * -Dmessages.retention.days, where 0 keeps all messages, and -Dmessages.retention.mode=delete deletes
+ * the messages instead of moving them to the archive collection.
+ * <p>
+ * A TTL index would delete the messages too, but it can't pull their references from the
+ * playgrounds or delete their images.
+ */
+public class MessageSweeper {
+  public static final String RETENTION_PROPERTY = "messages.retention.days";
+  public static final String MODE_PROPERTY = "messages.retention.mode";
+  public static final int DEFAULT_RETENTION_DAYS = 365;
+  private static final long SWEEP_INTERVAL_HOURS = 24;
+  private final IController controller;
+  private final Consumer<String> onExpired;
+  private final int retentionDays;
+  private final boolean archive;
+  private ScheduledExecutorService scheduler;
+
+  /**
+   * @param onExpired called with the id of each expired message, like deleting its image
+   */
+  public MessageSweeper(IController controller, Consumer<String> onExpired) {
+    this.controller = controller;
+    this.onExpired = onExpired;
+    this.retentionDays = Integer.getInteger(RETENTION_PROPERTY, DEFAULT_RETENTION_DAYS);
+    this.archive = !"delete".equals(System.getProperty(MODE_PROPERTY, "archive"));
+  }
+
+  /**
+   * Sweeps now and then every day until the JVM exits
+   */
+  public synchronized void start() {
+    if (scheduler != null || retentionDays <= 0) return;
+    scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "message-sweeper");
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler.scheduleWithFixedDelay(this::sweep, 0, SWEEP_INTERVAL_HOURS, TimeUnit.HOURS);
+  }
+
+  private void sweep() {
+    Date before = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays));
+    try {
+      List<String> expired = controller.expireMessagesBefore(before, archive);
+      expired.forEach(onExpired);
+      if (!expired.isEmpty())
+        System.out.println(String.format("Server: %s %d messages older than %d days",
+          archive ? "Archived" : "Deleted", expired.size(), retentionDays));
+    } catch (MongoException e) {
+      // the next sweep continues where this one stopped
+      System.out.println("Server: Could not expire messages - " + e);
+    }
+  }
+}
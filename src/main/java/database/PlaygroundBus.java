@@ -0,0 +1,111 @@
+package database;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * In-process publish/subscribe of committed playground changes. The Controller publishes after each
+ * commit, on the thread of the write, so subscribers must only hand the notification off - like
+ * offering it to a bounded queue - and never block.
+ * <p>
+ * With several instances, ChangeStreamListener publishes the writes of all of them, including this
+ * one. Every notification has a key naming the change, and a key that was published recently is
+ * dropped, so subscribers see each change once no matter which path was first.
+ */
+public class PlaygroundBus {
+  public static final String MESSAGE_CREATED = "message-created";
+  public static final String EVENT_CREATED = "event-created";
+  public static final String PARTICIPANT_ADDED = "participant-added";
+  private static final int RECENT_KEYS = 1024;
+  private static PlaygroundBus playgroundBus;
+  private final Map<String, Set<Consumer<Notification>>> subscribers = new ConcurrentHashMap<>();
+  private final AtomicLong sequence = new AtomicLong();
+  private final Set<String> recentKeys = Collections.newSetFromMap(new LinkedHashMap<String, Boolean>() {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+      return size() > RECENT_KEYS;
+    }
+  });
+
+  private PlaygroundBus() {
+  }
+
+  public static synchronized PlaygroundBus getInstance() {
+    if (playgroundBus == null) {
+      playgroundBus = new PlaygroundBus();
+    }
+    return playgroundBus;
+  }
+
+  /**
+   * @return call it to unsubscribe
+   */
+  public Runnable subscribe(String playgroundName, Consumer<Notification> subscriber) {
+    subscribers.computeIfAbsent(playgroundName, name -> new CopyOnWriteArraySet<>()).add(subscriber);
+    return () -> subscribers.computeIfPresent(playgroundName, (name, set) -> {
+      set.remove(subscriber);
+      return set.isEmpty() ? null : set;
+    });
+  }
+
+  /**
+   * @param key names the change, like the type and id of the created document
+   */
+  public void publish(String playgroundName, String type, String key, Object data) {
+    if (playgroundName == null) return;
+    synchronized (recentKeys) {
+      if (!recentKeys.add(type + "/" + key)) return;
+    }
+    Set<Consumer<Notification>> playgroundSubscribers = subscribers.get(playgroundName);
+    if (playgroundSubscribers == null) return;
+
+    Notification notification = new Notification(sequence.incrementAndGet(), playgroundName, type, data);
+    for (Consumer<Notification> subscriber : playgroundSubscribers) {
+      try {
+        subscriber.accept(notification);
+      } catch (RuntimeException e) {
+        System.out.println(String.format("Server: Subscriber of %s failed - %s", playgroundName, e));
+      }
+    }
+  }
+
+  public int getSubscriberCount() {
+    return subscribers.values().stream().mapToInt(Set::size).sum();
+  }
+
+  public static final class Notification {
+    private final long id;
+    private final String playgroundName;
+    private final String type;
+    private final Object data;
+
+    private Notification(long id, String playgroundName, String type, Object data) {
+      this.id = id;
+      this.playgroundName = playgroundName;
+      this.type = type;
+      this.data = data;
+    }
+
+    public long getId() {
+      return id;
+    }
+
+    public String getPlaygroundName() {
+      return playgroundName;
+    }
+
+    public String getType() {
+      return type;
+    }
+
+    public Object getData() {
+      return data;
+    }
+  }
+}
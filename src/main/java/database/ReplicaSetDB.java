@@ -0,0 +1,51 @@
+package database;
+
+import com.mongodb.DB;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientURI;
+
+/**
+ * A database given by the mongo.uri system property, like mongodb://localhost:27017/legepladser?replicaSet=rs0.
+ * Change streams need a replica set, so instances that share a database and run ChangeStreamListener
+ * use this one - a single mongod started with --replSet is enough locally.
+ */
+public class ReplicaSetDB implements IDataSource {
+  public static final String URI_PROPERTY = "mongo.uri";
+  private static final String DEFAULT_URI = "mongodb://localhost:27017/cphPlaygroundsDB?replicaSet=rs0";
+  private static final String DEFAULT_DATABASE = "cphPlaygroundsDB";
+  private static ReplicaSetDB instance;
+  private final MongoClientURI uri;
+  private DB database;
+  private MongoClient mongoClient;
+
+  private ReplicaSetDB(MongoClientURI uri) {
+    this.uri = uri;
+  }
+
+  public static synchronized ReplicaSetDB getInstance() {
+    if (instance == null)
+      instance = new ReplicaSetDB(new MongoClientURI(System.getProperty(URI_PROPERTY, DEFAULT_URI)));
+
+    return instance;
+  }
+
+  @Override
+  public synchronized MongoClient getClient() {
+    if (mongoClient == null)
+      mongoClient = new MongoClient(uri);
+
+    return mongoClient;
+  }
+
+  @Override
+  public synchronized DB getDatabase() {
+    if (database == null)
+      database = getClient().getDB(getDatabaseName());
+
+    return database;
+  }
+
+  public String getDatabaseName() {
+    return uri.getDatabase() == null ? DEFAULT_DATABASE : uri.getDatabase();
+  }
+}
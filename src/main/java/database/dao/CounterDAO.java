@@ -0,0 +1,85 @@
+package database.dao;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import database.IDataSource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Checkpointed statistics counters, one document per counter: {_id : 'events/Vandlegeparken', value : 3}.
+ * Instances add what they counted since their last checkpoint with $inc, so the stored value is the
+ * sum over all instances.
+ */
+public class CounterDAO implements ICounterDAO {
+  private IDataSource dataSource;
+
+  public CounterDAO(IDataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  /**
+   * Get all counters
+   *
+   * @return value of every counter keyed by its id
+   */
+  @Override
+  public Map<String, Long> getCounters() {
+    Map<String, Long> counters = new HashMap<>();
+    try (DBCursor cursor = getCollection().find()) {
+      for (DBObject counter : cursor)
+        counters.put(counter.get("_id").toString(), ((Number) counter.get("value")).longValue());
+    }
+    return counters;
+  }
+
+  /**
+   * Add deltas to the counters in one unordered bulk write. Counters that reach 0 are removed, so
+   * deleted playgrounds and events don't stay behind.
+   *
+   * @param deltas to add, keyed by counter id
+   */
+  @Override
+  public void incrementCounters(Map<String, Long> deltas) {
+    if (deltas.isEmpty()) return;
+
+    DBCollection collection = getCollection();
+    BulkWriteOperation bulk = collection.initializeUnorderedBulkOperation();
+    for (Map.Entry<String, Long> delta : deltas.entrySet())
+      bulk.find(new BasicDBObject("_id", delta.getKey())).upsert()
+        .updateOne(new BasicDBObject("$inc", new BasicDBObject("value", delta.getValue())));
+    bulk.execute();
+
+    collection.remove(new BasicDBObject("value", 0));
+  }
+
+  /**
+   * Replace all counters, used when they are rebuilt from scratch
+   *
+   * @param counters keyed by counter id
+   */
+  @Override
+  public void replaceCounters(Map<String, Long> counters) {
+    DBCollection collection = getCollection();
+    collection.remove(new BasicDBObject());
+    if (counters.isEmpty()) return;
+
+    BulkWriteOperation bulk = collection.initializeUnorderedBulkOperation();
+    for (Map.Entry<String, Long> counter : counters.entrySet())
+      bulk.insert(new BasicDBObject("_id", counter.getKey()).append("value", counter.getValue()));
+    bulk.execute();
+  }
+
+  @Override
+  public void setDataSource(IDataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  private DBCollection getCollection() {
+    return dataSource.getDatabase().getCollection(COLLECTION);
+  }
+}
@@ -1,19 +1,30 @@
 package database.dao;
 
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
 import com.mongodb.WriteResult;
 import database.IDataSource;
 import database.dto.EventDTO;
 import database.exceptions.NoModificationException;
+import database.exceptions.VersionConflictException;
+import database.utils.QueryUtils;
 import org.bson.types.ObjectId;
 import org.jongo.Jongo;
 import org.jongo.MongoCollection;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import java.util.NoSuchElementException;
 
 public class EventDAO implements IEventDAO {
+  private static final int BACKFILL_BATCH_SIZE = 1_000;
   private IDataSource dataSource;
+  private boolean indexed;
 
   public EventDAO(IDataSource dataSource) {
     this.dataSource = dataSource;
@@ -61,10 +72,12 @@ public class EventDAO implements IEventDAO {
     Jongo jongo = new Jongo(dataSource.getDatabase());
     MongoCollection collection = jongo.getCollection(COLLECTION);
     EventDTO event = collection.findOne(new ObjectId(id)).as(EventDTO.class);
+    if (event == null) // users and playgrounds keep referring to archived events
+      event = jongo.getCollection(ARCHIVE_COLLECTION).findOne(new ObjectId(id)).as(EventDTO.class);
 
     if (event == null)
       throw new NoSuchElementException(
-        String.format("No event in %s collection with id %s", COLLECTION, id));
+        String.format("No event in %s or %s collection with id %s", COLLECTION, ARCHIVE_COLLECTION, id));
 
     return event;
   }
@@ -91,12 +104,155 @@ public class EventDAO implements IEventDAO {
     return eventList;
   }
 
+  /**
+   * Get the events of a playground in a date range, by date. Archived events are not included.
+   *
+   * @param playgroundName uniquely identifies a playground in db
+   * @param from           earliest date, or null
+   * @param to             date the events must be before, or null
+   * @return events of the playground by their details.date
+   * @throws IllegalArgumentException when playgroundName is invalid
+   */
+  @Override
+  public List<EventDTO> getEventsInPlayground(String playgroundName, Date from, Date to) throws IllegalArgumentException {
+    if (playgroundName == null || playgroundName.isEmpty())
+      throw new IllegalArgumentException(
+        String.format("%s as ID is not valid in identifying a playground", playgroundName));
+
+    List<Object> parameters = new ArrayList<>();
+    parameters.add(playgroundName);
+    return find("{playground : #" + dateRange(from, to, parameters) + "}", parameters, 0, 0);
+  }
+
+  /**
+   * Get the archived events of a playground, by date
+   *
+   * @param playgroundName uniquely identifies a playground in db
+   * @return archived events of the playground by their details.date
+   * @throws IllegalArgumentException when playgroundName is invalid
+   */
+  @Override
+  public List<EventDTO> getArchivedEventsInPlayground(String playgroundName) throws IllegalArgumentException {
+    if (playgroundName == null || playgroundName.isEmpty())
+      throw new IllegalArgumentException(
+        String.format("%s as ID is not valid in identifying a playground", playgroundName));
+
+    MongoCollection archive = new Jongo(dataSource.getDatabase()).getCollection(ARCHIVE_COLLECTION);
+    List<EventDTO> eventList = new ArrayList<>();
+    for (EventDTO event : archive.find("{playground : #}", playgroundName).sort("{'details.date' : 1}").as(EventDTO.class))
+      eventList.add(event);
+
+    return eventList;
+  }
+
+  /**
+   * Get the events of all playgrounds in a date range, by date
+   *
+   * @param from  earliest date
+   * @param to    date the events must be before, or null
+   * @param skip  events to skip, for paging
+   * @param limit most events to return
+   * @return events by their details.date
+   */
+  @Override
+  public List<EventDTO> getUpcomingEvents(Date from, Date to, int skip, int limit) {
+    List<Object> parameters = new ArrayList<>();
+    String range = dateRange(from, to, parameters);
+    return find("{" + (range.isEmpty() ? "" : range.substring(2)) + "}", parameters, skip, limit);
+  }
+
+  /**
+   * Move the events dated before a day to the archive collection. Each event is saved in the archive
+   * before it is removed, so an interrupted run leaves it in both and the next run completes it.
+   *
+   * @param before events with an earlier details.date are archived
+   * @return the archived events, without those another instance archived at the same time
+   */
+  @Override
+  public List<EventDTO> archiveEventsBefore(Date before) {
+    Jongo jongo = new Jongo(dataSource.getDatabase());
+    MongoCollection events = getCollection();
+    MongoCollection archive = jongo.getCollection(ARCHIVE_COLLECTION);
+
+    List<EventDTO> archived = new ArrayList<>();
+    for (EventDTO event : events.find("{'details.date' : {$lt : #}}", before).as(EventDTO.class)) {
+      archive.save(event);
+      if (events.remove(new ObjectId(event.getID())).getN() != 0)
+        archived.add(event);
+    }
+    return archived;
+  }
+
+  /**
+   * Get number of participants in an event without loading the participants
+   *
+   * @param id uniquely identifies an event in db
+   * @return the participant counter of the event
+   * @throws IllegalArgumentException when id is invalid
+   * @throws NoSuchElementException   when event is not found in db
+   */
+  @Override
+  public int getParticipantCount(String id) throws IllegalArgumentException, NoSuchElementException {
+    if (id == null || id.isEmpty())
+      throw new IllegalArgumentException(
+        String.format("%s as ID is not valid in identifying an event", id));
+
+    Jongo jongo = new Jongo(dataSource.getDatabase());
+    MongoCollection collection = jongo.getCollection(COLLECTION);
+    EventDTO event = collection.findOne(new ObjectId(id)).projection("{participants : 1}").as(EventDTO.class);
+
+    if (event == null)
+      throw new NoSuchElementException(
+        String.format("No event in %s collection with id %s", COLLECTION, id));
+
+    return event.getParticipants();
+  }
+
+  /**
+   * Set the participant counter to the number of assigned users, in the events and the archive.
+   * Events created before the counter existed have none, and events replaced by an update lost it.
+   * Each counter is only set if it still has the value that was read, so a concurrent sign-up is
+   * left alone - running it again picks up what it skipped.
+   *
+   * @return number of events whose counter was set
+   */
+  @Override
+  public int backfillParticipants() {
+    int updated = 0;
+    for (String name : Arrays.asList(COLLECTION, ARCHIVE_COLLECTION)) {
+      DBCollection events = dataSource.getDatabase().getCollection(name);
+      BulkWriteOperation bulk = events.initializeUnorderedBulkOperation();
+      int pending = 0;
+      try (DBCursor cursor = events.find(new BasicDBObject(), new BasicDBObject("assignedUsers", 1).append("participants", 1))) {
+        for (DBObject event : cursor) {
+          Object assignedUsers = event.get("assignedUsers");
+          int participants = assignedUsers instanceof List ? ((List<?>) assignedUsers).size() : 0;
+          Object counter = event.get("participants");
+          if (counter instanceof Number && ((Number) counter).intValue() == participants) continue;
+
+          // null matches a missing counter as well
+          bulk.find(new BasicDBObject("_id", event.get("_id")).append("participants", counter))
+            .updateOne(new BasicDBObject("$set", new BasicDBObject("participants", participants)));
+          if (++pending == BACKFILL_BATCH_SIZE) {
+            updated += bulk.execute().getModifiedCount();
+            bulk = events.initializeUnorderedBulkOperation();
+            pending = 0;
+          }
+        }
+      }
+      if (pending != 0)
+        updated += bulk.execute().getModifiedCount();
+    }
+    return updated;
+  }
+
   /**
    * Update event in db
    *
    * @param event with updated values
    * @return writeResult where id of updated event can be derived
    * @throws IllegalArgumentException when event is null
+   * @throws VersionConflictException when event was modified since it was read
    * @throws NoModificationException  when no event is updated
    */
   @Override
@@ -107,19 +263,31 @@ public class EventDAO implements IEventDAO {
 
     Jongo jongo = new Jongo(dataSource.getDatabase());
     MongoCollection collection = jongo.getCollection(COLLECTION);
-    WriteResult wr = collection
-      .update(new ObjectId(event.getID()))
-      .with(event);
+    return QueryUtils.updateVersioned(collection, event.getID(), event);
+  }
 
-    if (!wr.wasAcknowledged())
-      throw new NoModificationException(
-        String.format("Event in %s collection with id %s was not updated", COLLECTION, event.getID()));
+  /**
+   * Update only the fields of event that changed since it was read
+   *
+   * @param event with updated values
+   * @param readState snapshot of event taken with QueryUtils.snapshot when it was read
+   * @return writeResult of the update, with n = 0 when nothing changed
+   * @throws IllegalArgumentException when event is null
+   * @throws VersionConflictException when event was modified since it was read
+   * @throws NoModificationException  when no event is updated
+   */
+  @Override
+  public WriteResult updateEvent(EventDTO event, DBObject readState) throws IllegalArgumentException, NoModificationException {
+    if (event == null || event.getID() == null || readState == null)
+      throw new IllegalArgumentException(
+        String.format("Can't update event in %s collection when param is null", COLLECTION));
 
-    return wr;
+    MongoCollection collection = new Jongo(dataSource.getDatabase()).getCollection(COLLECTION);
+    return QueryUtils.updateChangedFields(collection, event.getID(), event, readState);
   }
 
   /**
-   * Delete event in db
+   * Delete event in db, from the archive when it isn't in the events collection
    *
    * @param id uniquely identifies an event in db
    * @return writeResult where id of deleted user can be derived
@@ -128,17 +296,33 @@ public class EventDAO implements IEventDAO {
    */
   @Override
   public WriteResult deleteEvent(String id) throws IllegalArgumentException, NoModificationException {
+    WriteResult wr = deleteEvent(id, false);
+    if (wr.getN() == 0)
+      wr = deleteEvent(id, true);
+    return wr;
+  }
+
+  /**
+   * Delete event in either the events collection or the archive
+   *
+   * @param id       uniquely identifies an event in db
+   * @param archived whether to delete from the archive
+   * @return writeResult with n = 0 when the event isn't in that collection
+   * @throws NoModificationException  when the delete isn't acknowledged
+   * @throws IllegalArgumentException when id is invalid
+   */
+  @Override
+  public WriteResult deleteEvent(String id, boolean archived) throws IllegalArgumentException, NoModificationException {
     if (id == null || id.isEmpty())
       throw new IllegalArgumentException(
         String.format("%s as ID is not valid in identifying an event", id));
 
-    Jongo jongo = new Jongo(dataSource.getDatabase());
-    MongoCollection collection = jongo.getCollection(COLLECTION);
-    WriteResult wr = collection.remove(new ObjectId(id));
+    String name = archived ? ARCHIVE_COLLECTION : COLLECTION;
+    WriteResult wr = new Jongo(dataSource.getDatabase()).getCollection(name).remove(new ObjectId(id));
 
     if (!wr.wasAcknowledged())
       throw new NoModificationException(
-        String.format("No event in %s collection with id %s was deleted", COLLECTION, id));
+        String.format("No event in %s collection with id %s was deleted", name, id));
 
     return wr;
   }
@@ -151,6 +335,7 @@ public class EventDAO implements IEventDAO {
   @Override
   public WriteResult deleteAllEvents() {
     Jongo jongo = new Jongo(dataSource.getDatabase());
+    jongo.getCollection(ARCHIVE_COLLECTION).remove("{}");
     MongoCollection collection = jongo.getCollection(COLLECTION);
     return collection.remove("{}");
   }
@@ -158,5 +343,43 @@ public class EventDAO implements IEventDAO {
   @Override
   public void setDataSource(IDataSource dataSource) {
     this.dataSource = dataSource;
+    this.indexed = false;
+  }
+
+  private List<EventDTO> find(String query, List<Object> parameters, int skip, int limit) {
+    List<EventDTO> eventList = new ArrayList<>();
+    for (EventDTO event : getCollection().find(query, parameters.toArray()).sort("{'details.date' : 1}").skip(skip).limit(limit).as(EventDTO.class))
+      eventList.add(event);
+
+    return eventList;
+  }
+
+  /**
+   * @return ", 'details.date' : {...}" for the given bounds, whose values are added to parameters,
+   * or an empty string when both are null
+   */
+  private static String dateRange(Date from, Date to, List<Object> parameters) {
+    List<String> bounds = new ArrayList<>();
+    if (from != null) {
+      bounds.add("$gte : #");
+      parameters.add(from);
+    }
+    if (to != null) {
+      bounds.add("$lt : #");
+      parameters.add(to);
+    }
+    return bounds.isEmpty() ? "" : ", 'details.date' : {" + String.join(", ", bounds) + "}";
+  }
+
+  private MongoCollection getCollection() {
+    if (!indexed) {
+      // the events of a playground in a date range, and of all playgrounds in a date range
+      dataSource.getDatabase().getCollection(COLLECTION)
+        .createIndex(new BasicDBObject("playground", 1).append("details.date", 1));
+      dataSource.getDatabase().getCollection(COLLECTION)
+        .createIndex(new BasicDBObject("details.date", 1));
+      indexed = true;
+    }
+    return new Jongo(dataSource.getDatabase()).getCollection(COLLECTION);
   }
 }
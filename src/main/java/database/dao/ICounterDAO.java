@@ -0,0 +1,17 @@
+package database.dao;
+
+import database.IDataSource;
+
+import java.util.Map;
+
+public interface ICounterDAO {
+  String COLLECTION = "statistics_counters";
+
+  void setDataSource(IDataSource dataSource);
+
+  Map<String, Long> getCounters();
+
+  void incrementCounters(Map<String, Long> deltas);
+
+  void replaceCounters(Map<String, Long> counters);
+}
@@ -1,15 +1,19 @@
 package database.dao;
 
+import com.mongodb.DBObject;
 import com.mongodb.WriteResult;
 import database.IDataSource;
 import database.dto.EventDTO;
 import database.exceptions.NoModificationException;
 
+import java.util.Date;
 import java.util.List;
 import java.util.NoSuchElementException;
 
 public interface IEventDAO {
   String COLLECTION = "events";
+  // past events, moved out of COLLECTION by archiveEventsBefore
+  String ARCHIVE_COLLECTION = "eventsArchive";
 
   void setDataSource(IDataSource dataSource);
 
@@ -19,9 +23,25 @@ public interface IEventDAO {
 
   List<EventDTO> getEventList() throws NoSuchElementException;
 
+  List<EventDTO> getEventsInPlayground(String playgroundName, Date from, Date to) throws IllegalArgumentException;
+
+  List<EventDTO> getArchivedEventsInPlayground(String playgroundName) throws IllegalArgumentException;
+
+  List<EventDTO> getUpcomingEvents(Date from, Date to, int skip, int limit);
+
+  List<EventDTO> archiveEventsBefore(Date before);
+
+  int getParticipantCount(String id) throws IllegalArgumentException, NoSuchElementException;
+
+  int backfillParticipants();
+
   WriteResult updateEvent(EventDTO event) throws IllegalArgumentException, NoModificationException;
 
+  WriteResult updateEvent(EventDTO event, DBObject readState) throws IllegalArgumentException, NoModificationException;
+
   WriteResult deleteEvent(String id) throws IllegalArgumentException, NoModificationException;
 
+  WriteResult deleteEvent(String id, boolean archived) throws IllegalArgumentException, NoModificationException;
+
   WriteResult deleteAllEvents();
 }
@@ -1,15 +1,19 @@
 package database.dao;
 
+import com.mongodb.DBObject;
 import com.mongodb.WriteResult;
 import database.IDataSource;
 import database.dto.MessageDTO;
 import database.exceptions.NoModificationException;
 
+import java.util.Date;
 import java.util.List;
 import java.util.NoSuchElementException;
 
 public interface IMessageDAO {
   String COLLECTION = "messages";
+  // expired messages kept by expireMessagesBefore, marked outDated
+  String ARCHIVE_COLLECTION = "messagesArchive";
 
   void setDataSource(IDataSource dataSource);
 
@@ -21,7 +25,15 @@ public interface IMessageDAO {
 
   WriteResult updateMessage(MessageDTO message) throws IllegalArgumentException, NoModificationException;
 
+  WriteResult updateMessage(MessageDTO message, DBObject readState) throws IllegalArgumentException, NoModificationException;
+
   WriteResult deleteMessage(String id) throws IllegalArgumentException, NoModificationException;
 
   WriteResult deleteAllMessages();
+
+  List<MessageDTO> getMessagesBefore(Date before, int limit);
+
+  int expireMessages(List<MessageDTO> messages, boolean archive);
+
+  List<MessageDTO> expireMessagesBefore(Date before, int limit, boolean archive);
 }
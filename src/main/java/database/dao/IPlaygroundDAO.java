@@ -1,7 +1,10 @@
 package database.dao;
 
+import com.mongodb.DBObject;
 import com.mongodb.WriteResult;
 import database.IDataSource;
+import database.dto.LocationDTO;
+import database.dto.NearbyPlaygroundsDTO;
 import database.dto.PlaygroundDTO;
 import database.exceptions.NoModificationException;
 
@@ -10,6 +13,11 @@ import java.util.NoSuchElementException;
 
 public interface IPlaygroundDAO {
   String COLLECTION = "playgrounds";
+  String EVENTS_VERSION = "eventsVersion";
+  String MESSAGES_VERSION = "messagesVersion";
+  String LOCATION = "location";
+  // most event and message references kept in a playground document, the rest are found by querying
+  int MAX_EMBEDDED_REFS = 100;
 
   void setDataSource(IDataSource dataSource);
 
@@ -21,7 +29,18 @@ public interface IPlaygroundDAO {
 
   WriteResult updatePlayground(PlaygroundDTO playground) throws IllegalArgumentException, NoModificationException;
 
+  WriteResult updatePlayground(PlaygroundDTO playground, DBObject readState) throws IllegalArgumentException, NoModificationException;
+
   WriteResult deletePlayground(String id) throws IllegalArgumentException, NoModificationException;
 
   WriteResult deleteAllPlaygrounds();
+
+  PlaygroundDTO getPlaygroundCounters(String playgroundName) throws IllegalArgumentException, NoSuchElementException;
+
+  WriteResult incrementCounter(String playgroundName, String counter) throws IllegalArgumentException, NoModificationException;
+
+  NearbyPlaygroundsDTO getNearbyPlaygrounds(double latitude, double longitude, double radius, int page, int size)
+    throws IllegalArgumentException;
+
+  WriteResult updateLocation(String playgroundName, LocationDTO location) throws IllegalArgumentException, NoModificationException;
 }
@@ -0,0 +1,46 @@
+package database.dao;
+
+import com.mongodb.WriteResult;
+import database.IDataSource;
+import database.dto.EventDTO;
+import database.dto.MessageDTO;
+import database.dto.PlaygroundDTO;
+import database.dto.PlaygroundViewDTO;
+import database.dto.UserDTO;
+import database.exceptions.NoModificationException;
+
+import java.util.Date;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+public interface IPlaygroundViewDAO {
+  String COLLECTION = "playground_view";
+
+  void setDataSource(IDataSource dataSource);
+
+  PlaygroundViewDTO getView(String playgroundName) throws IllegalArgumentException, NoSuchElementException;
+
+  WriteResult saveView(PlaygroundViewDTO view) throws IllegalArgumentException, NoModificationException;
+
+  WriteResult deleteView(String playgroundName) throws IllegalArgumentException;
+
+  WriteResult updatePlayground(PlaygroundDTO playground) throws IllegalArgumentException;
+
+  WriteResult putPedagogue(String playgroundName, UserDTO pedagogue) throws IllegalArgumentException;
+
+  WriteResult removePedagogue(String playgroundName, String username) throws IllegalArgumentException;
+
+  WriteResult putEvents(String playgroundName, List<EventDTO> events, Date upcomingFrom) throws IllegalArgumentException;
+
+  WriteResult removeEvents(String playgroundName, List<String> eventIDs) throws IllegalArgumentException;
+
+  WriteResult incrementParticipants(String playgroundName, String eventID, int delta) throws IllegalArgumentException;
+
+  WriteResult putMessage(String playgroundName, MessageDTO message) throws IllegalArgumentException;
+
+  WriteResult removeMessages(String playgroundName, List<String> messageIDs) throws IllegalArgumentException;
+
+  WriteResult setLatestMessages(String playgroundName, List<MessageDTO> messages) throws IllegalArgumentException;
+
+  WriteResult deleteAllViews();
+}
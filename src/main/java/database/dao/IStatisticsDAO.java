@@ -0,0 +1,27 @@
+package database.dao;
+
+import database.IDataSource;
+import database.dto.StatisticsDTO;
+
+import java.util.Map;
+
+public interface IStatisticsDAO {
+  String USERS = "users";
+  String PLAYGROUNDS = "playgrounds";
+  String PEDAGOGUES = "pedagogues";
+  String EVENTS = "events";
+  String PARTICIPANTS = "participants";
+  String MESSAGES = "messages";
+
+  void setDataSource(IDataSource dataSource);
+
+  StatisticsDTO.UserStatistics getUserStatistics();
+
+  StatisticsDTO.EventStatistics getEventStatistics();
+
+  StatisticsDTO.PlaygroundStatistics getPlaygroundStatistics();
+
+  StatisticsDTO.MessageStatistics getMessageStatistics();
+
+  Map<String, Long> countFromScratch();
+}
@@ -1,5 +1,6 @@
 package database.dao;
 
+import com.mongodb.DBObject;
 import com.mongodb.WriteResult;
 import database.IDataSource;
 import database.dto.UserDTO;
@@ -21,6 +22,8 @@ public interface IUserDAO {
 
   WriteResult updateUser(UserDTO user) throws IllegalArgumentException, NoModificationException;
 
+  WriteResult updateUser(UserDTO user, DBObject readState) throws IllegalArgumentException, NoModificationException;
+
   WriteResult deleteUser(String username) throws NoModificationException;
 
   WriteResult deleteAllUsers();
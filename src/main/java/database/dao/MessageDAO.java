@@ -1,15 +1,20 @@
 package database.dao;
 
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
 import com.mongodb.WriteResult;
 import database.IDataSource;
 import database.dto.MessageDTO;
 import database.exceptions.NoModificationException;
+import database.exceptions.VersionConflictException;
+import database.utils.QueryUtils;
 import org.bson.types.ObjectId;
 import org.jongo.Jongo;
 import org.jongo.MongoCollection;
 import org.jongo.MongoCursor;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.NoSuchElementException;
 
@@ -18,6 +23,7 @@ import static org.jongo.Oid.withOid;
 public class MessageDAO implements IMessageDAO {
 
   private IDataSource datasource;
+  private boolean indexed;
 
   public MessageDAO(IDataSource datasource) {
     this.datasource = datasource;
@@ -100,6 +106,7 @@ public class MessageDAO implements IMessageDAO {
    * @param message with updated values
    * @return writeResult where id of updated message can be derived
    * @throws IllegalArgumentException when message is null
+   * @throws VersionConflictException when message was modified since it was read
    * @throws NoModificationException  when no message is updated
    */
   @Override
@@ -110,15 +117,27 @@ public class MessageDAO implements IMessageDAO {
 
     Jongo jongo = new Jongo(datasource.getDatabase());
     MongoCollection collection = jongo.getCollection(COLLECTION);
-    WriteResult wr = collection
-      .update(new ObjectId(message.getID()))
-      .with(message);
+    return QueryUtils.updateVersioned(collection, message.getID(), message);
+  }
 
-    if (!wr.wasAcknowledged())
-      throw new NoModificationException(
-        String.format("Event in %s collection with id %s was not updated", COLLECTION, message.getID()));
+  /**
+   * Update only the fields of message that changed since it was read
+   *
+   * @param message with updated values
+   * @param readState snapshot of message taken with QueryUtils.snapshot when it was read
+   * @return writeResult of the update, with n = 0 when nothing changed
+   * @throws IllegalArgumentException when message is null
+   * @throws VersionConflictException when message was modified since it was read
+   * @throws NoModificationException  when no message is updated
+   */
+  @Override
+  public WriteResult updateMessage(MessageDTO message, DBObject readState) throws IllegalArgumentException, NoModificationException {
+    if (message == null || message.getID() == null || readState == null)
+      throw new IllegalArgumentException(
+        String.format("Can't update message in %s collection when param is null", COLLECTION));
 
-    return wr;
+    MongoCollection collection = new Jongo(datasource.getDatabase()).getCollection(COLLECTION);
+    return QueryUtils.updateChangedFields(collection, message.getID(), message, readState);
   }
 
   /**
@@ -155,12 +174,80 @@ public class MessageDAO implements IMessageDAO {
   @Override
   public WriteResult deleteAllMessages() {
     Jongo jongo = new Jongo(datasource.getDatabase());
+    jongo.getCollection(ARCHIVE_COLLECTION).remove("{}");
     MongoCollection collection = jongo.getCollection(COLLECTION);
     return collection.remove("{}");
   }
 
+  /**
+   * Remove the oldest messages dated before a day, in one batch - getMessagesBefore followed by
+   * expireMessages.
+   *
+   * @param before  messages with an earlier date are expired
+   * @param limit   most messages to expire
+   * @param archive keep the messages in the archive collection, marked outDated, instead of deleting them
+   * @return the expired messages, fewer than limit when no more are expired
+   */
+  @Override
+  public List<MessageDTO> expireMessagesBefore(Date before, int limit, boolean archive) {
+    List<MessageDTO> expired = getMessagesBefore(before, limit);
+    expireMessages(expired, archive);
+    return expired;
+  }
+
+  /**
+   * Get the oldest messages dated before a day
+   *
+   * @param before messages with an earlier date are returned
+   * @param limit  most messages to return
+   * @return messages by date
+   */
+  @Override
+  public List<MessageDTO> getMessagesBefore(Date before, int limit) {
+    List<MessageDTO> messages = new ArrayList<>();
+    for (MessageDTO message : getCollection().find("{date : {$lt : #}}", before).sort("{date : 1}").limit(limit).as(MessageDTO.class))
+      messages.add(message);
+    return messages;
+  }
+
+  /**
+   * Remove messages in one delete. Archived messages are saved in the archive collection before
+   * they are removed, so an interrupted run is completed by the next one.
+   *
+   * @param messages messages to remove, as read by getMessagesBefore
+   * @param archive  keep the messages in the archive collection, marked outDated, instead of deleting them
+   * @return number of messages removed
+   */
+  @Override
+  public int expireMessages(List<MessageDTO> messages, boolean archive) {
+    MongoCollection archived = new Jongo(datasource.getDatabase()).getCollection(ARCHIVE_COLLECTION);
+
+    List<ObjectId> ids = new ArrayList<>();
+    for (MessageDTO message : messages) {
+      if (archive) {
+        message.setOutDated(true);
+        archived.save(message);
+      }
+      ids.add(new ObjectId(message.getID()));
+    }
+
+    if (ids.isEmpty())
+      return 0;
+    return getCollection().remove("{_id : {$in : #}}", ids).getN();
+  }
+
   @Override
   public void setDataSource(IDataSource dataSource) {
     this.datasource = dataSource;
+    this.indexed = false;
+  }
+
+  private MongoCollection getCollection() {
+    if (!indexed) {
+      // the sweep of expired messages
+      datasource.getDatabase().getCollection(COLLECTION).createIndex(new BasicDBObject("date", 1));
+      indexed = true;
+    }
+    return new Jongo(datasource.getDatabase()).getCollection(COLLECTION);
   }
 }
@@ -1,21 +1,32 @@
 package database.dao;
 
+import com.mongodb.AggregationOptions;
+import com.mongodb.BasicDBObject;
+import com.mongodb.Cursor;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
 import com.mongodb.WriteResult;
 import database.IDataSource;
+import database.dto.LocationDTO;
+import database.dto.NearbyPlaygroundsDTO;
 import database.dto.PlaygroundDTO;
 import database.exceptions.NoModificationException;
+import database.exceptions.VersionConflictException;
+import database.utils.QueryUtils;
 import org.bson.types.ObjectId;
 import org.jongo.Jongo;
 import org.jongo.MongoCollection;
 import org.jongo.MongoCursor;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.NoSuchElementException;
 
 public class PlaygroundDAO implements IPlaygroundDAO {
 
   private IDataSource dataSource;
+  private boolean geoIndexed;
 
   public PlaygroundDAO(IDataSource dataSource) {
     this.dataSource = dataSource;
@@ -99,6 +110,7 @@ public class PlaygroundDAO implements IPlaygroundDAO {
    * @param playground with updated values
    * @return writeResult where id of updated playground can be derived
    * @throws IllegalArgumentException when playground is null
+   * @throws VersionConflictException when playground was modified since it was read
    * @throws NoModificationException  when no playground is updated
    */
   @Override
@@ -109,15 +121,27 @@ public class PlaygroundDAO implements IPlaygroundDAO {
 
     Jongo jongo = new Jongo(dataSource.getDatabase());
     MongoCollection collection = jongo.getCollection(COLLECTION);
-    WriteResult wr = collection
-      .update(new ObjectId(playground.getId()))
-      .with(playground);
+    return QueryUtils.updateVersioned(collection, playground.getId(), playground);
+  }
 
-    if (!wr.wasAcknowledged())
-      throw new NoModificationException(
-        String.format("Playground in %s collection with id %s was not updated", COLLECTION, playground.getId()));
+  /**
+   * Update only the fields of playground that changed since it was read
+   *
+   * @param playground with updated values
+   * @param readState snapshot of playground taken with QueryUtils.snapshot when it was read
+   * @return writeResult of the update, with n = 0 when nothing changed
+   * @throws IllegalArgumentException when playground is null
+   * @throws VersionConflictException when playground was modified since it was read
+   * @throws NoModificationException  when no playground is updated
+   */
+  @Override
+  public WriteResult updatePlayground(PlaygroundDTO playground, DBObject readState) throws IllegalArgumentException, NoModificationException {
+    if (playground == null || playground.getId() == null || readState == null)
+      throw new IllegalArgumentException(
+        String.format("Can't update playground in %s collection when param is null", COLLECTION));
 
-    return wr;
+    MongoCollection collection = new Jongo(dataSource.getDatabase()).getCollection(COLLECTION);
+    return QueryUtils.updateChangedFields(collection, playground.getId(), playground, readState);
   }
 
   /**
@@ -156,8 +180,149 @@ public class PlaygroundDAO implements IPlaygroundDAO {
     return collection.remove("{}");
   }
 
+  /**
+   * Get only the id and change counters of a playground, without its references
+   *
+   * @param playgroundName uniquely identifies a playground in db
+   * @return playground with id, eventsVersion and messagesVersion set
+   * @throws IllegalArgumentException when playgroundName is invalid
+   * @throws NoSuchElementException   when playground is not found in db
+   */
+  @Override
+  public PlaygroundDTO getPlaygroundCounters(String playgroundName) throws IllegalArgumentException, NoSuchElementException {
+    if (playgroundName == null || playgroundName.isEmpty())
+      throw new IllegalArgumentException(
+        String.format("%s as ID is not valid in identifying an playground", playgroundName));
+
+    MongoCollection collection = new Jongo(dataSource.getDatabase()).getCollection(COLLECTION);
+    PlaygroundDTO playground = collection.findOne("{name : #}", playgroundName)
+      .projection("{_id : 1, name : 1, eventsVersion : 1, messagesVersion : 1}")
+      .as(PlaygroundDTO.class);
+
+    if (playground == null)
+      throw new NoSuchElementException(
+        String.format("No playground in %s collection with name %s", COLLECTION, playgroundName));
+
+    return playground;
+  }
+
+  /**
+   * Increment a change counter of a playground. The version is incremented as well, so a full
+   * update based on an earlier read can't write the old counter back.
+   *
+   * @param playgroundName uniquely identifies a playground in db
+   * @param counter        EVENTS_VERSION or MESSAGES_VERSION
+   * @return writeResult of the update
+   * @throws IllegalArgumentException when playgroundName is invalid
+   * @throws NoModificationException  when no playground is updated
+   */
+  @Override
+  public WriteResult incrementCounter(String playgroundName, String counter) throws IllegalArgumentException, NoModificationException {
+    if (playgroundName == null || playgroundName.isEmpty())
+      throw new IllegalArgumentException(
+        String.format("%s as ID is not valid in identifying an playground", playgroundName));
+
+    MongoCollection collection = new Jongo(dataSource.getDatabase()).getCollection(COLLECTION);
+    WriteResult wr = collection.update("{name : #}", playgroundName).with("{$inc : {# : 1, version : 1}}", counter);
+
+    if (wr.getN() == 0)
+      throw new NoModificationException(
+        String.format("%s of playground %s in %s collection was not incremented", counter, playgroundName, COLLECTION));
+
+    return wr;
+  }
+
+  /**
+   * Get the playgrounds within a radius, nearest first. $geoNear uses the 2dsphere index on location,
+   * so only the playgrounds in the radius are read, and playgrounds without a location are left out.
+   *
+   * @param latitude  of the centre
+   * @param longitude of the centre
+   * @param radius    in metres
+   * @param page      starting from 1
+   * @param size      playgrounds per page
+   * @return page of playgrounds with their distance, without their references
+   * @throws IllegalArgumentException when the centre, radius or page is invalid
+   */
+  @Override
+  public NearbyPlaygroundsDTO getNearbyPlaygrounds(double latitude, double longitude, double radius, int page, int size)
+    throws IllegalArgumentException {
+    if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180)
+      throw new IllegalArgumentException(
+        String.format("%s, %s are not valid coordinates", latitude, longitude));
+    if (radius <= 0 || page < 1 || size < 1)
+      throw new IllegalArgumentException(
+        String.format("radius, page and size must be positive, not %s, %d and %d", radius, page, size));
+
+    BasicDBObject near = new BasicDBObject("type", LocationDTO.POINT)
+      .append("coordinates", Arrays.asList(longitude, latitude));
+    List<DBObject> pipeline = Arrays.asList(
+      new BasicDBObject("$geoNear", new BasicDBObject("near", near)
+        .append("key", LOCATION)
+        .append("distanceField", "distance")
+        .append("maxDistance", radius)
+        .append("spherical", true)),
+      BasicDBObject.parse("{$facet : {" +
+        "total : [{$count : 'n'}], " +
+        "hits : [{$skip : " + (long) (page - 1) * size + "}, {$limit : " + size + "}, " +
+        "{$project : {assignedPedagogue : 0, events : 0, messages : 0}}]}}"));
+
+    long total = 0;
+    List<NearbyPlaygroundsDTO.Nearby> playgrounds = new ArrayList<>();
+    try (Cursor cursor = getGeoIndexedCollection().aggregate(pipeline, AggregationOptions.builder().build())) {
+      if (cursor.hasNext()) {
+        DBObject result = cursor.next();
+        List<?> counts = (List<?>) result.get("total");
+        if (!counts.isEmpty())
+          total = ((Number) ((DBObject) counts.get(0)).get("n")).longValue();
+        for (Object hit : (List<?>) result.get("hits")) {
+          BasicDBObject document = (BasicDBObject) hit;
+          double distance = ((Number) document.remove("distance")).doubleValue();
+          playgrounds.add(new NearbyPlaygroundsDTO.Nearby(distance, QueryUtils.unmarshall(document, PlaygroundDTO.class)));
+        }
+      }
+    }
+    return new NearbyPlaygroundsDTO(latitude, longitude, radius, page, size, total, playgrounds);
+  }
+
+  /**
+   * Set the location of a playground, without touching the rest of it
+   *
+   * @param playgroundName uniquely identifies a playground in db
+   * @param location       coordinates of the playground
+   * @return writeResult of the update
+   * @throws IllegalArgumentException when playgroundName is invalid
+   * @throws NoModificationException  when no playground is updated
+   */
+  @Override
+  public WriteResult updateLocation(String playgroundName, LocationDTO location) throws IllegalArgumentException, NoModificationException {
+    if (playgroundName == null || playgroundName.isEmpty())
+      throw new IllegalArgumentException(
+        String.format("%s as ID is not valid in identifying an playground", playgroundName));
+
+    MongoCollection collection = new Jongo(dataSource.getDatabase()).getCollection(COLLECTION);
+    WriteResult wr = collection.update("{name : #}", playgroundName).with("{$set : {# : #}, $inc : {version : 1}}", LOCATION, location);
+
+    if (wr.getN() == 0)
+      throw new NoModificationException(
+        String.format("Location of playground %s in %s collection was not updated", playgroundName, COLLECTION));
+
+    return wr;
+  }
+
   @Override
   public void setDataSource(IDataSource dataSource) {
     this.dataSource = dataSource;
+    this.geoIndexed = false;
+  }
+
+  private DBCollection getGeoIndexedCollection() {
+    DBCollection collection = dataSource.getDatabase().getCollection(COLLECTION);
+    if (!geoIndexed) {
+      // $geoNear needs it, and with it only the playgrounds in the radius are read
+      collection.createIndex(new BasicDBObject(LOCATION, "2dsphere"));
+      geoIndexed = true;
+    }
+    return collection;
   }
 }
@@ -0,0 +1,319 @@
+package database.dao;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.WriteResult;
+import database.IDataSource;
+import database.dto.EventDTO;
+import database.dto.MessageDTO;
+import database.dto.PlaygroundDTO;
+import database.dto.PlaygroundViewDTO;
+import database.dto.UserDTO;
+import database.exceptions.NoModificationException;
+import database.utils.QueryUtils;
+import org.bson.types.ObjectId;
+import org.jongo.Jongo;
+import org.jongo.MongoCollection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+public class PlaygroundViewDAO implements IPlaygroundViewDAO {
+
+  private IDataSource dataSource;
+  private boolean indexed;
+
+  public PlaygroundViewDAO(IDataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  /**
+   * Get the read model of a playground
+   *
+   * @param playgroundName uniquely identifies a view in db
+   * @return view of the playground with given name
+   * @throws IllegalArgumentException when playgroundName is invalid
+   * @throws NoSuchElementException   when no view is found in db
+   */
+  @Override
+  public PlaygroundViewDTO getView(String playgroundName) throws IllegalArgumentException, NoSuchElementException {
+    if (playgroundName == null || playgroundName.isEmpty())
+      throw new IllegalArgumentException(
+        String.format("%s as name is not valid in identifying a playground view", playgroundName));
+
+    PlaygroundViewDTO view = getCollection().findOne("{name : #}", playgroundName).as(PlaygroundViewDTO.class);
+
+    if (view == null)
+      throw new NoSuchElementException(
+        String.format("No playground view in %s collection with name %s", COLLECTION, playgroundName));
+
+    return view;
+  }
+
+  /**
+   * Insert or replace the read model of a playground
+   *
+   * @param view to be saved
+   * @return writeResult where upsertedId can be derived when the view is new
+   * @throws IllegalArgumentException when view is null
+   * @throws NoModificationException  when view is not saved
+   */
+  @Override
+  public WriteResult saveView(PlaygroundViewDTO view) throws IllegalArgumentException, NoModificationException {
+    if (view == null || view.getName() == null)
+      throw new IllegalArgumentException(
+        String.format("Can't save playground view in %s collection when param is null", COLLECTION));
+
+    WriteResult wr = getCollection()
+      .update("{name : #}", view.getName())
+      .upsert()
+      .with(view);
+
+    if (!wr.wasAcknowledged())
+      throw new NoModificationException(
+        String.format("Playground view in %s collection with name %s was not saved", COLLECTION, view.getName()));
+
+    return wr;
+  }
+
+  /**
+   * Delete the read model of a playground
+   *
+   * @param playgroundName uniquely identifies a view in db
+   * @return writeResult where number of deleted views can be derived
+   * @throws IllegalArgumentException when playgroundName is invalid
+   */
+  @Override
+  public WriteResult deleteView(String playgroundName) throws IllegalArgumentException {
+    if (playgroundName == null || playgroundName.isEmpty())
+      throw new IllegalArgumentException(
+        String.format("%s as name is not valid in identifying a playground view", playgroundName));
+
+    return getCollection().remove("{name : #}", playgroundName);
+  }
+
+  /**
+   * Replace the playground part of a view, without its embedded reference sets
+   *
+   * @param playground as it was written
+   * @return writeResult with n = 0 when the playground has no view yet
+   * @throws IllegalArgumentException when playground is null
+   */
+  @Override
+  public WriteResult updatePlayground(PlaygroundDTO playground) throws IllegalArgumentException {
+    if (playground == null || playground.getName() == null)
+      throw new IllegalArgumentException(
+        String.format("Can't update playground view in %s collection when param is null", COLLECTION));
+
+    DBObject document = QueryUtils.snapshot(playground);
+    document.put("assignedPedagogue", Collections.emptyList());
+    document.put("events", Collections.emptyList());
+    document.put("messages", Collections.emptyList());
+    return update(playground.getName(), new BasicDBObject("$set", new BasicDBObject("playground", document)));
+  }
+
+  /**
+   * Insert or replace the summary of a pedagogue in a view
+   *
+   * @param playgroundName uniquely identifies a view in db
+   * @param pedagogue      summary without password or events
+   * @return writeResult of the push, with n = 0 when the playground has no view yet
+   * @throws IllegalArgumentException when playgroundName is invalid
+   */
+  @Override
+  public WriteResult putPedagogue(String playgroundName, UserDTO pedagogue) throws IllegalArgumentException {
+    removePedagogue(playgroundName, pedagogue.getUsername());
+    return update(playgroundName, new BasicDBObject("$push",
+      new BasicDBObject("pedagogues", QueryUtils.snapshot(pedagogue))));
+  }
+
+  /**
+   * Remove the summary of a pedagogue from a view
+   *
+   * @param playgroundName uniquely identifies a view in db
+   * @param username       of the pedagogue
+   * @return writeResult with n = 0 when the playground has no view yet
+   * @throws IllegalArgumentException when playgroundName is invalid
+   */
+  @Override
+  public WriteResult removePedagogue(String playgroundName, String username) throws IllegalArgumentException {
+    return update(playgroundName, new BasicDBObject("$pull",
+      new BasicDBObject("pedagogues", new BasicDBObject("username", username))));
+  }
+
+  /**
+   * Insert or replace events in the upcoming events of a view, which stay sorted by date. Events
+   * before upcomingFrom are only removed, and the assigned users are never part of the view.
+   *
+   * @param playgroundName uniquely identifies a view in db
+   * @param events         as they were written
+   * @param upcomingFrom   first day of upcoming events
+   * @return writeResult of the push, with n = 0 when the playground has no view yet
+   * @throws IllegalArgumentException when playgroundName is invalid
+   */
+  @Override
+  public WriteResult putEvents(String playgroundName, List<EventDTO> events, Date upcomingFrom)
+    throws IllegalArgumentException {
+
+    List<String> eventIDs = new ArrayList<>();
+    List<DBObject> upcoming = new ArrayList<>();
+    for (EventDTO event : events) {
+      eventIDs.add(event.getID());
+      if (event.getDetails() == null || event.getDetails().getDate() == null) continue;
+      if (event.getDetails().getDate().before(upcomingFrom)) continue;
+      DBObject document = QueryUtils.snapshot(event);
+      document.removeField("assignedUsers");
+      upcoming.add(document);
+    }
+
+    // an array can't be pulled from and pushed to in the same update
+    WriteResult wr = removeEvents(playgroundName, eventIDs);
+    if (upcoming.isEmpty())
+      return wr;
+    return update(playgroundName, new BasicDBObject("$push", new BasicDBObject("upcomingEvents",
+      new BasicDBObject("$each", upcoming).append("$sort", new BasicDBObject("details.date", 1)))));
+  }
+
+  /**
+   * Remove events from the upcoming events of a view
+   *
+   * @param playgroundName uniquely identifies a view in db
+   * @param eventIDs       of the events
+   * @return writeResult with n = 0 when the playground has no view yet
+   * @throws IllegalArgumentException when playgroundName or an id is invalid
+   */
+  @Override
+  public WriteResult removeEvents(String playgroundName, List<String> eventIDs) throws IllegalArgumentException {
+    return update(playgroundName, new BasicDBObject("$pull", new BasicDBObject("upcomingEvents",
+      new BasicDBObject("_id", new BasicDBObject("$in", objectIds(eventIDs))))));
+  }
+
+  /**
+   * Change the participant count of an upcoming event in a view
+   *
+   * @param playgroundName uniquely identifies a view in db
+   * @param eventID        of the event
+   * @param delta          participants that signed up, negative when they left
+   * @return writeResult with n = 0 when the event is not shown in the view
+   * @throws IllegalArgumentException when playgroundName or eventID is invalid
+   */
+  @Override
+  public WriteResult incrementParticipants(String playgroundName, String eventID, int delta) throws IllegalArgumentException {
+    if (playgroundName == null || playgroundName.isEmpty() || !ObjectId.isValid(eventID))
+      throw new IllegalArgumentException(
+        String.format("%s and %s are not valid in identifying an event in a playground view", playgroundName, eventID));
+
+    return getCollection().getDBCollection().update(
+      new BasicDBObject("name", playgroundName).append("upcomingEvents._id", new ObjectId(eventID)),
+      new BasicDBObject("$inc", new BasicDBObject("upcomingEvents.$.participants", delta)));
+  }
+
+  /**
+   * Insert or replace a message in the latest messages of a view, which stay sorted newest first and
+   * capped at PlaygroundViewDTO.LATEST_MESSAGES - an older message falls out again right away
+   *
+   * @param playgroundName uniquely identifies a view in db
+   * @param message        as it was written
+   * @return writeResult of the push, with n = 0 when the playground has no view yet
+   * @throws IllegalArgumentException when playgroundName is invalid
+   */
+  @Override
+  public WriteResult putMessage(String playgroundName, MessageDTO message) throws IllegalArgumentException {
+    removeMessages(playgroundName, Collections.singletonList(message.getID()));
+    return update(playgroundName, new BasicDBObject("$push", new BasicDBObject("latestMessages",
+      new BasicDBObject("$each", Collections.singletonList(QueryUtils.snapshot(message)))
+        .append("$sort", new BasicDBObject("date", -1))
+        .append("$slice", PlaygroundViewDTO.LATEST_MESSAGES))));
+  }
+
+  /**
+   * Remove messages from the latest messages of a view
+   *
+   * @param playgroundName uniquely identifies a view in db
+   * @param messageIDs     of the messages
+   * @return writeResult with n = 0 when none of the messages were shown, so the view needs no refill
+   * @throws IllegalArgumentException when playgroundName or an id is invalid
+   */
+  @Override
+  public WriteResult removeMessages(String playgroundName, List<String> messageIDs) throws IllegalArgumentException {
+    List<ObjectId> ids = objectIds(messageIDs);
+    if (playgroundName == null || playgroundName.isEmpty())
+      throw new IllegalArgumentException(
+        String.format("%s as name is not valid in identifying a playground view", playgroundName));
+
+    return getCollection().getDBCollection().update(
+      new BasicDBObject("name", playgroundName).append("latestMessages._id", new BasicDBObject("$in", ids)),
+      new BasicDBObject("$pull", new BasicDBObject("latestMessages", new BasicDBObject("_id", new BasicDBObject("$in", ids)))));
+  }
+
+  /**
+   * Replace the latest messages of a view, after shown messages were removed
+   *
+   * @param playgroundName uniquely identifies a view in db
+   * @param messages       newest first, at most PlaygroundViewDTO.LATEST_MESSAGES
+   * @return writeResult with n = 0 when the playground has no view yet
+   * @throws IllegalArgumentException when playgroundName is invalid
+   */
+  @Override
+  public WriteResult setLatestMessages(String playgroundName, List<MessageDTO> messages) throws IllegalArgumentException {
+    List<DBObject> documents = new ArrayList<>();
+    for (MessageDTO message : messages)
+      documents.add(QueryUtils.snapshot(message));
+    return update(playgroundName, new BasicDBObject("$set", new BasicDBObject("latestMessages", documents)));
+  }
+
+  /**
+   * Delete all playground views in db
+   *
+   * @return writeResult where number of deleted views can be derived
+   */
+  @Override
+  public WriteResult deleteAllViews() {
+    return getCollection().remove("{}");
+  }
+
+  @Override
+  public void setDataSource(IDataSource dataSource) {
+    this.dataSource = dataSource;
+    this.indexed = false;
+  }
+
+  /**
+   * Applies an update to the view of a playground, stamping it as updated. Views are never created
+   * by these partial updates - a playground without a view is built in full when it is first read.
+   */
+  private WriteResult update(String playgroundName, BasicDBObject update) throws IllegalArgumentException {
+    if (playgroundName == null || playgroundName.isEmpty())
+      throw new IllegalArgumentException(
+        String.format("%s as name is not valid in identifying a playground view", playgroundName));
+
+    BasicDBObject set = (BasicDBObject) update.get("$set");
+    if (set == null)
+      update.put("$set", set = new BasicDBObject());
+    set.put("updated", new Date());
+    return getCollection().getDBCollection().update(new BasicDBObject("name", playgroundName), update);
+  }
+
+  private static List<ObjectId> objectIds(List<String> ids) throws IllegalArgumentException {
+    List<ObjectId> objectIds = new ArrayList<>();
+    for (String id : ids) {
+      if (!ObjectId.isValid(id))
+        throw new IllegalArgumentException(String.format("%s is not a valid id", id));
+      objectIds.add(new ObjectId(id));
+    }
+    return objectIds;
+  }
+
+  private MongoCollection getCollection() {
+    if (!indexed) {
+      // reads and upserts are by name, so they are single index lookups
+      dataSource.getDatabase().getCollection(COLLECTION)
+        .createIndex(new BasicDBObject("name", 1), new BasicDBObject("unique", true));
+      indexed = true;
+    }
+    return new Jongo(dataSource.getDatabase()).getCollection(COLLECTION);
+  }
+}
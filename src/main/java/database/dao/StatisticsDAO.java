@@ -0,0 +1,215 @@
+package database.dao;
+
+import com.mongodb.AggregationOptions;
+import com.mongodb.BasicDBObject;
+import com.mongodb.Cursor;
+import com.mongodb.DBObject;
+import database.IDataSource;
+import database.dto.StatisticsDTO;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statistics computed by aggregation pipelines in Mongo. Each method is one round trip, and the
+ * result has the same size no matter how many documents are counted - except the playground
+ * statistics, which take three and have a row per playground.
+ */
+public class StatisticsDAO implements IStatisticsDAO {
+  private IDataSource dataSource;
+
+  public StatisticsDAO(IDataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  /**
+   * Count users per status
+   *
+   * @return number of users in total and per status
+   */
+  @Override
+  public StatisticsDTO.UserStatistics getUserStatistics() {
+    return StatisticsDTO.UserStatistics.of(countBy(IUserDAO.COLLECTION, "status"));
+  }
+
+  /**
+   * Count events and participants, and find the event with most participants
+   *
+   * @return participation of all events
+   */
+  @Override
+  public StatisticsDTO.EventStatistics getEventStatistics() {
+    List<DBObject> result = aggregate(IEventDAO.COLLECTION,
+      "{$facet : {" +
+        "totals : [{$group : {_id : null, n : {$sum : 1}, total : {$sum : '$participants'}, average : {$avg : '$participants'}}}]," +
+        "max : [{$sort : {participants : -1}}, {$limit : 1}, {$project : {participants : 1}}]" +
+        "}}");
+
+    DBObject totals = first(result, "totals");
+    DBObject max = first(result, "max");
+    return new StatisticsDTO.EventStatistics(
+      number(totals.get("n")),
+      number(totals.get("total")),
+      decimal(totals.get("average")),
+      number(max.get("participants")),
+      id(max));
+  }
+
+  /**
+   * Count pedagogues, events and messages per playground, and find the playgrounds with most and
+   * fewest events and messages. The embedded event and message references are capped, so events
+   * and messages are grouped by playground in their own collections - three aggregations with a
+   * result per playground.
+   *
+   * @return totals, averages and extremes of all playgrounds
+   */
+  @Override
+  public StatisticsDTO.PlaygroundStatistics getPlaygroundStatistics() {
+    Map<String, Long> events = countBy(IEventDAO.COLLECTION, "playground");
+    Map<String, Long> messages = countBy(IMessageDAO.COLLECTION, "playgroundID");
+
+    long n = 0, pedagogues = 0, totalEvents = 0, totalMessages = 0;
+    DBObject maxEvents = null, minEvents = null, maxMessages = null, minMessages = null;
+    for (DBObject playground : aggregate(IPlaygroundDAO.COLLECTION,
+      "{$project : {name : 1, pedagogues : {$size : {$ifNull : ['$assignedPedagogue', []]}}}}")) {
+      Object name = playground.get("name");
+      playground.put("events", events.getOrDefault(name == null ? null : name.toString(), 0L));
+      playground.put("messages", messages.getOrDefault(name == null ? null : name.toString(), 0L));
+
+      n++;
+      pedagogues += number(playground.get("pedagogues"));
+      totalEvents += number(playground.get("events"));
+      totalMessages += number(playground.get("messages"));
+      maxEvents = extremeOf(maxEvents, playground, "events", 1);
+      minEvents = extremeOf(minEvents, playground, "events", -1);
+      maxMessages = extremeOf(maxMessages, playground, "messages", 1);
+      minMessages = extremeOf(minMessages, playground, "messages", -1);
+    }
+
+    return new StatisticsDTO.PlaygroundStatistics(
+      n,
+      pedagogues,
+      average(pedagogues, n),
+      totalEvents,
+      average(totalEvents, n),
+      extreme(maxEvents, "events"),
+      extreme(minEvents, "events"),
+      totalMessages,
+      average(totalMessages, n),
+      extreme(maxMessages, "messages"),
+      extreme(minMessages, "messages"));
+  }
+
+  /**
+   * Count messages
+   *
+   * @return number of messages
+   */
+  @Override
+  public StatisticsDTO.MessageStatistics getMessageStatistics() {
+    return new StatisticsDTO.MessageStatistics(dataSource.getDatabase().getCollection(IMessageDAO.COLLECTION).count());
+  }
+
+  /**
+   * Count everything LiveStatistics keeps counters of, from the documents themselves. Each group is
+   * one aggregation, and the result has an entry per status, playground and event.
+   *
+   * @return counters keyed by group/key, like events/Vandlegeparken
+   */
+  @Override
+  public Map<String, Long> countFromScratch() {
+    Map<String, Long> counters = new HashMap<>();
+    countBy(IUserDAO.COLLECTION, "status").forEach((status, count) -> counters.put(USERS + "/" + status, count));
+    countBy(IEventDAO.COLLECTION, "playground").forEach((name, count) -> counters.put(EVENTS + "/" + name, count));
+    countBy(IMessageDAO.COLLECTION, "playgroundID").forEach((name, count) -> counters.put(MESSAGES + "/" + name, count));
+
+    for (DBObject playground : aggregate(IPlaygroundDAO.COLLECTION,
+      "{$project : {name : 1, pedagogues : {$size : {$ifNull : ['$assignedPedagogue', []]}}}}")) {
+      counters.put(PLAYGROUNDS + "/" + playground.get("name"), 1L);
+      long pedagogues = number(playground.get("pedagogues"));
+      if (pedagogues != 0)
+        counters.put(PEDAGOGUES + "/" + playground.get("name"), pedagogues);
+    }
+    for (DBObject event : aggregate(IEventDAO.COLLECTION,
+      "{$match : {participants : {$gt : 0}}}", "{$project : {participants : 1}}"))
+      counters.put(PARTICIPANTS + "/" + id(event), number(event.get("participants")));
+
+    return counters;
+  }
+
+  @Override
+  public void setDataSource(IDataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  /**
+   * Number of documents per value of field, documents without it are counted under null
+   */
+  private Map<String, Long> countBy(String collection, String field) {
+    Map<String, Long> counts = new HashMap<>();
+    for (DBObject group : aggregate(collection, "{$group : {_id : '$" + field + "', count : {$sum : 1}}}"))
+      counts.put(group.get("_id") == null ? null : group.get("_id").toString(), number(group.get("count")));
+    return counts;
+  }
+
+  private List<DBObject> aggregate(String collection, String... stages) {
+    List<DBObject> pipeline = new ArrayList<>();
+    for (String stage : stages)
+      pipeline.add(BasicDBObject.parse(stage));
+
+    List<DBObject> result = new ArrayList<>();
+    try (Cursor cursor = dataSource.getDatabase().getCollection(collection)
+      .aggregate(pipeline, AggregationOptions.builder().build())) {
+      cursor.forEachRemaining(result::add);
+    }
+    return result;
+  }
+
+  /**
+   * The single document of a facet, or an empty one when the collection is empty
+   */
+  private static DBObject first(List<DBObject> result, String facet) {
+    if (result.isEmpty() || !(result.get(0).get(facet) instanceof List))
+      return new BasicDBObject();
+    List<?> documents = (List<?>) result.get(0).get(facet);
+    return documents.isEmpty() ? new BasicDBObject() : (DBObject) documents.get(0);
+  }
+
+  /**
+   * The playground with the larger field when sign is 1, the smaller when it is -1 - the first one
+   * on a tie
+   */
+  private static DBObject extremeOf(DBObject current, DBObject playground, String field, int sign) {
+    if (current == null || Long.compare(number(playground.get(field)), number(current.get(field))) * sign > 0)
+      return playground;
+    return current;
+  }
+
+  private static StatisticsDTO.Extreme extreme(DBObject playground, String field) {
+    if (playground == null)
+      playground = new BasicDBObject();
+    Object name = playground.get("name");
+    return new StatisticsDTO.Extreme(number(playground.get(field)), name == null ? null : name.toString());
+  }
+
+  private static String id(DBObject document) {
+    Object id = document.get("_id");
+    if (id == null) return null;
+    return id instanceof ObjectId ? ((ObjectId) id).toHexString() : id.toString();
+  }
+
+  private static long number(Object value) {
+    return value instanceof Number ? ((Number) value).longValue() : 0;
+  }
+
+  private static double average(long total, long n) {
+    return n == 0 ? 0 : (double) total / n;
+  }
+
+  private static double decimal(Object value) {
+    return value instanceof Number ? ((Number) value).doubleValue() : 0;
+  }
+}
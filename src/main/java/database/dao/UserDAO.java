@@ -1,9 +1,12 @@
 package database.dao;
 
+import com.mongodb.DBObject;
 import com.mongodb.WriteResult;
 import database.IDataSource;
 import database.dto.UserDTO;
 import database.exceptions.NoModificationException;
+import database.exceptions.VersionConflictException;
+import database.utils.QueryUtils;
 import org.bson.types.ObjectId;
 import org.jongo.Jongo;
 import org.jongo.MongoCollection;
@@ -98,6 +101,7 @@ public class UserDAO implements IUserDAO {
    * @param user with updated values
    * @return writeResult where id of updated user can be derived
    * @throws IllegalArgumentException when user is null
+   * @throws VersionConflictException when user was modified since it was read
    * @throws NoModificationException  when no user is updated
    */
   @Override
@@ -109,15 +113,27 @@ public class UserDAO implements IUserDAO {
     Jongo jongo = new Jongo(dataSource.getDatabase());
     MongoCollection collection = jongo.getCollection(COLLECTION);
 
-    WriteResult wr = collection
-      .update(new ObjectId(user.getId()))
-      .with(user);
+    return QueryUtils.updateVersioned(collection, user.getId(), user);
+  }
 
-    if (!wr.wasAcknowledged())
-      throw new NoModificationException(
-        String.format("User in %s collection with id %s was not updated", COLLECTION, user.getId()));
+  /**
+   * Update only the fields of user that changed since it was read
+   *
+   * @param user with updated values
+   * @param readState snapshot of user taken with QueryUtils.snapshot when it was read
+   * @return writeResult of the update, with n = 0 when nothing changed
+   * @throws IllegalArgumentException when user is null
+   * @throws VersionConflictException when user was modified since it was read
+   * @throws NoModificationException  when no user is updated
+   */
+  @Override
+  public WriteResult updateUser(UserDTO user, DBObject readState) throws IllegalArgumentException, NoModificationException {
+    if (user == null || user.getId() == null || readState == null)
+      throw new IllegalArgumentException(
+        String.format("Can't update user in %s collection when param is null", COLLECTION));
 
-    return wr;
+    MongoCollection collection = new Jongo(dataSource.getDatabase()).getCollection(COLLECTION);
+    return QueryUtils.updateChangedFields(collection, user.getId(), user, readState);
   }
 
   /**
@@ -0,0 +1,73 @@
+package database.dto;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The outcome of each item of a bulk request, by the index of the item in the request
+ */
+public class BulkResultDTO {
+  public static final String CREATED = "created";
+  public static final String ENROLLED = "enrolled";
+  public static final String ALREADY_ENROLLED = "already enrolled";
+  public static final String FULL = "full";
+  public static final String NOT_FOUND = "not found";
+  public static final String INVALID = "invalid";
+  public static final String FAILED = "failed";
+  private final List<Item> items = new ArrayList<>();
+
+  public void add(int index, String id, String status, String message) {
+    items.add(new Item(index, id, status, message));
+  }
+
+  public List<Item> getItems() {
+    items.sort(Comparator.comparingInt(Item::getIndex));
+    return items;
+  }
+
+  public long getSucceeded() {
+    return items.stream().filter(Item::isSucceeded).count();
+  }
+
+  public long getFailed() {
+    return items.size() - getSucceeded();
+  }
+
+  /**
+   * An event by its id, or a participant by the username
+   */
+  public static class Item {
+    private final int index;
+    private final String id;
+    private final String status;
+    private final String message;
+
+    public Item(int index, String id, String status, String message) {
+      this.index = index;
+      this.id = id;
+      this.status = status;
+      this.message = message;
+    }
+
+    public int getIndex() {
+      return index;
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    public String getStatus() {
+      return status;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+
+    public boolean isSucceeded() {
+      return CREATED.equals(status) || ENROLLED.equals(status);
+    }
+  }
+}
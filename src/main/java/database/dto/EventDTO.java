@@ -9,18 +9,20 @@ import java.util.Objects;
 import java.util.Set;
 
 
-public class EventDTO implements Comparable<EventDTO> {
+public class EventDTO implements Comparable<EventDTO>, Versioned {
 
   @MongoObjectId
   @MongoId
   private String id;
   private String name;
   private String imagepath;
-  private int participants;
+  private int participants;                       // maintained with $inc together with assignedUsers
+  private int capacity;                           // max participants, 0 means no limit
   private String description;
   private DetailsDTO details;
   private Set<UserDTO> assignedUsers = new HashSet<>();  // many-to-many, One-Way-Embedding (an event has few Users, but User has many events)
   private String playground;                      // 1-to-many
+  private long version;
 
   //This constructor is used for MongoDB mapping
   public EventDTO() {
@@ -31,6 +33,7 @@ public class EventDTO implements Comparable<EventDTO> {
     this.name = builder.name;
     this.imagepath = builder.imagepath;
     this.participants = builder.participants;
+    this.capacity = builder.capacity;
     this.description = builder.description;
     this.details = builder.details;
     this.assignedUsers = builder.assignedUsers;
@@ -69,6 +72,24 @@ public class EventDTO implements Comparable<EventDTO> {
     this.participants = participants;
   }
 
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public void setCapacity(int capacity) {
+    this.capacity = capacity;
+  }
+
+  @Override
+  public long getVersion() {
+    return version;
+  }
+
+  @Override
+  public void setVersion(long version) {
+    this.version = version;
+  }
+
   public String getDescription() {
     return description;
   }
@@ -120,6 +141,8 @@ public class EventDTO implements Comparable<EventDTO> {
       ", title='" + name + '\'' +
       ", imagePath='" + imagepath + '\'' +
       ", participants=" + participants +
+      ", capacity=" + capacity +
+      ", version=" + version +
       ", description='" + description + '\'' +
       ", details=" + details +
       ", assignedUsers=" + assignedUsers +
@@ -137,6 +160,7 @@ public class EventDTO implements Comparable<EventDTO> {
     private String name;
     private String imagepath;
     private int participants;
+    private int capacity;
     private String description;
     private DetailsDTO details;
     private Set<UserDTO> assignedUsers = new HashSet<>();  // many-to-many, One-Way-Embedding (an event has few Users, but User has many events)
@@ -165,6 +189,11 @@ public class EventDTO implements Comparable<EventDTO> {
       return this;
     }
 
+    public Builder capacity(int capacity) {
+      this.capacity = capacity;
+      return this;
+    }
+
     public Builder description(String description) {
       this.description = description;
       return this;
@@ -0,0 +1,62 @@
+package database.dto;
+
+import java.util.Arrays;
+
+/**
+ * A GeoJSON point, as the 2dsphere index of the playgrounds collection expects it
+ */
+public class LocationDTO {
+  public static final String POINT = "Point";
+  private String type = POINT;
+  // longitude first, as in GeoJSON
+  private double[] coordinates;
+
+  public LocationDTO() {
+  }
+
+  public LocationDTO(double latitude, double longitude) {
+    this.coordinates = new double[]{longitude, latitude};
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  public double[] getCoordinates() {
+    return coordinates;
+  }
+
+  public void setCoordinates(double[] coordinates) {
+    this.coordinates = coordinates;
+  }
+
+  public double latitude() {
+    return coordinates[1];
+  }
+
+  public double longitude() {
+    return coordinates[0];
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    LocationDTO that = (LocationDTO) o;
+    return type.equals(that.type) && Arrays.equals(coordinates, that.coordinates);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * type.hashCode() + Arrays.hashCode(coordinates);
+  }
+
+  @Override
+  public String toString() {
+    return "LocationDTO{" +
+      "type='" + type + '\'' +
+      ", coordinates=" + Arrays.toString(coordinates) +
+      '}';
+  }
+}
@@ -7,7 +7,7 @@ import org.jongo.marshall.jackson.oid.MongoObjectId;
 import java.util.Date;
 import java.util.Objects;
 
-public class MessageDTO implements Comparable<MessageDTO> {
+public class MessageDTO implements Comparable<MessageDTO>, Versioned {
 
 
   @MongoId // auto
@@ -21,6 +21,7 @@ public class MessageDTO implements Comparable<MessageDTO> {
   private String playgroundID;
   private Date date;
   private boolean hasImage;
+  private long version;
 
   private MessageDTO() {
   }
@@ -107,9 +108,20 @@ public class MessageDTO implements Comparable<MessageDTO> {
       ", writtenByID='" + writtenByID + '\'' +
       ", playgroundID='" + playgroundID + '\'' +
       ", date=" + date +
+      ", version=" + version +
       '}';
   }
 
+  @Override
+  public long getVersion() {
+    return version;
+  }
+
+  @Override
+  public void setVersion(long version) {
+    this.version = version;
+  }
+
   public void setId(String id) {
     this.id = id;
   }
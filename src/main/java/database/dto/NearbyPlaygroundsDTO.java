@@ -0,0 +1,82 @@
+package database.dto;
+
+import java.util.List;
+
+/**
+ * One page of the playgrounds within a radius, nearest first
+ */
+public class NearbyPlaygroundsDTO {
+  private double latitude;
+  private double longitude;
+  private double radius;
+  private int page;
+  private int size;
+  private long total;
+  private List<Nearby> playgrounds;
+
+  public NearbyPlaygroundsDTO() {
+  }
+
+  public NearbyPlaygroundsDTO(double latitude, double longitude, double radius, int page, int size,
+                              long total, List<Nearby> playgrounds) {
+    this.latitude = latitude;
+    this.longitude = longitude;
+    this.radius = radius;
+    this.page = page;
+    this.size = size;
+    this.total = total;
+    this.playgrounds = playgrounds;
+  }
+
+  public double getLatitude() {
+    return latitude;
+  }
+
+  public double getLongitude() {
+    return longitude;
+  }
+
+  public double getRadius() {
+    return radius;
+  }
+
+  public int getPage() {
+    return page;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public long getTotal() {
+    return total;
+  }
+
+  public List<Nearby> getPlaygrounds() {
+    return playgrounds;
+  }
+
+  /**
+   * A playground without its references, and its distance in metres
+   */
+  public static class Nearby {
+    private double distance;
+    private PlaygroundDTO playground;
+
+    public Nearby() {
+    }
+
+    public Nearby(double distance, PlaygroundDTO playground) {
+      this.distance = distance;
+      this.playground = playground;
+    }
+
+    public double getDistance() {
+      return distance;
+    }
+
+    public PlaygroundDTO getPlayground() {
+      return playground;
+    }
+  }
+}
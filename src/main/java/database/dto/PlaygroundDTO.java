@@ -7,7 +7,7 @@ import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
-public class PlaygroundDTO {
+public class PlaygroundDTO implements Versioned {
 
   @MongoId // auto
   @MongoObjectId
@@ -40,9 +40,15 @@ public class PlaygroundDTO {
   private int streetNumber;
   private String commune;
   private int zipCode;
+  // geocoded from the address unless set explicitly, see geocoding.IGeocoder
+  private LocationDTO location;
   private Set<UserDTO> assignedPedagogue = new HashSet<>();
   private Set<EventDTO> events = new HashSet<>();
   private Set<MessageDTO> messages = new HashSet<>();
+  private long version;
+  // bumped by every write to the events or messages of the playground, used as change tokens
+  private long eventsVersion;
+  private long messagesVersion;
 
   private PlaygroundDTO() {
   }
@@ -67,12 +73,42 @@ public class PlaygroundDTO {
       ", streetNumber=" + streetNumber +
       ", commune='" + commune + '\'' +
       ", zipCode=" + zipCode +
+      ", location=" + location +
       ", assignedPedagogue=" + assignedPedagogue +
       ", events=" + events +
       ", messages=" + messages +
+      ", version=" + version +
+      ", eventsVersion=" + eventsVersion +
+      ", messagesVersion=" + messagesVersion +
       '}';
   }
 
+  @Override
+  public long getVersion() {
+    return version;
+  }
+
+  @Override
+  public void setVersion(long version) {
+    this.version = version;
+  }
+
+  public long getEventsVersion() {
+    return eventsVersion;
+  }
+
+  public void setEventsVersion(long eventsVersion) {
+    this.eventsVersion = eventsVersion;
+  }
+
+  public long getMessagesVersion() {
+    return messagesVersion;
+  }
+
+  public void setMessagesVersion(long messagesVersion) {
+    this.messagesVersion = messagesVersion;
+  }
+
   public String getId() {
     return id;
   }
@@ -137,6 +173,14 @@ public class PlaygroundDTO {
     this.zipCode = zipCode;
   }
 
+  public LocationDTO getLocation() {
+    return location;
+  }
+
+  public void setLocation(LocationDTO location) {
+    this.location = location;
+  }
+
   public Set<UserDTO> getAssignedPedagogue() {
     return assignedPedagogue;
   }
@@ -217,6 +261,7 @@ public class PlaygroundDTO {
     private int streetNumber;
     private String commune;
     private int zipCode;
+    private LocationDTO location;
     private Set<UserDTO> assignedPedagogue = new HashSet<>();
     private Set<EventDTO> events = new HashSet<>();
     private Set<MessageDTO> messages = new HashSet<>();
@@ -306,6 +351,15 @@ public class PlaygroundDTO {
       return this;
     }
 
+    public LocationDTO getLocation() {
+      return location;
+    }
+
+    public Builder setLocation(LocationDTO location) {
+      this.location = location;
+      return this;
+    }
+
     public Set<UserDTO> getAssignedPedagogue() {
       return assignedPedagogue;
     }
@@ -345,6 +399,7 @@ public class PlaygroundDTO {
       playground.streetNumber = this.streetNumber;
       playground.commune = this.commune;
       playground.zipCode = this.zipCode;
+      playground.location = this.location;
       playground.assignedPedagogue = this.assignedPedagogue;
       playground.events = this.events;
       playground.imageText = this.imageText;
@@ -0,0 +1,104 @@
+package database.dto;
+
+import org.jongo.marshall.jackson.oid.MongoId;
+import org.jongo.marshall.jackson.oid.MongoObjectId;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Read model of a playground as it is rendered, kept in its own collection so a read is a single findOne.
+ * The Controller updates only the part of the document that a write affects, and builds it in full
+ * when it is first read or rebuilt by an admin.
+ */
+public class PlaygroundViewDTO {
+  public static final int LATEST_MESSAGES = 20;
+
+  @MongoId // auto
+  @MongoObjectId
+  private String id;
+  private String name;                                      // unique, same as the playground name
+  private PlaygroundDTO playground;                         // without the embedded reference sets
+  private Set<UserDTO> pedagogues = new HashSet<>();        // summaries, no password or events
+  private List<EventDTO> upcomingEvents = new ArrayList<>(); // sorted by date, no assigned users
+  private List<MessageDTO> latestMessages = new ArrayList<>(); // newest first, at most LATEST_MESSAGES
+  private Date updated;
+
+  //This constructor is used for MongoDB mapping
+  public PlaygroundViewDTO() {
+  }
+
+  public PlaygroundViewDTO(String name) {
+    this.name = name;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public PlaygroundDTO getPlayground() {
+    return playground;
+  }
+
+  public void setPlayground(PlaygroundDTO playground) {
+    this.playground = playground;
+  }
+
+  public Set<UserDTO> getPedagogues() {
+    return pedagogues;
+  }
+
+  public void setPedagogues(Set<UserDTO> pedagogues) {
+    this.pedagogues = pedagogues;
+  }
+
+  public List<EventDTO> getUpcomingEvents() {
+    return upcomingEvents;
+  }
+
+  public void setUpcomingEvents(List<EventDTO> upcomingEvents) {
+    this.upcomingEvents = upcomingEvents;
+  }
+
+  public List<MessageDTO> getLatestMessages() {
+    return latestMessages;
+  }
+
+  public void setLatestMessages(List<MessageDTO> latestMessages) {
+    this.latestMessages = latestMessages;
+  }
+
+  public Date getUpdated() {
+    return updated;
+  }
+
+  public void setUpdated(Date updated) {
+    this.updated = updated;
+  }
+
+  @Override
+  public String toString() {
+    return "PlaygroundView{" +
+      "name='" + name + '\'' +
+      ", pedagogues=" + pedagogues.size() +
+      ", upcomingEvents=" + upcomingEvents.size() +
+      ", latestMessages=" + latestMessages.size() +
+      ", updated=" + updated +
+      '}';
+  }
+}
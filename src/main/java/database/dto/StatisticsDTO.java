@@ -0,0 +1,255 @@
+package database.dto;
+
+import java.util.Map;
+
+/**
+ * Aggregates over the users, events, playgrounds and messages collections. They are either computed
+ * by aggregations in Mongo, see StatisticsDAO, or read from the running counters of stats.LiveStatistics.
+ */
+public class StatisticsDTO {
+  private UserStatistics users;
+  private EventStatistics events;
+  private PlaygroundStatistics playgrounds;
+  private MessageStatistics messages;
+
+  public StatisticsDTO() {
+  }
+
+  public StatisticsDTO(UserStatistics users, EventStatistics events,
+                       PlaygroundStatistics playgrounds, MessageStatistics messages) {
+    this.users = users;
+    this.events = events;
+    this.playgrounds = playgrounds;
+    this.messages = messages;
+  }
+
+  public UserStatistics getUsers() {
+    return users;
+  }
+
+  public EventStatistics getEvents() {
+    return events;
+  }
+
+  public PlaygroundStatistics getPlaygrounds() {
+    return playgrounds;
+  }
+
+  public MessageStatistics getMessages() {
+    return messages;
+  }
+
+  public static class UserStatistics {
+    private long n;
+    private long clients;
+    private long pedagogues;
+    private long admins;
+
+    public UserStatistics() {
+    }
+
+    public UserStatistics(long n, long clients, long pedagogues, long admins) {
+      this.n = n;
+      this.clients = clients;
+      this.pedagogues = pedagogues;
+      this.admins = admins;
+    }
+
+    /**
+     * @param countByStatus number of users per value of UserDTO.status
+     */
+    public static UserStatistics of(Map<String, Long> countByStatus) {
+      long n = 0, clients = 0, pedagogues = 0, admins = 0;
+      for (Map.Entry<String, Long> status : countByStatus.entrySet()) {
+        long count = status.getValue();
+        n += count;
+        if (status.getKey() == null) continue;
+        switch (status.getKey()) {
+          case "client":
+            clients += count;
+            break;
+          case "pædagog":
+          case "pedagog":
+            pedagogues += count;
+            break;
+          case "admin":
+            admins += count;
+            break;
+        }
+      }
+      return new UserStatistics(n, clients, pedagogues, admins);
+    }
+
+    public long getN() {
+      return n;
+    }
+
+    public long getClients() {
+      return clients;
+    }
+
+    public long getPedagogues() {
+      return pedagogues;
+    }
+
+    public long getAdmins() {
+      return admins;
+    }
+  }
+
+  public static class EventStatistics {
+    private long n;
+    private long totalParticipants;
+    private double averageParticipants;
+    private long maxParticipants;
+    private String maxParticipantsEventID;
+
+    public EventStatistics() {
+    }
+
+    public EventStatistics(long n, long totalParticipants, double averageParticipants,
+                           long maxParticipants, String maxParticipantsEventID) {
+      this.n = n;
+      this.totalParticipants = totalParticipants;
+      this.averageParticipants = averageParticipants;
+      this.maxParticipants = maxParticipants;
+      this.maxParticipantsEventID = maxParticipantsEventID;
+    }
+
+    public long getN() {
+      return n;
+    }
+
+    public long getTotalParticipants() {
+      return totalParticipants;
+    }
+
+    public double getAverageParticipants() {
+      return averageParticipants;
+    }
+
+    public long getMaxParticipants() {
+      return maxParticipants;
+    }
+
+    public String getMaxParticipantsEventID() {
+      return maxParticipantsEventID;
+    }
+  }
+
+  public static class PlaygroundStatistics {
+    private long n;
+    private long totalPedagogues;
+    private double averagePedagogues;
+    private long totalEvents;
+    private double averageEvents;
+    private Extreme maxEvents;
+    private Extreme minEvents;
+    private long totalMessages;
+    private double averageMessages;
+    private Extreme maxMessages;
+    private Extreme minMessages;
+
+    public PlaygroundStatistics() {
+    }
+
+    public PlaygroundStatistics(long n, long totalPedagogues, double averagePedagogues,
+                                long totalEvents, double averageEvents, Extreme maxEvents, Extreme minEvents,
+                                long totalMessages, double averageMessages, Extreme maxMessages, Extreme minMessages) {
+      this.n = n;
+      this.totalPedagogues = totalPedagogues;
+      this.averagePedagogues = averagePedagogues;
+      this.totalEvents = totalEvents;
+      this.averageEvents = averageEvents;
+      this.maxEvents = maxEvents;
+      this.minEvents = minEvents;
+      this.totalMessages = totalMessages;
+      this.averageMessages = averageMessages;
+      this.maxMessages = maxMessages;
+      this.minMessages = minMessages;
+    }
+
+    public long getN() {
+      return n;
+    }
+
+    public long getTotalPedagogues() {
+      return totalPedagogues;
+    }
+
+    public double getAveragePedagogues() {
+      return averagePedagogues;
+    }
+
+    public long getTotalEvents() {
+      return totalEvents;
+    }
+
+    public double getAverageEvents() {
+      return averageEvents;
+    }
+
+    public Extreme getMaxEvents() {
+      return maxEvents;
+    }
+
+    public Extreme getMinEvents() {
+      return minEvents;
+    }
+
+    public long getTotalMessages() {
+      return totalMessages;
+    }
+
+    public double getAverageMessages() {
+      return averageMessages;
+    }
+
+    public Extreme getMaxMessages() {
+      return maxMessages;
+    }
+
+    public Extreme getMinMessages() {
+      return minMessages;
+    }
+  }
+
+  public static class MessageStatistics {
+    private long n;
+
+    public MessageStatistics() {
+    }
+
+    public MessageStatistics(long n) {
+      this.n = n;
+    }
+
+    public long getN() {
+      return n;
+    }
+  }
+
+  /**
+   * A count and the name of the playground it belongs to
+   */
+  public static class Extreme {
+    private long count;
+    private String playgroundID;
+
+    public Extreme() {
+    }
+
+    public Extreme(long count, String playgroundID) {
+      this.count = count;
+      this.playgroundID = playgroundID;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public String getPlaygroundID() {
+      return playgroundID;
+    }
+  }
+}
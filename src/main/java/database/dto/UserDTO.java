@@ -10,7 +10,7 @@ import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
-public class UserDTO implements Serializable {
+public class UserDTO implements Serializable, Versioned {
   private static final long serialVersionUID = 12233;
 
   @MongoObjectId
@@ -28,7 +28,7 @@ public class UserDTO implements Serializable {
   private String[] phoneNumbers;
   private Set<EventDTO> events = new HashSet<>();    // many-to-many, One-Way-Embedding (an event has few Users, but User has many events)
   private Set<String> playgroundsNames = new HashSet<>();
-
+  private long version;
 
   //This constructor is used for MongoDB mapping
   private UserDTO() {
@@ -50,6 +50,16 @@ public class UserDTO implements Serializable {
     this.loggedIn = builder.loggedIn;
   }
 
+  @Override
+  public long getVersion() {
+    return version;
+  }
+
+  @Override
+  public void setVersion(long version) {
+    this.version = version;
+  }
+
   public boolean isLoggedIn() {
     return loggedIn;
   }
@@ -180,6 +190,7 @@ public class UserDTO implements Serializable {
       ", setPassword='" + password + '\'' +
       ", phoneNumbers=" + Arrays.toString(phoneNumbers) +
       ", events=" + events +
+      ", version=" + version +
       '}';
   }
 
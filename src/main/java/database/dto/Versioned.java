@@ -0,0 +1,12 @@
+package database.dto;
+
+/**
+ * A document that is updated with optimistic concurrency control. The version is incremented on
+ * every write, and an update only succeeds if the stored version still is the one that was read.
+ */
+public interface Versioned {
+
+  long getVersion();
+
+  void setVersion(long version);
+}
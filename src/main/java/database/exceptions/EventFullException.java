@@ -0,0 +1,8 @@
+package database.exceptions;
+
+public class EventFullException extends NoModificationException {
+
+  public EventFullException(String msg) {
+    super(msg);
+  }
+}
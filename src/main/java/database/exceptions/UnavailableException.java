@@ -0,0 +1,18 @@
+package database.exceptions;
+
+import com.mongodb.MongoException;
+
+/**
+ * A read could not be completed in time, or the pools that run it were full. The request may be
+ * retried, and the parts that did load must not be used in its place.
+ */
+public class UnavailableException extends MongoException {
+
+  public UnavailableException(String msg) {
+    super(msg);
+  }
+
+  public UnavailableException(String msg, Throwable e) {
+    super(msg, e);
+  }
+}
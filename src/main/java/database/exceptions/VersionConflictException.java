@@ -0,0 +1,8 @@
+package database.exceptions;
+
+public class VersionConflictException extends NoModificationException {
+
+  public VersionConflictException(String msg) {
+    super(msg);
+  }
+}
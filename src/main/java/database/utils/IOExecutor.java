@@ -0,0 +1,52 @@
+package database.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pools that run blocking database calls off the Jetty request threads.
+ * The pool size caps the number of concurrent round trips to Mongo, the queue absorbs bursts.
+ */
+public class IOExecutor {
+  private static final int POOL_SIZE = 32;
+  private static final int FAN_OUT_POOL_SIZE = 32;
+  private static final int QUEUE_SIZE = 10_000;
+  private static ExecutorService executor;
+  private static ExecutorService fanOutExecutor;
+
+  private IOExecutor() {
+  }
+
+  public static synchronized ExecutorService getInstance() {
+    if (executor == null)
+      executor = newPool("db-io-", POOL_SIZE);
+
+    return executor;
+  }
+
+  /**
+   * Separate pool for sub-queries issued from inside a task on {@link #getInstance()}.
+   * Sharing one pool would let outer tasks occupy every thread while waiting on their own sub-queries.
+   */
+  public static synchronized ExecutorService getFanOutInstance() {
+    if (fanOutExecutor == null)
+      fanOutExecutor = newPool("db-fan-out-", FAN_OUT_POOL_SIZE);
+
+    return fanOutExecutor;
+  }
+
+  private static ExecutorService newPool(String namePrefix, int size) {
+    AtomicInteger threadCount = new AtomicInteger();
+    ThreadFactory threadFactory = runnable -> {
+      Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+    return new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+      new LinkedBlockingQueue<>(QUEUE_SIZE), threadFactory);
+  }
+}
@@ -0,0 +1,172 @@
+package database.utils;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.WriteModel;
+import database.IDataSource;
+import database.ProductionDB_AWS_EC2;
+import database.ReplicaSetDB;
+import database.dao.IEventDAO;
+import database.dao.IMessageDAO;
+import database.dao.IPlaygroundDAO;
+import database.dao.IUserDAO;
+import org.bson.BsonDocument;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Export and import of whole collections as NDJSON - one document per line in extended JSON, so
+ * ObjectIds and dates survive the round trip. Documents are streamed in batches, so memory use does
+ * not depend on the size of the collection. An import replaces the documents with the same _id, so
+ * running it twice gives the same result.
+ * <p>
+ * Run as a program to dump or restore the collections offline:
+ * {@code Ndjson export|import <directory> [collection...]}, with a file per collection.
+ */
+public class Ndjson {
+  public static final String CONTENT_TYPE = "application/x-ndjson";
+  public static final String FILE_SUFFIX = ".ndjson";
+  public static final List<String> COLLECTIONS = Arrays.asList(
+    IUserDAO.COLLECTION, IPlaygroundDAO.COLLECTION, IEventDAO.COLLECTION, IMessageDAO.COLLECTION,
+    IEventDAO.ARCHIVE_COLLECTION, IMessageDAO.ARCHIVE_COLLECTION);
+  private static final int BATCH_SIZE = 1_000;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final JsonWriterSettings JSON_SETTINGS = JsonWriterSettings.builder()
+    .outputMode(JsonMode.EXTENDED)
+    .build();
+
+  private Ndjson() {
+  }
+
+  /**
+   * Write all documents of a collection, in _id order. The stream is flushed, not closed.
+   *
+   * @return number of documents written
+   * @throws IllegalArgumentException when the collection can't be exported
+   */
+  public static long export(IDataSource dataSource, String collection, OutputStream out)
+    throws IllegalArgumentException, IOException {
+
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    long written = 0;
+    try (MongoCursor<BsonDocument> cursor = collection(dataSource, collection).find()
+      .sort(Sorts.ascending("_id"))
+      .batchSize(BATCH_SIZE)
+      .iterator()) {
+      while (cursor.hasNext()) {
+        writer.write(cursor.next().toJson(JSON_SETTINGS));
+        writer.write('\n');
+        written++;
+      }
+    }
+    writer.flush();
+    return written;
+  }
+
+  /**
+   * Read documents, one per line, into a collection. Batches are written unordered, so the server
+   * may apply them in parallel. Blank lines are skipped, and the batches before a line that can't be
+   * parsed are kept. The stream is not closed.
+   *
+   * @return number of documents read
+   * @throws IllegalArgumentException when the collection can't be imported or a line is not a document
+   */
+  public static long importInto(IDataSource dataSource, String collection, InputStream in)
+    throws IllegalArgumentException, IOException {
+
+    MongoCollection<BsonDocument> documents = collection(dataSource, collection);
+    BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+    List<WriteModel<BsonDocument>> batch = new ArrayList<>(BATCH_SIZE);
+    long read = 0;
+
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.isBlank()) continue;
+      BsonDocument document = parse(line, read + 1);
+      batch.add(new ReplaceOneModel<>(Filters.eq("_id", document.get("_id")), document,
+        new ReplaceOptions().upsert(true)));
+      read++;
+      if (batch.size() == BATCH_SIZE) {
+        documents.bulkWrite(batch, new BulkWriteOptions().ordered(false));
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty())
+      documents.bulkWrite(batch, new BulkWriteOptions().ordered(false));
+    return read;
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2 || !(args[0].equals("export") || args[0].equals("import"))) {
+      System.out.println("Usage: Ndjson export|import <directory> [collection...]");
+      return;
+    }
+    IDataSource dataSource = System.getProperty(ReplicaSetDB.URI_PROPERTY) != null
+      ? ReplicaSetDB.getInstance()
+      : ProductionDB_AWS_EC2.getInstance();
+    Path directory = Paths.get(args[1]);
+    List<String> collections = args.length > 2
+      ? Arrays.asList(args).subList(2, args.length)
+      : COLLECTIONS;
+
+    if (args[0].equals("export"))
+      Files.createDirectories(directory);
+    for (String collection : collections) {
+      Path file = directory.resolve(collection + FILE_SUFFIX);
+      long count;
+      if (args[0].equals("export")) {
+        try (OutputStream out = Files.newOutputStream(file)) {
+          count = export(dataSource, collection, out);
+        }
+      } else {
+        if (!Files.exists(file)) continue;
+        try (InputStream in = Files.newInputStream(file)) {
+          count = importInto(dataSource, collection, in);
+        }
+      }
+      System.out.println(String.format("Ndjson: %s %s %d documents", args[0], file, count));
+    }
+  }
+
+  private static BsonDocument parse(String line, long number) throws IllegalArgumentException {
+    BsonDocument document;
+    try {
+      document = BsonDocument.parse(line);
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException(String.format("Line %d is not a JSON document", number), e);
+    }
+    if (!document.containsKey("_id"))
+      throw new IllegalArgumentException(String.format("Line %d has no _id", number));
+    return document;
+  }
+
+  private static MongoCollection<BsonDocument> collection(IDataSource dataSource, String collection)
+    throws IllegalArgumentException {
+
+    if (!COLLECTIONS.contains(collection))
+      throw new IllegalArgumentException(String.format("%s is not one of %s", collection, COLLECTIONS));
+    return dataSource.getClient().getDatabase(dataSource.getDatabase().getName())
+      .getCollection(collection, BsonDocument.class);
+  }
+}
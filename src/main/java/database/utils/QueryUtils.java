@@ -1,15 +1,146 @@
 package database.utils;
 
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
 import com.mongodb.WriteResult;
+import database.dto.Versioned;
 import database.exceptions.NoModificationException;
+import database.exceptions.VersionConflictException;
+import org.bson.types.ObjectId;
 import org.jongo.MongoCollection;
+import org.jongo.Mapper;
+import org.jongo.bson.Bson;
+import org.jongo.marshall.Marshaller;
+import org.jongo.marshall.Unmarshaller;
+import org.jongo.marshall.jackson.JacksonMapper;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 public class QueryUtils {
+  // same mapping as the default Jongo instances used by the DAOs
+  private static final Mapper MAPPER = new JacksonMapper.Builder().build();
+  private static final Marshaller MARSHALLER = MAPPER.getMarshaller();
+  private static final Unmarshaller UNMARSHALLER = MAPPER.getUnmarshaller();
+
+  /**
+   * Replace a document, but only if it still has the version the dto was read with. The version is
+   * incremented as part of the same write, so concurrent writers of the same version can't both succeed.
+   *
+   * @param collection holding the document
+   * @param id         of the document
+   * @param dto        with updated values and the version it was read with
+   * @return writeResult of the update
+   * @throws VersionConflictException when the document was modified since it was read
+   * @throws NoModificationException  when the document does not exist
+   */
+  public static WriteResult updateVersioned(MongoCollection collection, String id, Versioned dto) throws NoModificationException {
+    long readVersion = dto.getVersion();
+    dto.setVersion(readVersion + 1);
+
+    // documents written before versioning was introduced have no version field, which counts as version 0
+    WriteResult wr = readVersion == 0
+      ? collection.update("{_id : #, version : {$in : [0, null]}}", new ObjectId(id)).with(dto)
+      : collection.update("{_id : #, version : #}", new ObjectId(id), readVersion).with(dto);
+
+    if (wr.getN() == 0) {
+      dto.setVersion(readVersion);
+      throw notUpdated(collection, id, readVersion);
+    }
+
+    return wr;
+  }
+
+  /**
+   * A document that was read without Jongo, like the full document of a change stream event, as dto.
+   */
+  public static <T> T unmarshall(Map<String, Object> document, Class<T> type) {
+    return UNMARSHALLER.unmarshall(Bson.createDocument(new BasicDBObject(document)), type);
+  }
+
+  /**
+   * The document as it is stored, to be compared with the dto when it is written back.
+   */
+  public static DBObject snapshot(Object dto) {
+    return MARSHALLER.marshall(dto).toDBObject();
+  }
+
+  /**
+   * Update only the top-level fields that differ between the dto and the snapshot taken when it was
+   * read, using $set and $unset. Untouched fields - like embedded reference sets and password
+   * hashes - are not sent. The version check is the same as in updateVersioned.
+   *
+   * @param collection holding the document
+   * @param id         of the document
+   * @param dto        with updated values and the version it was read with
+   * @param readState  snapshot of the dto when it was read
+   * @return writeResult of the update, with n = 0 when nothing changed
+   * @throws VersionConflictException when the document was modified since it was read
+   * @throws NoModificationException  when the document does not exist
+   */
+  public static WriteResult updateChangedFields(MongoCollection collection, String id, Versioned dto,
+                                                DBObject readState) throws NoModificationException {
+    DBObject update = diff(readState, snapshot(dto));
+    if (update.keySet().isEmpty())
+      return new WriteResult(0, false, null);
+
+    long readVersion = dto.getVersion();
+    update.put("$inc", new BasicDBObject("version", 1));
+
+    BasicDBObject query = new BasicDBObject("_id", new ObjectId(id))
+      .append("version", readVersion == 0 ? new BasicDBObject("$in", Arrays.asList(0, null)) : readVersion);
+    WriteResult wr = collection.getDBCollection().update(query, update);
+
+    if (wr.getN() == 0)
+      throw notUpdated(collection, id, readVersion);
+
+    dto.setVersion(readVersion + 1);
+    return wr;
+  }
+
+  /**
+   * $set for fields that were added or changed, $unset for fields that were removed. The id and
+   * version are never part of the diff.
+   */
+  static DBObject diff(DBObject before, DBObject after) {
+    BasicDBObject set = new BasicDBObject();
+    BasicDBObject unset = new BasicDBObject();
+
+    for (String key : after.keySet())
+      if (isDiffable(key) && !Objects.equals(before.get(key), after.get(key)))
+        set.put(key, after.get(key));
+
+    for (String key : before.keySet())
+      if (isDiffable(key) && !after.containsField(key))
+        unset.put(key, "");
+
+    BasicDBObject update = new BasicDBObject();
+    if (!set.isEmpty()) update.put("$set", set);
+    if (!unset.isEmpty()) update.put("$unset", unset);
+    return update;
+  }
+
+  private static boolean isDiffable(String key) {
+    return !key.equals("_id") && !key.equals("version");
+  }
+
+  private static NoModificationException notUpdated(MongoCollection collection, String id, long readVersion) {
+    if (collection.count("{_id : #}", new ObjectId(id)) == 0)
+      return new NoModificationException(
+        String.format("Document in %s collection with id %s was not updated", collection.getName(), id));
+    return new VersionConflictException(
+      String.format("Document in %s collection with id %s was modified after version %d was read",
+        collection.getName(), id, readVersion));
+  }
+
   public static WriteResult updateWithPullObject(MongoCollection collection, String updateKey, Object updateValue,
                                                  String withKey, String withField, Object withValue) throws NoModificationException {
     WriteResult wr = collection
       .update("{# : #}", updateKey, updateValue)
-      .with("{$pull : {# : {# : #}}}, {multi : true}", withKey, withField, withValue);
+      .with("{$pull : {# : {# : #}}, $inc : {version : 1}}, {multi : true}", withKey, withField, withValue);
 
     if (wr.getN() == 0 || !wr.isUpdateOfExisting())
       throw new NoModificationException(
@@ -22,7 +153,7 @@ public class QueryUtils {
                                                  String withKey, Object withValue) throws NoModificationException {
     WriteResult wr = collection
       .update("{# : #}", updateKey, updateValue)
-      .with("{$pull : {# : #}}", withKey, withValue);
+      .with("{$pull : {# : #}, $inc : {version : 1}}", withKey, withValue);
 
     if (wr.getN() == 0 || !wr.isUpdateOfExisting())
       throw new NoModificationException(
@@ -35,7 +166,7 @@ public class QueryUtils {
                                            String withKey, Object withValue) throws NoModificationException {
     WriteResult wr = collection
       .update("{# : #}", updateKey, updateValue)
-      .with("{$push : {# : #}}", withKey, withValue);
+      .with("{$push : {# : #}, $inc : {version : 1}}", withKey, withValue);
 
     if (wr.getN() == 0 || !wr.isUpdateOfExisting())
       throw new NoModificationException(
@@ -45,5 +176,32 @@ public class QueryUtils {
 
   }
 
+  /**
+   * Push a reference onto an array of references, keeping only the latest of them. The references
+   * are ordered by their ObjectId, so the oldest are dropped - they stay reachable through a query on
+   * the collection they refer to.
+   *
+   * @param keepLatest most references to keep in the array
+   */
+  public static WriteResult updateWithPush(MongoCollection collection, String updateKey, Object updateValue,
+                                           String withKey, Object withValue, int keepLatest) throws NoModificationException {
+    return updateWithPushAll(collection, updateKey, updateValue, withKey, Collections.singletonList(withValue), keepLatest);
+  }
 
+  /**
+   * Push several references in one update, keeping only the latest like updateWithPush
+   */
+  public static WriteResult updateWithPushAll(MongoCollection collection, String updateKey, Object updateValue,
+                                              String withKey, List<?> withValues, int keepLatest) throws NoModificationException {
+    WriteResult wr = collection
+      .update("{# : #}", updateKey, updateValue)
+      .with("{$push : {# : {$each : #, $sort : {_id : 1}, $slice : #}}, $inc : {version : 1}}",
+        withKey, withValues, -keepLatest);
+
+    if (wr.getN() == 0 || !wr.isUpdateOfExisting())
+      throw new NoModificationException(
+        String.format("%s in %s was not updated with push: %s", withKey, collection.getName(), withValues));
+
+    return wr;
+  }
 }
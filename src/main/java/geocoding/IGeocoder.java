@@ -0,0 +1,16 @@
+package geocoding;
+
+import database.dto.LocationDTO;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Turns the address of a playground into coordinates
+ */
+public interface IGeocoder {
+
+  /**
+   * @throws NoSuchElementException when the address can't be located
+   */
+  LocationDTO geocode(String streetName, int streetNumber, int zipCode, String commune) throws NoSuchElementException;
+}
@@ -0,0 +1,89 @@
+package geocoding;
+
+import database.dto.LocationDTO;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+/**
+ * Places an address at the centre of its postal code area, from a table shipped with the server,
+ * so geocoding needs no network. Playgrounds in the same area end up in the same spot, which is
+ * close enough for "near me"; a playground can be given exact coordinates instead.
+ * <p>
+ * The table has a line per range of zip codes - first;last;latitude;longitude;name - and lines
+ * starting with # are comments. Another table can be given with the geocoder.table system property.
+ */
+public class ZipCentroidGeocoder implements IGeocoder {
+  public static final String TABLE_PROPERTY = "geocoder.table";
+  private static final String DEFAULT_TABLE = "/geocoding/zip-centroids.csv";
+  private static ZipCentroidGeocoder geocoder;
+  // first zip code of a range to the range
+  private final TreeMap<Integer, Area> areas = new TreeMap<>();
+
+  public ZipCentroidGeocoder(Reader table) throws IOException, IllegalArgumentException {
+    BufferedReader reader = new BufferedReader(table);
+    String line;
+    int lineNumber = 0;
+    while ((line = reader.readLine()) != null) {
+      lineNumber++;
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) continue;
+
+      String[] fields = line.split(";");
+      try {
+        Area area = new Area(Integer.parseInt(fields[0].trim()), Integer.parseInt(fields[1].trim()),
+          new LocationDTO(Double.parseDouble(fields[2].trim()), Double.parseDouble(fields[3].trim())));
+        areas.put(area.first, area);
+      } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+        throw new IllegalArgumentException(String.format("Line %d of zip code table is not valid: %s", lineNumber, line));
+      }
+    }
+  }
+
+  public static synchronized ZipCentroidGeocoder getInstance() {
+    if (geocoder == null) {
+      String table = System.getProperty(TABLE_PROPERTY);
+      try (InputStream in = table == null
+        ? ZipCentroidGeocoder.class.getResourceAsStream(DEFAULT_TABLE)
+        : new FileInputStream(table)) {
+        if (in == null)
+          throw new IllegalStateException("Zip code table " + DEFAULT_TABLE + " is missing");
+        geocoder = new ZipCentroidGeocoder(new InputStreamReader(in, StandardCharsets.UTF_8));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return geocoder;
+  }
+
+  @Override
+  public LocationDTO geocode(String streetName, int streetNumber, int zipCode, String commune) throws NoSuchElementException {
+    Map.Entry<Integer, Area> area = areas.floorEntry(zipCode);
+    if (area == null || zipCode > area.getValue().last)
+      throw new NoSuchElementException(String.format("Zip code %d is not in the zip code table", zipCode));
+
+    LocationDTO centre = area.getValue().centre;
+    return new LocationDTO(centre.latitude(), centre.longitude());
+  }
+
+  private static class Area {
+    private final int first;
+    private final int last;
+    private final LocationDTO centre;
+
+    Area(int first, int last, LocationDTO centre) {
+      this.first = first;
+      this.last = last;
+      this.centre = centre;
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package main;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sheds REST requests with 503 and Retry-After when more are in flight than the database keeps up
+ * with, instead of letting them queue in the thread pool until they all time out. The limit adapts
+ * to the latency, like a gradient concurrency limit: it shrinks while the recent latency is well
+ * above the lowest latency seen, and grows by the square root of the limit while it is not and at
+ * least half of it is in use.
+ * <p>
+ * It wraps the Jetty handlers rather than being a Javalin before handler, because the async
+ * responses of AsyncController complete after the Javalin handlers have returned. The event stream
+ * route is long-lived by design and is not counted.
+ */
+public class AdmissionControl extends HandlerWrapper {
+  private static final String PATH_PREFIX = "/rest/";
+  private static final String STREAM_SUFFIX = "/stream";
+  private static final int INITIAL_LIMIT = 50;
+  private static final int MIN_LIMIT = 8;
+  private static final int MAX_LIMIT = 180; // below the 200 threads of the pool
+  private static final double TOLERANCE = 2.0;
+  private static final double SMOOTHING = 0.2;
+  private static final double RECENT_WEIGHT = 0.1;
+  private static final int BASELINE_RESET_SAMPLES = 5_000;
+  private static final String RETRY_AFTER_SECONDS = "1";
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final LongAdder shed = new LongAdder();
+  private volatile double limit = INITIAL_LIMIT;
+  private double recentLatency;
+  private double baselineLatency;
+  private int samples;
+
+  @Override
+  public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+    throws IOException, ServletException {
+    if (!target.startsWith(PATH_PREFIX) || target.endsWith(STREAM_SUFFIX)) {
+      super.handle(target, baseRequest, request, response);
+      return;
+    }
+
+    if (inFlight.incrementAndGet() > (int) limit) {
+      inFlight.decrementAndGet();
+      shed.increment();
+      response.setStatus(HttpStatus.SERVICE_UNAVAILABLE_503);
+      response.setHeader(HttpHeader.RETRY_AFTER.asString(), RETRY_AFTER_SECONDS);
+      baseRequest.setHandled(true);
+      return;
+    }
+
+    long start = System.nanoTime();
+    boolean async = false;
+    try {
+      super.handle(target, baseRequest, request, response);
+      if (request.isAsyncStarted()) {
+        request.getAsyncContext().addListener(new CompletionListener(start));
+        async = true;
+      }
+    } finally {
+      if (!async)
+        complete(start);
+    }
+  }
+
+  public double getLimit() {
+    return limit;
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  public long getShed() {
+    return shed.sum();
+  }
+
+  private void complete(long start) {
+    inFlight.decrementAndGet();
+    update(Math.max(1, System.nanoTime() - start));
+  }
+
+  private synchronized void update(long latency) {
+    recentLatency = recentLatency == 0 ? latency : recentLatency * (1 - RECENT_WEIGHT) + latency * RECENT_WEIGHT;
+    // the baseline is reset now and then, so it follows a database that got slower for good
+    if (baselineLatency == 0 || ++samples >= BASELINE_RESET_SAMPLES) {
+      baselineLatency = recentLatency;
+      samples = 0;
+    }
+    baselineLatency = Math.min(baselineLatency, latency);
+
+    double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * baselineLatency / recentLatency));
+    // only grow a limit that is in use, or it drifts to the maximum while the server is idle
+    double headroom = inFlight.get() * 2 >= limit ? Math.sqrt(limit) : 0;
+    double newLimit = limit * gradient + headroom;
+    limit = Math.max(MIN_LIMIT, Math.min(MAX_LIMIT, limit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+  }
+
+  private class CompletionListener implements AsyncListener {
+    private final long start;
+
+    CompletionListener(long start) {
+      this.start = start;
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      complete(start);
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+      event.getAsyncContext().addListener(this); // listeners are dropped when the request goes async again
+    }
+  }
+}
@@ -1,7 +1,16 @@
 package main;
 
+import database.ChangeStreamListener;
+import database.Controller;
+import database.EventArchiver;
+import database.MessageSweeper;
+import database.ReplicaSetDB;
+import database.exceptions.UnavailableException;
+import database.utils.IOExecutor;
 import io.javalin.Javalin;
 import io.javalin.core.security.Role;
+import io.javalin.http.HandlerType;
+import io.javalin.plugin.json.JavalinJackson;
 import io.javalin.plugin.openapi.OpenApiOptions;
 import io.javalin.plugin.openapi.OpenApiPlugin;
 import io.javalin.plugin.openapi.ui.SwaggerOptions;
@@ -9,12 +18,16 @@ import io.prometheus.client.exporter.HTTPServer;
 import io.swagger.v3.oas.models.info.Info;
 import javalinjwt.JWTAccessManager;
 import javalinjwt.JavalinJWT;
+import monitoring.AdmissionCollector;
 import monitoring.QueuedThreadPoolCollector;
 import monitoring.StatisticsHandlerCollector;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.handler.StatisticsHandler;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import resources.*;
+import search.SearchIndex;
+import stats.LiveStatistics;
 
 import java.io.File;
 import java.io.IOException;
@@ -30,6 +43,10 @@ import static io.javalin.apibuilder.ApiBuilder.*;
 public class Main {
   private static final int port = 8080;
   public static Javalin app;
+  // per client - a burst of requests, then a steady rate
+  private static final RateLimiter loginLimiter = new RateLimiter("login", 10, 10 / 60.0);
+  private static final RateLimiter uploadLimiter = new RateLimiter("uploads", 10, 0.5);
+  private static final RateLimiter playgroundListLimiter = new RateLimiter("playground-list", 30, 5);
 
   public static void main(String[] args) throws Exception {
     String hostName = InetAddress.getLocalHost().getHostName();
@@ -45,7 +62,8 @@ public class Main {
 
     StatisticsHandler statisticsHandler = new StatisticsHandler();
     QueuedThreadPool queuedThreadPool = new QueuedThreadPool(200, 8, 60_000);
-    initializePrometheus(statisticsHandler, queuedThreadPool);
+    AdmissionControl admissionControl = new AdmissionControl();
+    initializePrometheus(statisticsHandler, queuedThreadPool, admissionControl);
     // Den her enkrypterer vores webtokens.
     JWTHandler.provider = JWTHandler.createHMAC512();
 
@@ -62,20 +80,50 @@ public class Main {
 
 
     if (app != null) return;
-    app = Javalin.create(config -> config.enableCorsForAllOrigins()
-      .registerPlugin(getConfiguredOpenApiPlugin())
-      .addSinglePageRoot("", "/webapp/index.html")
-      .addStaticFiles("webapp")
-      .accessManager(accessManager)
-      .server(() -> {
-        Server server = new Server(queuedThreadPool);
-        server.setHandler(statisticsHandler);
-        return server;
-      })).start(port);
+    JavalinJackson.configure(Json.MAPPER);
+    Controller.getInstance().addPlaygroundListener(ResponseCache.getInstance()::invalidate);
+    // several instances share one replica set - follow the writes of the others
+    if (System.getProperty(ReplicaSetDB.URI_PROPERTY) != null) {
+      Controller.getInstance().setDataSource(ReplicaSetDB.getInstance());
+      String instanceID = System.getProperty("instance.id", InetAddress.getLocalHost().getHostName());
+      new ChangeStreamListener(ReplicaSetDB.getInstance(), Controller.getInstance(), instanceID).start();
+    }
+    // a no-op once every event has its participant counter
+    IOExecutor.getInstance().execute(Controller.getInstance()::backfillParticipants);
+    LiveStatistics.getInstance().start();
+    new EventArchiver(Controller.getInstance()).start();
+    new MessageSweeper(Controller.getInstance(), Message::deleteMessageImage).start();
+    SearchIndex.getInstance().refreshLater(null); // builds the index in the background
+
+    // Jetty compresses instead of Javalin, as it leaves the pre-gzipped responses of ResponseCache alone
+    GzipHandler gzipHandler = createGzipHandler();
+    statisticsHandler.setHandler(admissionControl);
+    admissionControl.setHandler(gzipHandler);
+    gzipHandler.setHandler(new StaticAssetHandler("webapp"));
+
+    app = Javalin.create(config -> {
+      config.dynamicGzip = false;
+      config.enableCorsForAllOrigins()
+        .registerPlugin(getConfiguredOpenApiPlugin())
+        .addSinglePageRoot("", "/webapp/index.html")
+        .addStaticFiles("webapp")
+        .accessManager(accessManager)
+        .server(() -> {
+          Server server = new Server(queuedThreadPool);
+          server.setHandler(statisticsHandler);
+          return server;
+        });
+    }).start(port);
 
     System.out.println("Check out Swagger UI docs at http://localhost:8080/rest");
     System.out.println("Check out OpenAPI docs at http://localhost:8080/rest-docs");
 
+    // synchronous handlers that read a playground while its sub-queries can't be completed
+    app.exception(UnavailableException.class, (e, ctx) -> {
+      Shared.unavailable(ctx);
+      ctx.result(Shared.SERVICE_UNAVAILABLE);
+    });
+
     // REST endpoints
     app.routes(() -> {
 
@@ -86,6 +134,13 @@ public class Main {
 
       before(JavalinJWT.createHeaderDecodeHandler(JWTHandler.provider));
 
+      // the rate limiters tell clients apart by the decoded JWT
+      before(Path.User.USERS_LOGIN, loginLimiter.limit(new HandlerType[]{HandlerType.POST}));
+      before(Path.User.USERS_CRUD, uploadLimiter.limit(new HandlerType[]{HandlerType.POST, HandlerType.PUT}, Path.User.USERS_LOGIN));
+      before(Path.Playground.PLAYGROUNDS_ONE_MESSAGE_ALL, uploadLimiter.limit(new HandlerType[]{HandlerType.POST}));
+      before(Path.Playground.PLAYGROUNDS_ALL, playgroundListLimiter.limit(new HandlerType[]{HandlerType.GET}));
+      before(Path.Playground.PLAYGROUNDS_ALL, uploadLimiter.limit(new HandlerType[]{HandlerType.POST}));
+
       /** USERS **/
       get(Path.User.USERS_ALL, User.getAllUsers, new HashSet<>(Arrays.asList(Roles.ANYONE, Roles.PEDAGOGUE, Roles.ADMIN)));
       get(Path.User.USERS_ALL_EMPLOYEES, User.getAllEmployees, new HashSet<>(Arrays.asList(Roles.ANYONE, Roles.PEDAGOGUE, Roles.ADMIN)));
@@ -101,6 +156,8 @@ public class Main {
 
 
       /** PLAYGROUNDS **/
+      // before PLAYGROUNDS_ONE, which would take "near" as a playground name
+      get(Path.Playground.PLAYGROUNDS_NEAR, Playground.readNearbyPlaygrounds, new HashSet<>(Arrays.asList(Roles.ANYONE, Roles.PEDAGOGUE, Roles.ADMIN)));
       get(Path.Playground.PLAYGROUNDS_ONE, Playground.readOnePlayground, new HashSet<>(Arrays.asList(Roles.ANYONE, Roles.PEDAGOGUE, Roles.ADMIN)));
       get(Path.Playground.PLAYGROUNDS_ALL, Playground.readAllPlaygrounds, new HashSet<>(Arrays.asList(Roles.ANYONE, Roles.PEDAGOGUE, Roles.ADMIN)));
       get(Path.Playground.PLAYGROUNDS_ONE_PEDAGOGUE_ONE, Playground.readOnePlaygroundOneEmployee, new HashSet<>(Arrays.asList(Roles.ANYONE, Roles.PEDAGOGUE, Roles.ADMIN)));
@@ -113,6 +170,8 @@ public class Main {
       get(Path.Playground.PLAYGROUNDS_ONE_MESSAGE_ALL, Message.readAllMessages, new HashSet<>(Arrays.asList(Roles.ANYONE, Roles.PEDAGOGUE, Roles.ADMIN)));
 
       get(Path.Playground.PLAYGROUNDS_ONE_PROFILE_PICTURE, Playground.getPicture, new HashSet<>(Arrays.asList(Roles.ANYONE, Roles.PEDAGOGUE, Roles.ADMIN)));
+      get(Path.Playground.PLAYGROUNDS_ONE_VIEW, Playground.readOnePlaygroundView, new HashSet<>(Arrays.asList(Roles.ANYONE, Roles.PEDAGOGUE, Roles.ADMIN)));
+      sse(Path.Playground.PLAYGROUNDS_ONE_STREAM, Notifications.playgroundStream, new HashSet<>(Arrays.asList(Roles.ANYONE, Roles.PEDAGOGUE, Roles.ADMIN)));
 
 
       put(Path.Playground.PLAYGROUNDS_ONE, Playground.updatePlayground, new HashSet<>(Arrays.asList(Roles.PEDAGOGUE, Roles.ADMIN)));
@@ -121,6 +180,8 @@ public class Main {
 
       post(Path.Playground.PLAYGROUNDS_ALL, Playground.createPlayground, new HashSet<>(Arrays.asList(Roles.ADMIN)));
       post(Path.Playground.PLAYGROUNDS_ONE_EVENTS_ALL, Event.createPlaygroundEvent, new HashSet<>(Arrays.asList(Roles.PEDAGOGUE, Roles.ADMIN)));
+      post(Path.Playground.PLAYGROUNDS_ONE_EVENTS_BULK, Event.createPlaygroundEvents, new HashSet<>(Arrays.asList(Roles.PEDAGOGUE, Roles.ADMIN)));
+      post(Path.Playground.PLAYGROUNDS_ONE_EVENT_ONE_PARTICIPANTS_ALL, Event.createUsersToPlaygroundEvent, new HashSet<>(Arrays.asList(Roles.PEDAGOGUE, Roles.ADMIN)));
       post(Path.Playground.PLAYGROUNDS_ONE_EVENT_ONE_PARTICIPANT_ONE, Event.createUserToPlaygroundEvent, new HashSet<>(Arrays.asList(Roles.ANYONE, Roles.PEDAGOGUE, Roles.ADMIN)));
       post(Path.Playground.PLAYGROUNDS_ONE_MESSAGE_ALL, Message.createPlaygroundMessage, new HashSet<>(Arrays.asList(Roles.PEDAGOGUE, Roles.ADMIN)));
 
@@ -134,6 +195,22 @@ public class Main {
       get(Path.Message.MESSAGE_IMAGE_ONE, Message.getMessageImage, new HashSet<>(Arrays.asList(Roles.ANYONE, Roles.PEDAGOGUE, Roles.ADMIN)));
 
       /** EVENTS **/
+      get(Path.Event.EVENTS_UPCOMING, Event.readUpcomingEvents, new HashSet<>(Arrays.asList(Roles.ANYONE, Roles.PEDAGOGUE, Roles.ADMIN)));
+
+      /** SEARCH **/
+      get(Path.Search.SEARCH, Search.search, new HashSet<>(Arrays.asList(Roles.ANYONE, Roles.PEDAGOGUE, Roles.ADMIN)));
+
+      /** STATISTICS **/
+      get(Path.Stats.STATS, Statistics.readStatistics, new HashSet<>(Arrays.asList(Roles.ANYONE, Roles.PEDAGOGUE, Roles.ADMIN)));
+
+      /** ADMIN **/
+      post(Path.Admin.ADMIN_PLAYGROUND_VIEWS_REBUILD, Playground.rebuildPlaygroundViews, new HashSet<>(Arrays.asList(Roles.ADMIN)));
+      post(Path.Admin.ADMIN_PLAYGROUNDS_GEOCODE, Playground.geocodePlaygrounds, new HashSet<>(Arrays.asList(Roles.ADMIN)));
+      post(Path.Admin.ADMIN_STATISTICS_RECONCILE, Statistics.reconcileStatistics, new HashSet<>(Arrays.asList(Roles.ADMIN)));
+      post(Path.Admin.ADMIN_EVENTS_ARCHIVE, Event.archivePastEvents, new HashSet<>(Arrays.asList(Roles.ADMIN)));
+      post(Path.Admin.ADMIN_EVENTS_PARTICIPANTS_BACKFILL, Event.backfillParticipants, new HashSet<>(Arrays.asList(Roles.ADMIN)));
+      get(Path.Admin.ADMIN_EXPORT_ONE, Transfer.exportCollection, new HashSet<>(Arrays.asList(Roles.ADMIN)));
+      post(Path.Admin.ADMIN_IMPORT_ONE, Transfer.importCollection, new HashSet<>(Arrays.asList(Roles.ADMIN)));
     });
   }
 
@@ -142,9 +219,11 @@ public class Main {
     app = null;
   }
 
-  private static void initializePrometheus(StatisticsHandler statisticsHandler, QueuedThreadPool queuedThreadPool) throws IOException {
+  private static void initializePrometheus(StatisticsHandler statisticsHandler, QueuedThreadPool queuedThreadPool,
+                                          AdmissionControl admissionControl) throws IOException {
     StatisticsHandlerCollector.initialize(statisticsHandler);
     QueuedThreadPoolCollector.initialize(queuedThreadPool);
+    AdmissionCollector.initialize(admissionControl);
     HTTPServer prometheusServer = new HTTPServer(7080);
   }
 
@@ -165,6 +244,20 @@ public class Main {
     return new OpenApiPlugin(options);
   }
 
+  /**
+   * Compresses JSON and text responses above the size where it pays off. Machines with few cores
+   * get a cheaper level, as compression competes with request handling for the CPU there.
+   */
+  private static GzipHandler createGzipHandler() {
+    GzipHandler gzipHandler = new GzipHandler();
+    gzipHandler.setMinGzipSize(ResponseCache.MIN_GZIP_SIZE);
+    gzipHandler.setCompressionLevel(Runtime.getRuntime().availableProcessors() <= 2 ? 3 : 6);
+    gzipHandler.setIncludedMethods("GET", "POST", "PUT");
+    gzipHandler.setIncludedMimeTypes("application/json", "text/html", "text/plain", "text/css",
+      "application/javascript", "text/javascript", "image/svg+xml");
+    return gzipHandler;
+  }
+
   private static void buildDirectories() {
     File homeFolder = new File(System.getProperty("user.home"));
     java.nio.file.Path pathProfileImages = Paths.get(homeFolder.toPath().toString() + "/server_resource/profile_images");
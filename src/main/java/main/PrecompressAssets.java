@@ -0,0 +1,55 @@
+package main;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Build step, run by the exec plugin in the process-classes phase. It writes a .gz sibling next to
+ * every fingerprinted text asset of the webapp, compressed at the highest level, as that is paid
+ * once at build time instead of on every request. StaticAssetHandler serves the siblings.
+ */
+public class PrecompressAssets {
+
+  public static void main(String[] args) throws IOException {
+    Path webapp = Paths.get(args.length > 0 ? args[0] : "target/classes/webapp");
+    if (!Files.isDirectory(webapp)) {
+      System.out.println("PrecompressAssets: no webapp at " + webapp);
+      return;
+    }
+
+    List<Path> assets;
+    try (Stream<Path> files = Files.walk(webapp)) {
+      assets = files
+        .filter(Files::isRegularFile)
+        .filter(file -> StaticAssetHandler.isCompressible(file.getFileName().toString()))
+        .collect(Collectors.toList());
+    }
+
+    for (Path asset : assets) {
+      Path gz = asset.resolveSibling(asset.getFileName() + StaticAssetHandler.GZIP_SUFFIX);
+      if (Files.exists(gz) && Files.getLastModifiedTime(gz).compareTo(Files.getLastModifiedTime(asset)) >= 0)
+        continue;
+
+      try (OutputStream out = new BestGZIPOutputStream(Files.newOutputStream(gz))) {
+        Files.copy(asset, out);
+      }
+      System.out.println(String.format("PrecompressAssets: %s %d -> %d bytes",
+        webapp.relativize(asset), Files.size(asset), Files.size(gz)));
+    }
+  }
+
+  private static class BestGZIPOutputStream extends GZIPOutputStream {
+    BestGZIPOutputStream(OutputStream out) throws IOException {
+      super(out, 64 * 1024);
+      def.setLevel(Deflater.BEST_COMPRESSION);
+    }
+  }
+}
@@ -0,0 +1,180 @@
+package main;
+
+import com.auth0.jwt.interfaces.Claim;
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.http.HandlerType;
+import io.javalin.http.HttpResponseException;
+import javalinjwt.JavalinJWT;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpStatus;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * A token bucket per client for an expensive route, answering 429 with Retry-After when the bucket
+ * is empty. The client is the name in the JWT, or the IP address without one, so the limiter has to
+ * run after the JWT decode handler. Behind a load balancer the IP address is taken from
+ * X-Forwarded-For, but only for requests from the proxies listed in the trusted.proxies property -
+ * anyone else could send the header to get a fresh bucket.
+ */
+public class RateLimiter {
+  public static final String TRUSTED_PROXIES_PROPERTY = "trusted.proxies";
+  private static final Set<String> trustedProxies = addresses(System.getProperty(TRUSTED_PROXIES_PROPERTY, ""));
+  private static final List<RateLimiter> limiters = new CopyOnWriteArrayList<>();
+  private static final int SWEEP_EVERY_ACQUIRES = 1024;
+  private final String name;
+  private final double capacity;
+  private final double tokensPerSecond;
+  private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+  private final LongAdder limited = new LongAdder();
+  private final AtomicLong acquires = new AtomicLong();
+
+  /**
+   * @param name            label of the metrics
+   * @param capacity        requests a client may make in a burst
+   * @param tokensPerSecond sustained requests per second of a client
+   */
+  public RateLimiter(String name, double capacity, double tokensPerSecond) {
+    this.name = name;
+    this.capacity = capacity;
+    this.tokensPerSecond = tokensPerSecond;
+    limiters.add(this);
+  }
+
+  public static List<RateLimiter> getLimiters() {
+    return Collections.unmodifiableList(limiters);
+  }
+
+  /**
+   * @param methods   the methods that are limited, all others pass
+   * @param skipPaths paths that match the route of the before handler but are limited elsewhere
+   */
+  public Handler limit(HandlerType[] methods, String... skipPaths) {
+    Set<HandlerType> limitedMethods = EnumSet.copyOf(Arrays.asList(methods));
+    List<String> skipped = Arrays.asList(skipPaths);
+    return ctx -> {
+      if (!limitedMethods.contains(ctx.method()) || skipped.contains(ctx.path()))
+        return;
+      long waitSeconds = tryAcquire(client(ctx), System.nanoTime());
+      if (waitSeconds > 0) {
+        ctx.header(HttpHeader.RETRY_AFTER.asString(), String.valueOf(waitSeconds));
+        throw new HttpResponseException(HttpStatus.TOO_MANY_REQUESTS_429, "Too many requests", Collections.emptyMap());
+      }
+    };
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getLimited() {
+    return limited.sum();
+  }
+
+  /**
+   * @return 0 when a token was taken, otherwise the seconds until the next token
+   */
+  long tryAcquire(String client, long now) {
+    if (acquires.incrementAndGet() % SWEEP_EVERY_ACQUIRES == 0)
+      sweep(now);
+
+    Bucket bucket = buckets.computeIfAbsent(client, key -> new Bucket(capacity, now));
+    long waitSeconds = bucket.tryAcquire(now);
+    if (waitSeconds > 0)
+      limited.increment();
+    return waitSeconds;
+  }
+
+  /**
+   * A bucket that has refilled is the same as a new one, so it is dropped to bound the memory
+   */
+  private void sweep(long now) {
+    buckets.values().removeIf(bucket -> bucket.isFull(now));
+  }
+
+  private static String client(Context ctx) {
+    if (JavalinJWT.containsJWT(ctx)) {
+      Claim name = JavalinJWT.getDecodedFromContext(ctx).getClaim("name");
+      if (!name.isNull())
+        return "user:" + name.asString();
+    }
+    return "ip:" + clientAddress(ctx.ip(), ctx.header(HttpHeader.X_FORWARDED_FOR.asString()), trustedProxies);
+  }
+
+  /**
+   * The address of the client, going back through X-Forwarded-For while the address that forwarded
+   * the request is a trusted proxy. Each proxy appends the address it got the request from, so the
+   * rightmost untrusted entry is the first one no trusted proxy would have overwritten.
+   *
+   * @param remoteAddress address of the connection
+   * @param forwardedFor  X-Forwarded-For header, or null
+   * @param proxies       addresses of the trusted proxies
+   */
+  static String clientAddress(String remoteAddress, String forwardedFor, Set<String> proxies) {
+    if (forwardedFor == null || !proxies.contains(remoteAddress))
+      return remoteAddress;
+
+    String client = remoteAddress;
+    List<String> hops = Arrays.asList(forwardedFor.split(","));
+    Collections.reverse(hops);
+    for (String hop : hops) {
+      String address = hop.trim();
+      if (address.isEmpty())
+        break;
+      client = address;
+      if (!proxies.contains(address))
+        break;
+    }
+    return client;
+  }
+
+  /**
+   * @param list comma separated addresses
+   */
+  static Set<String> addresses(String list) {
+    return Arrays.stream(list.split(","))
+      .map(String::trim)
+      .filter(address -> !address.isEmpty())
+      .collect(Collectors.toSet());
+  }
+
+  private class Bucket {
+    private double tokens;
+    private long refilled;
+
+    Bucket(double tokens, long now) {
+      this.tokens = tokens;
+      this.refilled = now;
+    }
+
+    synchronized long tryAcquire(long now) {
+      refill(now);
+      if (tokens >= 1) {
+        tokens--;
+        return 0;
+      }
+      return (long) Math.ceil((1 - tokens) / tokensPerSecond);
+    }
+
+    synchronized boolean isFull(long now) {
+      refill(now);
+      return tokens >= capacity;
+    }
+
+    private void refill(long now) {
+      tokens = Math.min(capacity, tokens + (now - refilled) / 1e9 * tokensPerSecond);
+      refilled = now;
+    }
+  }
+}
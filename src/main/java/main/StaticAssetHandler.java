@@ -0,0 +1,76 @@
+package main;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.regex.Pattern;
+
+/**
+ * Serves the fingerprinted files of the Angular build (like main-es2015.cb6a57275540ff7c1c24.js)
+ * ahead of Javalin. Their names change with their content, so they are cached as immutable for a
+ * year, and the .gz sibling written by PrecompressAssets is sent when the client accepts gzip.
+ * All other requests, index.html included, go on to Javalin.
+ */
+public class StaticAssetHandler extends HandlerWrapper {
+  static final String GZIP_SUFFIX = ".gz";
+  private static final Pattern FINGERPRINTED = Pattern.compile("^/[\\w.-]+\\.[0-9a-f]{16,}\\.(js|css|png|jpg|svg|woff2?|ttf|eot)$");
+  private static final Pattern COMPRESSIBLE = Pattern.compile(".*\\.[0-9a-f]{16,}\\.(js|css|svg|ttf|eot)$");
+  private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+  private final String classpathRoot;
+  private final MimeTypes mimeTypes = new MimeTypes();
+
+  /**
+   * @param classpathRoot folder of the webapp on the classpath, the same as given to addStaticFiles
+   */
+  public StaticAssetHandler(String classpathRoot) {
+    this.classpathRoot = classpathRoot;
+  }
+
+  static boolean isCompressible(String fileName) {
+    return COMPRESSIBLE.matcher(fileName).matches();
+  }
+
+  @Override
+  public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+    throws IOException, ServletException {
+    boolean readRequest = "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+    URL asset = readRequest && FINGERPRINTED.matcher(target).matches() ? resource(target) : null;
+    if (asset == null) {
+      super.handle(target, baseRequest, request, response);
+      return;
+    }
+
+    URL gzipped = null;
+    String acceptEncoding = request.getHeader(HttpHeader.ACCEPT_ENCODING.asString());
+    if (acceptEncoding != null && acceptEncoding.contains("gzip") && isCompressible(target))
+      gzipped = resource(target + GZIP_SUFFIX);
+
+    URLConnection connection = (gzipped != null ? gzipped : asset).openConnection();
+    response.setContentType(mimeTypes.getMimeByExtension(target));
+    response.setHeader(HttpHeader.CACHE_CONTROL.asString(), IMMUTABLE);
+    response.setHeader(HttpHeader.VARY.asString(), HttpHeader.ACCEPT_ENCODING.asString());
+    if (gzipped != null)
+      response.setHeader(HttpHeader.CONTENT_ENCODING.asString(), "gzip");
+    if (connection.getContentLengthLong() >= 0)
+      response.setContentLengthLong(connection.getContentLengthLong());
+
+    try (InputStream in = connection.getInputStream()) {
+      if ("GET".equals(request.getMethod()))
+        in.transferTo(response.getOutputStream());
+    }
+    baseRequest.setHandled(true);
+  }
+
+  private URL resource(String target) {
+    return StaticAssetHandler.class.getClassLoader().getResource(classpathRoot + target);
+  }
+}
@@ -0,0 +1,69 @@
+package monitoring;
+
+import io.prometheus.client.Collector;
+import main.AdmissionControl;
+import main.RateLimiter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The adaptive concurrency limit of AdmissionControl, the requests it shed and the requests each
+ * RateLimiter rejected
+ */
+public class AdmissionCollector extends Collector {
+
+  private static final List<String> EMPTY_LIST = new ArrayList<>();
+  private final AdmissionControl admissionControl;
+
+  private AdmissionCollector(AdmissionControl admissionControl) {
+    this.admissionControl = admissionControl;
+  }
+
+  public static void initialize(AdmissionControl admissionControl) {
+    new AdmissionCollector(admissionControl).register();
+  }
+
+  private static MetricFamilySamples buildGauge(String name, String help, double value) {
+    return new MetricFamilySamples(
+      name,
+      Type.GAUGE,
+      help,
+      Collections.singletonList(new MetricFamilySamples.Sample(name, EMPTY_LIST, EMPTY_LIST, value))
+    );
+  }
+
+  private static MetricFamilySamples buildCounter(String name, String help, double value) {
+    return new MetricFamilySamples(
+      name,
+      Type.COUNTER,
+      help,
+      Collections.singletonList(new MetricFamilySamples.Sample(name, EMPTY_LIST, EMPTY_LIST, value))
+    );
+  }
+
+  private static MetricFamilySamples buildLimitedCounter() {
+    String name = "http_requests_rate_limited_total";
+    List<MetricFamilySamples.Sample> samples = new ArrayList<>();
+    for (RateLimiter limiter : RateLimiter.getLimiters())
+      samples.add(new MetricFamilySamples.Sample(
+        name,
+        Collections.singletonList("limiter"),
+        Collections.singletonList(limiter.getName()),
+        limiter.getLimited()
+      ));
+    return new MetricFamilySamples(name, Type.COUNTER, "Number of requests rejected with 429 per rate limiter", samples);
+  }
+
+  @Override
+  public List<MetricFamilySamples> collect() {
+    return Arrays.asList(
+      buildGauge("http_admission_limit", "Current adaptive limit of concurrent REST requests", admissionControl.getLimit()),
+      buildGauge("http_admission_in_flight", "Number of admitted REST requests in flight", admissionControl.getInFlight()),
+      buildCounter("http_requests_shed_total", "Number of REST requests rejected with 503", admissionControl.getShed()),
+      buildLimitedCounter()
+    );
+  }
+}
@@ -1,21 +1,35 @@
 package resources;
 
+import com.mongodb.DBObject;
 import com.mongodb.MongoException;
 import com.mongodb.WriteResult;
+import database.AsyncController;
 import database.Controller;
-import database.dto.DetailsDTO;
+import database.dto.BulkResultDTO;
 import database.dto.EventDTO;
 import database.dto.PlaygroundDTO;
 import database.dto.UserDTO;
+import database.exceptions.EventFullException;
 import database.exceptions.NoModificationException;
+import database.exceptions.VersionConflictException;
+import database.utils.QueryUtils;
 import io.javalin.http.Handler;
 import io.javalin.plugin.openapi.annotations.ContentType;
+import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpStatus;
-import org.json.JSONObject;
+import resources.RequestModels.BulkEventsModel;
+import resources.RequestModels.BulkParticipantsModel;
+import resources.RequestModels.EventModel;
+import resources.RequestModels.EventUpdateModel;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 
 public class Event implements Tag {
+  public static final int DEFAULT_PAGE_SIZE = 20;
+  public static final int MAX_PAGE_SIZE = 100;
 
   /**
    * USERS_CRUD
@@ -70,85 +84,131 @@ public class Event implements Tag {
    * GET
    */
   public static Handler readOneEvent = ctx -> {
-    EventDTO event = Controller.getInstance().getEvent(ctx.pathParam(EVENT_ID));
-    if (event != null) {
-      ctx.json(event).contentType("json");
-      ctx.status(200);
-    } else
-      ctx.status(404).result("Couldn't find an event");
+    ctx.json(Shared.withStatus(ctx, Shared.withETag(ctx, AsyncController.getInstance().getEvent(ctx.pathParam(EVENT_ID))),
+      "Couldn't find an event",
+      "Internal error - failed to fetch event in database"));
   };
 
   public static Handler readOneEventParticipants = ctx -> {
-    EventDTO event = Controller.getInstance().getEvent(ctx.pathParam(EVENT_ID));
-    if (event != null) {
-      ctx.json(event.getParticipants()).contentType("json");
-      ctx.status(200);
-    } else
-      ctx.status(404).result("Couldn't find any participants for this event");
+    ctx.json(Shared.withStatus(ctx, AsyncController.getInstance().getEventParticipantCount(ctx.pathParam(EVENT_ID)),
+      "Couldn't find any participants for this event",
+      "Internal error - failed to fetch event in database"));
   };
 
   public static Handler readOneEventOneParticipant = ctx -> {
-    EventDTO event = Controller.getInstance().getEvent(ctx.pathParam(EVENT_ID));
-    for (UserDTO user : event.getAssignedUsers())
-      if (user.getUsername().equals(ctx.pathParam(USER_NAME))) {
-        ctx.json(user).contentType("json");
-        ctx.status(200);
-        return;
-      } else
-        ctx.status(404).result("Couldn't find the participant for this event");
+    String username = ctx.pathParam(USER_NAME);
+    ctx.json(Shared.withStatus(ctx, AsyncController.getInstance().getEvent(ctx.pathParam(EVENT_ID))
+        .thenApply(event -> {
+          for (UserDTO user : event.getAssignedUsers())
+            if (user.getUsername().equals(username))
+              return user;
+          throw new NoSuchElementException(String.format("User %s is not a participant", username));
+        }),
+      "Couldn't find the participant for this event",
+      "Internal error - failed to fetch event in database"));
   };
 
+  /**
+   * GET - optionally from ?from= to ?to=, as yyyy-MM-dd
+   */
   public static Handler readOnePlayGroundAllEvents = ctx -> {
-    List<EventDTO> events = Controller.getInstance().getEventsInPlayground(ctx.pathParam(PLAYGROUND_NAMES));
-    if (events != null) {
-      ctx.json(events).contentType("json");
-      ctx.status(200);
-    } else {
-      ctx.status(404).result("Couldn't find any events for this playground");
+    String playgroundName = ctx.pathParam(PLAYGROUND_NAMES);
+    Date from, to;
+    try {
+      from = parseDate(ctx.queryParam("from"));
+      to = parseDate(ctx.queryParam("to"));
+    } catch (DateTimeParseException e) {
+      ctx.status(HttpStatus.BAD_REQUEST_400);
+      ctx.result("Bad request - from and to must be dates as yyyy-MM-dd");
+      return;
     }
+
+    // the change token covers all events of the playground, so it also holds for a range of them
+    AsyncController controller = AsyncController.getInstance();
+    ctx.json(Shared.unlessNotModified(ctx,
+      controller.getPlaygroundCounters(playgroundName)
+        .thenApply(playground -> Shared.changeToken(playground.getId(), playground.getEventsVersion())),
+      () -> Shared.withStatus(ctx, controller.getEventsInPlayground(playgroundName, from, to),
+        "Couldn't find any events for this playground",
+        "Internal error - failed to fetch events in database")));
   };
 
   /**
-   * POST
+   * GET - ?from= (default today) and ?to= as yyyy-MM-dd, paged with ?page= and ?size=
    */
-  public static Handler createPlaygroundEvent = ctx -> {
-    JSONObject jsonObject = new JSONObject(ctx.body());
-    EventDTO event = new EventDTO();
-
-    Set<UserDTO> users = new HashSet<>();
-    for (int i = 0; i < jsonObject.getJSONArray(USERS).length(); i++) {
-      String userid = jsonObject.getJSONArray(USERS).getString(i);
-      users.add(Controller.getInstance().getUser(userid));
+  public static Handler readUpcomingEvents = ctx -> {
+    Date from, to;
+    int page, size;
+    try {
+      from = parseDate(ctx.queryParam("from"));
+      to = parseDate(ctx.queryParam("to"));
+      page = Integer.parseInt(ctx.queryParam("page", "1"));
+      size = Integer.parseInt(ctx.queryParam("size", String.valueOf(DEFAULT_PAGE_SIZE)));
+    } catch (DateTimeParseException | NumberFormatException e) {
+      ctx.status(HttpStatus.BAD_REQUEST_400);
+      ctx.result("Bad request - from and to must be dates as yyyy-MM-dd, page and size numbers");
+      return;
+    }
+    if (page < 1 || size < 1 || size > MAX_PAGE_SIZE) {
+      ctx.status(HttpStatus.BAD_REQUEST_400);
+      ctx.result(String.format("Bad request - page from 1 and size 1 to %d", MAX_PAGE_SIZE));
+      return;
     }
 
-    DetailsDTO detailsModel = new DetailsDTO();
-    Calendar cal = Calendar.getInstance();
-
-    cal.set(Calendar.YEAR, jsonObject.getInt(EVENT_YEAR));
-    cal.set(Calendar.DAY_OF_MONTH, jsonObject.getInt(EVENT_DAY));
-    cal.set(Calendar.MONTH, jsonObject.getInt(EVENT_MONTH));
-
-    detailsModel.setDate(cal.getTime());
-
-    cal.set(Calendar.HOUR, jsonObject.getInt(EVENT_HOUR_START));
-    cal.set(Calendar.MINUTE, jsonObject.getInt(EVENT_MINUTE_START));
+    ctx.json(Shared.withStatus(ctx, AsyncController.getInstance().getUpcomingEvents(from, to, page, size),
+      "Couldn't find any events",
+      "Internal error - failed to fetch events in database"));
+  };
 
-    detailsModel.setStartTime(cal.getTime());
+  /**
+   * POST - admin only
+   */
+  public static Handler archivePastEvents = ctx -> {
+    int archived = Controller.getInstance().archivePastEvents();
+    ctx.status(HttpStatus.OK_200);
+    ctx.result(String.format("Ok - %d past events were archived", archived));
+    ctx.contentType(ContentType.JSON);
+  };
 
-    cal.set(Calendar.HOUR, jsonObject.getInt(EVENT_HOUR_END));
-    cal.set(Calendar.MINUTE, jsonObject.getInt(EVENT_MINUTE_END));
+  /**
+   * POST - admin only
+   */
+  public static Handler backfillParticipants = ctx -> {
+    int updated = Controller.getInstance().backfillParticipants();
+    ctx.status(HttpStatus.OK_200);
+    ctx.result(String.format("Ok - %d participant counters were set", updated));
+    ctx.contentType(ContentType.JSON);
+  };
 
-    detailsModel.setStartTime(cal.getTime());
+  /**
+   * @return start of the day in the time zone of the server, or null when date is absent
+   */
+  private static Date parseDate(String date) throws DateTimeParseException {
+    if (date == null || date.isBlank())
+      return null;
+    return Date.from(LocalDate.parse(date).atStartOfDay(ZoneId.systemDefault()).toInstant());
+  }
 
-    event.setPlayground(jsonObject.getString(PLAYGROUND_NAMES));
-    event.setName(jsonObject.getString(EVENT_NAME));
-    event.setParticipants(jsonObject.getInt(EVENT_PARTICIPANTS));
-    event.setImagepath(jsonObject.getString(EVENT_IMAGEPATH));
-    event.setAssignedUsers(users);
-    event.setDetails(detailsModel);
-    event.setDescription(jsonObject.getString(EVENT_DESCRIPTION));
+  /**
+   * POST
+   */
+  public static Handler createPlaygroundEvent = ctx -> {
+    EventModel model;
+    try {
+      model = Json.parse(ctx.body(), EventModel.class);
+    } catch (IllegalArgumentException e) {
+      ctx.status(HttpStatus.BAD_REQUEST_400);
+      ctx.result("Bad request - error in event data");
+      ctx.contentType(ContentType.JSON);
+      return;
+    }
+    Set<UserDTO> users = new HashSet<>();
+    for (String userid : model.users) {
+      users.add(Controller.getInstance().getUser(userid));
+    }
+    EventDTO event = model.toEvent(users);
 
-    if (Controller.getInstance().createPlaygroundEvent(jsonObject.getString(PLAYGROUND_NAMES), event).wasAcknowledged()) {
+    if (Controller.getInstance().createPlaygroundEvent(model.playgroundName, event).wasAcknowledged()) {
       ctx.status(200).result("Event Created");
       System.out.println("inserted event");
     } else {
@@ -157,6 +217,94 @@ public class Event implements Tag {
     }
   };
 
+  /**
+   * POST - {"events": [event, ...]}, answered with the id and status of each event
+   */
+  public static Handler createPlaygroundEvents = ctx -> {
+    String playgroundName = ctx.pathParam(PLAYGROUND_NAMES);
+    BulkEventsModel model;
+    try {
+      model = Json.parse(ctx.body(), BulkEventsModel.class);
+    } catch (IllegalArgumentException e) {
+      ctx.status(HttpStatus.BAD_REQUEST_400);
+      ctx.result("Bad request - " + e.getMessage());
+      ctx.contentType(ContentType.JSON);
+      return;
+    }
+
+    // invalid events are reported as such, the others are created together
+    BulkResultDTO result = new BulkResultDTO();
+    List<EventDTO> events = new ArrayList<>();
+    List<Integer> positions = new ArrayList<>();
+    for (int i = 0; i < model.events.size(); i++) {
+      EventModel item = model.events.get(i);
+      try {
+        if (item == null)
+          throw new IllegalArgumentException("event is null");
+        if (item.playgroundName == null)
+          item.playgroundName = playgroundName;
+        item.validate();
+      } catch (IllegalArgumentException e) {
+        result.add(i, null, BulkResultDTO.INVALID, e.getMessage());
+        continue;
+      }
+
+      Set<UserDTO> users = new HashSet<>();
+      for (String username : item.users)
+        users.add(new UserDTO.Builder(username).build());
+      EventDTO event = item.toEvent(users);
+      events.add(event);
+      positions.add(i);
+    }
+
+    try {
+      BulkResultDTO created = events.isEmpty()
+        ? new BulkResultDTO()
+        : Controller.getInstance().createPlaygroundEvents(playgroundName, events);
+      for (BulkResultDTO.Item item : created.getItems())
+        result.add(positions.get(item.getIndex()), item.getId(), item.getStatus(), item.getMessage());
+      ctx.status(HttpStatus.OK_200);
+      ctx.json(result);
+    } catch (NoSuchElementException e) {
+      ctx.status(HttpStatus.NOT_FOUND_404);
+      ctx.result(String.format("Not found - playground %s is not in database", playgroundName));
+      ctx.contentType(ContentType.JSON);
+    } catch (NoModificationException | MongoException e) {
+      ctx.status(HttpStatus.INTERNAL_SERVER_ERROR_500);
+      ctx.result("Internal error - events failed to be created");
+      ctx.contentType(ContentType.JSON);
+    }
+  };
+
+  /**
+   * POST - {"usernames": [username, ...]}, answered with the status of each username
+   */
+  public static Handler createUsersToPlaygroundEvent = ctx -> {
+    String id = ctx.pathParam(EVENT_ID);
+    BulkParticipantsModel model;
+    try {
+      model = Json.parse(ctx.body(), BulkParticipantsModel.class);
+    } catch (IllegalArgumentException e) {
+      ctx.status(HttpStatus.BAD_REQUEST_400);
+      ctx.result("Bad request - " + e.getMessage());
+      ctx.contentType(ContentType.JSON);
+      return;
+    }
+
+    try {
+      ctx.status(HttpStatus.OK_200);
+      ctx.json(Controller.getInstance().addUsersToEvent(id, model.usernames));
+    } catch (NoSuchElementException | IllegalArgumentException e) {
+      ctx.status(HttpStatus.NOT_FOUND_404);
+      ctx.result(String.format("Not found - event %s is not in database or is archived", id));
+      ctx.contentType(ContentType.JSON);
+    } catch (MongoException e) {
+      ctx.status(HttpStatus.INTERNAL_SERVER_ERROR_500);
+      ctx.result("Internal error - users failed to join event");
+      ctx.contentType(ContentType.JSON);
+    }
+  };
+
   public static Handler createUserToPlaygroundEvent = ctx -> {
     String id = ctx.pathParam("id");
     String username = ctx.pathParam("username");
@@ -177,6 +325,10 @@ public class Event implements Tag {
       ctx.status(HttpStatus.NOT_FOUND_404);
       ctx.result(String.format("Not found - event %s or user %s is not in database", id, username));
       ctx.contentType(ContentType.JSON);
+    } catch (EventFullException e) {
+      ctx.status(HttpStatus.CONFLICT_409);
+      ctx.result(String.format("Conflict - event %s is full", id));
+      ctx.contentType(ContentType.JSON);
     } catch (NoModificationException | MongoException e) {
       ctx.status(HttpStatus.INTERNAL_SERVER_ERROR_500);
       ctx.result("Internal error - user failed to join event");
@@ -188,46 +340,61 @@ public class Event implements Tag {
    * PUT
    */
   public static Handler updateEventToPlayground = ctx -> {
-    JSONObject jsonObject = new JSONObject(ctx.body());
+    EventUpdateModel model;
+    try {
+      model = Json.parse(ctx.body(), EventUpdateModel.class);
+    } catch (IllegalArgumentException e) {
+      ctx.status(HttpStatus.BAD_REQUEST_400);
+      ctx.result("Bad request - error in event data");
+      ctx.contentType(ContentType.JSON);
+      return;
+    }
     EventDTO event = Controller.getInstance().getEvent(ctx.pathParam(EVENT_ID));
     PlaygroundDTO playground = Controller.getInstance().getPlayground(ctx.pathParam(PLAYGROUND_NAMES));
+    if (!Shared.checkIfMatch(ctx, event.getVersion()))
+      return;
+    DBObject readState = QueryUtils.snapshot(event);
 
-    if (jsonObject.has(EVENT_ID)) {
-      event.setId(jsonObject.getString(EVENT_ID));
+    if (model.id != null) {
+      event.setId(model.id);
     }
-    if (jsonObject.has(EVENT_NAME)) {
-      event.setName(jsonObject.getString(EVENT_NAME));
+    if (model.name != null) {
+      event.setName(model.name);
     }
-    if (jsonObject.has(EVENT_IMAGEPATH)) {
-      event.setImagepath(jsonObject.getString(EVENT_IMAGEPATH));
+    if (model.imagepath != null) {
+      event.setImagepath(model.imagepath);
     }
-    if (jsonObject.has(EVENT_PARTICIPANTS)) {
-      event.setParticipants(jsonObject.getInt(EVENT_PARTICIPANTS));
+    if (model.capacity != null) {
+      event.setCapacity(model.capacity);
     }
-    if (jsonObject.has(EVENT_DESCRIPTION)) {
-      event.setDescription(jsonObject.getString(EVENT_DESCRIPTION));
+    if (model.description != null) {
+      event.setDescription(model.description);
     }
-    if (jsonObject.has(EVENT_DETAILS)) {
+    if (model.details != null) {
       //TODO: Change this
       event.setDetails(null);
     }
-    if (jsonObject.has(EVENT_ASSIGNED_USERS)) {
+    if (model.assignedUsers != null) {
       Set<UserDTO> assignedUsers = new HashSet<>();
-      for (int i = 0; i < jsonObject.getJSONArray(EVENT_ASSIGNED_USERS).length(); i++) {
-        String assignedUserId = jsonObject.getJSONArray(EVENT_ASSIGNED_USERS).getJSONObject(i).getString(EVENT_ASSIGNED_USERS);
+      for (String assignedUserId : model.assignedUsernames()) {
         assignedUsers.add(Controller.getInstance().getUser(assignedUserId));
       }
       event.setAssignedUsers(assignedUsers);
     }
-    if (jsonObject.has(PLAYGROUND_NAMES)) {
-      event.setPlayground(PLAYGROUND_NAMES);
+    if (model.playgroundName != null) {
+      event.setPlayground(model.playgroundName);
     }
 
     try {
-      Controller.getInstance().updatePlaygroundEvent(event);
+      Controller.getInstance().updatePlaygroundEvent(event, readState);
       ctx.status(HttpStatus.OK_200);
+      ctx.header(HttpHeader.ETAG.asString(), Shared.etag(event.getVersion()));
       ctx.result("Successful - playground event was updated successfully");
       ctx.contentType(ContentType.JSON);
+    } catch (VersionConflictException e) {
+      ctx.status(HttpStatus.CONFLICT_409);
+      ctx.result("Conflict - playground event was modified by another request");
+      ctx.contentType(ContentType.JSON);
     } catch (NoModificationException e) {
       ctx.status(HttpStatus.INTERNAL_SERVER_ERROR_500);
       ctx.result("Internal error - playground event could not be updated");
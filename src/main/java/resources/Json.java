@@ -0,0 +1,42 @@
+package resources;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+
+/**
+ * The one ObjectMapper of the server. It binds request bodies to RequestModels and is registered
+ * with Javalin in Main, so ctx.json serializes with it as well. Afterburner replaces the reflective
+ * field and setter access with generated bytecode.
+ */
+public class Json {
+  public static final ObjectMapper MAPPER = new ObjectMapper()
+    .registerModule(new AfterburnerModule())
+    .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+  /**
+   * Bind and validate a request body
+   *
+   * @param json body or form field
+   * @param type of the model
+   * @return model with all required fields
+   * @throws IllegalArgumentException when json is empty, malformed, or misses a required field
+   */
+  public static <T extends RequestModels.Model> T parse(String json, Class<T> type) throws IllegalArgumentException {
+    if (json == null || json.isEmpty())
+      throw new IllegalArgumentException(String.format("No body to read %s from", type.getSimpleName()));
+
+    T model;
+    try {
+      model = MAPPER.readValue(json, type);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException(String.format("Body is not a valid %s", type.getSimpleName()), e);
+    }
+    if (model == null)
+      throw new IllegalArgumentException(String.format("Body is not a valid %s", type.getSimpleName()));
+
+    model.validate();
+    return model;
+  }
+}
@@ -1,13 +1,20 @@
 package resources;
 
+import com.mongodb.DBObject;
 import com.mongodb.MongoException;
+import com.mongodb.WriteResult;
+import database.AsyncController;
 import database.Controller;
 import database.dto.MessageDTO;
 import database.exceptions.NoModificationException;
+import database.exceptions.VersionConflictException;
+import database.utils.QueryUtils;
 import io.javalin.http.Handler;
 import io.javalin.plugin.openapi.annotations.ContentType;
+import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpStatus;
-import org.json.JSONObject;
+import resources.RequestModels.MessageModel;
+import resources.RequestModels.MessageUpdateModel;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
@@ -19,7 +26,6 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.List;
 import java.util.NoSuchElementException;
 
 public class Message implements Tag {
@@ -49,21 +55,20 @@ public class Message implements Tag {
    * GET
    */
   public static Handler readOneMessage = ctx -> {
-    MessageDTO message = Controller.getInstance().getMessage(ctx.pathParam(("id"))); //MESSAGE_ID
-    if (message != null) {
-      ctx.json(message).contentType("json");
-      ctx.status(200);
-    } else
-      ctx.status(404).result("Failed to retrieve message");
+    ctx.json(Shared.withStatus(ctx, Shared.withETag(ctx, AsyncController.getInstance().getMessage(ctx.pathParam(("id")))), //MESSAGE_ID
+      "Failed to retrieve message",
+      "Internal error - failed to fetch message in database"));
   };
 
   public static Handler readAllMessages = ctx -> {
-    List<MessageDTO> messages = Controller.getInstance().getMessagesInPlayground(ctx.pathParam(PLAYGROUND_NAMES));
-    if (messages != null) {
-      ctx.json(messages).contentType("json");
-      ctx.status(200);
-    } else
-      ctx.status(404).result("Failed to retrieve any messages");
+    String playgroundName = ctx.pathParam(PLAYGROUND_NAMES);
+    AsyncController controller = AsyncController.getInstance();
+    ctx.json(Shared.unlessNotModified(ctx,
+      controller.getPlaygroundCounters(playgroundName)
+        .thenApply(playground -> Shared.changeToken(playground.getId(), playground.getMessagesVersion())),
+      () -> Shared.withStatus(ctx, controller.getMessagesInPlayground(playgroundName),
+        "Failed to retrieve any messages",
+        "Internal error - failed to fetch messages in database")));
   };
 
   /**
@@ -72,8 +77,15 @@ public class Message implements Tag {
   public static Handler createPlaygroundMessage = ctx -> {
 
     BufferedImage bufferedImage = null;
-    String messageJson = ctx.formParam(("message"));
-    JSONObject jsonObject = new JSONObject(messageJson);
+    MessageModel model;
+    try {
+      model = Json.parse(ctx.formParam("message"), MessageModel.class);
+    } catch (IllegalArgumentException e) {
+      ctx.status(HttpStatus.BAD_REQUEST_400);
+      ctx.result("Bad request - error in message data");
+      ctx.contentType(ContentType.JSON);
+      return;
+    }
 
     // TODO: Details
     //Details details = new Details();
@@ -88,11 +100,11 @@ public class Message implements Tag {
     Date date = cal.getTime();
 
     MessageDTO message = new MessageDTO.Builder()
-      .setMessageString(jsonObject.getString(MESSAGE_STRING))
-      .setCategory(jsonObject.getString(MESSAGE_CATEGORY))
-      .setPlaygroundID(jsonObject.getString("playgroundID"))
+      .setMessageString(model.messageString)
+      .setCategory(model.category)
+      .setPlaygroundID(model.playgroundID)
       .setDate(date)
-      .setHasImage(jsonObject.getBoolean(MESSAGE_HASIMAGE))
+      .setHasImage(model.hasImage)
       .build();
 
     try {
@@ -101,7 +113,7 @@ public class Message implements Tag {
       System.out.println("Server: No message image was added...");
     }
 
-    if (Controller.getInstance().createPlaygroundMessage(jsonObject.getString("playgroundID"), message).wasAcknowledged()) { //PLAYGROUND_ID
+    if (Controller.getInstance().createPlaygroundMessage(model.playgroundID, message).wasAcknowledged()) { //PLAYGROUND_ID
       ctx.status(200).result("Message posted");
       ctx.json(Controller.getInstance().getMessage(message.getID()));
       if (bufferedImage != null) {
@@ -118,9 +130,19 @@ public class Message implements Tag {
   public static Handler updatePlaygroundMessage = ctx -> {
 
     BufferedImage bufferedImage = null;
-    String messageJson = ctx.formParam(("message"));
-    JSONObject jsonObject = new JSONObject(messageJson);
-    MessageDTO message = Controller.getInstance().getMessage(jsonObject.getString("id"));
+    MessageUpdateModel model;
+    try {
+      model = Json.parse(ctx.formParam("message"), MessageUpdateModel.class);
+    } catch (IllegalArgumentException e) {
+      ctx.status(HttpStatus.BAD_REQUEST_400);
+      ctx.result("Bad request - error in message data");
+      ctx.contentType(ContentType.JSON);
+      return;
+    }
+    MessageDTO message = Controller.getInstance().getMessage(model.id);
+    if (!Shared.checkIfMatch(ctx, message.getVersion()))
+      return;
+    DBObject readState = QueryUtils.snapshot(message);
 
     // TODO Hvordan kommer den detail parameter til at foregå?
     /*
@@ -137,22 +159,22 @@ public class Message implements Tag {
       message.setDate(cal.getTime());
     }*/
 
-    if (jsonObject.get(MESSAGE_CATEGORY) != null)
-      message.setCategory(jsonObject.getString(MESSAGE_CATEGORY));
+    if (model.category != null)
+      message.setCategory(model.category);
 
     /*if (jsonObject.get(MESSAGE_ICON) != null)
       message.setIcon(jsonObject.getString(MESSAGE_ICON));*/
 
-    if (jsonObject.get(MESSAGE_STRING) != null)
-      message.setMessageString(jsonObject.getString(MESSAGE_STRING));
+    if (model.messageString != null)
+      message.setMessageString(model.messageString);
 
-    if (jsonObject.get("playgroundID") != null) //PLAYGROUND_ID
-      message.setPlaygroundID(jsonObject.getString("playgroundID"));
+    if (model.playgroundID != null) //PLAYGROUND_ID
+      message.setPlaygroundID(model.playgroundID);
 
-    if (jsonObject.get(MESSAGE_WRITTENBY_ID) != null)
-      message.setWrittenByID(MESSAGE_WRITTENBY_ID);
+    if (model.writtenByID != null)
+      message.setWrittenByID(model.writtenByID);
 
-    message.setHasImage(jsonObject.getBoolean("hasImage"));
+    message.setHasImage(model.hasImage);
 
     try {
       bufferedImage = ImageIO.read(ctx.uploadedFile("image").getContent());
@@ -160,8 +182,19 @@ public class Message implements Tag {
       System.out.println("Server: No message image was added...");
     }
 
-    if (Controller.getInstance().updatePlaygroundMessage(message).wasAcknowledged()) {
+    WriteResult wr;
+    try {
+      wr = Controller.getInstance().updatePlaygroundMessage(message, readState);
+    } catch (VersionConflictException e) {
+      ctx.status(HttpStatus.CONFLICT_409);
+      ctx.result("Conflict - message was modified by another request");
+      ctx.contentType(ContentType.JSON);
+      return;
+    }
+
+    if (wr.wasAcknowledged()) {
       ctx.status(200).result("Updated message with ID: " + message.getID());
+      ctx.header(HttpHeader.ETAG.asString(), Shared.etag(message.getVersion()));
       ctx.json(Controller.getInstance().getMessage(message.getID()));
       if (bufferedImage != null) {
         saveMessageImage(message.getID(), bufferedImage);
@@ -0,0 +1,180 @@
+package resources;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import database.PlaygroundBus;
+import io.javalin.http.sse.SseClient;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Server-Sent Events of new messages, new events and sign-ups on a playground, fed by PlaygroundBus.
+ * <p>
+ * Javalin parks an SSE request in an async context, so an idle stream holds a socket but no thread.
+ * Each stream gets a bounded queue that a small pool of writer threads drains. A stream whose queue
+ * is full is closed, so a slow client never holds back the write that published or other streams -
+ * the browser's EventSource reconnects on its own and re-reads the lists.
+ */
+public class Notifications {
+  static final int QUEUE_SIZE = 64;
+  // below Jetty's 30 s idle timeout, and lets writes to dead connections find them
+  private static final long PING_INTERVAL_SECONDS = 15;
+  private static final int WRITER_THREADS = 8;
+  private static final Map<String, Topic> topics = new ConcurrentHashMap<>();
+  private static final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+  private static final AtomicInteger evictions = new AtomicInteger();
+  private static final ExecutorService writers = Executors.newFixedThreadPool(WRITER_THREADS, daemon("sse-writer-"));
+  private static final ScheduledExecutorService pinger = Executors.newSingleThreadScheduledExecutor(daemon("sse-ping-"));
+
+  static {
+    pinger.scheduleAtFixedRate(Notifications::ping, PING_INTERVAL_SECONDS, PING_INTERVAL_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /**
+   * GET with Accept: text/event-stream
+   */
+  public static Consumer<SseClient> playgroundStream = client -> {
+    String playgroundName = client.ctx.pathParam("name");
+    Subscriber subscriber = new Subscriber(client, playgroundName);
+    subscribers.add(subscriber);
+    topics.compute(playgroundName, (name, topic) -> {
+      Topic joined = topic == null ? new Topic(name) : topic;
+      joined.subscribers.add(subscriber);
+      return joined;
+    });
+    client.onClose(subscriber::close);
+    subscriber.offer(new Frame("connected", "\"" + playgroundName + "\"", null));
+  };
+
+  public static int getOpenStreams() {
+    return subscribers.size();
+  }
+
+  public static int getEvictions() {
+    return evictions.get();
+  }
+
+  private static void ping() {
+    Frame ping = new Frame("ping", "{}", null);
+    for (Subscriber subscriber : subscribers)
+      subscriber.offer(ping);
+  }
+
+  private static ThreadFactory daemon(String namePrefix) {
+    AtomicInteger threadCount = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * The one bus subscription of a playground with open streams. A notification is encoded once and
+   * offered to the queue of every stream.
+   */
+  private static final class Topic {
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Runnable unsubscribe;
+
+    private Topic(String playgroundName) {
+      unsubscribe = PlaygroundBus.getInstance().subscribe(playgroundName, this::publish);
+    }
+
+    private void publish(PlaygroundBus.Notification notification) {
+      Frame frame;
+      try {
+        frame = new Frame(notification.getType(), Json.MAPPER.writeValueAsString(notification.getData()),
+          String.valueOf(notification.getId()));
+      } catch (JsonProcessingException e) {
+        System.out.println(String.format("Server: Could not encode %s - %s", notification.getType(), e));
+        return;
+      }
+      for (Subscriber subscriber : subscribers)
+        subscriber.offer(frame);
+    }
+  }
+
+  private static final class Subscriber {
+    private final SseClient client;
+    private final String playgroundName;
+    private final BlockingQueue<Frame> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private Subscriber(SseClient client, String playgroundName) {
+      this.client = client;
+      this.playgroundName = playgroundName;
+    }
+
+    /**
+     * Never blocks - a full queue evicts the stream.
+     */
+    private void offer(Frame frame) {
+      if (closed.get()) return;
+      if (!queue.offer(frame)) {
+        evictions.incrementAndGet();
+        close();
+        return;
+      }
+      if (scheduled.compareAndSet(false, true))
+        writers.execute(this::drain);
+    }
+
+    private void drain() {
+      do {
+        Frame frame;
+        while (!closed.get() && (frame = queue.poll()) != null) {
+          try {
+            client.sendEvent(frame.event, frame.data, frame.id);
+          } catch (RuntimeException e) {
+            close();
+          }
+        }
+        scheduled.set(false);
+        // an offer between the last poll and the reset saw scheduled == true and didn't submit
+      } while (!closed.get() && !queue.isEmpty() && scheduled.compareAndSet(false, true));
+    }
+
+    private void close() {
+      if (!closed.compareAndSet(false, true)) return;
+      queue.clear();
+      subscribers.remove(this);
+      topics.computeIfPresent(playgroundName, (name, topic) -> {
+        topic.subscribers.remove(this);
+        if (!topic.subscribers.isEmpty())
+          return topic;
+        topic.unsubscribe.run();
+        return null;
+      });
+      try {
+        client.ctx.req.getAsyncContext().complete();
+      } catch (IllegalStateException e) {
+        // already completed by Jetty after the client went away
+      }
+    }
+  }
+
+  private static final class Frame {
+    private final String event;
+    private final String data;
+    private final String id;
+
+    private Frame(String event, String data, String id) {
+      this.event = event;
+      this.data = data;
+      this.id = id;
+    }
+  }
+}
@@ -13,6 +13,8 @@ public class Path {
   public static class Playground {
     // All playgrounds.
     public static final String PLAYGROUNDS_ALL = "/rest/playgrounds";
+    // Playgrounds within ?radius= metres of ?lat= and ?lon=, nearest first
+    public static final String PLAYGROUNDS_NEAR = "/rest/playgrounds/near";
     // A playground with the given name.
     public static final String PLAYGROUNDS_ONE = "/rest/playgrounds/:name";
     // All employees on a playground
@@ -21,6 +23,8 @@ public class Path {
     public static final String PLAYGROUNDS_ONE_PEDAGOGUE_ONE = "/rest/playgrounds/:name/pedagogues/:username";
     // All events on a playground
     public static final String PLAYGROUNDS_ONE_EVENTS_ALL = "/rest/playgrounds/:playgroundNames/events";
+    // Many events on a playground at once
+    public static final String PLAYGROUNDS_ONE_EVENTS_BULK = "/rest/playgrounds/:playgroundNames/events/bulk";
     // One events on a playground
     public static final String PLAYGROUNDS_ONE_EVENT_ONE = "/rest/playgrounds/:name/events/:id";
     // One event paricipant
@@ -33,6 +37,10 @@ public class Path {
     public static final String PLAYGROUNDS_ONE_MESSAGE_ALL = "/rest/playgrounds/:name/messages";
 
     public static final String PLAYGROUNDS_ONE_PROFILE_PICTURE = "/rest/playgrounds/:name/picture";
+    // Pre-assembled playground with pedagogues, upcoming events and latest messages
+    public static final String PLAYGROUNDS_ONE_VIEW = "/rest/playgrounds/:name/view";
+    // Server-Sent Events of new messages, events and sign-ups
+    public static final String PLAYGROUNDS_ONE_STREAM = "/rest/playgrounds/:name/stream";
   }
 
   public static class User {
@@ -50,8 +58,39 @@ public class Path {
 
   }
 
+  public static class Event {
+    // Events of all playgrounds from ?from= (default today) to ?to=, paged with ?page= and ?size=
+    public static final String EVENTS_UPCOMING = "/rest/events/upcoming";
+  }
+
   public static class Message {
     public static final String MESSAGE_IMAGE_ONE = "/rest/messages/:id/image";
   }
 
+  public static class Stats {
+    // Counts, averages and extremes of users, events, playgrounds and messages
+    public static final String STATS = "/rest/stats";
+  }
+
+  public static class Search {
+    // Playgrounds and messages matching ?q=, ranked and paged with ?page= and ?size=
+    public static final String SEARCH = "/rest/search";
+  }
+
+  public static class Admin {
+    // Rebuild all playground views from the playground, user, event and message collections
+    public static final String ADMIN_PLAYGROUND_VIEWS_REBUILD = "/rest/admin/playground-views/rebuild";
+    // Geocode the playgrounds that have no location
+    public static final String ADMIN_PLAYGROUNDS_GEOCODE = "/rest/admin/playgrounds/geocode";
+    // Rebuild the statistics counters from the collections
+    public static final String ADMIN_STATISTICS_RECONCILE = "/rest/admin/statistics/reconcile";
+    // Move the events dated before today to the archive collection
+    public static final String ADMIN_EVENTS_ARCHIVE = "/rest/admin/events/archive";
+    // Set the participant counter of the events that have none or a wrong one
+    public static final String ADMIN_EVENTS_PARTICIPANTS_BACKFILL = "/rest/admin/events/participants/backfill";
+    // All documents of a collection as NDJSON, and the import of such a file
+    public static final String ADMIN_EXPORT_ONE = "/rest/admin/export/:collection";
+    public static final String ADMIN_IMPORT_ONE = "/rest/admin/import/:collection";
+  }
+
 }
@@ -1,16 +1,23 @@
 package resources;
 
+import com.mongodb.DBObject;
 import com.mongodb.WriteResult;
+import database.AsyncController;
 import database.Controller;
 import database.dto.EventDTO;
 import database.dto.MessageDTO;
 import database.dto.PlaygroundDTO;
 import database.dto.UserDTO;
 import database.exceptions.NoModificationException;
+import database.exceptions.VersionConflictException;
+import database.utils.QueryUtils;
 import io.javalin.http.Handler;
 import io.javalin.plugin.openapi.annotations.ContentType;
+import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpStatus;
-import org.json.JSONObject;
+import resources.RequestModels.DeletePlaygroundModel;
+import resources.RequestModels.PlaygroundModel;
+import resources.RequestModels.PlaygroundUpdateModel;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
@@ -21,21 +28,19 @@ import java.io.InputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashSet;
-import java.util.List;
-import java.util.NoSuchElementException;
 import java.util.Set;
 
 public class Playground implements Tag {
+    private static final int DEFAULT_RADIUS = 2_000;
+    private static final int MAX_RADIUS = 50_000;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
 
     public static Handler deleteOnePlayground = ctx -> {
-        JSONObject jsonObject, deletePlaygroundModel;
-        jsonObject = new JSONObject(ctx.body());
         String playgroundName;
         try {
-            deletePlaygroundModel = jsonObject.getJSONObject("playground");
-            playgroundName = deletePlaygroundModel.getString("name");
-
-        } catch (Exception e) {
+            playgroundName = Json.parse(ctx.body(), DeletePlaygroundModel.class).playground.name;
+        } catch (IllegalArgumentException e) {
             ctx.status(400).result("Bad request - Playground doesn't exist");
             System.out.println("Found no playground");
             return;
@@ -82,61 +87,85 @@ public class Playground implements Tag {
      * GET
      */
     public static Handler readAllPlaygrounds = ctx -> {
-        try {
-            List<PlaygroundDTO> playgrounds = Controller.getInstance().getPlaygrounds();
-            ctx.status(HttpStatus.OK_200);
-            ctx.result("Ok - playgrounds were fetched successfully");
-            ctx.json(playgrounds);
-            ctx.contentType(ContentType.JSON);
-        } catch (NoSuchElementException e) {
-            ctx.status(HttpStatus.NOT_FOUND_404);
-            ctx.result("Not found - no playgrounds in database");
-            ctx.contentType(ContentType.JSON);
-        } catch (Exception e) {
-            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR_500);
-            ctx.result("Internal error - failed to fetch playgrounds in database");
-            ctx.contentType(ContentType.JSON);
-        }
+        ResponseCache.getInstance().respond(ctx, ResponseCache.PLAYGROUNDS,
+                () -> AsyncController.getInstance().getPlaygrounds(),
+                "Not found - no playgrounds in database",
+                "Internal error - failed to fetch playgrounds in database");
     };
     public static Handler readOnePlayground = ctx -> {
-        ctx.json(Controller.getInstance().getPlayground(ctx.pathParam(PLAYGROUND_NAMES))).contentType("json");
+        String name = ctx.pathParam(PLAYGROUND_NAME);
+        ResponseCache.getInstance().respond(ctx, ResponseCache.playground(name),
+                () -> AsyncController.getInstance().getPlayground(name),
+                "Not found - playground does not exist",
+                "Internal error - failed to fetch playground in database");
+    };
+    /**
+     * GET - ?lat=&lon=&radius= in metres, paged with ?page= and ?size=
+     */
+    public static Handler readNearbyPlaygrounds = ctx -> {
+        double latitude, longitude, radius;
+        int page, size;
+        try {
+            latitude = Double.parseDouble(ctx.queryParam("lat", ""));
+            longitude = Double.parseDouble(ctx.queryParam("lon", ""));
+            radius = Double.parseDouble(ctx.queryParam("radius", String.valueOf(DEFAULT_RADIUS)));
+            page = Integer.parseInt(ctx.queryParam("page", "1"));
+            size = Integer.parseInt(ctx.queryParam("size", String.valueOf(DEFAULT_PAGE_SIZE)));
+        } catch (NumberFormatException e) {
+            ctx.status(HttpStatus.BAD_REQUEST_400);
+            ctx.result("Bad request - lat and lon are required, radius, page and size must be numbers");
+            return;
+        }
+        if (Math.abs(latitude) > 90 || Math.abs(longitude) > 180 || radius <= 0 || radius > MAX_RADIUS
+                || page < 1 || size < 1 || size > MAX_PAGE_SIZE) {
+            ctx.status(HttpStatus.BAD_REQUEST_400);
+            ctx.result(String.format("Bad request - radius is 1 to %d metres, page from 1 and size 1 to %d", MAX_RADIUS, MAX_PAGE_SIZE));
+            return;
+        }
 
+        ctx.json(Shared.withStatus(ctx, AsyncController.getInstance().getNearbyPlaygrounds(latitude, longitude, radius, page, size),
+                "Not found - coordinates are not valid",
+                "Internal error - failed to fetch nearby playgrounds in database"));
+    };
+    public static Handler readOnePlaygroundView = ctx -> {
+        ctx.json(Shared.withStatus(ctx, AsyncController.getInstance().getPlaygroundView(ctx.pathParam(PLAYGROUND_NAME)),
+                "Not found - playground does not exist",
+                "Internal error - failed to fetch playground in database"));
     };
     public static Handler readOnePlaygroundAllEmployee = ctx -> {
-        ctx.json(Controller.getInstance().getPlayground(ctx.pathParam(PLAYGROUND_NAMES)).getAssignedPedagogue()).contentType("json");
+        ctx.json(Shared.withStatus(ctx, AsyncController.getInstance().getPlayground(ctx.pathParam(PLAYGROUND_NAMES))
+                        .thenApply(PlaygroundDTO::getAssignedPedagogue),
+                "Not found - playground does not exist",
+                "Internal error - failed to fetch pedagogues in database"));
     };
     public static Handler readOnePlaygroundOneEmployee = ctx -> {
-        ctx.json(Controller.getInstance().getUser(ctx.pathParam(USER_NAME))).contentType("json");
+        ctx.json(Shared.withStatus(ctx, AsyncController.getInstance().getUser(ctx.pathParam(USER_NAME)),
+                "Not found - user does not exist",
+                "Internal error - failed to fetch user in database"));
     };
     /**
      * POST
      */
     public static Handler createPlayground = ctx -> {
 
-        String name, streetName, streetNumber, commune, imageText, descriptionText;
-        int zipCode;
-        String playgroundModel = ctx.formParam(("playgroundModel"));
-        JSONObject jsonObject = new JSONObject(playgroundModel);
-
+        PlaygroundModel model;
         try {
-            name = jsonObject.getString("name");
-            streetName = jsonObject.getString("streetName");
-            commune = jsonObject.getString("commune");
-            zipCode = jsonObject.getInt("zipCode");
-            imageText = jsonObject.getString("imageText");
-            descriptionText = jsonObject.getString("descriptionText");
-        } catch (NoSuchElementException e) {
-            e.printStackTrace();
+            model = Json.parse(ctx.formParam("playgroundModel"), PlaygroundModel.class);
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST_400);
+            ctx.result("Bad request - error in playground data");
+            ctx.contentType(ContentType.JSON);
             return;
         }
 
-        PlaygroundDTO playground = new PlaygroundDTO.Builder(name)
-                .setStreetName(streetName)
-                .setZipCode(zipCode)
-                .setCommune(commune)
+        PlaygroundDTO playground = new PlaygroundDTO.Builder(model.name)
+                .setStreetName(model.streetName)
+                .setZipCode(model.zipCode)
+                .setCommune(model.commune)
                 .setToiletPossibilities(true)
-                .setImageText(imageText)
-                .setDescriptionText(descriptionText)
+                .setImageText(model.imageText)
+                .setDescriptionText(model.descriptionText)
+                .setLocation(model.location())
                 .build();
 
         WriteResult ws = Controller.getInstance().createPlayground(playground);
@@ -147,71 +176,100 @@ public class Playground implements Tag {
             ctx.status(401).result("Playground was not created");
         }
     };
+    public static Handler geocodePlaygrounds = ctx -> {
+        int geocoded = Controller.getInstance().geocodePlaygrounds();
+        ctx.status(HttpStatus.OK_200);
+        ctx.result(String.format("Ok - %d playgrounds were given a location", geocoded));
+        ctx.contentType(ContentType.JSON);
+    };
+    public static Handler rebuildPlaygroundViews = ctx -> {
+        Controller.getInstance().rebuildPlaygroundViews();
+        ctx.status(HttpStatus.OK_200);
+        ctx.result("Ok - playground views were rebuilt");
+        ctx.contentType(ContentType.JSON);
+    };
     /**
      * PUT
      */
     public static Handler updatePlayground = ctx -> {
+        PlaygroundUpdateModel model;
+        try {
+            model = Json.parse(ctx.body(), PlaygroundUpdateModel.class);
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST_400);
+            ctx.result("Bad request - error in playground data");
+            ctx.contentType(ContentType.JSON);
+            return;
+        }
         PlaygroundDTO playground = Controller.getInstance().getPlayground(ctx.pathParam(PLAYGROUND_NAMES));
-        JSONObject jsonObject = new JSONObject(ctx.body());
         if (playground != null) {
-            if (jsonObject.has(PLAYGROUND_STREET_NAME))
-                playground.setStreetName(jsonObject.getString(PLAYGROUND_STREET_NAME));
+            if (!Shared.checkIfMatch(ctx, playground.getVersion(), ResponseCache.etag(playground)))
+                return;
+            DBObject readState = QueryUtils.snapshot(playground);
 
-            if (jsonObject.has(PLAYGROUND_PEDAGOGUES)) {
+            if (model.streetName != null)
+                playground.setStreetName(model.streetName);
+
+            if (model.pedagogues != null) {
                 Set<UserDTO> pedagoges = new HashSet<>();
 
-                for (int i = 0; i < jsonObject.getJSONArray(PLAYGROUND_PEDAGOGUES).length(); i++) {
-                    String username = jsonObject.getJSONArray(PLAYGROUND_PEDAGOGUES).getString(i);
+                for (String username : model.pedagogues) {
                     pedagoges.add(Controller.getInstance().getUser(username));
                 }
                 playground.setAssignedPedagogue(pedagoges);
             }
 
-            if (jsonObject.has(PLAYGROUND_COMMUNE))
-                playground.setCommune(jsonObject.getString(PLAYGROUND_COMMUNE));
+            if (model.commune != null)
+                playground.setCommune(model.commune);
 
-            if (jsonObject.has(PLAYGROUND_EVENTS)) {
+            if (model.events != null) {
                 Set<EventDTO> eventSet = new HashSet<>();
-                for (int i = 0; i < jsonObject.getJSONArray(PLAYGROUND_EVENTS).length(); i++) {
-                    String eventid = jsonObject.getJSONArray(PLAYGROUND_EVENTS).getJSONObject(i).getString(PLAYGROUND_EVENTS);
+                for (String eventid : model.eventIds()) {
                     eventSet.add(Controller.getInstance().getEvent(eventid));
                 }
                 playground.setEvents(eventSet);
             }
-            if (jsonObject.has(PLAYGROUND_HASSOCCERFIELD))
-                playground.setHasSoccerField(jsonObject.getBoolean(PLAYGROUND_HASSOCCERFIELD));
+            if (model.hasSoccerField != null)
+                playground.setHasSoccerField(model.hasSoccerField);
 
-            if (jsonObject.has(PLAYGROUND_ID))
-                playground.setId(jsonObject.getString(PLAYGROUND_ID));
+            if (model.id != null)
+                playground.setId(model.id);
 
-            if (jsonObject.has(PLAYGROUND_IMAGEPATH))
-                playground.setImagePath(jsonObject.getString(PLAYGROUND_IMAGEPATH));
+            if (model.imagepath != null)
+                playground.setImagePath(model.imagepath);
 
-            if (jsonObject.has(PLAYGROUND_MESSAGES)) {
+            if (model.messages != null) {
                 Set<MessageDTO> messagesSet = new HashSet<>();
-                for (int i = 0; i < jsonObject.getJSONArray(PLAYGROUND_MESSAGE_ID).length(); i++) {
-                    String messageid = jsonObject.getJSONArray(PLAYGROUND_MESSAGE_ID).getJSONObject(i).getString(PLAYGROUND_MESSAGE_ID);
+                for (String messageid : model.messageIds()) {
                     messagesSet.add(Controller.getInstance().getMessage(messageid));
                 }
                 playground.setMessages(messagesSet);
             }
 
-            if (jsonObject.has(PLAYGROUND_STREET_NUMBER))
-                playground.setStreetNumber(jsonObject.getInt(PLAYGROUND_STREET_NUMBER));
+            if (model.streetNumber != null)
+                playground.setStreetNumber(model.streetNumber);
+
+            if (model.toilets != null)
+                playground.setToiletPossibilities(model.toilets);
 
-            if (jsonObject.has(PLAYGROUND_TOILETS))
-                playground.setToiletPossibilities(jsonObject.getBoolean(PLAYGROUND_TOILETS));
+            if (model.zipCode != null)
+                playground.setZipCode(model.zipCode);
 
-            if (jsonObject.has(PLAYGROUND_ZIPCODE))
-                playground.setZipCode(jsonObject.getInt(PLAYGROUND_ZIPCODE));
+            if (model.location() != null)
+                playground.setLocation(model.location());
 
             // TODO: remove true and catch exception and set corresponding status code
 
             try {
-                Controller.getInstance().updatePlayground(playground);
+                Controller.getInstance().updatePlayground(playground, readState);
                 ctx.status(HttpStatus.OK_200);
+                ctx.header(HttpHeader.ETAG.asString(), Shared.etag(playground.getVersion()));
                 ctx.result("Successful - playground was updated successfully");
                 ctx.contentType(ContentType.JSON);
+            } catch (VersionConflictException e) {
+                ctx.status(HttpStatus.CONFLICT_409);
+                ctx.result("Conflict - playground was modified by another request");
+                ctx.contentType(ContentType.JSON);
             } catch (NoModificationException e) {
                 ctx.status(HttpStatus.INTERNAL_SERVER_ERROR_500);
                 ctx.result("Internal error - playground could not be updated");
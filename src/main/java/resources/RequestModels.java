@@ -0,0 +1,392 @@
+package resources;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import database.dto.DetailsDTO;
+import database.dto.EventDTO;
+import database.dto.LocationDTO;
+import database.dto.UserDTO;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Typed request bodies of the handlers. They are bound by Json.parse, which calls validate, so a
+ * handler either gets a model with all required fields or an IllegalArgumentException.
+ * Absent optional fields are null.
+ */
+public class RequestModels implements Tag {
+
+  public abstract static class Model {
+    abstract void validate() throws IllegalArgumentException;
+  }
+
+  public static class LoginModel extends Model {
+    public String username;
+    public String password;
+
+    @Override
+    void validate() {
+      require(username, USERNAME);
+      require(password, PASSWORD);
+    }
+  }
+
+  /**
+   * The usermodel form field of create and update user. The admin credentials and playground
+   * names are only there when an admin makes the request.
+   */
+  public static class UserModel extends Model {
+    public String usernameAdmin;
+    public String passwordAdmin;
+    public String username;
+    public String password;
+    public String firstname;
+    public String lastname;
+    public String email;
+    public String status;
+    public String website;
+    public List<String> phoneNumbers;
+    public List<String> playgroundsNames;
+
+    @Override
+    void validate() {
+      require(username, USERNAME);
+      require(password, PASSWORD);
+      require(firstname, FIRSTNAME);
+      require(lastname, LASTNAME);
+      require(email, EMAIL);
+      require(website, WEBSITE);
+      require(phoneNumbers, PHONENUMBERS);
+    }
+
+    public boolean hasAdminCredentials() {
+      return usernameAdmin != null && passwordAdmin != null && playgroundsNames != null;
+    }
+
+    public String[] phoneNumbersArray() {
+      return nonNull(phoneNumbers).toArray(new String[0]);
+    }
+
+    public List<String> playgroundsNamesList() {
+      return nonNull(playgroundsNames);
+    }
+
+    /**
+     * The new user of create user
+     *
+     * @param status status of the user, defaulted by the handler
+     * @return user without playgrounds
+     */
+    public UserDTO toUser(String status) {
+      return new UserDTO.Builder(username)
+        .setPassword(password)
+        .setFirstname(firstname)
+        .setLastname(lastname)
+        .setStatus(status)
+        .setEmail(email)
+        .setWebsite(website)
+        .setImagePath(String.format(IMAGEPATH + "/users/%s/profile-picture", username))
+        .setPhoneNumbers(phoneNumbersArray())
+        .build();
+    }
+  }
+
+  public static class DeleteUserModel extends Model {
+    public UsernameModel deleteUserModel;
+
+    @Override
+    void validate() {
+      require(deleteUserModel, "deleteUserModel");
+      deleteUserModel.validate();
+    }
+  }
+
+  public static class UsernameModel extends Model {
+    public String username;
+
+    @Override
+    void validate() {
+      require(username, USERNAME);
+    }
+  }
+
+  public static class EventModel extends Model {
+    @JsonProperty(PLAYGROUND_NAMES)
+    public String playgroundName;
+    public String name;
+    public String description;
+    public String imagepath;
+    public Integer capacity;
+    public Integer year;
+    public Integer month;
+    public Integer day;
+    @JsonProperty(EVENT_HOUR_START)
+    public Integer hourStart;
+    @JsonProperty(EVENT_MINUTE_START)
+    public Integer minuteStart;
+    @JsonProperty(EVENT_HOUR_END)
+    public Integer hourEnd;
+    @JsonProperty(EVENT_MINUTE_END)
+    public Integer minuteEnd;
+    public List<String> users;
+
+    @Override
+    void validate() {
+      require(playgroundName, PLAYGROUND_NAMES);
+      require(name, EVENT_NAME);
+      require(description, EVENT_DESCRIPTION);
+      require(imagepath, EVENT_IMAGEPATH);
+      require(year, EVENT_YEAR);
+      require(month, EVENT_MONTH);
+      require(day, EVENT_DAY);
+      require(hourStart, EVENT_HOUR_START);
+      require(minuteStart, EVENT_MINUTE_START);
+      require(hourEnd, EVENT_HOUR_END);
+      require(minuteEnd, EVENT_MINUTE_END);
+      require(users, USERS);
+    }
+
+    public DetailsDTO details() {
+      DetailsDTO details = new DetailsDTO();
+      Calendar cal = Calendar.getInstance();
+
+      cal.set(Calendar.YEAR, year);
+      cal.set(Calendar.DAY_OF_MONTH, day);
+      cal.set(Calendar.MONTH, month);
+      details.setDate(cal.getTime());
+
+      cal.set(Calendar.HOUR, hourStart);
+      cal.set(Calendar.MINUTE, minuteStart);
+      details.setStartTime(cal.getTime());
+
+      cal.set(Calendar.HOUR, hourEnd);
+      cal.set(Calendar.MINUTE, minuteEnd);
+      details.setEndTime(cal.getTime());
+      return details;
+    }
+
+    /**
+     * The new event of create event
+     *
+     * @param users assigned users
+     * @return event of playgroundName
+     */
+    public EventDTO toEvent(Set<UserDTO> users) {
+      EventDTO event = new EventDTO();
+      event.setPlayground(playgroundName);
+      event.setName(name);
+      if (capacity != null)
+        event.setCapacity(capacity);
+      event.setImagepath(imagepath);
+      event.setAssignedUsers(users);
+      event.setDetails(details());
+      event.setDescription(description);
+      return event;
+    }
+  }
+
+  /**
+   * Only the fields that are present are updated. Assigned users are given as a list of
+   * {"assignedusers": username} objects.
+   */
+  public static class EventUpdateModel extends Model {
+    public String id;
+    public String name;
+    public String description;
+    public String imagepath;
+    public Integer capacity;
+    public Object details;
+    @JsonProperty(EVENT_ASSIGNED_USERS)
+    public List<Map<String, String>> assignedUsers;
+    @JsonProperty(PLAYGROUND_NAMES)
+    public String playgroundName;
+
+    @Override
+    void validate() {
+    }
+
+    public List<String> assignedUsernames() {
+      return values(assignedUsers, EVENT_ASSIGNED_USERS);
+    }
+  }
+
+  public static class MessageModel extends Model {
+    public String messageString;
+    public String category;
+    public String playgroundID;
+    public Boolean hasImage;
+
+    @Override
+    void validate() {
+      require(messageString, MESSAGE_STRING);
+      require(category, MESSAGE_CATEGORY);
+      require(playgroundID, "playgroundID");
+      require(hasImage, MESSAGE_HASIMAGE);
+    }
+  }
+
+  public static class MessageUpdateModel extends Model {
+    public String id;
+    public String messageString;
+    public String category;
+    public String playgroundID;
+    public String writtenByID;
+    public Boolean hasImage;
+
+    @Override
+    void validate() {
+      require(id, "id");
+      require(hasImage, MESSAGE_HASIMAGE);
+    }
+  }
+
+  /**
+   * The playgroundModel form field of create playground.
+   */
+  public static class PlaygroundModel extends Model {
+    public String name;
+    public String streetName;
+    public String commune;
+    public Integer zipCode;
+    public String imageText;
+    public String descriptionText;
+    // optional, geocoded from the address when absent
+    public Double latitude;
+    public Double longitude;
+
+    @Override
+    void validate() {
+      require(name, "name");
+      require(streetName, "streetName");
+      require(commune, "commune");
+      require(zipCode, "zipCode");
+      require(imageText, "imageText");
+      require(descriptionText, "descriptionText");
+      validateCoordinates(latitude, longitude);
+    }
+
+    public LocationDTO location() {
+      return latitude == null ? null : new LocationDTO(latitude, longitude);
+    }
+  }
+
+  /**
+   * Only the fields that are present are updated. Events and messages are given as lists of
+   * {"events": id} and {"messageid": id} objects.
+   */
+  public static class PlaygroundUpdateModel extends Model {
+    public String id;
+    @JsonProperty(PLAYGROUND_STREET_NAME)
+    public String streetName;
+    @JsonProperty(PLAYGROUND_STREET_NUMBER)
+    public Integer streetNumber;
+    public String commune;
+    @JsonProperty(PLAYGROUND_ZIPCODE)
+    public Integer zipCode;
+    public String imagepath;
+    @JsonProperty(PLAYGROUND_HASSOCCERFIELD)
+    public Boolean hasSoccerField;
+    @JsonProperty(PLAYGROUND_TOILETS)
+    public Boolean toilets;
+    public List<String> pedagogues;
+    public List<Map<String, String>> events;
+    public List<Map<String, String>> messages;
+    public Double latitude;
+    public Double longitude;
+
+    @Override
+    void validate() {
+      validateCoordinates(latitude, longitude);
+    }
+
+    public LocationDTO location() {
+      return latitude == null ? null : new LocationDTO(latitude, longitude);
+    }
+
+    public List<String> eventIds() {
+      return values(events, PLAYGROUND_EVENTS);
+    }
+
+    public List<String> messageIds() {
+      return values(messages, PLAYGROUND_MESSAGE_ID);
+    }
+  }
+
+  public static class DeletePlaygroundModel extends Model {
+    public PlaygroundNameModel playground;
+
+    @Override
+    void validate() {
+      require(playground, "playground");
+      require(playground.name, "name");
+    }
+  }
+
+  public static class PlaygroundNameModel {
+    public String name;
+  }
+
+  /**
+   * The events of POST events/bulk. The items are validated one by one by the handler, so one
+   * invalid event doesn't reject the others.
+   */
+  public static class BulkEventsModel extends Model {
+    public static final int MAX_EVENTS = 500;
+    public List<EventModel> events;
+
+    @Override
+    void validate() {
+      require(events, "events");
+      if (events.isEmpty() || events.size() > MAX_EVENTS)
+        throw new IllegalArgumentException(String.format("events must hold 1 to %d events", MAX_EVENTS));
+    }
+  }
+
+  /**
+   * The usernames of POST participants
+   */
+  public static class BulkParticipantsModel extends Model {
+    public static final int MAX_USERNAMES = 1000;
+    public List<String> usernames;
+
+    @Override
+    void validate() {
+      require(usernames, "usernames");
+      usernames = nonNull(usernames);
+      if (usernames.isEmpty() || usernames.size() > MAX_USERNAMES)
+        throw new IllegalArgumentException(String.format("usernames must hold 1 to %d usernames", MAX_USERNAMES));
+    }
+  }
+
+  private static void require(Object value, String field) {
+    if (value == null)
+      throw new IllegalArgumentException(String.format("%s is missing in request body", field));
+  }
+
+  private static void validateCoordinates(Double latitude, Double longitude) {
+    if ((latitude == null) != (longitude == null))
+      throw new IllegalArgumentException("latitude and longitude must be given together");
+    if (latitude != null && (Math.abs(latitude) > 90 || Math.abs(longitude) > 180))
+      throw new IllegalArgumentException(String.format("%s, %s are not valid coordinates", latitude, longitude));
+  }
+
+  // null elements were skipped before the models were typed, and still are
+  private static List<String> nonNull(List<String> values) {
+    if (values == null) return new ArrayList<>();
+    return values.stream().filter(Objects::nonNull).collect(Collectors.toList());
+  }
+
+  private static List<String> values(List<Map<String, String>> objects, String key) {
+    if (objects == null) return new ArrayList<>();
+    return objects.stream()
+      .filter(Objects::nonNull)
+      .map(object -> object.get(key))
+      .filter(Objects::nonNull)
+      .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,168 @@
+package resources;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.javalin.http.Context;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Already encoded JSON responses of the read-mostly playground endpoints, keyed by route and path
+ * params. A hit is written as bytes with a precomputed ETag and Content-Length, without touching
+ * the database or Jackson. Entries are dropped through the Controller's playground listener, which
+ * is registered in Main.
+ */
+public class ResponseCache {
+  public static final String PLAYGROUNDS = "playgrounds";
+  // below about one packet gzip saves no round trips, Main gives Jetty's GzipHandler the same threshold
+  public static final int MIN_GZIP_SIZE = 1400;
+  static final String GZIP_ETAG_SUFFIX = "--gzip";
+  private static ResponseCache responseCache;
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  // bumped on every invalidation, so a response read before a write isn't cached after it
+  private final AtomicLong generation = new AtomicLong();
+
+  private ResponseCache() {
+  }
+
+  public static synchronized ResponseCache getInstance() {
+    if (responseCache == null) {
+      responseCache = new ResponseCache();
+    }
+    return responseCache;
+  }
+
+  public static String playground(String playgroundName) {
+    return PLAYGROUNDS + "/" + playgroundName;
+  }
+
+  /**
+   * Responds with the cached bytes of key, or loads, encodes and caches them. Failed loads are not
+   * cached and are mapped to a status code like Shared.withStatus does.
+   */
+  public void respond(Context ctx, String key, Supplier<CompletableFuture<?>> loader,
+                      String notFound, String internalError) {
+    Entry entry = entries.get(key);
+    if (entry != null) {
+      ctx.result(write(ctx, entry));
+      return;
+    }
+
+    long readGeneration = generation.get();
+    CompletableFuture<Object> result = Shared.withStatus(ctx, loader.get().thenApply(dto -> {
+      Entry encoded = Entry.encode(dto);
+      // put before checking, an invalidation between a check and a put would be missed
+      entries.put(key, encoded);
+      if (generation.get() != readGeneration)
+        entries.remove(key, encoded);
+      return encoded;
+    }), notFound, internalError);
+
+    ctx.result(result.thenApply(body -> body instanceof Entry
+      ? write(ctx, (Entry) body)
+      : new ByteArrayInputStream(Entry.json(body))));
+    ctx.contentType("application/json");
+  }
+
+  /**
+   * The ETag respond sends for dto, without the encoding suffix. Updates accept it in If-Match,
+   * since it is what clients of the cached endpoints have.
+   */
+  public static String etag(Object dto) {
+    return Entry.etag(Entry.json(dto));
+  }
+
+  /**
+   * Drops the entries showing the playground, or all entries when playgroundName is null.
+   */
+  public void invalidate(String playgroundName) {
+    generation.incrementAndGet();
+    if (playgroundName == null) {
+      entries.clear();
+      return;
+    }
+    entries.remove(PLAYGROUNDS);
+    entries.remove(playground(playgroundName));
+  }
+
+  private static ByteArrayInputStream write(Context ctx, Entry entry) {
+    String acceptEncoding = ctx.header(HttpHeader.ACCEPT_ENCODING.asString());
+    boolean gzip = entry.gzipped != null && acceptEncoding != null && acceptEncoding.contains("gzip");
+    String etag = gzip ? entry.etag.replaceFirst("\"$", GZIP_ETAG_SUFFIX + "\"") : entry.etag;
+
+    ctx.header(HttpHeader.VARY.asString(), HttpHeader.ACCEPT_ENCODING.asString());
+    ctx.header(HttpHeader.ETAG.asString(), etag);
+    ctx.contentType("application/json");
+
+    String ifNoneMatch = ctx.header(HttpHeader.IF_NONE_MATCH.asString());
+    if (ifNoneMatch != null && (ifNoneMatch.contains(entry.etag) || ifNoneMatch.contains(etag))) {
+      ctx.status(HttpStatus.NOT_MODIFIED_304);
+      return new ByteArrayInputStream(new byte[0]);
+    }
+
+    byte[] body = gzip ? entry.gzipped : entry.body;
+    if (gzip)
+      ctx.header(HttpHeader.CONTENT_ENCODING.asString(), "gzip");
+    ctx.header(HttpHeader.CONTENT_LENGTH.asString(), String.valueOf(body.length));
+    return new ByteArrayInputStream(body);
+  }
+
+  private static final class Entry {
+    private final byte[] body;
+    private final byte[] gzipped;
+    private final String etag;
+
+    private Entry(byte[] body, byte[] gzipped, String etag) {
+      this.body = body;
+      this.gzipped = gzipped;
+      this.etag = etag;
+    }
+
+    static Entry encode(Object dto) {
+      byte[] body = json(dto);
+      return new Entry(body, body.length < MIN_GZIP_SIZE ? null : gzip(body), etag(body));
+    }
+
+    static byte[] json(Object value) {
+      try {
+        return Json.MAPPER.writeValueAsBytes(value);
+      } catch (JsonProcessingException e) {
+        throw new IllegalStateException("Response could not be serialized", e);
+      }
+    }
+
+    private static byte[] gzip(byte[] body) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+      try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+        gzip.write(body);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return out.toByteArray();
+    }
+
+    private static String etag(byte[] body) {
+      try {
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(body);
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < 8; i++)
+          sb.append(String.format("%02x", hash[i]));
+        return sb.append('"').toString();
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e); // every JVM has SHA-256
+      }
+    }
+  }
+}
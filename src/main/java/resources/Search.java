@@ -0,0 +1,33 @@
+package resources;
+
+import io.javalin.http.Handler;
+import org.eclipse.jetty.http.HttpStatus;
+import search.SearchIndex;
+
+/**
+ * Full-text search over playgrounds and messages
+ */
+public class Search {
+
+  /**
+   * GET - ?q=words&amp;page=1&amp;size=20
+   */
+  public static Handler search = ctx -> {
+    String query = ctx.queryParam("q");
+    if (query == null || query.isBlank()) {
+      ctx.status(HttpStatus.BAD_REQUEST_400);
+      ctx.result("Bad request - missing query parameter q");
+      return;
+    }
+
+    try {
+      int page = Integer.parseInt(ctx.queryParam("page", "1"));
+      int size = Integer.parseInt(ctx.queryParam("size", String.valueOf(SearchIndex.DEFAULT_PAGE_SIZE)));
+      ctx.json(SearchIndex.getInstance().search(query, page, size));
+    } catch (IllegalArgumentException e) {
+      // NumberFormatException is one too
+      ctx.status(HttpStatus.BAD_REQUEST_400);
+      ctx.result("Bad request - " + e.getMessage());
+    }
+  };
+}
@@ -2,7 +2,11 @@ package resources;
 
 import database.Controller;
 import database.dto.UserDTO;
+import database.dto.Versioned;
+import database.exceptions.UnavailableException;
 import io.javalin.http.Context;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpStatus;
 import org.mindrot.jbcrypt.BCrypt;
 
 import javax.mail.Message;
@@ -14,8 +18,14 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.util.NoSuchElementException;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 
 public class Shared {
+  public static final String SERVICE_UNAVAILABLE = "Service unavailable - try again later";
+  private static final String RETRY_AFTER_SECONDS = "1";
+
   public static boolean checkAdminCredentials(String username, String password, Context ctx) {
     UserDTO admin;
     //Hent admin - den der opretter brugeren
@@ -47,6 +57,128 @@ public class Shared {
     }
   }
 
+  /**
+   * Maps a failed asynchronous read to a status code and message, so the future can be passed
+   * straight to ctx.json and the request thread is released while the query runs.
+   */
+  public static CompletableFuture<Object> withStatus(Context ctx, CompletableFuture<?> future,
+                                                     String notFound, String internalError) {
+    return future.handle((result, e) -> {
+      if (e == null) return result;
+
+      Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+      if (cause instanceof NoSuchElementException || cause instanceof IllegalArgumentException) {
+        ctx.status(HttpStatus.NOT_FOUND_404);
+        return notFound;
+      }
+      if (cause instanceof UnavailableException) {
+        unavailable(ctx);
+        return SERVICE_UNAVAILABLE;
+      }
+      ctx.status(HttpStatus.INTERNAL_SERVER_ERROR_500);
+      return internalError;
+    });
+  }
+
+  /**
+   * Status 503 with Retry-After, for reads that could not be completed now but may be retried.
+   */
+  public static void unavailable(Context ctx) {
+    ctx.status(HttpStatus.SERVICE_UNAVAILABLE_503);
+    ctx.header(HttpHeader.RETRY_AFTER.asString(), RETRY_AFTER_SECONDS);
+  }
+
+  /**
+   * Sets the ETag of a versioned document once it is read, so clients can send it back in If-Match.
+   */
+  public static <T extends Versioned> CompletableFuture<T> withETag(Context ctx, CompletableFuture<T> future) {
+    return future.thenApply(dto -> {
+      ctx.header(HttpHeader.ETAG.asString(), etag(dto.getVersion()));
+      return dto;
+    });
+  }
+
+  public static String etag(long version) {
+    return "\"" + version + "\"";
+  }
+
+  /**
+   * ETag of a list that belongs to a playground. The playground id is part of it, so a playground
+   * that is deleted and created again with the same name doesn't repeat old tokens.
+   */
+  public static String changeToken(String playgroundID, long counter) {
+    return "\"" + playgroundID + "-" + counter + "\"";
+  }
+
+  /**
+   * Answers 304 without running read when If-None-Match holds the current change token. The token
+   * is looked up before the read, so the ETag sent with a body is never newer than the body. When
+   * the token can't be looked up the read runs as usual, without an ETag.
+   *
+   * @param token future change token, see changeToken
+   * @param read  the actual read, mapped with withStatus
+   * @return future body, or null when the client's copy is current
+   */
+  public static CompletableFuture<Object> unlessNotModified(Context ctx, CompletableFuture<String> token,
+                                                            Supplier<CompletableFuture<Object>> read) {
+    return token.handle((current, e) -> e == null ? current : null).thenCompose(current -> {
+      if (current != null) {
+        ctx.header(HttpHeader.ETAG.asString(), current);
+        if (matchesIfNoneMatch(ctx, current)) {
+          ctx.status(HttpStatus.NOT_MODIFIED_304);
+          return CompletableFuture.completedFuture(null);
+        }
+      }
+      return read.get();
+    });
+  }
+
+  private static boolean matchesIfNoneMatch(Context ctx, String current) {
+    String ifNoneMatch = ctx.header(HttpHeader.IF_NONE_MATCH.asString());
+    if (ifNoneMatch == null)
+      return false;
+
+    for (String tag : ifNoneMatch.split(",")) {
+      String trimmed = tag.trim();
+      if (trimmed.equals("*") || trimmed.replaceFirst("^W/", "").equals(current))
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * Checks the If-Match header of an update against the version that was read. A missing header
+   * means the client doesn't use conditional updates, so the update is allowed.
+   *
+   * @return false and status 412 when the client edited another version than the stored one
+   */
+  public static boolean checkIfMatch(Context ctx, long version) {
+    return checkIfMatch(ctx, version, null);
+  }
+
+  /**
+   * Like checkIfMatch, for documents read through the ResponseCache. Their GET sends the ETag of
+   * the encoded body, which is accepted too, with or without the gzip suffix.
+   *
+   * @param cachedTag ResponseCache.etag of the document as it was read
+   */
+  public static boolean checkIfMatch(Context ctx, long version, String cachedTag) {
+    String ifMatch = ctx.header(HttpHeader.IF_MATCH.asString());
+    if (ifMatch == null || ifMatch.trim().equals("*"))
+      return true;
+
+    for (String tag : ifMatch.split(",")) {
+      String trimmed = tag.trim().replaceFirst("^W/", "").replace(ResponseCache.GZIP_ETAG_SUFFIX + "\"", "\"");
+      if (trimmed.equals(etag(version)) || trimmed.equals(cachedTag))
+        return true;
+    }
+
+    ctx.status(HttpStatus.PRECONDITION_FAILED_412);
+    ctx.result(String.format("Precondition failed - current version is %s", etag(version)));
+    ctx.contentType("json");
+    return false;
+  }
+
   public static void printImage(BufferedImage bufferedImage) {
     JFrame frame = new JFrame();
     frame.setBounds(10, 10, 900, 600);
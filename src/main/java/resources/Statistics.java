@@ -0,0 +1,34 @@
+package resources;
+
+import database.AsyncController;
+import io.javalin.http.Handler;
+import org.eclipse.jetty.http.HttpStatus;
+import stats.LiveStatistics;
+
+/**
+ * The statistics of the SOAP service as JSON
+ */
+public class Statistics {
+
+  /**
+   * GET - the running counters, or ?exact=true to aggregate the collections
+   */
+  public static Handler readStatistics = ctx -> {
+    if (Boolean.parseBoolean(ctx.queryParam("exact"))) {
+      ctx.json(Shared.withStatus(ctx, AsyncController.getInstance().getStatistics(),
+        "Couldn't compute statistics",
+        "Internal error - failed to aggregate statistics in database"));
+      return;
+    }
+    ctx.json(LiveStatistics.getInstance().getStatistics());
+  };
+
+  /**
+   * POST - rebuild the running counters from the collections
+   */
+  public static Handler reconcileStatistics = ctx -> {
+    LiveStatistics.getInstance().reconcile();
+    ctx.status(HttpStatus.OK_200);
+    ctx.json(LiveStatistics.getInstance().getStatistics());
+  };
+}
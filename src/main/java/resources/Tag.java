@@ -15,12 +15,14 @@ public interface Tag {
   String EVENT_ASSIGNED_USERS = "assignedusers";
   String EVENT_IMAGEPATH = "imagepath";
   String EVENT_PARTICIPANTS = "participants";
+  String EVENT_CAPACITY = "capacity";
   String EVENT_DETAILS = "details";
 
   String USERS = "users";
   String USER_NAME = "username";
 
   String PLAYGROUND_ID = "id";
+  String PLAYGROUND_NAME = "name";
   String PLAYGROUND_NAMES = "playgroundNames";
   String PLAYGROUND_STREET_NAME = "streetname";
   String PLAYGROUND_STREET_NUMBER = "streetnumber";
@@ -0,0 +1,63 @@
+package resources;
+
+import database.Controller;
+import database.IController;
+import database.utils.Ndjson;
+import io.javalin.http.Handler;
+import org.eclipse.jetty.http.HttpStatus;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Export and import of whole collections as NDJSON, streamed between the database and the request
+ */
+public class Transfer {
+
+  /**
+   * GET - admin only
+   */
+  public static Handler exportCollection = ctx -> {
+    String collection = ctx.pathParam("collection");
+    if (!Ndjson.COLLECTIONS.contains(collection)) {
+      ctx.status(HttpStatus.NOT_FOUND_404);
+      ctx.result(String.format("Not found - collections are %s", Ndjson.COLLECTIONS));
+      return;
+    }
+
+    ctx.contentType(Ndjson.CONTENT_TYPE);
+    ctx.header("Content-Disposition", String.format("attachment; filename=\"%s%s\"", collection, Ndjson.FILE_SUFFIX));
+    Ndjson.export(Controller.getInstance().getDataSource(), collection, ctx.res.getOutputStream());
+  };
+
+  /**
+   * POST - admin only, the body is NDJSON as written by exportCollection
+   */
+  public static Handler importCollection = ctx -> {
+    String collection = ctx.pathParam("collection");
+    if (!Ndjson.COLLECTIONS.contains(collection)) {
+      ctx.status(HttpStatus.NOT_FOUND_404);
+      ctx.result(String.format("Not found - collections are %s", Ndjson.COLLECTIONS));
+      return;
+    }
+
+    IController controller = Controller.getInstance();
+    long imported;
+    try {
+      imported = Ndjson.importInto(controller.getDataSource(), collection, ctx.req.getInputStream());
+    } catch (IllegalArgumentException e) {
+      ctx.status(HttpStatus.BAD_REQUEST_400);
+      ctx.result("Bad request - " + e.getMessage());
+      return;
+    } finally {
+      // the import bypassed the statistics, the search index, the views and the change counters
+      controller.onCollectionImported();
+    }
+
+    Map<String, Object> result = new HashMap<>();
+    result.put("collection", collection);
+    result.put("imported", imported);
+    ctx.status(HttpStatus.OK_200);
+    ctx.json(result);
+  };
+}
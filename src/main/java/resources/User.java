@@ -2,19 +2,23 @@ package resources;
 
 import brugerautorisation.data.Bruger;
 import brugerautorisation.transport.rmi.Brugeradmin;
+import com.mongodb.DBObject;
 import com.mongodb.MongoException;
 import database.Controller;
 import database.dto.UserDTO;
 import database.exceptions.NoModificationException;
+import database.exceptions.VersionConflictException;
+import database.utils.QueryUtils;
 import io.javalin.http.Handler;
 import io.javalin.plugin.openapi.annotations.*;
 import javalinjwt.examples.JWTResponse;
+import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpStatus;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-import org.json.JSONString;
 import org.mindrot.jbcrypt.BCrypt;
+import resources.RequestModels.DeleteUserModel;
+import resources.RequestModels.LoginModel;
+import resources.RequestModels.UserModel;
+import resources.RequestModels.UsernameModel;
 
 import javax.imageio.ImageIO;
 import javax.mail.MessagingException;
@@ -43,13 +47,15 @@ public class User implements Tag {
    * - Gustav
    */
   public static Handler deleteUser = ctx -> {
-    JSONObject jsonObject, deleteUserModel;
-    jsonObject = new JSONObject(ctx.body());
-    deleteUserModel = jsonObject.getJSONObject("deleteUserModel");
-
-    //    String usernameAdmin = deleteUserModel.getString(USERNAME_ADMIN);
-    //    String passwordAdmin = deleteUserModel.getString(PASSWORD_ADMIN);
-    String username = deleteUserModel.getString(USERNAME);
+    String username;
+    try {
+      username = Json.parse(ctx.body(), DeleteUserModel.class).deleteUserModel.username;
+    } catch (IllegalArgumentException e) {
+      ctx.status(HttpStatus.BAD_REQUEST_400);
+      ctx.result("Bad request - Body has no username");
+      ctx.contentType(ContentType.JSON);
+      return;
+    }
 
     //    boolean adminAuthorized = Shared.checkAdminCredentials(usernameAdmin, passwordAdmin, ctx);
     //    if (!adminAuthorized) {
@@ -145,32 +151,25 @@ public class User implements Tag {
     summary = "Create user",
     path = "/main/employee/create",
     tags = {"User"},
-    formParams = {@OpenApiFormParam(name = "usermodel", type = JSONString.class, required = true)},
+    formParams = {@OpenApiFormParam(name = "usermodel", type = String.class, required = true)},
     description = "usermodel containing credentials of the admin and the user the data of the user to be created",
     responses = {
       @OpenApiResponse(status = "201", content = {@OpenApiContent(from = User.class)})
     }
   )
   public static Handler createUser = ctx -> {
-    String usernameAdmin, passwordAdmin, username, password,
-      firstName, lastName, email, status, website;
-    JSONArray phoneNumbers, playgroundIDs = null;
-    JSONObject jsonObject;
+    UserModel model;
+    String username, status;
 
     try {
-      String usermodel = ctx.formParam(("usermodel"));
-      jsonObject = new JSONObject(usermodel);
-      username = jsonObject.getString(USERNAME);
-      password = jsonObject.getString(PASSWORD);
-      firstName = jsonObject.getString(FIRSTNAME);
-      lastName = jsonObject.getString(LASTNAME);
-      email = jsonObject.getString(EMAIL);
-      website = jsonObject.getString(WEBSITE);
-      phoneNumbers = jsonObject.getJSONArray(PHONENUMBERS);
-      status = jsonObject.getString(STATUS);
+      model = Json.parse(ctx.formParam("usermodel"), UserModel.class);
+      username = model.username;
+      status = model.status;
+      if (status == null) throw new IllegalArgumentException(STATUS + " is missing in request body");
       if (status.isEmpty()) status = "client"; //TODO: create an enum
-      if (username.isEmpty() || password.isEmpty() || firstName.isEmpty()) throw new NullPointerException();
-    } catch (JSONException | NullPointerException e) {
+      if (username.isEmpty() || model.password.isEmpty() || model.firstname.isEmpty())
+        throw new IllegalArgumentException("username, password and firstname can't be empty");
+    } catch (IllegalArgumentException e) {
       ctx.status(HttpStatus.BAD_REQUEST_400);
       ctx.result("Bad request - error in user data");
       ctx.contentType(ContentType.JSON);
@@ -178,21 +177,16 @@ public class User implements Tag {
     }
 
     // check if admin user can create another user
-    boolean privileges = true;
-    try {
-      usernameAdmin = jsonObject.getString(USERNAME_ADMIN);
-      passwordAdmin = jsonObject.getString(PASSWORD_ADMIN);
-      playgroundIDs = jsonObject.getJSONArray(PLAYGROUNDSNAMES);
-      boolean isAdminUpdatingUser = !username.equalsIgnoreCase(usernameAdmin);
-      boolean isAdminAuthorized = Shared.checkAdminCredentials(usernameAdmin, passwordAdmin, ctx);
+    boolean privileges = model.hasAdminCredentials();
+    if (privileges) {
+      boolean isAdminUpdatingUser = !username.equalsIgnoreCase(model.usernameAdmin);
+      boolean isAdminAuthorized = Shared.checkAdminCredentials(model.usernameAdmin, model.passwordAdmin, ctx);
       if (isAdminUpdatingUser && !isAdminAuthorized) {
         ctx.status(HttpStatus.UNAUTHORIZED_401);
-        ctx.json(String.format("Unauthorized - User %s has no privileges to create user %s", usernameAdmin, username));
+        ctx.json(String.format("Unauthorized - User %s has no privileges to create user %s", model.usernameAdmin, username));
         ctx.contentType(ContentType.JSON);
         return;
       }
-    } catch (JSONException e) {
-      privileges = false;
     }
 
     boolean isUsernameAvailable = false;
@@ -210,25 +204,7 @@ public class User implements Tag {
     }
 
     // setup user fields
-    UserDTO newUser = new UserDTO.Builder(username)
-      .setPassword(password)
-      .setFirstname(firstName)
-      .setLastname(lastName)
-      .setStatus(status)
-      .setEmail(email)
-      .setWebsite(website)
-      .setImagePath(String.format(IMAGEPATH + "/users/%s/profile-picture", username))
-      .build();
-
-    // add phone numbers
-    String[] usersNewPhoneNumbers = new String[phoneNumbers.length()];
-    for (int i = 0; i < phoneNumbers.length(); i++) {
-      try {
-        usersNewPhoneNumbers[i] = (String) phoneNumbers.get(i);
-      } catch (ClassCastException e) {
-      }
-    }
-    newUser.setPhoneNumbers(usersNewPhoneNumbers);
+    UserDTO newUser = model.toUser(status);
 
     // add image
     try {
@@ -241,13 +217,7 @@ public class User implements Tag {
     // add references to playgrounds
     if (privileges) {
       try {
-        Set<String> usersNewPGIds = new HashSet<>();
-        for (int i = 0; i < playgroundIDs.length(); i++) {
-          try {
-            usersNewPGIds.add((String) playgroundIDs.get(i));
-          } catch (ClassCastException e) {
-          }
-        }
+        Set<String> usersNewPGIds = new HashSet<>(model.playgroundsNamesList());
         newUser.setPlaygroundsNames(usersNewPGIds);
         Controller.getInstance().createUser(newUser);
         for (String playgroundID : usersNewPGIds) {
@@ -295,10 +265,10 @@ public class User implements Tag {
   public static Handler userLogin = ctx -> {
     String username, password;
     try {
-      JSONObject jsonObject = new JSONObject(ctx.body());
-      username = jsonObject.getString(USERNAME);
-      password = jsonObject.getString(PASSWORD);
-    } catch (JSONException | NullPointerException e) {
+      LoginModel login = Json.parse(ctx.body(), LoginModel.class);
+      username = login.username;
+      password = login.password;
+    } catch (IllegalArgumentException e) {
       ctx.status(HttpStatus.BAD_REQUEST_400);
       ctx.json("Bad request - Body has no username or password");
       ctx.contentType(ContentType.JSON);
@@ -400,30 +370,21 @@ public class User implements Tag {
     summary = "Update one user",
     path = "/main/users",
     tags = {"User"},
-    formParams = {@OpenApiFormParam(name = "usermodel", type = JSONString.class, required = true)},
+    formParams = {@OpenApiFormParam(name = "usermodel", type = String.class, required = true)},
     description = "usermodel containing credentials of the admin and the user the be updated with relevant fields",
     responses = {
       @OpenApiResponse(status = "201", content = {@OpenApiContent(from = User[].class)})
     }
   )
   public static Handler updateUser = ctx -> {
-    String username, password, firstName, lastName, email, website;
-    String usernameAdmin, passwordAdmin, status = null;
-    JSONArray phoneNumbers, playgroundIDs = null;
-    JSONObject jsonObject;
+    UserModel model;
+    String username;
 
     // check if possible to update client
     try {
-      String usermodel = ctx.formParam(("usermodel"));
-      jsonObject = new JSONObject(usermodel);
-      username = jsonObject.getString(USERNAME);
-      password = jsonObject.getString(PASSWORD);
-      firstName = jsonObject.getString(FIRSTNAME);
-      lastName = jsonObject.getString(LASTNAME);
-      email = jsonObject.getString(EMAIL);
-      website = jsonObject.getString(WEBSITE);
-      phoneNumbers = jsonObject.getJSONArray(PHONENUMBERS);
-    } catch (JSONException | NullPointerException e) {
+      model = Json.parse(ctx.formParam("usermodel"), UserModel.class);
+      username = model.username;
+    } catch (IllegalArgumentException e) {
       ctx.status(HttpStatus.BAD_REQUEST_400);
       ctx.result("Bad request - error in user data");
       ctx.contentType(ContentType.JSON);
@@ -431,23 +392,16 @@ public class User implements Tag {
     }
 
     // check if admin user can update another user
-    boolean privileges = true;
-
-    try {
-      usernameAdmin = jsonObject.getString(USERNAME_ADMIN);
-      passwordAdmin = jsonObject.getString(PASSWORD_ADMIN);
-      status = jsonObject.getString(STATUS);
-      playgroundIDs = jsonObject.getJSONArray(PLAYGROUNDSNAMES);
-      boolean isAdminUpdatingUser = !username.equalsIgnoreCase(usernameAdmin);
-      boolean isAdminAuthorized = Shared.checkAdminCredentials(usernameAdmin, passwordAdmin, ctx);
+    boolean privileges = model.hasAdminCredentials() && model.status != null;
+    if (privileges) {
+      boolean isAdminUpdatingUser = !username.equalsIgnoreCase(model.usernameAdmin);
+      boolean isAdminAuthorized = Shared.checkAdminCredentials(model.usernameAdmin, model.passwordAdmin, ctx);
       if (isAdminUpdatingUser && !isAdminAuthorized) {
         ctx.status(HttpStatus.UNAUTHORIZED_401);
-        ctx.json(String.format("Unauthorized - User %s has no privileges to update user %s", usernameAdmin, username));
+        ctx.json(String.format("Unauthorized - User %s has no privileges to update user %s", model.usernameAdmin, username));
         ctx.contentType(ContentType.JSON);
         return;
       }
-    } catch (JSONException e) {
-      privileges = false;
     }
 
     // find user in db
@@ -460,22 +414,17 @@ public class User implements Tag {
       ctx.contentType(ContentType.JSON);
       return;
     }
+    if (!Shared.checkIfMatch(ctx, userToUpdate.getVersion()))
+      return;
+    DBObject readState = QueryUtils.snapshot(userToUpdate);
 
     // update user fields
-    userToUpdate.setFirstname(firstName);
-    userToUpdate.setLastname(lastName);
-    userToUpdate.setEmail(email);
-    userToUpdate.setWebsite(website);
+    userToUpdate.setFirstname(model.firstname);
+    userToUpdate.setLastname(model.lastname);
+    userToUpdate.setEmail(model.email);
+    userToUpdate.setWebsite(model.website);
     userToUpdate.setImagePath(String.format(IMAGEPATH + "/users/%s/profile-picture", username));
-    String[] usersNewPhoneNumbers = new String[phoneNumbers.length()];
-
-    for (int i = 0; i < phoneNumbers.length(); i++) {
-      try {
-        usersNewPhoneNumbers[i] = (String) phoneNumbers.get(i);
-      } catch (ClassCastException e) {
-      }
-    }
-    userToUpdate.setPhoneNumbers(usersNewPhoneNumbers);
+    userToUpdate.setPhoneNumbers(model.phoneNumbersArray());
     try {
       BufferedImage bufferedImage = ImageIO.read(ctx.uploadedFile("image").getContent());
       saveUserPicture(username, bufferedImage);
@@ -484,6 +433,25 @@ public class User implements Tag {
     }
 
     // check if non-trivial data can be updated
+    if (privileges) {
+      userToUpdate.setStatus(model.status);
+    }
+
+    // write the user's own fields first - the playground references below bump the version
+    try {
+      Controller.getInstance().updateUser(userToUpdate, readState);
+    } catch (VersionConflictException e) {
+      ctx.status(HttpStatus.CONFLICT_409);
+      ctx.result("Conflict - user was modified by another request");
+      ctx.contentType(ContentType.JSON);
+      return;
+    } catch (NoModificationException e) {
+      ctx.status(HttpStatus.INTERNAL_SERVER_ERROR_500);
+      ctx.result("Server error - Update user failed");
+      ctx.contentType(ContentType.JSON);
+      return;
+    }
+
     if (privileges) {
       try {
         // remove references to old playgrounds
@@ -494,39 +462,25 @@ public class User implements Tag {
           }
         }
         // add references to new playgrounds
-        Set<String> usersNewPGIds = new HashSet<>();
-        for (int i = 0; i < playgroundIDs.length(); i++) {
-          try {
-            usersNewPGIds.add((String) playgroundIDs.get(i));
-          } catch (ClassCastException e) {
-          }
-        }
+        Set<String> usersNewPGIds = new HashSet<>(model.playgroundsNamesList());
         for (String playgroundID : usersNewPGIds) {
           Controller.getInstance().addPedagogueToPlayground(playgroundID, username);
         }
 
-        userToUpdate.setPlaygroundsNames(usersNewPGIds);
+        userToUpdate = Controller.getInstance().getUser(username);
       } catch (NoSuchElementException | NoModificationException | MongoException e) {
       }
-      userToUpdate.setStatus(status);
     }
 
-    try {
-      Controller.getInstance().updateUser(userToUpdate);
-      ctx.status(HttpStatus.OK_200);
-      ctx.result("OK - user was updated successfully");
-      ctx.json(userToUpdate);
-      ctx.contentType(ContentType.JSON);
-    } catch (NoModificationException e) {
-      ctx.status(HttpStatus.INTERNAL_SERVER_ERROR_500);
-      ctx.result("Server error - Update user failed");
-      ctx.contentType(ContentType.JSON);
-    }
+    ctx.status(HttpStatus.OK_200);
+    ctx.header(HttpHeader.ETAG.asString(), Shared.etag(userToUpdate.getVersion()));
+    ctx.result("OK - user was updated successfully");
+    ctx.json(userToUpdate);
+    ctx.contentType(ContentType.JSON);
   };
   // TODO: NOT IMPLEMENTED
   public static Handler resetPassword = ctx -> {
-    JSONObject jsonObject = new JSONObject(ctx.body());
-    String username = jsonObject.getString(USERNAME);
+    String username = Json.parse(ctx.body(), UsernameModel.class).username;
     UserDTO user = null;
 
     try {
@@ -555,7 +509,9 @@ public class User implements Tag {
   private static Bruger getUserInBrugerAuthorization(String username, String password) {
     Bruger bruger = null;
     try {
-      Brugeradmin ba = (Brugeradmin) Naming.lookup(Brugeradmin.URL);
+      // can point to a local registry, e.g. the fake one used by the load test
+      String url = System.getProperty("brugeradmin.url", Brugeradmin.URL);
+      Brugeradmin ba = (Brugeradmin) Naming.lookup(url);
       bruger = ba.hentBruger(username, password);
     } catch (Exception e) {
       e.printStackTrace();
@@ -0,0 +1,376 @@
+package search;
+
+import com.mongodb.MongoException;
+import database.IDataSource;
+import database.dao.IMessageDAO;
+import database.dao.IPlaygroundDAO;
+import database.dao.MessageDAO;
+import database.dao.PlaygroundDAO;
+import database.dto.MessageDTO;
+import database.dto.PlaygroundDTO;
+import org.jongo.Jongo;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index over the name, description and address of the playgrounds and the text
+ * and category of the messages.
+ * <p>
+ * The Controller updates it after each committed write. Writes of other instances arrive through
+ * onRemoteChange as playground names, and those playgrounds are read again on a background thread,
+ * coalescing bursts of changes.
+ * <p>
+ * Hits are ranked with BM25 over weighted fields, so a match in the name counts more than one in the
+ * description. Every word of the query is also matched as a prefix, at a lower weight. Danish
+ * compounds and inflections mostly share a prefix, so "legeplads" finds "legepladsen" and
+ * "legepladser" without a stemmer. Text is lower-cased with the Danish locale, and "aa" is folded
+ * to "å", so "Aarhus" finds "Århus".
+ */
+public class SearchIndex {
+  public static final String PLAYGROUND = "playground";
+  public static final String MESSAGE = "message";
+  public static final int DEFAULT_PAGE_SIZE = 20;
+  public static final int MAX_PAGE_SIZE = 100;
+  private static final Locale DANISH = new Locale("da", "DK");
+  private static final int MIN_PREFIX_LENGTH = 2;
+  private static final double PREFIX_WEIGHT = 0.5;
+  private static final double K1 = 1.2;
+  private static final double B = 0.75;
+  private static final int SNIPPET_LENGTH = 160;
+  private static SearchIndex searchIndex;
+  private final NavigableMap<String, Map<Document, Integer>> postings = new TreeMap<>();
+  private final Map<String, Document> documents = new HashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private long totalLength;
+  private final Set<String> stalePlaygrounds = ConcurrentHashMap.newKeySet();
+  private final AtomicBoolean allStale = new AtomicBoolean();
+  private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+  private final ExecutorService refresher = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "search-index");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final IPlaygroundDAO playgroundDAO;
+  private final IMessageDAO messageDAO;
+  private IDataSource dataSource;
+
+  private SearchIndex(IDataSource dataSource) {
+    this.dataSource = dataSource;
+    this.playgroundDAO = new PlaygroundDAO(dataSource);
+    this.messageDAO = new MessageDAO(dataSource);
+  }
+
+  /**
+   * The first call decides the data source, later ones follow setDataSource of the Controller.
+   */
+  public static synchronized SearchIndex getInstance(IDataSource dataSource) {
+    if (searchIndex == null) {
+      searchIndex = new SearchIndex(dataSource);
+    }
+    return searchIndex;
+  }
+
+  public static SearchIndex getInstance() {
+    if (searchIndex == null)
+      throw new IllegalStateException("SearchIndex is created by the Controller");
+    return searchIndex;
+  }
+
+  /**
+   * @param query words to look for, all of which must match
+   * @param page  starting from 1
+   * @param size  hits per page, at most MAX_PAGE_SIZE
+   */
+  public SearchResult search(String query, int page, int size) throws IllegalArgumentException {
+    if (page < 1 || size < 1 || size > MAX_PAGE_SIZE)
+      throw new IllegalArgumentException(
+        String.format("page must be at least 1 and size between 1 and %d", MAX_PAGE_SIZE));
+
+    Set<String> terms = new LinkedHashSet<>(tokenize(query));
+    List<SearchResult.Hit> hits = new ArrayList<>();
+    lock.readLock().lock();
+    try {
+      Map<Document, Double> scores = null;
+      for (String term : terms) {
+        Map<Document, Double> termScores = score(term);
+        if (scores != null) {
+          Map<Document, Double> previous = scores;
+          termScores.keySet().retainAll(previous.keySet());
+          termScores.replaceAll((document, score) -> score + previous.get(document));
+        }
+        scores = termScores;
+        if (scores.isEmpty()) break;
+      }
+      if (scores != null)
+        scores.forEach((document, score) -> hits.add(document.toHit(score)));
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    hits.sort(Comparator.comparingDouble(SearchResult.Hit::getScore).reversed()
+      .thenComparing(SearchResult.Hit::getTitle, Comparator.nullsLast(Comparator.naturalOrder())));
+    int from = Math.min((page - 1) * size, hits.size());
+    int to = Math.min(from + size, hits.size());
+    return new SearchResult(query, page, size, hits.size(), new ArrayList<>(hits.subList(from, to)));
+  }
+
+  public void indexPlayground(PlaygroundDTO playground) {
+    if (playground == null || playground.getName() == null) return;
+    Document document = new Document(PLAYGROUND, playground.getName(), playground.getName(),
+      playground.getName(), playground.getDescriptionText());
+    document.add(playground.getName(), 3);
+    document.add(playground.getCommune(), 2);
+    document.add(playground.getStreetName(), 2);
+    document.add(playground.getDescriptionText(), 1);
+    put(document);
+  }
+
+  public void indexMessage(MessageDTO message) {
+    if (message == null || message.getID() == null) return;
+    Document document = new Document(MESSAGE, message.getID(), message.getPlaygroundName(),
+      message.getCategory(), message.getMessageString());
+    document.add(message.getCategory(), 2);
+    document.add(message.getMessageString(), 1);
+    put(document);
+  }
+
+  public void removeMessage(String messageID) {
+    lock.writeLock().lock();
+    try {
+      remove(key(MESSAGE, messageID));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Remove a playground and its messages
+   */
+  public void removePlayground(String playgroundName) {
+    lock.writeLock().lock();
+    try {
+      removePlaygroundLocked(playgroundName);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      postings.clear();
+      documents.clear();
+      totalLength = 0;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Read a playground and its messages again in the background, or everything when playgroundName is null.
+   */
+  public void refreshLater(String playgroundName) {
+    if (playgroundName == null)
+      allStale.set(true);
+    else
+      stalePlaygrounds.add(playgroundName);
+
+    if (refreshScheduled.compareAndSet(false, true))
+      refresher.execute(this::refresh);
+  }
+
+  public synchronized void setDataSource(IDataSource dataSource) {
+    this.dataSource = dataSource;
+    playgroundDAO.setDataSource(dataSource);
+    messageDAO.setDataSource(dataSource);
+    clear();
+  }
+
+  private void refresh() {
+    refreshScheduled.set(false);
+    try {
+      if (allStale.getAndSet(false)) {
+        stalePlaygrounds.clear();
+        rebuild();
+        return;
+      }
+      for (String playgroundName : stalePlaygrounds) {
+        stalePlaygrounds.remove(playgroundName);
+        reload(playgroundName);
+      }
+    } catch (MongoException e) {
+      System.out.println(String.format("Server: Search index could not be refreshed - %s", e));
+    }
+  }
+
+  private synchronized void rebuild() {
+    List<PlaygroundDTO> playgrounds = new ArrayList<>();
+    List<MessageDTO> messages = new ArrayList<>();
+    try {
+      playgrounds = playgroundDAO.getPlaygroundList();
+      messages = messageDAO.getMessageList();
+    } catch (NoSuchElementException e) {
+      // no playgrounds or no messages yet
+    }
+
+    lock.writeLock().lock();
+    try {
+      clear();
+      for (PlaygroundDTO playground : playgrounds)
+        indexPlayground(playground);
+      for (MessageDTO message : messages)
+        indexMessage(message);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private synchronized void reload(String playgroundName) {
+    PlaygroundDTO playground;
+    try {
+      playground = playgroundDAO.getPlayground(playgroundName);
+    } catch (NoSuchElementException | IllegalArgumentException e) {
+      removePlayground(playgroundName);
+      return;
+    }
+
+    List<MessageDTO> messages = new ArrayList<>();
+    for (MessageDTO message : new Jongo(dataSource.getDatabase()).getCollection(IMessageDAO.COLLECTION)
+      .find("{playgroundID : #}", playgroundName).as(MessageDTO.class))
+      messages.add(message);
+
+    lock.writeLock().lock();
+    try {
+      removePlaygroundLocked(playgroundName);
+      indexPlayground(playground);
+      for (MessageDTO message : messages)
+        indexMessage(message);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * BM25 of all indexed words starting with the term. A document matching several of them gets the best.
+   */
+  private Map<Document, Double> score(String term) {
+    Map<Document, Double> scores = new HashMap<>();
+    Map<String, Map<Document, Integer>> matches = term.length() < MIN_PREFIX_LENGTH
+      ? postings.subMap(term, true, term, true)
+      : postings.subMap(term, true, term + Character.MAX_VALUE, false);
+
+    double averageLength = documents.isEmpty() ? 1 : (double) totalLength / documents.size();
+    for (Map.Entry<String, Map<Document, Integer>> match : matches.entrySet()) {
+      int df = match.getValue().size();
+      double idf = Math.log(1 + (documents.size() - df + 0.5) / (df + 0.5));
+      double weight = match.getKey().equals(term) ? 1 : PREFIX_WEIGHT;
+      for (Map.Entry<Document, Integer> posting : match.getValue().entrySet()) {
+        double tf = posting.getValue();
+        double norm = tf * (K1 + 1) / (tf + K1 * (1 - B + B * posting.getKey().length / averageLength));
+        scores.merge(posting.getKey(), weight * idf * norm, Math::max);
+      }
+    }
+    return scores;
+  }
+
+  private void put(Document document) {
+    lock.writeLock().lock();
+    try {
+      remove(document.key());
+      documents.put(document.key(), document);
+      totalLength += document.length;
+      document.terms.forEach((term, tf) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(document, tf));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void removePlaygroundLocked(String playgroundName) {
+    remove(key(PLAYGROUND, playgroundName));
+    List<String> messageKeys = new ArrayList<>();
+    for (Document document : documents.values())
+      if (MESSAGE.equals(document.type) && Objects.equals(playgroundName, document.playgroundName))
+        messageKeys.add(document.key());
+    messageKeys.forEach(this::remove);
+  }
+
+  private void remove(String key) {
+    Document document = documents.remove(key);
+    if (document == null) return;
+    totalLength -= document.length;
+    for (String term : document.terms.keySet()) {
+      Map<Document, Integer> posting = postings.get(term);
+      if (posting == null) continue;
+      posting.remove(document);
+      if (posting.isEmpty())
+        postings.remove(term);
+    }
+  }
+
+  private static String key(String type, String id) {
+    return type + "/" + id;
+  }
+
+  static List<String> tokenize(String text) {
+    List<String> tokens = new ArrayList<>();
+    if (text == null) return tokens;
+
+    String normalized = Normalizer.normalize(text, Normalizer.Form.NFC).toLowerCase(DANISH).replace("aa", "å");
+    int start = -1;
+    for (int i = 0; i <= normalized.length(); i++) {
+      boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+      if (wordChar && start < 0) {
+        start = i;
+      } else if (!wordChar && start >= 0) {
+        tokens.add(normalized.substring(start, i));
+        start = -1;
+      }
+    }
+    return tokens;
+  }
+
+  /**
+   * A playground or message as indexed. Identity is by object, so a re-indexed document
+   * doesn't collide with its old postings.
+   */
+  private static class Document {
+    private final String type;
+    private final String id;
+    private final String playgroundName;
+    private final String title;
+    private final String text;
+    private final Map<String, Integer> terms = new HashMap<>();
+    private int length;
+
+    Document(String type, String id, String playgroundName, String title, String text) {
+      this.type = type;
+      this.id = id;
+      this.playgroundName = playgroundName;
+      this.title = title;
+      this.text = text;
+    }
+
+    void add(String field, int weight) {
+      for (String token : tokenize(field)) {
+        terms.merge(token, weight, Integer::sum);
+        length += weight;
+      }
+    }
+
+    String key() {
+      return SearchIndex.key(type, id);
+    }
+
+    SearchResult.Hit toHit(double score) {
+      String snippet = text == null || text.length() <= SNIPPET_LENGTH ? text : text.substring(0, SNIPPET_LENGTH) + "…";
+      return new SearchResult.Hit(type, id, playgroundName, title, snippet, score);
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package search;
+
+import java.util.List;
+
+/**
+ * One page of hits, best first
+ */
+public class SearchResult {
+  private String query;
+  private int page;
+  private int size;
+  private int total;
+  private List<Hit> hits;
+
+  public SearchResult() {
+  }
+
+  public SearchResult(String query, int page, int size, int total, List<Hit> hits) {
+    this.query = query;
+    this.page = page;
+    this.size = size;
+    this.total = total;
+    this.hits = hits;
+  }
+
+  public String getQuery() {
+    return query;
+  }
+
+  public int getPage() {
+    return page;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public int getTotal() {
+    return total;
+  }
+
+  public List<Hit> getHits() {
+    return hits;
+  }
+
+  /**
+   * A playground, identified by its name, or a message, identified by its id
+   */
+  public static class Hit {
+    private String type;
+    private String id;
+    private String playgroundName;
+    private String title;
+    private String snippet;
+    private double score;
+
+    public Hit() {
+    }
+
+    public Hit(String type, String id, String playgroundName, String title, String snippet, double score) {
+      this.type = type;
+      this.id = id;
+      this.playgroundName = playgroundName;
+      this.title = title;
+      this.snippet = snippet;
+      this.score = score;
+    }
+
+    public String getType() {
+      return type;
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    public String getPlaygroundName() {
+      return playgroundName;
+    }
+
+    public String getTitle() {
+      return title;
+    }
+
+    public String getSnippet() {
+      return snippet;
+    }
+
+    public double getScore() {
+      return score;
+    }
+  }
+}
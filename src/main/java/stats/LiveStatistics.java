@@ -0,0 +1,251 @@
+package stats;
+
+import com.mongodb.MongoException;
+import database.IDataSource;
+import database.dao.CounterDAO;
+import database.dao.ICounterDAO;
+import database.dao.IStatisticsDAO;
+import database.dao.StatisticsDAO;
+import database.dto.StatisticsDTO;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics kept up to date as writes happen, instead of counting the collections on every read.
+ * <p>
+ * The Controller adds to a counter per group and key - users per status, events, messages and
+ * pedagogues per playground, participants per event - after each committed write. The deltas are
+ * LongAdders, so concurrent writes don't contend, and every CHECKPOINT_INTERVAL_SECONDS they are
+ * added to the counters in Mongo with $inc and the sums of all instances are read back. Reads get a
+ * snapshot that is rebuilt at most once per SNAPSHOT_MAX_AGE_MS, so they cost the same at any rate.
+ * <p>
+ * A write that fails between commit and counting, or a checkpoint that is applied twice, makes the
+ * counters drift. reconcile rebuilds them from the collections; it runs daily and on start when no
+ * counters are stored.
+ */
+public class LiveStatistics {
+  private static final long CHECKPOINT_INTERVAL_SECONDS = 10;
+  private static final long RECONCILE_INTERVAL_HOURS = 24;
+  private static final long SNAPSHOT_MAX_AGE_MS = 1_000;
+  private static LiveStatistics liveStatistics;
+  private final Map<String, LongAdder> pending = new ConcurrentHashMap<>();
+  private final ICounterDAO counterDAO;
+  private final IStatisticsDAO statisticsDAO;
+  private volatile Map<String, Long> checkpointed = Collections.emptyMap();
+  private volatile StatisticsDTO snapshot;
+  private volatile long snapshotTime;
+  private volatile boolean changed = true;
+  private ScheduledExecutorService scheduler;
+
+  private LiveStatistics(IDataSource dataSource) {
+    this.counterDAO = new CounterDAO(dataSource);
+    this.statisticsDAO = new StatisticsDAO(dataSource);
+  }
+
+  /**
+   * The first call decides the data source, later ones follow setDataSource of the Controller.
+   */
+  public static synchronized LiveStatistics getInstance(IDataSource dataSource) {
+    if (liveStatistics == null) {
+      liveStatistics = new LiveStatistics(dataSource);
+    }
+    return liveStatistics;
+  }
+
+  public static LiveStatistics getInstance() {
+    if (liveStatistics == null)
+      throw new IllegalStateException("LiveStatistics is created by the Controller");
+    return liveStatistics;
+  }
+
+  /**
+   * Count a committed write
+   *
+   * @param group one of the group names in IStatisticsDAO
+   * @param key   status, playground name or event id - null is counted as "null", like countFromScratch does
+   * @param delta usually 1 or -1
+   */
+  public void add(String group, String key, long delta) {
+    if (delta == 0) return;
+    pending.computeIfAbsent(group + "/" + key, counter -> new LongAdder()).add(delta);
+    changed = true;
+  }
+
+  /**
+   * Count the removal of everything under a key, like the events of a deleted playground
+   */
+  public void remove(String group, String key) {
+    add(group, key, -count(group, key));
+  }
+
+  public long count(String group, String key) {
+    String counter = group + "/" + key;
+    LongAdder delta = pending.get(counter);
+    return checkpointed.getOrDefault(counter, 0L) + (delta == null ? 0 : delta.sum());
+  }
+
+  public StatisticsDTO getStatistics() {
+    if (snapshot == null || (changed && System.currentTimeMillis() - snapshotTime > SNAPSHOT_MAX_AGE_MS))
+      rebuildSnapshot();
+    return snapshot;
+  }
+
+  /**
+   * Checkpoints and reconciles in the background until the JVM exits
+   */
+  public synchronized void start() {
+    if (scheduler != null) return;
+    scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "live-statistics");
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler.execute(() -> {
+      checkpoint();
+      if (checkpointed.isEmpty())
+        reconcile();
+    });
+    scheduler.scheduleWithFixedDelay(this::checkpoint,
+      CHECKPOINT_INTERVAL_SECONDS, CHECKPOINT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    scheduler.scheduleWithFixedDelay(this::reconcile,
+      RECONCILE_INTERVAL_HOURS, RECONCILE_INTERVAL_HOURS, TimeUnit.HOURS);
+  }
+
+  /**
+   * Add the deltas counted since the last checkpoint to the stored counters and read back the sums.
+   * Deltas that can't be written are kept for the next checkpoint.
+   */
+  public synchronized void checkpoint() {
+    Map<String, Long> deltas = new HashMap<>();
+    for (Map.Entry<String, LongAdder> counter : pending.entrySet()) {
+      long delta = counter.getValue().sumThenReset();
+      if (delta != 0)
+        deltas.put(counter.getKey(), delta);
+    }
+
+    try {
+      counterDAO.incrementCounters(deltas);
+    } catch (MongoException e) {
+      deltas.forEach((counter, delta) -> pending.computeIfAbsent(counter, c -> new LongAdder()).add(delta));
+      System.out.println(String.format("Server: Statistics checkpoint failed, retrying later - %s", e));
+      return;
+    }
+
+    try {
+      checkpointed = counterDAO.getCounters();
+      changed = true;
+    } catch (MongoException e) {
+      // the deltas are stored but not in checkpointed - add them until the next read succeeds
+      Map<String, Long> merged = new HashMap<>(checkpointed);
+      deltas.forEach((counter, delta) -> merged.merge(counter, delta, Long::sum));
+      checkpointed = merged;
+      System.out.println(String.format("Server: Statistics counters could not be read - %s", e));
+    }
+  }
+
+  /**
+   * Rebuild all counters from the collections. Writes counted while it runs may be counted twice
+   * until the next reconcile.
+   */
+  public synchronized void reconcile() {
+    try {
+      pending.clear();
+      Map<String, Long> counters = statisticsDAO.countFromScratch();
+      counterDAO.replaceCounters(counters);
+      checkpointed = counters;
+      changed = true;
+    } catch (MongoException e) {
+      System.out.println(String.format("Server: Statistics could not be reconciled - %s", e));
+    }
+  }
+
+  /**
+   * Forget all counters, when all collections have been emptied
+   */
+  public synchronized void reset() {
+    pending.clear();
+    counterDAO.replaceCounters(Collections.emptyMap());
+    checkpointed = Collections.emptyMap();
+    changed = true;
+  }
+
+  public synchronized void setDataSource(IDataSource dataSource) {
+    counterDAO.setDataSource(dataSource);
+    statisticsDAO.setDataSource(dataSource);
+    pending.clear();
+    checkpointed = Collections.emptyMap();
+    changed = true;
+  }
+
+  private synchronized void rebuildSnapshot() {
+    if (snapshot != null && !changed) return;
+    changed = false;
+    snapshotTime = System.currentTimeMillis();
+
+    Map<String, Map<String, Long>> groups = new HashMap<>();
+    Map<String, Long> counters = new HashMap<>(checkpointed);
+    pending.forEach((counter, delta) -> counters.merge(counter, delta.sum(), Long::sum));
+    counters.forEach((counter, value) -> {
+      int slash = counter.indexOf('/');
+      groups.computeIfAbsent(counter.substring(0, slash), group -> new HashMap<>())
+        .put(counter.substring(slash + 1), value);
+    });
+
+    snapshot = new StatisticsDTO(
+      StatisticsDTO.UserStatistics.of(group(groups, IStatisticsDAO.USERS)),
+      eventStatistics(group(groups, IStatisticsDAO.EVENTS), group(groups, IStatisticsDAO.PARTICIPANTS)),
+      playgroundStatistics(group(groups, IStatisticsDAO.PLAYGROUNDS), group(groups, IStatisticsDAO.PEDAGOGUES),
+        group(groups, IStatisticsDAO.EVENTS), group(groups, IStatisticsDAO.MESSAGES)),
+      new StatisticsDTO.MessageStatistics(sum(group(groups, IStatisticsDAO.MESSAGES))));
+  }
+
+  private static StatisticsDTO.EventStatistics eventStatistics(Map<String, Long> events, Map<String, Long> participants) {
+    long n = sum(events);
+    long total = sum(participants);
+    Map.Entry<String, Long> max = participants.entrySet().stream()
+      .max(Map.Entry.comparingByValue()).orElse(null);
+    return new StatisticsDTO.EventStatistics(n, total, n == 0 ? 0 : (double) total / n,
+      max == null ? 0 : max.getValue(), max == null ? null : max.getKey());
+  }
+
+  private static StatisticsDTO.PlaygroundStatistics playgroundStatistics(
+    Map<String, Long> playgrounds, Map<String, Long> pedagogues, Map<String, Long> events, Map<String, Long> messages) {
+    long n = playgrounds.values().stream().filter(exists -> exists > 0).count();
+    long totalPedagogues = sum(pedagogues), totalEvents = sum(events), totalMessages = sum(messages);
+
+    StatisticsDTO.Extreme maxEvents = null, minEvents = null, maxMessages = null, minMessages = null;
+    for (Map.Entry<String, Long> playground : playgrounds.entrySet()) {
+      if (playground.getValue() <= 0) continue;
+      String name = playground.getKey();
+      StatisticsDTO.Extreme eventCount = new StatisticsDTO.Extreme(events.getOrDefault(name, 0L), name);
+      StatisticsDTO.Extreme messageCount = new StatisticsDTO.Extreme(messages.getOrDefault(name, 0L), name);
+      if (maxEvents == null || eventCount.getCount() > maxEvents.getCount()) maxEvents = eventCount;
+      if (minEvents == null || eventCount.getCount() < minEvents.getCount()) minEvents = eventCount;
+      if (maxMessages == null || messageCount.getCount() > maxMessages.getCount()) maxMessages = messageCount;
+      if (minMessages == null || messageCount.getCount() < minMessages.getCount()) minMessages = messageCount;
+    }
+
+    StatisticsDTO.Extreme none = new StatisticsDTO.Extreme(0, null);
+    return new StatisticsDTO.PlaygroundStatistics(n,
+      totalPedagogues, n == 0 ? 0 : (double) totalPedagogues / n,
+      totalEvents, n == 0 ? 0 : (double) totalEvents / n,
+      maxEvents == null ? none : maxEvents, minEvents == null ? none : minEvents,
+      totalMessages, n == 0 ? 0 : (double) totalMessages / n,
+      maxMessages == null ? none : maxMessages, minMessages == null ? none : minMessages);
+  }
+
+  private static Map<String, Long> group(Map<String, Map<String, Long>> groups, String group) {
+    return groups.getOrDefault(group, Collections.emptyMap());
+  }
+
+  private static long sum(Map<String, Long> counters) {
+    return counters.values().stream().mapToLong(Long::longValue).sum();
+  }
+}
@@ -0,0 +1,64 @@
+package database;
+
+import com.mongodb.DB;
+import com.mongodb.MongoClient;
+import com.mongodb.ServerAddress;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+
+import java.net.InetSocketAddress;
+
+/**
+ * An in-process Mongo-wire-compatible server with an in-memory backend. Used by the tests and
+ * benchmarks, so they run offline and don't measure the network. It starts in milliseconds on a
+ * random local port and is empty on every start - seed it with InitTestData.seed.
+ */
+public class InMemoryDB implements IDataSource {
+  private static final String DATABASE_NAME = "test";
+  private static InMemoryDB instance;
+  private MongoServer server;
+  private DB database;
+  private MongoClient mongoClient;
+
+  private InMemoryDB() {
+  }
+
+  public static synchronized InMemoryDB getInstance() {
+    if (instance == null)
+      instance = new InMemoryDB();
+
+    return instance;
+  }
+
+  @Override
+  public synchronized MongoClient getClient() {
+    if (mongoClient == null) {
+      server = new MongoServer(new MemoryBackend());
+      InetSocketAddress address = server.bind();
+      mongoClient = new MongoClient(new ServerAddress(address));
+    }
+    return mongoClient;
+  }
+
+  @Override
+  public synchronized DB getDatabase() {
+    if (database == null)
+      database = getClient().getDB(DATABASE_NAME);
+
+    return database;
+  }
+
+  /**
+   * Stops the server and drops all data. The next call to getClient starts a new, empty server.
+   */
+  public synchronized void shutdown() {
+    if (mongoClient != null)
+      mongoClient.close();
+    if (server != null)
+      server.shutdownNow();
+
+    mongoClient = null;
+    server = null;
+    database = null;
+  }
+}
@@ -18,7 +18,14 @@ public class InitTestData {
 
 
   public static void main(String[] args) throws NoModificationException {
-    controller.setDataSource(TestDB.getInstance());
+    seed(TestDB.getInstance());
+  }
+
+  /**
+   * Deletes all collections in the data source and fills it with the test data
+   */
+  public static void seed(IDataSource dataSource) throws NoModificationException {
+    controller.setDataSource(dataSource);
     controller.killAll();
     System.out.println("Collections are deleted");
 
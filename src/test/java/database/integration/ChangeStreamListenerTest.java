@@ -0,0 +1,125 @@
+package database.integration;
+
+import database.ChangeStreamListener;
+import database.Controller;
+import database.IController;
+import database.PlaygroundBus;
+import database.ReplicaSetDB;
+import database.dto.MessageDTO;
+import database.dto.PlaygroundDTO;
+import database.exceptions.NoModificationException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.File;
+import java.util.Date;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Writes from a second JVM must reach this one through the change stream. Needs a replica set,
+ * for example a single local node:
+ * <pre>
+ * mongod --replSet rs0 --dbpath /tmp/rs0 &amp;&amp; mongo --eval "rs.initiate()"
+ * mvn test -Dtest=ChangeStreamListenerTest -Dmongo.uri=mongodb://localhost:27017/changestreamtest?replicaSet=rs0
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = ReplicaSetDB.URI_PROPERTY, matches = ".+")
+class ChangeStreamListenerTest {
+  private static final String PLAYGROUND_NAME = "Vandlegeparken";
+  private static final long TIMEOUT_SECONDS = 10;
+  static IController controller = Controller.getInstance();
+  static BlockingQueue<String> changedPlaygrounds = new LinkedBlockingQueue<>();
+
+  @BeforeAll
+  static void setUp() throws NoModificationException {
+    controller.setDataSource(ReplicaSetDB.getInstance());
+    controller.killAll();
+    ReplicaSetDB.getInstance().getDatabase().getCollection(ChangeStreamListener.TOKEN_COLLECTION).drop();
+    controller.createPlayground(new PlaygroundDTO.Builder(PLAYGROUND_NAME)
+      .setStreetName("Agervænget")
+      .setStreetNumber(34)
+      .setZipCode(3650)
+      .setCommune("Egedal")
+      .build());
+    controller.addPlaygroundListener(changedPlaygrounds::add);
+  }
+
+  @AfterAll
+  static void tearDown() {
+    controller.killAll();
+  }
+
+  @Test
+  void messageFromOtherInstanceShouldInvalidateAndPublish() throws Exception {
+    ChangeStreamListener listener = new ChangeStreamListener(ReplicaSetDB.getInstance(), controller, "first");
+    BlockingQueue<PlaygroundBus.Notification> notifications = new LinkedBlockingQueue<>();
+    Runnable unsubscribe = PlaygroundBus.getInstance().subscribe(PLAYGROUND_NAME, notifications::add);
+    listener.start();
+    Thread.sleep(2_000); // the stream only sees changes after it is opened
+    changedPlaygrounds.clear();
+
+    runOtherInstance("Written by the other instance");
+
+    PlaygroundBus.Notification notification = notifications.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    listener.stop();
+    unsubscribe.run();
+    assertAll(
+      () -> assertEquals(PLAYGROUND_NAME, changedPlaygrounds.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS)),
+      () -> assertNotNull(notification),
+      () -> assertEquals(PlaygroundBus.MESSAGE_CREATED, notification.getType()),
+      () -> assertEquals("Written by the other instance", ((MessageDTO) notification.getData()).getMessageString())
+    );
+  }
+
+  @Test
+  void restartedListenerShouldResumeAfterSavedToken() throws Exception {
+    ChangeStreamListener listener = new ChangeStreamListener(ReplicaSetDB.getInstance(), controller, "resuming");
+    listener.start();
+    Thread.sleep(2_000);
+    listener.stop();
+
+    // written while this instance is down
+    runOtherInstance("Written while the listener was stopped");
+    changedPlaygrounds.clear();
+
+    ChangeStreamListener restarted = new ChangeStreamListener(ReplicaSetDB.getInstance(), controller, "resuming");
+    restarted.start();
+    String changed = changedPlaygrounds.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    restarted.stop();
+    assertEquals(PLAYGROUND_NAME, changed);
+  }
+
+  private static void runOtherInstance(String messageString) throws Exception {
+    String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    Process process = new ProcessBuilder(java,
+      "-cp", System.getProperty("java.class.path"),
+      "-D" + ReplicaSetDB.URI_PROPERTY + "=" + System.getProperty(ReplicaSetDB.URI_PROPERTY),
+      OtherInstance.class.getName(), PLAYGROUND_NAME, messageString)
+      .inheritIO()
+      .start();
+    assertTrue(process.waitFor(60, TimeUnit.SECONDS), "other instance didn't finish");
+    assertEquals(0, process.exitValue());
+  }
+
+  /**
+   * The second JVM, writing through its own Controller.
+   */
+  public static class OtherInstance {
+    public static void main(String[] args) throws NoModificationException {
+      IController controller = Controller.getInstance();
+      controller.setDataSource(ReplicaSetDB.getInstance());
+      controller.createPlaygroundMessage(args[0], new MessageDTO.Builder()
+        .setCategory("Networking")
+        .setMessageString(args[1])
+        .setDate(new Date(System.currentTimeMillis()))
+        .build());
+      System.exit(0);
+    }
+  }
+}
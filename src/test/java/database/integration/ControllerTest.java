@@ -1,19 +1,30 @@
 package database.integration;
 
+import com.mongodb.BasicDBObject;
 import com.mongodb.WriteResult;
 import database.Controller;
 import database.IController;
-import database.TestDB;
+import database.InMemoryDB;
+import database.PlaygroundBus;
+import database.dao.IPlaygroundDAO;
+import database.dao.IStatisticsDAO;
 import database.dto.*;
+import database.exceptions.EventFullException;
 import database.exceptions.NoModificationException;
+import org.bson.types.ObjectId;
+import org.jongo.Jongo;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import stats.LiveStatistics;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -23,7 +34,7 @@ class ControllerTest {
 
   @BeforeAll
   static void killAll() {
-    controller.setDataSource(TestDB.getInstance());
+    controller.setDataSource(InMemoryDB.getInstance());
     controller.killAll();
   }
 
@@ -959,4 +970,408 @@ class ControllerTest {
     controller.deletePlayground(playground.getName());
   }
 
+  @Test
+  void playgroundViewShouldFollowWrites() throws NoModificationException {
+    PlaygroundDTO playground = new PlaygroundDTO.Builder("Vandlegeparken")
+      .setStreetName("Agervænget")
+      .setStreetNumber(34)
+      .setZipCode(3650)
+      .setCommune("Egedal")
+      .build();
+
+    UserDTO user = new UserDTO.Builder("s175565")
+      .setFirstname("Nicolai")
+      .setLastname("Nisbeth")
+      .status("pædagog")
+      .setPassword("nicolai123456789")
+      .build();
+
+    EventDTO playgroundEvent = new EventDTO.Builder()
+      .name("Fodbold og snobrød")
+      .description("Fodbold i lystrup park")
+      .details(new DetailsDTO(new Date(System.currentTimeMillis() + 86_400_000L), new Date(System.currentTimeMillis()), new Date(System.currentTimeMillis())))
+      .build();
+
+    MessageDTO playgroundMessage = new MessageDTO.Builder()
+      .setCategory("Networking")
+      .setMessageString("I would like the parents to show up....")
+      .setDate(new Date(System.currentTimeMillis()))
+      .build();
+
+    controller.createPlayground(playground);
+    controller.getPlaygroundView(playground.getName()); // built now, so the writes below update it in place
+    controller.createUser(user);
+    controller.addPedagogueToPlayground(playground.getName(), user.getUsername());
+    WriteResult eventResult = controller.createPlaygroundEvent(playground.getName(), playgroundEvent);
+    controller.createPlaygroundMessage(playground.getName(), playgroundMessage);
+    controller.addUserToEvent(eventResult.getUpsertedId().toString(), user.getUsername());
+
+    PlaygroundViewDTO view = controller.getPlaygroundView(playground.getName());
+    Assertions.assertAll(
+      () -> assertEquals(playground.getName(), view.getPlayground().getName()),
+      () -> assertEquals(user.getUsername(), view.getPedagogues().iterator().next().getUsername()),
+      () -> assertNull(view.getPedagogues().iterator().next().getPassword()),
+      () -> assertEquals(1, view.getUpcomingEvents().size()),
+      () -> assertEquals(1, view.getUpcomingEvents().get(0).getParticipants()),
+      () -> assertEquals(playgroundMessage.getMessageString(), view.getLatestMessages().get(0).getMessageString())
+    );
+
+    controller.removeUserFromEvent(eventResult.getUpsertedId().toString(), user.getUsername());
+    controller.deletePlaygroundMessage(playgroundMessage.getID());
+    PlaygroundViewDTO updatedView = controller.getPlaygroundView(playground.getName());
+    Assertions.assertAll(
+      () -> assertEquals(0, updatedView.getUpcomingEvents().get(0).getParticipants()),
+      () -> assertTrue(updatedView.getLatestMessages().isEmpty())
+    );
+
+    controller.deleteUser(user.getUsername());
+    controller.deletePlayground(playground.getName());
+    Assertions.assertThrows(NoSuchElementException.class, () -> controller.getPlaygroundView(playground.getName()));
+  }
+
+  @Test
+  void fullEventShouldRejectParticipant() throws NoModificationException {
+    PlaygroundDTO playground = new PlaygroundDTO.Builder("Vandlegeparken")
+      .setStreetName("Agervænget")
+      .setStreetNumber(34)
+      .setZipCode(3650)
+      .setCommune("Egedal")
+      .build();
+
+    UserDTO user1 = new UserDTO.Builder("s175565").setFirstname("Nicolai").build();
+    UserDTO user2 = new UserDTO.Builder("s184536").setFirstname("Frederik").build();
+
+    EventDTO playgroundEvent = new EventDTO.Builder()
+      .name("Fodbold og snobrød")
+      .description("Fodbold i lystrup park")
+      .capacity(1)
+      .build();
+
+    controller.createPlayground(playground);
+    controller.createUser(user1);
+    controller.createUser(user2);
+    String eventID = controller.createPlaygroundEvent(playground.getName(), playgroundEvent).getUpsertedId().toString();
+
+    controller.addUserToEvent(eventID, user1.getUsername());
+    Assertions.assertThrows(NoModificationException.class, () -> controller.addUserToEvent(eventID, user1.getUsername()));
+    Assertions.assertThrows(EventFullException.class, () -> controller.addUserToEvent(eventID, user2.getUsername()));
+    assertEquals(1, controller.getEventParticipantCount(eventID));
+
+    // leaving frees the seat again
+    controller.removeUserFromEvent(eventID, user1.getUsername());
+    assertEquals(0, controller.getEventParticipantCount(eventID));
+    controller.addUserToEvent(eventID, user2.getUsername());
+    assertEquals(1, controller.getEventParticipantCount(eventID));
+
+    controller.deleteUser(user1.getUsername());
+    controller.deleteUser(user2.getUsername());
+    controller.deletePlayground(playground.getName());
+  }
+
+  @Test
+  void eventAndMessageWritesShouldBumpOnlyTheirCounter() throws NoModificationException {
+    PlaygroundDTO playground = new PlaygroundDTO.Builder("Vandlegeparken")
+      .setStreetName("Agervænget")
+      .setStreetNumber(34)
+      .setZipCode(3650)
+      .setCommune("Egedal")
+      .build();
+
+    EventDTO playgroundEvent = new EventDTO.Builder()
+      .name("Fangeleg")
+      .description("Fangeleg rundt om Snorrstrup sø")
+      .details(new DetailsDTO(new Date(System.currentTimeMillis()), new Date(System.currentTimeMillis()), new Date(System.currentTimeMillis())))
+      .build();
+
+    MessageDTO playgroundMessage = new MessageDTO.Builder()
+      .setCategory("Networking")
+      .setMessageString("I would like the parents to show up....")
+      .setDate(new Date(System.currentTimeMillis()))
+      .build();
+
+    controller.createPlayground(playground);
+    PlaygroundDTO created = controller.getPlaygroundCounters(playground.getName());
+    controller.createPlaygroundEvent(playground.getName(), playgroundEvent);
+    PlaygroundDTO afterEvent = controller.getPlaygroundCounters(playground.getName());
+    controller.createPlaygroundMessage(playground.getName(), playgroundMessage);
+    PlaygroundDTO afterMessage = controller.getPlaygroundCounters(playground.getName());
+
+    Assertions.assertAll(
+      () -> assertEquals(created.getEventsVersion() + 1, afterEvent.getEventsVersion()),
+      () -> assertEquals(created.getMessagesVersion(), afterEvent.getMessagesVersion()),
+      () -> assertEquals(afterEvent.getEventsVersion(), afterMessage.getEventsVersion()),
+      () -> assertEquals(afterEvent.getMessagesVersion() + 1, afterMessage.getMessagesVersion())
+    );
+
+    controller.deletePlayground(playground.getName());
+  }
+
+  @Test
+  void createdMessageShouldBePublishedToPlaygroundSubscribers() throws NoModificationException {
+    PlaygroundDTO playground = new PlaygroundDTO.Builder("Vandlegeparken")
+      .setStreetName("Agervænget")
+      .setStreetNumber(34)
+      .setZipCode(3650)
+      .setCommune("Egedal")
+      .build();
+
+    MessageDTO playgroundMessage = new MessageDTO.Builder()
+      .setCategory("Networking")
+      .setMessageString("I would like the parents to show up....")
+      .setDate(new Date(System.currentTimeMillis()))
+      .build();
+
+    List<PlaygroundBus.Notification> received = new ArrayList<>();
+    List<PlaygroundBus.Notification> otherPlayground = new ArrayList<>();
+    controller.createPlayground(playground);
+    Runnable unsubscribe = PlaygroundBus.getInstance().subscribe(playground.getName(), received::add);
+    Runnable unsubscribeOther = PlaygroundBus.getInstance().subscribe("Naturlegepladsen", otherPlayground::add);
+    controller.createPlaygroundMessage(playground.getName(), playgroundMessage);
+    unsubscribe.run();
+    unsubscribeOther.run();
+
+    Assertions.assertAll(
+      () -> assertEquals(1, received.size()),
+      () -> assertEquals(PlaygroundBus.MESSAGE_CREATED, received.get(0).getType()),
+      () -> assertEquals(playgroundMessage, received.get(0).getData()),
+      () -> assertTrue(otherPlayground.isEmpty())
+    );
+
+    controller.deletePlayground(playground.getName());
+  }
+
+  @Test
+  void liveStatisticsShouldCountWritesAndSurviveCheckpointAndReconcile() throws NoModificationException {
+    PlaygroundDTO playground = new PlaygroundDTO.Builder("Vandlegeparken")
+      .setStreetName("Agervænget")
+      .setStreetNumber(34)
+      .setZipCode(3650)
+      .setCommune("Egedal")
+      .build();
+
+    UserDTO user = new UserDTO.Builder("s175565").setFirstname("Nicolai").status("client").build();
+
+    EventDTO playgroundEvent = new EventDTO.Builder()
+      .name("Fodbold og snobrød")
+      .description("Fodbold i lystrup park")
+      .build();
+
+    MessageDTO playgroundMessage = new MessageDTO.Builder()
+      .setCategory("Networking")
+      .setMessageString("I would like the parents to show up....")
+      .setDate(new Date(System.currentTimeMillis()))
+      .build();
+
+    LiveStatistics statistics = LiveStatistics.getInstance();
+    long clients = statistics.count(IStatisticsDAO.USERS, "client");
+    controller.createPlayground(playground);
+    controller.createUser(user);
+    String eventID = controller.createPlaygroundEvent(playground.getName(), playgroundEvent).getUpsertedId().toString();
+    controller.addUserToEvent(eventID, user.getUsername());
+    controller.createPlaygroundMessage(playground.getName(), playgroundMessage);
+
+    Runnable assertCounts = () -> Assertions.assertAll(
+      () -> assertEquals(1, statistics.count(IStatisticsDAO.PLAYGROUNDS, playground.getName())),
+      () -> assertEquals(clients + 1, statistics.count(IStatisticsDAO.USERS, "client")),
+      () -> assertEquals(1, statistics.count(IStatisticsDAO.EVENTS, playground.getName())),
+      () -> assertEquals(1, statistics.count(IStatisticsDAO.PARTICIPANTS, eventID)),
+      () -> assertEquals(1, statistics.count(IStatisticsDAO.MESSAGES, playground.getName()))
+    );
+    assertCounts.run();
+    statistics.checkpoint();
+    assertCounts.run();
+    statistics.reconcile();
+    assertCounts.run();
+
+    controller.deleteUser(user.getUsername());
+    controller.deletePlayground(playground.getName());
+    Assertions.assertAll(
+      () -> assertEquals(0, statistics.count(IStatisticsDAO.PLAYGROUNDS, playground.getName())),
+      () -> assertEquals(clients, statistics.count(IStatisticsDAO.USERS, "client")),
+      () -> assertEquals(0, statistics.count(IStatisticsDAO.EVENTS, playground.getName())),
+      () -> assertEquals(0, statistics.count(IStatisticsDAO.PARTICIPANTS, eventID)),
+      () -> assertEquals(0, statistics.count(IStatisticsDAO.MESSAGES, playground.getName()))
+    );
+  }
+
+  @Test
+  void liveStatisticsShouldFollowUpdates() throws NoModificationException {
+    PlaygroundDTO playground = new PlaygroundDTO.Builder("Vandlegeparken")
+      .setStreetName("Agervænget")
+      .setStreetNumber(34)
+      .setZipCode(3650)
+      .setCommune("Egedal")
+      .build();
+
+    UserDTO user = new UserDTO.Builder("s175565").setFirstname("Nicolai").status("client").build();
+
+    EventDTO playgroundEvent = new EventDTO.Builder()
+      .name("Fodbold og snobrød")
+      .description("Fodbold i lystrup park")
+      .build();
+
+    LiveStatistics statistics = LiveStatistics.getInstance();
+    long pedagogues = statistics.count(IStatisticsDAO.USERS, "pædagog");
+    controller.createPlayground(playground);
+    controller.createUser(user);
+    String eventID = controller.createPlaygroundEvent(playground.getName(), playgroundEvent).getUpsertedId().toString();
+
+    // assigned in the event document only
+    EventDTO event = controller.getEvent(eventID);
+    event.getAssignedUsers().add(new UserDTO.Builder(user.getUsername()).build());
+    controller.updatePlaygroundEvent(event);
+
+    UserDTO fetchedUser = controller.getUser(user.getUsername());
+    fetchedUser.setStatus("pædagog");
+    fetchedUser.getPlaygroundsNames().add(playground.getName());
+    controller.updateUser(fetchedUser);
+
+    Assertions.assertAll(
+      () -> assertEquals(1, statistics.count(IStatisticsDAO.PARTICIPANTS, eventID)),
+      () -> assertEquals(pedagogues + 1, statistics.count(IStatisticsDAO.USERS, "pædagog")),
+      () -> assertEquals(1, statistics.count(IStatisticsDAO.PEDAGOGUES, playground.getName()))
+    );
+
+    controller.deleteUser(user.getUsername());
+    controller.deletePlayground(playground.getName());
+  }
+
+  @Test
+  void archivedEventsShouldBeDeletedWithoutCountingThem() throws NoModificationException {
+    PlaygroundDTO playground = new PlaygroundDTO.Builder("Vandlegeparken")
+      .setStreetName("Agervænget")
+      .setStreetNumber(34)
+      .setZipCode(3650)
+      .setCommune("Egedal")
+      .build();
+
+    UserDTO user = new UserDTO.Builder("s175565").setFirstname("Nicolai").status("client").build();
+
+    Date lastWeek = new Date(System.currentTimeMillis() - 7L * 24 * 60 * 60 * 1000);
+    List<String> eventIDs = new ArrayList<>();
+    controller.createPlayground(playground);
+    controller.createUser(user);
+    for (int i = 0; i < 2; i++) {
+      EventDTO pastEvent = new EventDTO.Builder()
+        .name("Fodbold " + i)
+        .details(new DetailsDTO(lastWeek, lastWeek, lastWeek))
+        .build();
+      eventIDs.add(controller.createPlaygroundEvent(playground.getName(), pastEvent).getUpsertedId().toString());
+    }
+    controller.addUserToEvent(eventIDs.get(1), user.getUsername());
+    controller.archivePastEvents();
+
+    LiveStatistics statistics = LiveStatistics.getInstance();
+    controller.deletePlaygroundEvent(eventIDs.get(0));
+    long events = statistics.count(IStatisticsDAO.EVENTS, playground.getName());
+    controller.deletePlayground(playground.getName());
+    int userEvents = controller.getUser(user.getUsername()).getEvents().size();
+    controller.deleteUser(user.getUsername());
+
+    Assertions.assertAll(
+      () -> assertEquals(0, events),
+      () -> assertThrows(NoSuchElementException.class, () -> controller.getEvent(eventIDs.get(1))),
+      () -> assertEquals(0, userEvents)
+    );
+  }
+
+  @Test
+  void createdPlaygroundShouldBeGeocodedFromZipCode() throws NoModificationException {
+    PlaygroundDTO playground = new PlaygroundDTO.Builder("Vandlegeparken")
+      .setStreetName("Agervænget")
+      .setStreetNumber(34)
+      .setZipCode(3650)
+      .setCommune("Egedal")
+      .build();
+
+    controller.createPlayground(playground);
+    LocationDTO location = controller.getPlayground(playground.getName()).getLocation();
+    controller.deletePlayground(playground.getName());
+
+    Assertions.assertAll(
+      () -> assertNotNull(location),
+      () -> assertEquals(LocationDTO.POINT, location.getType()),
+      () -> assertEquals(55.80, location.latitude(), 0.05),
+      () -> assertEquals(12.16, location.longitude(), 0.05)
+    );
+  }
+
+  @Test
+  void bulkWritesShouldReportEachItem() throws NoModificationException {
+    PlaygroundDTO playground = new PlaygroundDTO.Builder("Vandlegeparken").build();
+    controller.createPlayground(playground);
+    for (String username : new String[]{"s175565", "s185020"})
+      controller.createUser(new UserDTO.Builder(username)
+        .setFirstname("Nicolai")
+        .setLastname("Nisbeth")
+        .status("client")
+        .setEmail(username + "@student.dtu.dk")
+        .setPassword("nicolai123456789")
+        .build());
+
+    List<EventDTO> events = new ArrayList<>();
+    for (int i = 0; i < 4; i++)
+      events.add(new EventDTO.Builder()
+        .name("Fodbold " + i)
+        .capacity(1)
+        .assignedUsers(i == 2 ? Set.of(new UserDTO.Builder("ukendt").build())
+          : i == 3 ? Set.of(new UserDTO.Builder("s175565").build(), new UserDTO.Builder("s185020").build())
+          : new HashSet<>())
+        .details(new DetailsDTO(new Date(System.currentTimeMillis()), new Date(System.currentTimeMillis()), new Date(System.currentTimeMillis())))
+        .build());
+    BulkResultDTO created = controller.createPlaygroundEvents(playground.getName(), events);
+    String eventID = created.getItems().get(0).getId();
+
+    BulkResultDTO enrolled = controller.addUsersToEvent(eventID, List.of("s175565", "s175565", "ukendt", "s185020"));
+    EventDTO event = controller.getEvent(eventID);
+
+    // an event from before the participant counter is enrolled in as if it was 0
+    String uncountedID = created.getItems().get(1).getId();
+    InMemoryDB.getInstance().getDatabase().getCollection("events").update(
+      new BasicDBObject("_id", new ObjectId(uncountedID)), new BasicDBObject("$unset", new BasicDBObject("participants", "")));
+    BulkResultDTO uncounted = controller.addUsersToEvent(uncountedID, List.of("s185020"));
+    int playgroundEvents = controller.getEventsInPlayground(playground.getName()).size();
+    int userEvents = controller.getUser("s175565").getEvents().size();
+
+    controller.deletePlayground(playground.getName());
+    controller.deleteUser("s175565");
+    controller.deleteUser("s185020");
+
+    Assertions.assertAll(
+      () -> assertEquals(2, created.getSucceeded()),
+      () -> assertEquals(BulkResultDTO.NOT_FOUND, created.getItems().get(2).getStatus()),
+      () -> assertEquals(BulkResultDTO.FULL, created.getItems().get(3).getStatus()),
+      () -> assertEquals(2, playgroundEvents),
+      () -> assertEquals(BulkResultDTO.ENROLLED, enrolled.getItems().get(0).getStatus()),
+      () -> assertEquals(BulkResultDTO.ALREADY_ENROLLED, enrolled.getItems().get(1).getStatus()),
+      () -> assertEquals(BulkResultDTO.NOT_FOUND, enrolled.getItems().get(2).getStatus()),
+      () -> assertEquals(BulkResultDTO.FULL, enrolled.getItems().get(3).getStatus()),
+      () -> assertEquals(1, event.getParticipants()),
+      () -> assertEquals(1, userEvents),
+      () -> assertEquals(BulkResultDTO.ENROLLED, uncounted.getItems().get(0).getStatus())
+    );
+  }
+
+  @Test
+  void embeddedMessageReferencesShouldBeCapped() throws NoModificationException {
+    PlaygroundDTO playground = new PlaygroundDTO.Builder("Vandlegeparken").build();
+    controller.createPlayground(playground);
+    int created = IPlaygroundDAO.MAX_EMBEDDED_REFS + 5;
+    for (int i = 0; i < created; i++)
+      controller.createPlaygroundMessage(playground.getName(), new MessageDTO.Builder()
+        .setMessageString("Besked " + i)
+        .setDate(new Date(System.currentTimeMillis()))
+        .build());
+
+    PlaygroundDTO stored = new Jongo(InMemoryDB.getInstance().getDatabase()).getCollection(IPlaygroundDAO.COLLECTION)
+      .findOne("{name : #}", playground.getName()).as(PlaygroundDTO.class);
+    int fetched = controller.getPlayground(playground.getName()).getMessages().size();
+    controller.deletePlayground(playground.getName());
+
+    Assertions.assertAll(
+      () -> assertEquals(IPlaygroundDAO.MAX_EMBEDDED_REFS, stored.getMessages().size()),
+      () -> assertEquals(created, fetched),
+      () -> assertTrue(controller.getMessagesInPlayground(playground.getName()).isEmpty())
+    );
+  }
 }
@@ -1,22 +1,27 @@
 package database.unit;
 
+import com.mongodb.BasicDBObject;
 import com.mongodb.WriteResult;
-import database.TestDB;
+import database.InMemoryDB;
 import database.dao.EventDAO;
 import database.dao.IEventDAO;
 import database.dto.DetailsDTO;
 import database.dto.EventDTO;
+import database.dto.UserDTO;
 import database.exceptions.NoModificationException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.Test;
 
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 class EventDAOTest {
-  private static IEventDAO eventDAO = new EventDAO(TestDB.getInstance());
+  private static IEventDAO eventDAO = new EventDAO(InMemoryDB.getInstance());
 
   @BeforeAll
   static void killAll() {
@@ -121,6 +126,68 @@ class EventDAOTest {
     Assertions.assertThrows(NoSuchElementException.class, () -> eventDAO.getEventList());
   }
 
+  @Test
+  void eventsShouldBeFoundByDateRangeAndArchived() throws NoModificationException {
+    long day = 24 * 60 * 60 * 1000L;
+    long now = System.currentTimeMillis();
+    String[] ids = new String[3];
+    for (int i = 0; i < ids.length; i++) {
+      Date date = new Date(now + (i - 1) * 2 * day); // two days ago, now and in two days
+      ids[i] = eventDAO.createEvent(new EventDTO.Builder()
+        .name("Event " + i)
+        .playground(i == 2 ? "Naturlegepladsen" : "Vandlegeparken")
+        .details(new DetailsDTO(date, date, date))
+        .build()).getUpsertedId().toString();
+    }
+
+    List<EventDTO> inPlayground = eventDAO.getEventsInPlayground("Vandlegeparken", new Date(now - day), null);
+    List<EventDTO> upcoming = eventDAO.getUpcomingEvents(new Date(now - day), null, 0, 10);
+    Assertions.assertAll(
+      () -> Assertions.assertEquals(2, eventDAO.getEventsInPlayground("Vandlegeparken", null, null).size()),
+      () -> Assertions.assertEquals(1, inPlayground.size()),
+      () -> Assertions.assertEquals(ids[1], inPlayground.get(0).getID()),
+      () -> Assertions.assertEquals(ids[1], upcoming.get(0).getID()),
+      () -> Assertions.assertEquals(ids[2], upcoming.get(1).getID()),
+      () -> Assertions.assertEquals(1, eventDAO.getUpcomingEvents(new Date(now - day), null, 1, 10).size())
+    );
+
+    List<EventDTO> archived = eventDAO.archiveEventsBefore(new Date(now - day));
+    Assertions.assertAll(
+      () -> Assertions.assertEquals(1, archived.size()),
+      () -> Assertions.assertEquals(2, eventDAO.getEventList().size()),
+      () -> Assertions.assertEquals("Event 0", eventDAO.getEvent(ids[0]).getName()),
+      () -> Assertions.assertEquals(0, eventDAO.archiveEventsBefore(new Date(now - day)).size())
+    );
+
+    for (String id : ids)
+      eventDAO.deleteEvent(id);
+    Assertions.assertThrows(NoSuchElementException.class, () -> eventDAO.getEvent(ids[0]));
+  }
+
+  @Test
+  void missingParticipantCounterShouldBeBackfilled() throws NoModificationException {
+    Set<UserDTO> users = new HashSet<>();
+    users.add(new UserDTO.Builder("s175565").build());
+    users.add(new UserDTO.Builder("s185103").build());
+    EventDTO event = new EventDTO.Builder()
+      .name("Football")
+      .assignedUsers(users)
+      .details(new DetailsDTO(new Date(System.currentTimeMillis()), new Date(System.currentTimeMillis()), new Date(System.currentTimeMillis())))
+      .build();
+    String id = eventDAO.createEvent(event).getUpsertedId().toString();
+
+    // as written before the counter existed
+    InMemoryDB.getInstance().getDatabase().getCollection(IEventDAO.COLLECTION)
+      .update(new BasicDBObject("_id", new ObjectId(id)), new BasicDBObject("$unset", new BasicDBObject("participants", "")));
+
+    Assertions.assertAll(
+      () -> Assertions.assertEquals(1, eventDAO.backfillParticipants()),
+      () -> Assertions.assertEquals(2, eventDAO.getParticipantCount(id)),
+      () -> Assertions.assertEquals(0, eventDAO.backfillParticipants())
+    );
+    eventDAO.deleteEvent(id);
+  }
+
   @Test
   void nullInCreateShouldThrowIllegalArgument() {
     Assertions.assertThrows(IllegalArgumentException.class, () -> eventDAO.createEvent(null));
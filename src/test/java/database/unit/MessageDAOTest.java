@@ -1,20 +1,22 @@
 package database.unit;
 
 import com.mongodb.WriteResult;
-import database.TestDB;
+import database.InMemoryDB;
 import database.dao.IMessageDAO;
 import database.dao.MessageDAO;
 import database.dto.MessageDTO;
 import database.exceptions.NoModificationException;
+import database.exceptions.VersionConflictException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.util.Date;
 import java.util.List;
 import java.util.NoSuchElementException;
 
 class MessageDAOTest {
-  static IMessageDAO messageDAO = new MessageDAO(TestDB.getInstance());
+  static IMessageDAO messageDAO = new MessageDAO(InMemoryDB.getInstance());
 
   @BeforeAll
   static void killAll() {
@@ -74,6 +76,30 @@ class MessageDAOTest {
     messageDAO.deleteMessage(ws.getUpsertedId().toString());
   }
 
+  @Test
+  void staleUpdateShouldConflict() throws NoModificationException {
+    MessageDTO message = new MessageDTO.Builder()
+      .setMessageString("Husk løbesko til fodbold")
+      .build();
+
+    WriteResult ws = messageDAO.createMessage(message);
+    MessageDTO first = messageDAO.getMessage(ws.getUpsertedId().toString());
+    MessageDTO second = messageDAO.getMessage(ws.getUpsertedId().toString());
+
+    first.setMessageString("første");
+    messageDAO.updateMessage(first);
+    second.setMessageString("anden");
+    Assertions.assertThrows(VersionConflictException.class, () -> messageDAO.updateMessage(second));
+
+    MessageDTO updatedMessage = messageDAO.getMessage(ws.getUpsertedId().toString());
+    Assertions.assertAll(
+      () -> Assertions.assertEquals("første", updatedMessage.getMessageString()),
+      () -> Assertions.assertEquals(1, updatedMessage.getVersion())
+    );
+
+    messageDAO.deleteMessage(ws.getUpsertedId().toString());
+  }
+
   @Test
   void deleteAllMessagesInCollection() throws NoModificationException {
     MessageDTO message = new MessageDTO.Builder()
@@ -96,6 +122,31 @@ class MessageDAOTest {
     Assertions.assertThrows(NoSuchElementException.class, () -> messageDAO.getMessageList());
   }
 
+  @Test
+  void expiredMessagesShouldBeArchivedOldestFirst() throws NoModificationException {
+    long day = 24 * 60 * 60 * 1000L;
+    long now = System.currentTimeMillis();
+    String[] ids = new String[3];
+    for (int i = 0; i < ids.length; i++)
+      ids[i] = messageDAO.createMessage(new MessageDTO.Builder()
+        .setMessageString("Besked " + i)
+        .setDate(new Date(now - (ids.length - i) * 10 * day)) // 30, 20 and 10 days ago
+        .build()).getUpsertedId().toString();
+
+    List<MessageDTO> firstBatch = messageDAO.expireMessagesBefore(new Date(now - 15 * day), 1, true);
+    List<MessageDTO> secondBatch = messageDAO.expireMessagesBefore(new Date(now - 15 * day), 1, true);
+    Assertions.assertAll(
+      () -> Assertions.assertEquals(ids[0], firstBatch.get(0).getID()),
+      () -> Assertions.assertEquals(ids[1], secondBatch.get(0).getID()),
+      () -> Assertions.assertTrue(secondBatch.get(0).isOutDated()),
+      () -> Assertions.assertEquals(0, messageDAO.expireMessagesBefore(new Date(now - 15 * day), 1, true).size()),
+      () -> Assertions.assertEquals(1, messageDAO.getMessageList().size()),
+      () -> Assertions.assertThrows(NoSuchElementException.class, () -> messageDAO.getMessage(ids[0]))
+    );
+
+    messageDAO.deleteAllMessages();
+  }
+
   @Test
   void nullInCreateShouldThrowIllegalArgument() {
     Assertions.assertThrows(IllegalArgumentException.class, () -> messageDAO.createMessage(null));
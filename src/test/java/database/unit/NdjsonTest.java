@@ -0,0 +1,65 @@
+package database.unit;
+
+import com.mongodb.WriteResult;
+import database.InMemoryDB;
+import database.dao.EventDAO;
+import database.dao.IEventDAO;
+import database.dto.DetailsDTO;
+import database.dto.EventDTO;
+import database.exceptions.NoModificationException;
+import database.utils.Ndjson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+class NdjsonTest {
+  private static IEventDAO eventDAO = new EventDAO(InMemoryDB.getInstance());
+
+  @Test
+  void exportedEventsShouldBeImportedUnchanged() throws NoModificationException, IOException {
+    Date date = new Date(System.currentTimeMillis());
+    EventDTO event = new EventDTO.Builder()
+      .name("Fodbold og snobrød")
+      .playground("Vandlegeparken")
+      .details(new DetailsDTO(date, date, date))
+      .build();
+    WriteResult wr = eventDAO.createEvent(event);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long exported = Ndjson.export(InMemoryDB.getInstance(), IEventDAO.COLLECTION, out);
+    eventDAO.deleteAllEvents();
+
+    // importing twice replaces instead of duplicating
+    long imported = Ndjson.importInto(InMemoryDB.getInstance(), IEventDAO.COLLECTION, new ByteArrayInputStream(out.toByteArray()));
+    Ndjson.importInto(InMemoryDB.getInstance(), IEventDAO.COLLECTION, new ByteArrayInputStream(out.toByteArray()));
+
+    EventDTO fetched = eventDAO.getEvent(wr.getUpsertedId().toString());
+    int events = eventDAO.getEventList().size();
+    eventDAO.deleteAllEvents();
+
+    Assertions.assertAll(
+      () -> Assertions.assertEquals(1, exported),
+      () -> Assertions.assertEquals(1, imported),
+      () -> Assertions.assertEquals(1, events),
+      () -> Assertions.assertEquals(event, fetched),
+      () -> Assertions.assertEquals(date, fetched.getDetails().getDate())
+    );
+  }
+
+  @Test
+  void unknownCollectionOrBrokenLineShouldThrowIllegalArgument() {
+    byte[] broken = "{\"_id\" : 1}\nnot json\n".getBytes(StandardCharsets.UTF_8);
+    Assertions.assertAll(
+      () -> Assertions.assertThrows(IllegalArgumentException.class,
+        () -> Ndjson.export(InMemoryDB.getInstance(), "resumeTokens", new ByteArrayOutputStream())),
+      () -> Assertions.assertThrows(IllegalArgumentException.class,
+        () -> Ndjson.importInto(InMemoryDB.getInstance(), IEventDAO.ARCHIVE_COLLECTION, new ByteArrayInputStream(broken)))
+    );
+    eventDAO.deleteAllEvents();
+  }
+}
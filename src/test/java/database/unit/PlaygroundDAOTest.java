@@ -1,7 +1,7 @@
 package database.unit;
 
 import com.mongodb.WriteResult;
-import database.TestDB;
+import database.InMemoryDB;
 import database.dao.IPlaygroundDAO;
 import database.dao.PlaygroundDAO;
 import database.dto.PlaygroundDTO;
@@ -16,7 +16,7 @@ import java.util.NoSuchElementException;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class PlaygroundDAOTest {
-  static IPlaygroundDAO playgroundDAO = new PlaygroundDAO(TestDB.getInstance());
+  static IPlaygroundDAO playgroundDAO = new PlaygroundDAO(InMemoryDB.getInstance());
 
   @BeforeAll
   static void killAll() {
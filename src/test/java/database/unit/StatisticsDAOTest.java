@@ -0,0 +1,101 @@
+package database.unit;
+
+import com.mongodb.WriteResult;
+import database.InMemoryDB;
+import database.dao.EventDAO;
+import database.dao.IEventDAO;
+import database.dao.IPlaygroundDAO;
+import database.dao.IStatisticsDAO;
+import database.dao.PlaygroundDAO;
+import database.dao.StatisticsDAO;
+import database.dto.DetailsDTO;
+import database.dto.EventDTO;
+import database.dto.PlaygroundDTO;
+import database.dto.StatisticsDTO;
+import database.exceptions.NoModificationException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StatisticsDAOTest {
+  private static IEventDAO eventDAO = new EventDAO(InMemoryDB.getInstance());
+  private static IPlaygroundDAO playgroundDAO = new PlaygroundDAO(InMemoryDB.getInstance());
+  private static IStatisticsDAO statisticsDAO = new StatisticsDAO(InMemoryDB.getInstance());
+
+  @BeforeAll
+  static void killAll() {
+    eventDAO.deleteAllEvents();
+  }
+
+  @Test
+  void eventStatisticsShouldBeAggregatedParticipation() throws NoModificationException {
+    EventDTO event1 = new EventDTO.Builder()
+      .name("Football")
+      .participants(20)
+      .details(new DetailsDTO(new Date(System.currentTimeMillis()), new Date(System.currentTimeMillis()), new Date(System.currentTimeMillis())))
+      .build();
+
+    EventDTO event2 = new EventDTO.Builder()
+      .name("Boardgames")
+      .participants(4)
+      .details(new DetailsDTO(new Date(System.currentTimeMillis()), new Date(System.currentTimeMillis()), new Date(System.currentTimeMillis())))
+      .build();
+
+    WriteResult ws1 = eventDAO.createEvent(event1);
+    WriteResult ws2 = eventDAO.createEvent(event2);
+    StatisticsDTO.EventStatistics statistics = statisticsDAO.getEventStatistics();
+
+    Assertions.assertAll(
+      () -> assertEquals(2, statistics.getN()),
+      () -> assertEquals(24, statistics.getTotalParticipants()),
+      () -> assertEquals(12.0, statistics.getAverageParticipants()),
+      () -> assertEquals(20, statistics.getMaxParticipants()),
+      () -> assertEquals(ws1.getUpsertedId().toString(), statistics.getMaxParticipantsEventID())
+    );
+
+    eventDAO.deleteEvent(ws1.getUpsertedId().toString());
+    eventDAO.deleteEvent(ws2.getUpsertedId().toString());
+  }
+
+  @Test
+  void playgroundStatisticsShouldCountEventsInTheirCollection() throws NoModificationException {
+    eventDAO.deleteAllEvents();
+    playgroundDAO.deleteAllPlaygrounds();
+    playgroundDAO.createPlayground(new PlaygroundDTO.Builder("Vandlegeparken").build());
+    playgroundDAO.createPlayground(new PlaygroundDTO.Builder("Søndermarken").build());
+    // more events than the embedded references are capped at
+    for (int i = 0; i < IPlaygroundDAO.MAX_EMBEDDED_REFS + 2; i++)
+      eventDAO.createEvent(new EventDTO.Builder()
+        .name("Football " + i)
+        .playground("Vandlegeparken")
+        .details(new DetailsDTO(new Date(System.currentTimeMillis()), new Date(System.currentTimeMillis()), new Date(System.currentTimeMillis())))
+        .build());
+
+    StatisticsDTO.PlaygroundStatistics statistics = statisticsDAO.getPlaygroundStatistics();
+    eventDAO.deleteAllEvents();
+    playgroundDAO.deleteAllPlaygrounds();
+
+    Assertions.assertAll(
+      () -> assertEquals(2, statistics.getN()),
+      () -> assertEquals(IPlaygroundDAO.MAX_EMBEDDED_REFS + 2, statistics.getTotalEvents()),
+      () -> assertEquals("Vandlegeparken", statistics.getMaxEvents().getPlaygroundID()),
+      () -> assertEquals(0, statistics.getMinEvents().getCount()),
+      () -> assertEquals("Søndermarken", statistics.getMinEvents().getPlaygroundID())
+    );
+  }
+
+  @Test
+  void emptyCollectionShouldGiveZeroes() {
+    eventDAO.deleteAllEvents();
+    StatisticsDTO.EventStatistics statistics = statisticsDAO.getEventStatistics();
+
+    Assertions.assertAll(
+      () -> assertEquals(0, statistics.getN()),
+      () -> assertEquals(0, statistics.getTotalParticipants())
+    );
+  }
+}
@@ -1,10 +1,13 @@
 package database.unit;
 
-import database.TestDB;
+import com.mongodb.DBObject;
+import database.InMemoryDB;
 import database.dao.IUserDAO;
 import database.dao.UserDAO;
 import database.dto.UserDTO;
 import database.exceptions.NoModificationException;
+import database.exceptions.VersionConflictException;
+import database.utils.QueryUtils;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -15,7 +18,7 @@ import java.util.NoSuchElementException;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class UserDAOTest {
-  private static IUserDAO userDAO = new UserDAO(TestDB.getInstance());
+  private static IUserDAO userDAO = new UserDAO(InMemoryDB.getInstance());
 
   @BeforeAll
   static void killAll() {
@@ -102,6 +105,43 @@ class UserDAOTest {
     userDAO.deleteUser(user.getUsername());
   }
 
+  @Test
+  void partial_update_should_only_write_changed_fields() throws NoModificationException {
+    UserDTO user = new UserDTO.Builder("s175565")
+      .setFirstname("Nicolai")
+      .setEmail("s175565@student.dtu.dk")
+      .setPassword("nicolai123456789")
+      .phoneNumbers("+45 23 45 23 12")
+      .build();
+
+    userDAO.createUser(user);
+    UserDTO fetchedUser = userDAO.getUser(user.getUsername());
+    DBObject readState = QueryUtils.snapshot(fetchedUser);
+
+    // nothing changed - nothing is written
+    assertEquals(0, userDAO.updateUser(fetchedUser, readState).getN());
+
+    fetchedUser.setWebsite("www.nisbeth.dk");
+    fetchedUser.setEmail(null);
+    userDAO.updateUser(fetchedUser, readState);
+
+    UserDTO updatedUser = userDAO.getUser(fetchedUser.getUsername());
+    Assertions.assertAll(
+      () -> assertEquals("www.nisbeth.dk", updatedUser.getWebsite()),
+      () -> Assertions.assertNull(updatedUser.getEmail()),
+      () -> assertEquals(fetchedUser.getPassword(), updatedUser.getPassword()),
+      () -> assertEquals(1, updatedUser.getVersion())
+    );
+
+    // the snapshot is of version 0, so writing it again is a conflict
+    UserDTO staleUser = userDAO.getUser(user.getUsername());
+    staleUser.setVersion(0);
+    staleUser.setFirstname("Frederik");
+    Assertions.assertThrows(VersionConflictException.class, () -> userDAO.updateUser(staleUser, readState));
+
+    userDAO.deleteUser(user.getUsername());
+  }
+
   @Test
   void delete_all_users_in_collection() throws NoModificationException {
     UserDTO user1 = new UserDTO.Builder("Nicolai")
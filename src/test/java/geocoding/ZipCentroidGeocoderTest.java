@@ -0,0 +1,40 @@
+package geocoding;
+
+import database.dto.LocationDTO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ZipCentroidGeocoderTest {
+
+  @Test
+  void bundledTableShouldLocateZipCodesAndRanges() {
+    IGeocoder geocoder = ZipCentroidGeocoder.getInstance();
+    LocationDTO olstykke = geocoder.geocode("Agervænget", 34, 3650, "Egedal");
+    LocationDTO centre = geocoder.geocode("Vesterbrogade", 1, 1620, "København");
+
+    Assertions.assertAll(
+      () -> assertEquals(55.80, olstykke.latitude(), 0.05),
+      () -> assertEquals(12.16, olstykke.longitude(), 0.05),
+      () -> assertEquals(55.67, centre.latitude(), 0.05),
+      () -> assertThrows(NoSuchElementException.class, () -> geocoder.geocode("Ukendt", 1, 9999, "Ukendt"))
+    );
+  }
+
+  @Test
+  void tableShouldSkipCommentsAndRejectBadLines() throws IOException {
+    IGeocoder geocoder = new ZipCentroidGeocoder(new StringReader("# first;last;lat;lon;name\n2100;2100;55.71;12.58;København Ø\n"));
+
+    Assertions.assertAll(
+      () -> assertEquals(12.58, geocoder.geocode(null, 0, 2100, null).longitude()),
+      () -> assertThrows(NoSuchElementException.class, () -> geocoder.geocode(null, 0, 2200, null)),
+      () -> assertThrows(IllegalArgumentException.class, () -> new ZipCentroidGeocoder(new StringReader("2100;55.71\n")))
+    );
+  }
+}
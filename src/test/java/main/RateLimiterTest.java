@@ -0,0 +1,41 @@
+package main;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RateLimiterTest {
+  private static final long SECOND = 1_000_000_000L;
+
+  @Test
+  void burstShouldBeLimitedUntilTokensRefill() {
+    RateLimiter limiter = new RateLimiter("test", 3, 0.5);
+
+    for (int i = 0; i < 3; i++)
+      assertEquals(0, limiter.tryAcquire("user:a", 0));
+
+    Assertions.assertAll(
+      () -> assertEquals(2, limiter.tryAcquire("user:a", 0)),
+      () -> assertEquals(0, limiter.tryAcquire("user:b", 0)),
+      () -> assertEquals(0, limiter.tryAcquire("user:a", 2 * SECOND)),
+      () -> assertEquals(1, limiter.getLimited())
+    );
+  }
+
+  @Test
+  void forwardedForShouldOnlyBeReadFromTrustedProxies() {
+    Set<String> proxies = RateLimiter.addresses("10.0.0.1, 10.0.0.2");
+
+    Assertions.assertAll(
+      () -> assertEquals("203.0.113.7", RateLimiter.clientAddress("10.0.0.1", "203.0.113.7", proxies)),
+      // a client behind both proxies, that sent a made-up address of its own
+      () -> assertEquals("203.0.113.7", RateLimiter.clientAddress("10.0.0.1", "1.2.3.4, 203.0.113.7, 10.0.0.2", proxies)),
+      () -> assertEquals("198.51.100.9", RateLimiter.clientAddress("198.51.100.9", "203.0.113.7", proxies)),
+      () -> assertEquals("10.0.0.1", RateLimiter.clientAddress("10.0.0.1", null, proxies)),
+      () -> assertEquals("10.0.0.1", RateLimiter.clientAddress("10.0.0.1", "203.0.113.7", Set.of()))
+    );
+  }
+}
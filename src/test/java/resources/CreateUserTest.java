@@ -3,7 +3,7 @@ package resources;
 import com.google.gson.Gson;
 import database.Controller;
 import database.IController;
-import database.TestDB;
+import database.InMemoryDB;
 import database.dto.PlaygroundDTO;
 import database.dto.UserDTO;
 import database.exceptions.NoModificationException;
@@ -28,14 +28,14 @@ class CreateUserTest {
   static void setUp() {
     //"mock-maker-inline" must be enabled
     ctx = mock(Context.class);
-    controller.setDataSource(TestDB.getInstance());
+    controller.setDataSource(InMemoryDB.getInstance());
     controller.killAll();
 
   }
 
   @BeforeEach
   void setUpUser() throws NoModificationException {
-    controller.setDataSource(TestDB.getInstance());
+    controller.setDataSource(InMemoryDB.getInstance());
     userModel = new JsonModels.UserModel();
     userModel.usernameAdmin = "root";
     userModel.passwordAdmin = "root";
@@ -0,0 +1,83 @@
+package resources;
+
+import io.javalin.http.Context;
+import org.eclipse.jetty.http.HttpStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ResponseCacheTest {
+  private ResponseCache cache;
+  private AtomicInteger loads;
+
+  @BeforeEach
+  void setUp() {
+    cache = ResponseCache.getInstance();
+    cache.invalidate(null);
+    loads = new AtomicInteger();
+  }
+
+  @Test
+  void secondRequestShouldNotLoad() {
+    respond(mock(Context.class));
+    respond(mock(Context.class));
+
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  void matchingETagShouldReturn304() {
+    Context first = mock(Context.class);
+    respond(first);
+    Context second = mock(Context.class);
+    respond(second);
+    ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+    verify(second).header(eq("ETag"), etag.capture());
+
+    Context revalidation = mock(Context.class);
+    when(revalidation.header("If-None-Match")).thenReturn(etag.getValue());
+    respond(revalidation);
+
+    verify(revalidation).status(HttpStatus.NOT_MODIFIED_304);
+  }
+
+  @Test
+  void cachedETagShouldPassIfMatch() {
+    Context read = mock(Context.class);
+    respond(read);
+    ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+    verify(read).header(eq("ETag"), etag.capture());
+
+    Context update = mock(Context.class);
+    when(update.header("If-Match")).thenReturn(etag.getValue());
+
+    assertTrue(Shared.checkIfMatch(update, 7, ResponseCache.etag(Arrays.asList("gynge", "sandkasse"))));
+    assertFalse(Shared.checkIfMatch(update, 7, ResponseCache.etag(Arrays.asList("gynge"))));
+  }
+
+  @Test
+  void invalidateShouldDropPlayground() {
+    respond(mock(Context.class));
+    cache.invalidate("KålPladsen");
+    respond(mock(Context.class));
+
+    assertEquals(2, loads.get());
+  }
+
+  private void respond(Context ctx) {
+    cache.respond(ctx, ResponseCache.playground("KålPladsen"), () -> {
+      loads.incrementAndGet();
+      return CompletableFuture.completedFuture(Arrays.asList("gynge", "sandkasse"));
+    }, "Not found", "Internal error");
+  }
+}
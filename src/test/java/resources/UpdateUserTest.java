@@ -3,7 +3,7 @@ package resources;
 import com.google.gson.Gson;
 import database.Controller;
 import database.IController;
-import database.TestDB;
+import database.InMemoryDB;
 import database.dto.PlaygroundDTO;
 import database.dto.UserDTO;
 import database.exceptions.NoModificationException;
@@ -29,7 +29,7 @@ class UpdateUserTest {
   @BeforeAll
   static void setUp() throws NoModificationException {
     //"mock-maker-inline" must be enabled
-    controller.setDataSource(TestDB.getInstance());
+    controller.setDataSource(InMemoryDB.getInstance());
     controller.killAll();
 
     try {
@@ -3,7 +3,7 @@ package resources;
 import com.google.gson.Gson;
 import database.Controller;
 import database.IController;
-import database.TestDB;
+import database.InMemoryDB;
 import database.dto.UserDTO;
 import io.javalin.http.Context;
 import io.javalin.plugin.openapi.annotations.ContentType;
@@ -25,7 +25,7 @@ public class UserLoginTest {
 
   @BeforeAll
   static void beforeAll() {
-    controller.setDataSource(TestDB.getInstance());
+    controller.setDataSource(InMemoryDB.getInstance());
     controller.killAll();
   }
 
@@ -92,6 +92,15 @@ public class UserLoginTest {
     verify(ctx).contentType(ContentType.JSON);
   }
 
+  @Test
+  void malformedBodyShouldReturn400() throws Exception {
+    when(ctx.body()).thenReturn("{\"username\": \"root\", \"password\": ");
+    User.userLogin.handle(ctx);
+
+    verify(ctx).status(HttpStatus.BAD_REQUEST_400);
+    verify(ctx).contentType(ContentType.JSON);
+  }
+
   @Test
   void validInfoShouldReturn200() throws Exception {
     model.username = "s175565";
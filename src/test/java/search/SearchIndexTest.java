@@ -0,0 +1,77 @@
+package search;
+
+import database.InMemoryDB;
+import database.dto.MessageDTO;
+import database.dto.PlaygroundDTO;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SearchIndexTest {
+  private static SearchIndex searchIndex = SearchIndex.getInstance(InMemoryDB.getInstance());
+
+  @BeforeEach
+  void clear() {
+    searchIndex.clear();
+    searchIndex.indexPlayground(new PlaygroundDTO.Builder("Vandlegeparken")
+      .setStreetName("Agervænget")
+      .setCommune("Egedal")
+      .setDescriptionText("Stor legeplads med vandleg og bålplads")
+      .build());
+    searchIndex.indexPlayground(new PlaygroundDTO.Builder("Naturlegepladsen")
+      .setStreetName("Skovvej")
+      .setCommune("Aarhus")
+      .setDescriptionText("Legepladsen ligger i skoven ved Vandlegeparken")
+      .build());
+  }
+
+  @Test
+  void nameMatchShouldRankAboveDescriptionMatch() {
+    SearchResult result = searchIndex.search("vandlegeparken", 1, 10);
+
+    Assertions.assertAll(
+      () -> assertEquals(2, result.getTotal()),
+      () -> assertEquals("Vandlegeparken", result.getHits().get(0).getId()),
+      () -> assertEquals("Naturlegepladsen", result.getHits().get(1).getId())
+    );
+  }
+
+  @Test
+  void prefixesAndDanishSpellingShouldMatch() {
+    Assertions.assertAll(
+      () -> assertEquals(2, searchIndex.search("legeplads", 1, 10).getTotal()),
+      () -> assertEquals("Naturlegepladsen", searchIndex.search("Århus", 1, 10).getHits().get(0).getId()),
+      () -> assertEquals(1, searchIndex.search("bål vand", 1, 10).getTotal()),
+      () -> assertEquals(0, searchIndex.search("bål skov", 1, 10).getTotal())
+    );
+  }
+
+  @Test
+  void messagesShouldBePagedAndRemovedWithTheirPlayground() {
+    for (int i = 0; i < 5; i++)
+      searchIndex.indexMessage(new MessageDTO.Builder()
+        .set_id(new ObjectId().toString())
+        .setPlaygroundID("Vandlegeparken")
+        .setCategory("Networking")
+        .setMessageString("Fodbold på græsplænen " + i)
+        .setDate(new Date(System.currentTimeMillis()))
+        .build());
+
+    SearchResult lastPage = searchIndex.search("fodbold", 3, 2);
+    Assertions.assertAll(
+      () -> assertEquals(5, lastPage.getTotal()),
+      () -> assertEquals(1, lastPage.getHits().size()),
+      () -> assertEquals(SearchIndex.MESSAGE, lastPage.getHits().get(0).getType())
+    );
+
+    searchIndex.removePlayground("Vandlegeparken");
+    assertEquals(0, searchIndex.search("fodbold", 1, 10).getTotal());
+    assertThrows(IllegalArgumentException.class, () -> searchIndex.search("fodbold", 0, 10));
+  }
+}